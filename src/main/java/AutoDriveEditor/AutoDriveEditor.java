@@ -3,8 +3,6 @@ package AutoDriveEditor;
 import AutoDriveEditor.GUI.ButtonToolbar;
 import AutoDriveEditor.GUI.MapPanel;
 import AutoDriveEditor.GUI.Menus.EditorMenu;
-import AutoDriveEditor.GUI.RenderThreads.ConnectionDrawThread;
-import AutoDriveEditor.GUI.RenderThreads.NodeDrawThread;
 import AutoDriveEditor.GUI.RouteNodesTable.RouteNodesTable;
 import AutoDriveEditor.GUI.TextPanel;
 import AutoDriveEditor.Handlers.GlobalExceptionHandler;
@@ -76,14 +74,8 @@ public class AutoDriveEditor extends JFrame {
                         saveGameConfig(null, false, false);
                     }
                 }
-                if ( getMapPanel().connectionDrawThread != null ) {
-                    ConnectionDrawThread.stop();
-                    getMapPanel().connectionDrawThread.interrupt();
-                }
-
-                if ( getMapPanel().nodeDrawThread != null ) {
-                    NodeDrawThread.stop();
-                    getMapPanel().nodeDrawThread.interrupt();
+                if ( getMapPanel().frameScheduler != null ) {
+                    getMapPanel().frameScheduler.stop();
                 }
 
                 if ( bAutoSaveEnabled && scheduledExecutorService != null ) {
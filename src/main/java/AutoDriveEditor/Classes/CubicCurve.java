@@ -18,6 +18,7 @@ import static AutoDriveEditor.Listeners.MouseListener.prevMousePosY;
 import static AutoDriveEditor.RoadNetwork.MapNode.*;
 import static AutoDriveEditor.RoadNetwork.RoadMap.createMapNode;
 import static AutoDriveEditor.RoadNetwork.RoadMap.createNewNetworkNode;
+import static AutoDriveEditor.RoadNetwork.RoadMap.markNodeChanged;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.Utils.MathUtils.roundUpDoubleToDecimalPlaces;
 import static AutoDriveEditor.XMLConfig.AutoSave.resumeAutoSaving;
@@ -114,9 +115,11 @@ public class CubicCurve {
 
         if (this.curveStartNode.y != -1 && this.curveEndNode.y == -1) {
             this.curveEndNode.y = this.curveStartNode.y;
+            markNodeChanged(this.curveEndNode);
         }
         if (this.curveEndNode.y != -1 && this.curveStartNode.y == -1) {
             this.curveStartNode.y = this.curveEndNode.y;
+            markNodeChanged(this.curveStartNode);
         }
 
         float yInterpolation = (float) ((curveEndNode.y - curveStartNode.y) / (this.curveNodesList.size() - 1));
@@ -16,6 +16,8 @@ import static AutoDriveEditor.RoadNetwork.MapNode.NODE_FLAG_REGULAR;
 import static AutoDriveEditor.RoadNetwork.MapNode.NODE_FLAG_SUBPRIO;
 import static AutoDriveEditor.RoadNetwork.RoadMap.createMapNode;
 import static AutoDriveEditor.RoadNetwork.RoadMap.createNewNetworkNode;
+import static AutoDriveEditor.RoadNetwork.RoadMap.markNodeChanged;
+import static AutoDriveEditor.RoadNetwork.RoadMap.updateNodeLocation;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.XMLConfig.AutoSave.resumeAutoSaving;
 import static AutoDriveEditor.XMLConfig.AutoSave.suspendAutoSaving;
@@ -89,6 +91,7 @@ public class LinearLine {
         if ((this.lineStartNode != null && linearLineNodeDistance >0)) {
             this.lineStartNode.x = worldX;
             this.lineStartNode.z = worldY;
+            updateNodeLocation(this.lineStartNode);
             getInterpolationPointsForLinearLine();
         }
     }
@@ -117,6 +120,7 @@ public class LinearLine {
         if (lineNodeList.size() == 2) {
             if (nodeType == NODE_FLAG_REGULAR) lineStartNode.flag = 0;
             if (nodeType == NODE_FLAG_SUBPRIO) lineStartNode.flag = 1;
+            markNodeChanged(lineStartNode);
         }
 
         if (bDebugLogLinearlineInfo) LOG.info("## LinearLine.commit Debug ## Calculating Y interpolation for all points");
@@ -182,7 +186,10 @@ public class LinearLine {
         }
 
         if (lineEndY == -1 && startNode.y != -1) lineEndY = startNode.y;
-        if (lineEndY != -1 && startNode.y == -1) startNode.y = lineEndY;
+        if (lineEndY != -1 && startNode.y == -1) {
+            startNode.y = lineEndY;
+            markNodeChanged(startNode);
+        }
 
         if (this.lineNodeList.size() <= 1) {
             returnVal = (float) (lineEndY - startNode.y);
@@ -15,7 +15,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.Objects;
 
 import static AutoDriveEditor.AutoDriveEditor.*;
@@ -40,45 +40,62 @@ public class MapImage {
 
     public static double heightMapScale = 1;
 
+    private static MapTilePyramid mapTiles;
+
     public static void loadMapImage(String mapName) {
-        String location;
+        applyMapImage(mapName, decodeMapImage(mapName));
+    }
 
-        if (mapName != null) {
-            LOG.info("-----------------------------------------");
-            LOG.info("Loading MapImage..... ");
-            LOG.info(".....");
-            LOG.info("Checking known locations for {}.png", mapName);
-            location = findImageLocationFor(mapName,"");
+    //
+    // The map image and heightmap loading is split in two, decodeXXX() finds and reads the image file and
+    // can run on any thread ( e.g. while the config is still being parsed ), applyXXX() then has to be
+    // called on the EDT to use the decoded image, or report it as not found if it is null.
+    //
 
-            if (location != null) {
-                BufferedImage loadedImage;
-                SimpleImageInfo imageInfo;
+    public static BufferedImage decodeMapImage(String mapName) {
+        if (mapName == null) return null;
 
-                try {
-                    imageInfo = new SimpleImageInfo(new File(location));
-                    pdaImage = getNewBufferImage(imageInfo.getWidth(), imageInfo.getHeight(), Transparency.OPAQUE);
-                    try {
-                        loadedImage = ImageIO.read(new File(location));
-                        Graphics2D g = (Graphics2D) pdaImage.getGraphics();
-                        g.drawImage(loadedImage, 0, 0, loadedImage.getWidth(), loadedImage.getHeight(), null);
-                        g.dispose();
-                        setImageLoadedLabel("Loaded", new Color(0, 100, 0));
-                        setImage(pdaImage, false);
-                    } catch (IOException ignored) {}
-                } catch (IOException ignored) {}
-            } else {
-                LOG.info(getLocaleString("console_editor_no_map"));
-                useDefaultMapImage();
-                forceMapImageRedraw();
-                if (configType == CONFIG_SAVEGAME) {
-                    JOptionPane.showMessageDialog(editor, getLocaleString("dialog_gamexml_mapimage_not_found_message"), getLocaleString("dialog_mapimage_not_found_title"), JOptionPane.ERROR_MESSAGE);
-                } else if (configType == CONFIG_ROUTEMANAGER) {
-                    JOptionPane.showMessageDialog(editor, getLocaleString("dialog_routexml_mapimage_not_found_message"), getLocaleString("dialog_mapimage_not_found_title"), JOptionPane.ERROR_MESSAGE);
-                }
-                setImageLoadedLabel("Not Found", new Color(200,0,0));
+        LOG.info("-----------------------------------------");
+        LOG.info("Loading MapImage..... ");
+        LOG.info(".....");
+        LOG.info("Checking known locations for {}.png", mapName);
+        String location = findImageLocationFor(mapName,"");
+
+        if (location != null) {
+            try {
+                SimpleImageInfo imageInfo = new SimpleImageInfo(new File(location));
+                BufferedImage image = getNewBufferImage(imageInfo.getWidth(), imageInfo.getHeight(), Transparency.OPAQUE);
+                BufferedImage loadedImage = ImageIO.read(new File(location));
+                Graphics2D g = (Graphics2D) image.getGraphics();
+                g.drawImage(loadedImage, 0, 0, loadedImage.getWidth(), loadedImage.getHeight(), null);
+                g.dispose();
+                return image;
+            } catch (IOException e) {
+                LOG.info("Failed to read MapImage {}", location);
             }
-            mapMenuEnabled(true);
         }
+        return null;
+    }
+
+    public static void applyMapImage(String mapName, BufferedImage image) {
+        if (mapName == null) return;
+
+        if (image != null) {
+            pdaImage = image;
+            setImageLoadedLabel("Loaded", new Color(0, 100, 0));
+            setImage(pdaImage, false);
+        } else {
+            LOG.info(getLocaleString("console_editor_no_map"));
+            useDefaultMapImage();
+            forceMapImageRedraw();
+            if (configType == CONFIG_SAVEGAME) {
+                JOptionPane.showMessageDialog(editor, getLocaleString("dialog_gamexml_mapimage_not_found_message"), getLocaleString("dialog_mapimage_not_found_title"), JOptionPane.ERROR_MESSAGE);
+            } else if (configType == CONFIG_ROUTEMANAGER) {
+                JOptionPane.showMessageDialog(editor, getLocaleString("dialog_routexml_mapimage_not_found_message"), getLocaleString("dialog_mapimage_not_found_title"), JOptionPane.ERROR_MESSAGE);
+            }
+            setImageLoadedLabel("Not Found", new Color(200,0,0));
+        }
+        mapMenuEnabled(true);
     }
 
     public static void manualLoadHeightMap(File path) {
@@ -107,62 +124,73 @@ public class MapImage {
     }
 
     public static void loadHeightMap(String mapName) {
+        applyHeightMap(mapName, decodeHeightMap(mapName, xmlConfigFile));
+    }
+
+    public static BufferedImage decodeHeightMap(String mapName, File configFile) {
+        if (mapName == null) return null;
+
         String location;
-        String configPath;
+        LOG.info("-----------------------------------------");
+        LOG.info("Loading HeightMap..... ");
+        try {
+            //check if the file is in the same location as config file
+            String configPath = removeFilenameFromString(configFile.toString());
+            location = configPath + "terrain.heightmap.png";
+            @SuppressWarnings("unused")
+            SimpleImageInfo imageInfo = new SimpleImageInfo(new File(location));
+            LOG.info("Found file at {}", location);
+        } catch (Exception e) {
+            LOG.info("Failed to find 'terrain.heightmap.png' at config location");
+            LOG.info(".....");
+            LOG.info("Checking known locations for {}_HeightMap.png", mapName);
+            location = findImageLocationFor(mapName, "_HeightMap");
+        }
 
-        if (mapName != null) {
-            LOG.info("-----------------------------------------");
-            LOG.info("Loading HeightMap..... ");
+        if (location != null) {
             try {
-                //check if the file is in the same location as config file
-                configPath = removeFilenameFromString(xmlConfigFile.toString());
-                location = configPath + "terrain.heightmap.png";
-                @SuppressWarnings("unused")
                 SimpleImageInfo imageInfo = new SimpleImageInfo(new File(location));
-                LOG.info("Found file at {}", location);
-            } catch (Exception e) {
-                LOG.info("Failed to find 'terrain.heightmap.png' at config location");
-                LOG.info(".....");
-                LOG.info("Checking known locations for {}_HeightMap.png", mapName);
-                location = findImageLocationFor(mapName, "_HeightMap");
+                BufferedImage image;
+                if (EXPERIMENTAL) {
+                    image = new BufferedImage(imageInfo.getWidth(), imageInfo.getHeight(), BufferedImage.TYPE_USHORT_565_RGB);
+                } else {
+                    image = getNewBufferImage(imageInfo.getWidth(), imageInfo.getHeight(), Transparency.OPAQUE);
+                }
+                BufferedImage loadedImage = ImageIO.read(new File(location));
+                Graphics2D g = (Graphics2D) image.getGraphics();
+                g.drawImage(loadedImage, 0, 0, loadedImage.getWidth(), loadedImage.getHeight(), null);
+                g.dispose();
+                return image;
+            } catch (IOException e) {
+                LOG.info("Failed to read HeightMap {}", location);
             }
+        }
+        return null;
+    }
 
-            if (location != null) {
-                BufferedImage loadedImage;
-                SimpleImageInfo imageInfo;
+    // The heightmap scale is calculated from the network, so it has to be applied after the network is loaded
 
-                try {
-                    imageInfo = new SimpleImageInfo(new File(location));
-                    if (EXPERIMENTAL) {
-                        heightMapImage = new BufferedImage(imageInfo.getWidth(), imageInfo.getHeight(), BufferedImage.TYPE_USHORT_565_RGB);
-                    } else {
-                        heightMapImage = getNewBufferImage(imageInfo.getWidth(), imageInfo.getHeight(), Transparency.OPAQUE);
-                    }
+    public static void applyHeightMap(String mapName, BufferedImage image) {
+        if (mapName == null) return;
 
-                    try {
-                        loadedImage = ImageIO.read(new File(location));
-                        Graphics2D g = (Graphics2D) heightMapImage.getGraphics();
-                        g.drawImage(loadedImage, 0, 0, loadedImage.getWidth(), loadedImage.getHeight(), null);
-                        g.dispose();
-                        setHeightMapLoadedLabel("Loaded", new Color(0, 100, 0));
-
-                        heightmapMenuEnabled(true);
-                        heightMapScale = calculateHeightMapScaling();
-                        LOG.info("HeightMap size = {} x {}", heightMapImage.getWidth(), heightMapImage.getHeight());
-                        LOG.info("HeightMap Scale = {}", heightMapScale);
-                        LOG.info("-----------------------------------------");
-                    } catch (IOException ignored) {}
-                } catch (IOException ignored) {}
-            } else {
-                LOG.info("Failed to load HeightMap");
-                heightMapScale = 1;
-                setHeightMapLoadedLabel("Not Found", Color.RED);
-                heightmapMenuEnabled(true);
-                if (configType == CONFIG_SAVEGAME) {
-                    JOptionPane.showMessageDialog(editor, getLocaleString("dialog_heightmap_not_found_game"), getLocaleString("dialog_heightmap_not_found_title"), JOptionPane.ERROR_MESSAGE);
-                } else if (configType == CONFIG_ROUTEMANAGER) {
-                    JOptionPane.showMessageDialog(editor, getLocaleString("dialog_heightmap_not_found_route"), getLocaleString("dialog_heightmap_not_found_title"), JOptionPane.ERROR_MESSAGE);
-                }
+        if (image != null) {
+            heightMapImage = image;
+            setHeightMapLoadedLabel("Loaded", new Color(0, 100, 0));
+
+            heightmapMenuEnabled(true);
+            heightMapScale = calculateHeightMapScaling();
+            LOG.info("HeightMap size = {} x {}", heightMapImage.getWidth(), heightMapImage.getHeight());
+            LOG.info("HeightMap Scale = {}", heightMapScale);
+            LOG.info("-----------------------------------------");
+        } else {
+            LOG.info("Failed to load HeightMap");
+            heightMapScale = 1;
+            setHeightMapLoadedLabel("Not Found", Color.RED);
+            heightmapMenuEnabled(true);
+            if (configType == CONFIG_SAVEGAME) {
+                JOptionPane.showMessageDialog(editor, getLocaleString("dialog_heightmap_not_found_game"), getLocaleString("dialog_heightmap_not_found_title"), JOptionPane.ERROR_MESSAGE);
+            } else if (configType == CONFIG_ROUTEMANAGER) {
+                JOptionPane.showMessageDialog(editor, getLocaleString("dialog_heightmap_not_found_route"), getLocaleString("dialog_heightmap_not_found_title"), JOptionPane.ERROR_MESSAGE);
             }
         }
     }
@@ -317,7 +345,7 @@ public class MapImage {
     public static float  calculateHeightMapScaling(){
         double heightDiff = 0;
 
-        LinkedList<MapNode> mapNodes = RoadMap.networkNodesList;
+        ArrayList<MapNode> mapNodes = RoadMap.networkNodesList;
         if (heightMapImage != null) {
             for (MapNode node : mapNodes) {
                 heightDiff += ((getYValueFromHeightMap(node.x, node.z) - node.y) / node.y);
@@ -353,6 +381,21 @@ public class MapImage {
         return pdaImage;
     }
 
+    // The tile pyramid is only created the first time it is needed after the
+    // map image has been changed.
+
+    public static MapTilePyramid getMapTiles() {
+        if (mapPanelImage == null) return null;
+        if (mapTiles == null || !mapTiles.isCreatedFrom(mapPanelImage)) {
+            mapTiles = new MapTilePyramid(mapPanelImage);
+        }
+        return mapTiles;
+    }
+
+    public static void invalidateMapTiles() {
+        mapTiles = null;
+    }
+
     // TODO:-   eliminate mapPanelImage entirely, will need to change how the
     //          map image is loaded so pdaImage is a scaled down version of
     //          the original file.
@@ -367,6 +410,7 @@ public class MapImage {
                     Graphics2D g = (Graphics2D) mapPanelImage.getGraphics();
                     g.drawImage(tempImage, 0 , 0 , null);
                     g.dispose();
+                    invalidateMapTiles();
                 } else {
                     String message;
                     if (configVersion == FS19_CONFIG) {
@@ -387,6 +431,7 @@ public class MapImage {
             Graphics2D g2d = (Graphics2D) mapPanelImage.getGraphics();
             g2d.drawImage(image, 0, 0, null);
             g2d.dispose();
+            invalidateMapTiles();
         } else {
             LOG.info("## setImage() ## image = null");
         }
@@ -0,0 +1,145 @@
+package AutoDriveEditor.Classes;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static AutoDriveEditor.GUI.Menus.DebugMenu.Logging.LogZoomScaleMenu.bDebugLogZoomScale;
+import static AutoDriveEditor.Utils.ImageUtils.getNewBufferImage;
+import static AutoDriveEditor.Utils.LoggerUtils.LOG;
+
+// Mipmapped, tiled copy of the map image.
+//
+// Level 0 is the full size map image (2048 x 2048), every level after that is half the size of
+// the previous one (1024, 512, 256...). Each level is cut into TILE_SIZE tiles stored in compatible
+// images, so drawing the background is a handful of small blits from the level that is closest to
+// the current zoomLevel instead of rescaling the whole visible area of the map image every frame.
+
+public class MapTilePyramid {
+
+    public static final int TILE_SIZE = 256;
+    private static final int MIN_LEVEL_SIZE = 256;
+
+    private final BufferedImage sourceImage;
+    private final int sourceWidth;
+    private final int sourceHeight;
+    private final BufferedImage[][][] levels;
+
+    public MapTilePyramid(BufferedImage image) {
+        this.sourceImage = image;
+        this.sourceWidth = image.getWidth();
+        this.sourceHeight = image.getHeight();
+
+        int numLevels = 1;
+        int size = Math.max(sourceWidth, sourceHeight);
+        while (size / 2 >= MIN_LEVEL_SIZE) {
+            size /= 2;
+            numLevels++;
+        }
+        this.levels = new BufferedImage[numLevels][][];
+
+        // Each level is created by halving the previous one with bilinear filtering, repeated halving
+        // gives a much better result at low zoom than a single nearest neighbour scale per frame.
+
+        BufferedImage levelImage = image;
+        for (int level = 0; level < numLevels; level++) {
+            if (level > 0) levelImage = halveImage(levelImage);
+            levels[level] = cutIntoTiles(levelImage);
+        }
+        if (bDebugLogZoomScale) LOG.info("## MapTilePyramid ## Created {} levels from {} x {} image", numLevels, sourceWidth, sourceHeight);
+    }
+
+    public boolean isCreatedFrom(BufferedImage image) {
+        return this.sourceImage == image;
+    }
+
+    public int getNumLevels() { return levels.length; }
+
+    // Pick the smallest level that still has at least one image pixel for every screen pixel,
+    // so we only ever shrink the tiles when drawing ( except at level 0 when zoomed in ).
+
+    public int getLevelForZoom(double zoomLevel) {
+        int level = 0;
+        double levelScale = 1;
+        while (level < levels.length - 1 && zoomLevel <= levelScale / 2) {
+            levelScale /= 2;
+            level++;
+        }
+        return level;
+    }
+
+    //
+    // Draw the visible part of the map. imageX/imageY is the top left of the MapPanel in
+    // full size map image pixels, zoomLevel is the number of screen pixels per map image pixel.
+    //
+
+    public void drawVisibleTiles(Graphics g, double imageX, double imageY, double zoomLevel, int panelWidth, int panelHeight) {
+        int level = getLevelForZoom(zoomLevel);
+        BufferedImage[][] tiles = levels[level];
+        int levelFactor = 1 << level;
+
+        // size of one tile in full size image pixels
+        double tileImageSize = (double) TILE_SIZE * levelFactor;
+
+        double visibleEndX = imageX + (panelWidth / zoomLevel);
+        double visibleEndY = imageY + (panelHeight / zoomLevel);
+
+        int firstTileX = Math.max(0, (int) Math.floor(imageX / tileImageSize));
+        int firstTileY = Math.max(0, (int) Math.floor(imageY / tileImageSize));
+        int lastTileX = Math.min(tiles.length - 1, (int) Math.floor(visibleEndX / tileImageSize));
+        int lastTileY = Math.min(tiles[0].length - 1, (int) Math.floor(visibleEndY / tileImageSize));
+
+        for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+            // Both edges of a tile are calculated with the same function, so neighbouring
+            // tiles always meet at the same screen pixel and there are no gaps between them
+            int screenStartX = toScreen(tileX * tileImageSize, imageX, zoomLevel);
+            for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+                BufferedImage tile = tiles[tileX][tileY];
+                int screenStartY = toScreen(tileY * tileImageSize, imageY, zoomLevel);
+                int screenEndX = toScreen((tileX * tileImageSize) + ((double) tile.getWidth() * levelFactor), imageX, zoomLevel);
+                int screenEndY = toScreen((tileY * tileImageSize) + ((double) tile.getHeight() * levelFactor), imageY, zoomLevel);
+                g.drawImage(tile, screenStartX, screenStartY, screenEndX, screenEndY, 0, 0, tile.getWidth(), tile.getHeight(), null);
+            }
+        }
+    }
+
+    //
+    // Internal functions
+    //
+
+    private static int toScreen(double imagePos, double imageOrigin, double zoomLevel) {
+        return (int) Math.floor((imagePos - imageOrigin) * zoomLevel);
+    }
+
+    private static BufferedImage halveImage(BufferedImage image) {
+        int newWidth = Math.max(1, image.getWidth() / 2);
+        int newHeight = Math.max(1, image.getHeight() / 2);
+        BufferedImage halvedImage = getNewBufferImage(newWidth, newHeight, Transparency.OPAQUE);
+        Graphics2D g = (Graphics2D) halvedImage.getGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(image, 0, 0, newWidth, newHeight, null);
+        g.dispose();
+        return halvedImage;
+    }
+
+    private static BufferedImage[][] cutIntoTiles(BufferedImage image) {
+        int numTilesX = (image.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        int numTilesY = (image.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+        BufferedImage[][] tiles = new BufferedImage[numTilesX][numTilesY];
+
+        for (int tileX = 0; tileX < numTilesX; tileX++) {
+            for (int tileY = 0; tileY < numTilesY; tileY++) {
+                int startX = tileX * TILE_SIZE;
+                int startY = tileY * TILE_SIZE;
+                int width = Math.min(TILE_SIZE, image.getWidth() - startX);
+                int height = Math.min(TILE_SIZE, image.getHeight() - startY);
+                BufferedImage tile = getNewBufferImage(width, height, Transparency.OPAQUE);
+                Graphics2D g = (Graphics2D) tile.getGraphics();
+                g.drawImage(image, 0, 0, width, height, startX, startY, startX + width, startY + height, null);
+                g.dispose();
+                tiles[tileX][tileY] = tile;
+            }
+        }
+        return tiles;
+    }
+}
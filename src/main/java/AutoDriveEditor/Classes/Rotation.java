@@ -16,6 +16,7 @@ import static AutoDriveEditor.GUI.MapPanel.*;
 import static AutoDriveEditor.Managers.CopyPasteManager.*;
 import static AutoDriveEditor.Managers.MultiSelectManager.multiSelectList;
 import static AutoDriveEditor.RoadNetwork.RoadMap.createControlNode;
+import static AutoDriveEditor.RoadNetwork.RoadMap.updateNodeLocation;
 import static AutoDriveEditor.Utils.MathUtils.roundUpDoubleToDecimalPlaces;
 import static AutoDriveEditor.XMLConfig.AutoSave.resumeAutoSaving;
 import static AutoDriveEditor.XMLConfig.AutoSave.suspendAutoSaving;
@@ -54,6 +55,9 @@ public class Rotation {
         lastAngle = 0;
     }
 
+    // The node is moved to its new cell in the spatial grid straight away, callers don't have to
+    // refresh the rotated nodes for the grid ( the control node isn't in the grid, so it's ignored )
+
     public void rotatePoint(MapNode node, Point2D centre, double angle) {
         Point2D result = new Point2D.Double();
         AffineTransform rotation = new AffineTransform();
@@ -62,6 +66,7 @@ public class Rotation {
         rotation.transform(new Point2D.Double(node.x, node.z), result);
         node.x = roundUpDoubleToDecimalPlaces(result.getX(), 3);
         node.z = roundUpDoubleToDecimalPlaces(result.getY(), 3);
+        updateNodeLocation(node);
     }
 
     @SuppressWarnings("unused")
@@ -43,9 +43,14 @@ public abstract class AddNodeBaseButton extends BaseButton {
             this.isStale = isStale();
         }
 
+        @Override
+        public long getEstimatedMemoryUse() {
+            return ChangeManager.CHANGEABLE_SIZE + ChangeManager.MAP_NODE_SIZE;
+        }
+
         public void undo(){
             for (MapNode mapNode : storeNode.getWarningNodes()) {
-                mapNode.getWarningNodes().remove(storeNode);
+                mapNode.removeWarningNode(storeNode);
                 if (mapNode.getWarningNodes().size() == 0) mapNode.clearWarningNodes();
             }
             if (hoveredNode == storeNode) hoveredNode = null;
@@ -55,6 +55,11 @@ public abstract class AlignBaseButton extends BaseButton {
             }
         }
 
+        @Override
+        public long getEstimatedMemoryUse() {
+            return ChangeManager.estimateLinkedListSize(this.nodeList.size(), 40);
+        }
+
         public void undo() {
             for (ZStore storedNode : nodeList) {
                 storedNode.mapNode.x += storedNode.diffX;
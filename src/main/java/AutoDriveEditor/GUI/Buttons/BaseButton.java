@@ -1,6 +1,7 @@
 package AutoDriveEditor.GUI.Buttons;
 
 import AutoDriveEditor.Managers.ButtonManager;
+import AutoDriveEditor.Managers.ChangeManager;
 import AutoDriveEditor.RoadNetwork.MapNode;
 
 import javax.swing.*;
@@ -15,6 +16,7 @@ import static AutoDriveEditor.GUI.Menus.DebugMenu.Logging.LogGUIInfoMenu.bDebugL
 import static AutoDriveEditor.GUI.TextPanel.showInTextArea;
 import static AutoDriveEditor.Managers.ButtonManager.ButtonNode;
 import static AutoDriveEditor.Managers.ButtonManager.ButtonState;
+import static AutoDriveEditor.RoadNetwork.RoadMap.markConnectionsChanged;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.Utils.MathUtils.normalizeAngle;
 import static AutoDriveEditor.XMLConfig.EditorXML.*;
@@ -56,8 +58,6 @@ public abstract class BaseButton implements ButtonState, ActionListener, MouseLi
 
     public Boolean previewConnectionHiddenChange() { return false; }
 
-    public Integer getLineDetectionInterval() { return 10; }
-
     public Boolean getShowHighlightSelected() { return false; }
 
     public Boolean addSelectedToMultiSelectList() { return true; }
@@ -145,14 +145,25 @@ public abstract class BaseButton implements ButtonState, ActionListener, MouseLi
 
         public boolean hasChangedID() { return this.mapNode.id != this.mapNodeIDBackup; }
 
+        // the store and its connection backups, not the node itself
+        public long getEstimatedMemoryUse() {
+            return ChangeManager.CHANGEABLE_SIZE + (this.incomingBackup.size() + this.outgoingBackup.size()) * ChangeManager.ARRAY_LIST_ENTRY_SIZE;
+        }
+
         public void clearConnections() {
             clearIncoming();
             clearOutgoing();
         }
 
-        public void clearIncoming() { this.mapNode.incoming.clear(); }
+        public void clearIncoming() {
+            markConnectionsChanged(this.mapNode);
+            this.mapNode.incoming.clear();
+        }
 
-        public void clearOutgoing() { this.mapNode.outgoing.clear(); }
+        public void clearOutgoing() {
+            markConnectionsChanged(this.mapNode);
+            this.mapNode.outgoing.clear();
+        }
 
         public void backupConnections() {
             copyList(this.mapNode.incoming, this.incomingBackup);
@@ -177,12 +188,14 @@ public abstract class BaseButton implements ButtonState, ActionListener, MouseLi
         public void restoreOutgoing() { copyList(this.outgoingBackup, this.mapNode.outgoing); }
 
         private void copyList(ArrayList<MapNode> from, ArrayList<MapNode> to) {
+            markConnectionsChanged(this.mapNode);
             to.clear();
             // use .clone() ??
             for (int i = 0; i <= from.size() - 1 ; i++) {
                 MapNode mapNode = from.get(i);
                 to.add(mapNode);
             }
+            markConnectionsChanged(this.mapNode);
         }
     }
 
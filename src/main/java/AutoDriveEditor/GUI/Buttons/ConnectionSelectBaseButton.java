@@ -2,9 +2,10 @@ package AutoDriveEditor.GUI.Buttons;
 
 import AutoDriveEditor.RoadNetwork.MapNode;
 import AutoDriveEditor.RoadNetwork.RoadMap;
+import AutoDriveEditor.Utils.Classes.ConnectionGrid;
+import AutoDriveEditor.Utils.Classes.LassoPolygon;
 
 import java.awt.event.MouseEvent;
-import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
@@ -14,19 +15,20 @@ import static AutoDriveEditor.GUI.Buttons.LinerLineBaseButton.*;
 import static AutoDriveEditor.GUI.MapPanel.screenPosToWorldPos;
 import static AutoDriveEditor.GUI.MapPanel.worldPosToScreenPos;
 import static AutoDriveEditor.GUI.Menus.DebugMenu.Logging.LogConnectSelectionMenu.bDebugConnectSelection;
-import static AutoDriveEditor.Listeners.MouseListener.currentMouseX;
-import static AutoDriveEditor.Listeners.MouseListener.currentMouseY;
 import static AutoDriveEditor.Managers.ButtonManager.getCurrentButton;
 import static AutoDriveEditor.Managers.MultiSelectManager.*;
 import static AutoDriveEditor.RoadNetwork.MapNode.NODE_FLAG_REGULAR;
 import static AutoDriveEditor.RoadNetwork.MapNode.NODE_FLAG_SUBPRIO;
+import static AutoDriveEditor.RoadNetwork.RoadMap.CONNECTION_TYPE_DUAL;
+import static AutoDriveEditor.RoadNetwork.RoadMap.CONNECTION_TYPE_NONE;
+import static AutoDriveEditor.RoadNetwork.RoadMap.CONNECTION_TYPE_REVERSE;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
-import static AutoDriveEditor.XMLConfig.EditorXML.linearLineNodeDistance;
 
 public abstract class ConnectionSelectBaseButton extends BaseButton {
 
     public static final ArrayList<Connection> connectionsList = new ArrayList<>();
-    public final int padding = linearLineNodeDistance * 2;
+    // how close (in world units) the mouse has to be to a connection to pick it
+    protected static final double POINT_DETECTION_DISTANCE = .5;
     public MapNode lastDetected;
 
     public static boolean ignore = true;
@@ -65,7 +67,7 @@ public abstract class ConnectionSelectBaseButton extends BaseButton {
             if (useRectangularSelection) {
                 getConnectionsInSelectionRectangle(multiSelectRect);
             } else {
-                getConnectionsInSelectionPath(getFreeformSelectionPath());
+                getConnectionsInSelectionPolygon(getFreeformSelectionPolygon());
             }
         }
     }
@@ -74,39 +76,42 @@ public abstract class ConnectionSelectBaseButton extends BaseButton {
     public void mouseReleased(MouseEvent e) {
         for (Connection segment : connectionsList) {
             if (!segment.getStartNode().getHiddenConnectionsList().contains(segment.getEndNode())) {
-                segment.getStartNode().getHiddenConnectionsList().add(segment.getEndNode());
+                segment.getStartNode().addHiddenConnection(segment.getEndNode());
             } else {
-                segment.getStartNode().getHiddenConnectionsList().remove(segment.getEndNode());
+                segment.getStartNode().removeHiddenConnection(segment.getEndNode());
             }
         }
         resetConnectionList();
         getMapPanel().repaint();
     }
 
+    //
+    // The connections are found through the RoadMap connection grid, only the connections that pass through
+    // the grid cells around the point/area are tested, the rest of the network isn't looked at.
+    //
+
     public void getConnectionsAroundPoint(Point2D point) {
-        double startX = point.getX() - padding;
-        double startY = point.getY() - padding;
-        double endX = point.getX() + padding;
-        double endY = point.getY() + padding;
-
-        for (MapNode mapNode : RoadMap.networkNodesList) {
-            if (mapNode.x > startX && mapNode.x < endX && mapNode.z > startY && mapNode.z < endY) {
-                if (mapNode.outgoing.size() > 0) {
-                    for (MapNode outgoing : mapNode.outgoing) {
-                        Point2D mouseWorldPos = screenPosToWorldPos(currentMouseX, currentMouseY);
-                        if (pointToLineDistance(mapNode, outgoing, mouseWorldPos.getX(), mouseWorldPos.getY()) < .5) {
-                            int connectionType = getConnectionTypeFor(mapNode, outgoing);
-                            if (connectionType != CONNECTION_UNKNOWN) {
-                                connectionsList.add(new Connection(mapNode, outgoing, connectionType));
-                            }
-                            lastDetected = mapNode;
-                        }
-                    }
+        ConnectionGrid grid = RoadMap.getConnectionGrid();
+        for (int connection : getConnectionsNearPoint(grid, point)) {
+            MapNode mapNode = grid.getStartNode(connection);
+            MapNode outgoing = grid.getEndNode(connection);
+            if (pointToLineDistance(mapNode, outgoing, point.getX(), point.getY()) < POINT_DETECTION_DISTANCE) {
+                int connectionType = getConnectionTypeFor(mapNode, outgoing);
+                if (connectionType != CONNECTION_UNKNOWN) {
+                    addToConnectionsList(mapNode, outgoing, connectionType);
                 }
+                lastDetected = mapNode;
             }
         }
     }
 
+    // candidate connections for getConnectionsAroundPoint(), they still need the pointToLineDistance() check
+
+    protected int[] getConnectionsNearPoint(ConnectionGrid grid, Point2D point) {
+        return grid.queryArea(point.getX() - POINT_DETECTION_DISTANCE, point.getY() - POINT_DETECTION_DISTANCE,
+                point.getX() + POINT_DETECTION_DISTANCE, point.getY() + POINT_DETECTION_DISTANCE);
+    }
+
     public double pointToLineDistance(MapNode startNode, MapNode endNode, double worldMouseX, double worldMouseY) {
 
         // calculate the direction vector of the line
@@ -130,77 +135,58 @@ public abstract class ConnectionSelectBaseButton extends BaseButton {
     }
 
     private void getConnectionsInSelectionRectangle(Rectangle2D rect) {
-        double startX = rect.getX() - padding;
-        double startY = rect.getY() - padding;
-        double endX = rect.getX() + (rect.getWidth() + padding);
-        double endY = rect.getY() + (rect.getHeight() + padding);
-
-        for (MapNode mapNode : RoadMap.networkNodesList) {
-            if (mapNode.x > startX && mapNode.x < endX && mapNode.z > startY && mapNode.z < endY) {
-                if (mapNode.outgoing.size() > 0) {
-                    for (MapNode outgoing : mapNode.outgoing) {
-                        if (rect.intersectsLine(mapNode.x, mapNode.z, outgoing.x, outgoing.z)) {
-                            int connectionType = getConnectionTypeFor(mapNode, outgoing);
-                            if (connectionType != CONNECTION_UNKNOWN) {
-                                connectionsList.add(new Connection(mapNode, outgoing, connectionType));
-                            }
-                            lastDetected = mapNode;
-                        }
-                    }
+        ConnectionGrid grid = RoadMap.getConnectionGrid();
+        for (int connection : grid.queryArea(rect.getMinX(), rect.getMinY(), rect.getMaxX(), rect.getMaxY())) {
+            MapNode mapNode = grid.getStartNode(connection);
+            MapNode outgoing = grid.getEndNode(connection);
+            if (rect.intersectsLine(mapNode.x, mapNode.z, outgoing.x, outgoing.z)) {
+                int connectionType = getConnectionTypeFor(mapNode, outgoing);
+                if (connectionType != CONNECTION_UNKNOWN) {
+                    addToConnectionsList(mapNode, outgoing, connectionType);
                 }
+                lastDetected = mapNode;
             }
         }
     }
 
-    private void getConnectionsInSelectionPath(Path2D path) {
-        if (path != null) {
-            Rectangle2D rec = path.getBounds2D();
-            Point2D startWorld = screenPosToWorldPos((int) rec.getX(), (int) rec.getY());
-            Point2D endWorld = screenPosToWorldPos((int) (rec.getX() + rec.getWidth()), (int) (rec.getY() + rec.getHeight()));
-            double startX = startWorld.getX() - padding;
-            double startY = startWorld.getY() - padding;
-            double endX = endWorld.getX() + padding;
-            double endY = endWorld.getY() + padding;
-
-            for (MapNode mapNode : RoadMap.networkNodesList) {
-                // check if the mapNode is within the bounding box of the selection path
-                if (mapNode.x > startX && mapNode.x < endX && mapNode.z > startY && mapNode.z < endY) {
-                    for (MapNode outgoing : mapNode.outgoing) {
-                        Point2D pointStart = worldPosToScreenPos(mapNode.x, mapNode.z);
-                        Point2D pointEnd = worldPosToScreenPos(outgoing.x, outgoing.z);
-                        int interval = (getCurrentButton() != null)? getLineDetectionInterval() : 10;
-                        if (isLineIntersectingPath(pointStart, pointEnd, interval, getFreeformSelectionPath())) {
-                            int connectionType = getConnectionTypeFor(mapNode, outgoing);
-                            if (connectionType != CONNECTION_UNKNOWN) {
-                                connectionsList.add(new Connection(mapNode, outgoing, connectionType));
-                            }
-                            lastDetected = mapNode;
-                        }
+    //
+    // The freeform selection is tested exactly, a connection is selected if any part of it is inside the
+    // selection polygon. The polygon is kept up to date by the MultiSelectManager as the mouse is dragged.
+    //
+
+    private void getConnectionsInSelectionPolygon(LassoPolygon polygon) {
+        if (polygon.getNumPoints() >= 3) {
+            Point2D startWorld = screenPosToWorldPos((int) Math.floor(polygon.getMinX()), (int) Math.floor(polygon.getMinY()));
+            Point2D endWorld = screenPosToWorldPos((int) Math.ceil(polygon.getMaxX()), (int) Math.ceil(polygon.getMaxY()));
+
+            ConnectionGrid grid = RoadMap.getConnectionGrid();
+            for (int connection : grid.queryArea(startWorld.getX(), startWorld.getY(), endWorld.getX(), endWorld.getY())) {
+                MapNode mapNode = grid.getStartNode(connection);
+                MapNode outgoing = grid.getEndNode(connection);
+                Point2D pointStart = worldPosToScreenPos(mapNode.x, mapNode.z);
+                Point2D pointEnd = worldPosToScreenPos(outgoing.x, outgoing.z);
+                if (polygon.intersectsLine(pointStart.getX(), pointStart.getY(), pointEnd.getX(), pointEnd.getY())) {
+                    int connectionType = getConnectionTypeFor(mapNode, outgoing);
+                    if (connectionType != CONNECTION_UNKNOWN) {
+                        addToConnectionsList(mapNode, outgoing, connectionType);
                     }
+                    lastDetected = mapNode;
                 }
             }
         }
     }
 
-    private boolean isLineIntersectingPath(Point2D point1, Point2D point2, double interval, Path2D path) {
-        double length = point1.distance(point2);
-        for (double t = 0; t <= 1.0; t += interval / length) {
-            double x = point1.getX() + t * (point2.getX() - point1.getX());
-            double y = point1.getY() + t * (point2.getY() - point1.getY());
-            if (path.contains(x, y)) {
-                // Found a point inside the path
-                return true;
-            }
-        }
-        // No points inside the path
-        return false;
-    }
-
     protected int getConnectionTypeFor(MapNode mapNode, MapNode outgoing) {
 
         int foundConnection = CONNECTION_UNKNOWN;
 
-        if (RoadMap.isDual(mapNode, outgoing)) {
+        // the cached type is only there for actual outgoing connections, anything else uses the full checks
+        byte connectionType = RoadMap.getConnectionType(mapNode, outgoing);
+        boolean isDual = (connectionType != CONNECTION_TYPE_NONE) ? connectionType == CONNECTION_TYPE_DUAL : RoadMap.isDual(mapNode, outgoing);
+        boolean isReverse = (connectionType != CONNECTION_TYPE_NONE) ? connectionType == CONNECTION_TYPE_REVERSE : RoadMap.isReverse(mapNode, outgoing);
+        boolean isRegular = (connectionType != CONNECTION_TYPE_NONE) || RoadMap.isRegular(mapNode, outgoing);
+
+        if (isDual) {
             if (detectDualConnections()) {
                 // check if we have already detected on way of a dual connection and ignore if it is
                 if (!Connection.contains(connectionsList, mapNode, outgoing)) {
@@ -216,7 +202,7 @@ public abstract class ConnectionSelectBaseButton extends BaseButton {
                     foundConnection = CONNECTION_DUAL;
                 }
             }
-        } else if (RoadMap.isReverse(mapNode, outgoing)) {
+        } else if (isReverse) {
             if (detectReverseConnections()) {
                 if (mapNode.flag == NODE_FLAG_REGULAR) {
                     if (bDebugConnectSelection && lastDetected != mapNode) {
@@ -229,7 +215,7 @@ public abstract class ConnectionSelectBaseButton extends BaseButton {
                 }
                 foundConnection = CONNECTION_REVERSE;
             }
-        } else if (RoadMap.isRegular(mapNode, outgoing)) {
+        } else if (isRegular) {
             if (detectRegularConnections() || detectSubprioConnections()) {
                 if (mapNode.flag == NODE_FLAG_REGULAR && detectRegularConnections()) {
                     if (bDebugConnectSelection && lastDetected != mapNode) {
@@ -250,16 +236,25 @@ public abstract class ConnectionSelectBaseButton extends BaseButton {
 
     public void resetConnectionList() {
         for (Connection connection: connectionsList) {
-            connection.startNode.getIgnoreDrawingConnectionsList().clear();
-            connection.endNode.getIgnoreDrawingConnectionsList().clear();
+            connection.startNode.clearIgnoreDrawingConnections();
+            connection.endNode.clearIgnoreDrawingConnections();
+            // the selection changes how the connection is drawn
+            RoadMap.markNodeChanged(connection.startNode);
         }
         connectionsList.clear();
     }
 
+    // The render draws a selected connection from its start node, so that is queued for the render as well
+
+    protected static void addToConnectionsList(MapNode startNode, MapNode endNode, int connectionType) {
+        connectionsList.add(new Connection(startNode, endNode, connectionType));
+        RoadMap.markNodeChanged(startNode);
+    }
+
     public void resetHiddenStatusForAll(int connectionType) {
         for (MapNode node: RoadMap.networkNodesList) {
             if (node.getHiddenConnectionsList().size() > 0) {
-                node.getHiddenConnectionsList().removeIf(hiddenNode -> getConnectionTypeFor(node, hiddenNode) == connectionType);
+                node.removeHiddenConnectionsIf(hiddenNode -> getConnectionTypeFor(node, hiddenNode) == connectionType);
             }
         }
     }
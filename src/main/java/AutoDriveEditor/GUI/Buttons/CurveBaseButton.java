@@ -108,6 +108,14 @@ public abstract class CurveBaseButton extends BaseButton {
             }
         }
 
+        @Override
+        public long getEstimatedMemoryUse() {
+            // the curve nodes are only held by the history once the curve has been undone
+            long size = ChangeManager.estimateLinkedListSize(this.storedCurveNodeList.size(), 0) + ChangeManager.MAP_NODE_SIZE * this.storedCurveNodeList.size();
+            for (MapNodeStore storedNode : this.storedCurveNodeList) size += storedNode.getEstimatedMemoryUse();
+            return size;
+        }
+
         public void undo(){
             for (int i = 1; i <= this.storedCurveNodeList.size() - 2 ; i++) {
                 MapNodeStore curveNode = this.storedCurveNodeList.get(i);
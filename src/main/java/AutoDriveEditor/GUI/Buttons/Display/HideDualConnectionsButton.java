@@ -32,9 +32,6 @@ public class HideDualConnectionsButton extends ConnectionSelectBaseButton {
     @Override
     public boolean detectReverseConnections() { return false; }
 
-    @Override
-    public Integer getLineDetectionInterval() { return 20; }
-
     @Override
     public Boolean previewConnectionHiddenChange() { return true; }
 
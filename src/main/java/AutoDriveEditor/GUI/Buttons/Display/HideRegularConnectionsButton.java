@@ -35,9 +35,6 @@ public class HideRegularConnectionsButton extends ConnectionSelectBaseButton {
     @Override
     public boolean detectDualConnections() { return false; }
 
-    @Override
-    public Integer getLineDetectionInterval() { return 10; }
-
     @Override
     public Boolean previewConnectionHiddenChange() { return true; }
 
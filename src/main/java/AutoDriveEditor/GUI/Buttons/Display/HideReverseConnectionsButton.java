@@ -35,9 +35,6 @@ public class HideReverseConnectionsButton extends ConnectionSelectBaseButton {
     @Override
     public boolean detectDualConnections() { return false; }
 
-    @Override
-    public Integer getLineDetectionInterval() { return 20; }
-
     @Override
     public Boolean previewConnectionHiddenChange() { return true; }
 
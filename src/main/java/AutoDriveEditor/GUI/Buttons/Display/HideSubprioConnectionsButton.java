@@ -36,9 +36,6 @@ public class HideSubprioConnectionsButton extends ConnectionSelectBaseButton {
     @Override
     public boolean detectDualConnections() { return false; }
 
-    @Override
-    public Integer getLineDetectionInterval() { return 20; }
-
     @Override
     public Boolean previewConnectionHiddenChange() { return true; }
 
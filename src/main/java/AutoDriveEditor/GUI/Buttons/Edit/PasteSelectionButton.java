@@ -58,15 +58,20 @@ public class PasteSelectionButton extends CopyPasteBaseButton {
             this.isStale = isStale();
         }
 
+        @Override
+        public long getEstimatedMemoryUse() {
+            return ChangeManager.CHANGEABLE_SIZE + this.storeNodes.size() * ChangeManager.ARRAY_LIST_ENTRY_SIZE + ChangeManager.estimateNodesSize(this.storeNodes);
+        }
+
         public void undo(){
             clearMultiSelection();
-            RoadMap.networkNodesList.removeAll(this.storeNodes);
+            RoadMap.removeNodesFromNetwork(this.storeNodes);
             getMapPanel().repaint();
             setStale(this.isStale);
         }
 
         public void redo(){
-            RoadMap.networkNodesList.addAll(this.storeNodes);
+            RoadMap.addNodesToNetwork(this.storeNodes);
             getMapPanel().repaint();
             setStale(true);
         }
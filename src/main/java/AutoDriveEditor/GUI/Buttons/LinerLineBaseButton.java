@@ -243,6 +243,14 @@ public abstract class LinerLineBaseButton extends BaseButton{
             }
         }
 
+        @Override
+        public long getEstimatedMemoryUse() {
+            long size = ChangeManager.estimateLinkedListSize(this.autoGeneratedNodes.size(), ChangeManager.MAP_NODE_SIZE);
+            size += this.fromNode.getEstimatedMemoryUse() + this.toNode.getEstimatedMemoryUse();
+            for (MapNodeStore storedNode : this.autoGeneratedNodes) size += storedNode.getEstimatedMemoryUse();
+            return size;
+        }
+
         public void undo(){
             LOG.info("size = {}", this.autoGeneratedNodes.size());
             if (this.autoGeneratedNodes.size() <= 2 ) {
@@ -13,7 +13,6 @@ import java.awt.event.MouseEvent;
 import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.Objects;
 
 import static AutoDriveEditor.AutoDriveEditor.changeManager;
@@ -72,7 +71,7 @@ public class AddMarkerButton extends MarkerBaseButton {
         ArrayList<String> groupArray = new ArrayList<>();
 
         if (configType == CONFIG_SAVEGAME) {
-            LinkedList<MapNode> mapNodes = RoadMap.networkNodesList;
+            ArrayList<MapNode> mapNodes = RoadMap.networkNodesList;
             for (MapNode node : mapNodes) {
                 if (node.hasMapMarker()) {
                     if (!node.getMarkerGroup().equals("All")) {
@@ -152,6 +151,7 @@ public class AddMarkerButton extends MarkerBaseButton {
                 }
             }
             mapNode.createMapMarker(newMarkerName, newMarkerGroup);
+            RoadMap.markNodeChanged(mapNode);
             setStale(true);
         }
     }
@@ -12,7 +12,6 @@ import java.awt.event.MouseEvent;
 import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.Objects;
 
 import static AutoDriveEditor.AutoDriveEditor.changeManager;
@@ -101,7 +100,7 @@ public class EditMarkerButton extends MarkerBaseButton {
 
         ArrayList<String> groupArray = new ArrayList<>();
         if (configType == CONFIG_SAVEGAME) {
-            LinkedList<MapNode> mapNodes = RoadMap.networkNodesList;
+            ArrayList<MapNode> mapNodes = RoadMap.networkNodesList;
             for (MapNode mapNode : mapNodes) {
                 if (mapNode.hasMapMarker() && !mapNode.getMarkerGroup().equals("All")) {
                     if (!groupArray.contains(mapNode.getMarkerGroup())) {
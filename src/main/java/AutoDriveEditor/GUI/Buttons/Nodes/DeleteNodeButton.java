@@ -8,7 +8,10 @@ import AutoDriveEditor.Utils.ExceptionUtils;
 
 import javax.swing.*;
 import java.awt.event.MouseEvent;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.UUID;
 import java.util.regex.Matcher;
@@ -155,10 +158,8 @@ public class DeleteNodeButton extends BaseButton {
                     cubicCurve.getControlPoint2().setSelected(false);
                 }
             }
-            for (MapNode node : multiSelectList) {
-                addToDeleteList(node);
-                if (bDebugLogUndoRedo) LOG.info("Added ID {} to delete list", node.id);
-            }
+            addAllToDeleteList(multiSelectList);
+            if (bDebugLogUndoRedo) LOG.info("Added {} nodes to delete list", multiSelectList.size());
             changeManager.addChangeable( new DeleteNodeChanger(deleteNodeList));
             removeDeleteListNodes();
             deleteNodeList.clear();
@@ -185,15 +186,43 @@ public class DeleteNodeButton extends BaseButton {
         deleteNodeList.add(new NodeLinks(node, otherNodesInLinks, otherNodesOutLinks));
     }
 
+    // Same as calling addToDeleteList() for each node, but the links for all of them are found in one pass over the network
+
+    public static void addAllToDeleteList(Collection<MapNode> nodes) {
+        HashMap<MapNode, LinkedList<MapNode>> otherNodesInLinks = new HashMap<>();
+        HashMap<MapNode, LinkedList<MapNode>> otherNodesOutLinks = new HashMap<>();
+        for (MapNode node : nodes) {
+            otherNodesInLinks.put(node, new LinkedList<>());
+            otherNodesOutLinks.put(node, new LinkedList<>());
+        }
+
+        for (MapNode mapNode : RoadMap.networkNodesList) {
+            for (MapNode outNode : mapNode.outgoing) {
+                LinkedList<MapNode> outLinks = otherNodesOutLinks.get(outNode);
+                if (outLinks != null && outNode != mapNode) outLinks.add(mapNode);
+            }
+            for (MapNode inNode : mapNode.incoming) {
+                LinkedList<MapNode> inLinks = otherNodesInLinks.get(inNode);
+                if (inLinks != null && inNode != mapNode) inLinks.add(mapNode);
+            }
+        }
+
+        for (MapNode node : nodes) {
+            deleteNodeList.add(new NodeLinks(node, otherNodesInLinks.get(node), otherNodesOutLinks.get(node)));
+        }
+    }
+
     public static void removeDeleteListNodes() {
         suspendAutoSaving();
+        LinkedList<MapNode> nodesToRemove = new LinkedList<>();
         for (NodeLinks nodeLinks : deleteNodeList) {
             for (MapNode overlapNode : nodeLinks.node.getWarningNodes()) {
-                overlapNode.getWarningNodes().remove(nodeLinks.node);
+                overlapNode.removeWarningNode(nodeLinks.node);
                 if (overlapNode.getWarningNodes().size() == 0) overlapNode.clearWarningNodes();
             }
-            RoadMap.removeMapNode(nodeLinks.node);
+            nodesToRemove.add(nodeLinks.node);
         }
+        RoadMap.removeMapNodes(nodesToRemove);
         setStale(true);
         hoveredNode = null;
         getMapPanel().repaint();
@@ -222,6 +251,12 @@ public class DeleteNodeButton extends BaseButton {
                 if (!this.otherOutgoing.contains(outNode)) this.otherOutgoing.add(outNode);
             }
         }
+
+        // the deleted node is only held by the undo history, so it is counted here
+        public long getEstimatedMemoryUse() {
+            long size = ChangeManager.CHANGEABLE_SIZE + ChangeManager.estimateNodesSize(Collections.singletonList(this.node));
+            return size + (this.otherIncoming.size() + this.otherOutgoing.size()) * ChangeManager.LINKED_LIST_ENTRY_SIZE;
+        }
     }
 
     //
@@ -257,6 +292,13 @@ public class DeleteNodeButton extends BaseButton {
             this.UUID = RoadMap.uuid;
         }
 
+        @Override
+        public long getEstimatedMemoryUse() {
+            long size = ChangeManager.estimateLinkedListSize(this.nodeListToDelete.size(), 0);
+            for (NodeLinks nodeLinks : this.nodeListToDelete) size += nodeLinks.getEstimatedMemoryUse();
+            return size;
+        }
+
         public void undo(){
             showInTextArea("Restoring " + this.nodeListToDelete.size() + " Nodes.", true, false);
             try {
@@ -285,10 +327,11 @@ public class DeleteNodeButton extends BaseButton {
         }
 
         public void redo(){
+            LinkedList<MapNode> nodesToRemove = new LinkedList<>();
             for (NodeLinks nodeLinks : this.nodeListToDelete) {
-                MapNode toDelete = nodeLinks.node;
-                RoadMap.removeMapNode(toDelete);
+                nodesToRemove.add(nodeLinks.node);
             }
+            RoadMap.removeMapNodes(nodesToRemove);
             hoveredNode = null;
             getMapPanel().repaint();
             setStale(true);
@@ -4,6 +4,7 @@ import AutoDriveEditor.GUI.Buttons.ConnectionSelectBaseButton;
 import AutoDriveEditor.Managers.ChangeManager;
 import AutoDriveEditor.RoadNetwork.MapNode;
 import AutoDriveEditor.RoadNetwork.RoadMap;
+import AutoDriveEditor.Utils.Classes.ConnectionGrid;
 
 import javax.swing.*;
 import java.awt.*;
@@ -16,8 +17,6 @@ import static AutoDriveEditor.AutoDriveEditor.getMapPanel;
 import static AutoDriveEditor.GUI.Buttons.LinerLineBaseButton.*;
 import static AutoDriveEditor.GUI.MapPanel.*;
 import static AutoDriveEditor.GUI.Menus.DebugMenu.Logging.LogFlipConnectionMenu.bDebugLogFlipConnection;
-import static AutoDriveEditor.Listeners.MouseListener.currentMouseX;
-import static AutoDriveEditor.Listeners.MouseListener.currentMouseY;
 import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
 import static AutoDriveEditor.Managers.ButtonManager.getCurrentButton;
 import static AutoDriveEditor.RoadNetwork.MapNode.NODE_FLAG_REGULAR;
@@ -58,11 +57,6 @@ public final class FlipDirectionButton extends ConnectionSelectBaseButton {
         return false;
     }
 
-    @Override
-    public Integer getLineDetectionInterval() {
-        return 20;
-    }
-
     @Override
     public Boolean getShowHighlightSelected() {
         return true;
@@ -73,7 +67,7 @@ public final class FlipDirectionButton extends ConnectionSelectBaseButton {
     public void mouseMoved(MouseEvent e) {
         super.mouseMoved(e);
         for (Connection connection : connectionsList) {
-            connection.getStartNode().getIgnoreDrawingConnectionsList().add(connection.getEndNode());
+            connection.getStartNode().addIgnoreDrawingConnection(connection.getEndNode());
         }
     }
 
@@ -81,33 +75,24 @@ public final class FlipDirectionButton extends ConnectionSelectBaseButton {
     public void mouseDragged(MouseEvent e) {
         super.mouseDragged(e);
         for (Connection connection : connectionsList) {
-            connection.getStartNode().getIgnoreDrawingConnectionsList().add(connection.getEndNode());
+            connection.getStartNode().addIgnoreDrawingConnection(connection.getEndNode());
         }
     }
 
     @Override
     public void getConnectionsAroundPoint(Point2D point) {
-        double startX = point.getX() - padding;
-        double startY = point.getY() - padding;
-        double endX = point.getX() + padding;
-        double endY = point.getY() + padding;
-
-        for (MapNode mapNode : RoadMap.networkNodesList) {
-            if (mapNode.x > startX && mapNode.x < endX && mapNode.z > startY && mapNode.z < endY) {
-                if (mapNode.outgoing.size() > 0) {
-                    for (MapNode outgoing : mapNode.outgoing) {
-                        Point2D mouseWorldPos = screenPosToWorldPos(currentMouseX, currentMouseY);
-                        if (pointToLineDistance(mapNode, outgoing, mouseWorldPos.getX(), mouseWorldPos.getY()) < .5) {
-                            int connectionType = getConnectionTypeFor(mapNode, outgoing);
-                            if (connectionType != CONNECTION_UNKNOWN) {
-                                if (bSelectHidden || !mapNode.getHiddenConnectionsList().contains(outgoing)) {
-                                    connectionsList.add(new Connection(mapNode, outgoing, connectionType));
-                                }
-                            }
-                            lastDetected = mapNode;
-                        }
+        ConnectionGrid grid = RoadMap.getConnectionGrid();
+        for (int connection : getConnectionsNearPoint(grid, point)) {
+            MapNode mapNode = grid.getStartNode(connection);
+            MapNode outgoing = grid.getEndNode(connection);
+            if (pointToLineDistance(mapNode, outgoing, point.getX(), point.getY()) < POINT_DETECTION_DISTANCE) {
+                int connectionType = getConnectionTypeFor(mapNode, outgoing);
+                if (connectionType != CONNECTION_UNKNOWN) {
+                    if (bSelectHidden || !mapNode.getHiddenConnectionsList().contains(outgoing)) {
+                        addToConnectionsList(mapNode, outgoing, connectionType);
                     }
                 }
+                lastDetected = mapNode;
             }
         }
     }
@@ -188,7 +173,7 @@ public final class FlipDirectionButton extends ConnectionSelectBaseButton {
                             continue;
                         }
                     }
-                    if (connection.isHidden()) connection.getStartNode().getHiddenConnectionsList().remove(connection.getEndNode());
+                    if (connection.isHidden()) connection.getStartNode().removeHiddenConnection(connection.getEndNode());
                     createConnectionBetween(connection.getStartNode(), connection.getEndNode(), CONNECTION_STANDARD);
                 }
             }
@@ -230,7 +215,7 @@ public final class FlipDirectionButton extends ConnectionSelectBaseButton {
                         }
                     }
                     createConnectionBetween(connection.getEndNode(), connection.getStartNode(), CONNECTION_STANDARD);
-                    if (connection.isHidden()) connection.getEndNode().getHiddenConnectionsList().add(connection.getStartNode());
+                    if (connection.isHidden()) connection.getEndNode().addHiddenConnection(connection.getStartNode());
                 }
             }
         }
@@ -251,7 +236,7 @@ public final class FlipDirectionButton extends ConnectionSelectBaseButton {
                         }
                     }
                     createConnectionBetween(connection.getEndNode(), connection.getStartNode(), CONNECTION_REVERSE);
-                    if (connection.isHidden()) connection.getEndNode().getHiddenConnectionsList().add(connection.getStartNode());
+                    if (connection.isHidden()) connection.getEndNode().addHiddenConnection(connection.getStartNode());
                 }
             }
         }
@@ -320,12 +305,18 @@ public final class FlipDirectionButton extends ConnectionSelectBaseButton {
             super();
             for (Connection connection : connectionList) {
                 // Remove the hidden status for the connection
-                connection.getStartNode().getHiddenConnectionsList().remove(connection.getEndNode());
+                connection.getStartNode().removeHiddenConnection(connection.getEndNode());
                 flippedList.add(new Connection(connection.getStartNode(), connection.getEndNode(), connection.getConnectionType()));
             }
             this.isStale = isStale();
         }
 
+        @Override
+        public long getEstimatedMemoryUse() {
+            // each Connection holds two node references and its type
+            return ChangeManager.CHANGEABLE_SIZE + this.flippedList.size() * (ChangeManager.ARRAY_LIST_ENTRY_SIZE + 32);
+        }
+
         public void undo() {
             // remove all the flipped regular connections first
             if (bDebugLogFlipConnection) LOG.info("undo() removing flipped regular connections");
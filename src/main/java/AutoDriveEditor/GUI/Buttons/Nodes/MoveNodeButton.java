@@ -222,6 +222,11 @@ public class MoveNodeButton extends BaseButton {
             if (bDebugLogUndoRedo) LOG.info("## MoveNodeChanger ## node moved X = {} Y = {}", this.diffX, this.diffY);
         }
 
+        @Override
+        public long getEstimatedMemoryUse() {
+            return ChangeManager.estimateLinkedListSize(this.moveNodes.size(), 0);
+        }
+
         public void undo(){
             moveNodeBy(this.moveNodes, null, -this.diffX, -this.diffY, true);
             for (MapNode node : this.moveNodes) {
@@ -212,10 +212,15 @@ public final class RotationButton extends BaseButton {
             }
         }
 
+        @Override
+        public long getEstimatedMemoryUse() {
+            return ChangeManager.estimateLinkedListSize(this.storedRotateNodeList.size(), 0);
+        }
+
         public void undo(){
             //rotation.setCentrePointWorld(this.centrePointWorld);
             rotation.rotateChanger(this.storedRotateNodeList, this.centrePointWorld, -this.angle);
-            getMapPanel().getRoadMap().refreshTableNodeList(multiSelectList);
+            getMapPanel().getRoadMap().refreshTableNodeList(this.storedRotateNodeList);
             getMapPanel().repaint();
             setStale(this.isStale);
         }
@@ -223,7 +228,7 @@ public final class RotationButton extends BaseButton {
         public void redo(){
             rotation.setCentrePointWorld(this.centrePointWorld);
             rotation.rotateChanger(this.storedRotateNodeList, this.centrePointWorld, this.angle);
-            getMapPanel().getRoadMap().refreshTableNodeList(multiSelectList);
+            getMapPanel().getRoadMap().refreshTableNodeList(this.storedRotateNodeList);
             getMapPanel().repaint();
             setStale(true);
         }
@@ -15,6 +15,7 @@ import static AutoDriveEditor.GUI.MapPanel.*;
 import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
 import static AutoDriveEditor.Managers.MultiSelectManager.getSelectedNodes;
 import static AutoDriveEditor.RoadNetwork.MapNode.NODE_FLAG_CONTROL_POINT;
+import static AutoDriveEditor.RoadNetwork.RoadMap.markNodeChanged;
 import static AutoDriveEditor.Utils.GUIUtils.makeImageToggleButton;
 import static AutoDriveEditor.XMLConfig.AutoSave.resumeAutoSaving;
 import static AutoDriveEditor.XMLConfig.AutoSave.suspendAutoSaving;
@@ -70,6 +71,7 @@ public class SwapNodePriorityButton extends BaseButton {
 
     public static void changeNodePriority(MapNode nodeToChange) {
         nodeToChange.flag = 1 - nodeToChange.flag;
+        markNodeChanged(nodeToChange);
         changeManager.addChangeable( new NodePriorityChanger(nodeToChange));
         setStale(true);
         getMapPanel().repaint();
@@ -80,6 +82,7 @@ public class SwapNodePriorityButton extends BaseButton {
             suspendAutoSaving();
             for (MapNode node : nodeList) {
                 node.flag = 1 - node.flag;
+                markNodeChanged(node);
                 node.setPreviewNodeFlagChange(false);
             }
             changeManager.addChangeable( new NodePriorityChanger(nodeList));
@@ -119,6 +122,7 @@ public class SwapNodePriorityButton extends BaseButton {
             for (int i = 0; i <= this.nodesPriorityChanged.size() - 1 ; i++) {
                 MapNode mapNode = this.nodesPriorityChanged.get(i);
                 mapNode.flag = 1 - mapNode.flag;
+                markNodeChanged(mapNode);
             }
             getMapPanel().repaint();
             setStale(this.isStale);
@@ -128,6 +132,7 @@ public class SwapNodePriorityButton extends BaseButton {
             for (int i = 0; i <= this.nodesPriorityChanged.size() - 1 ; i++) {
                 MapNode mapNode = this.nodesPriorityChanged.get(i);
                 mapNode.flag = 1 - mapNode.flag;
+                markNodeChanged(mapNode);
             }
             getMapPanel().repaint();
             setStale(true);
@@ -1,7 +1,9 @@
 package AutoDriveEditor.GUI;
 
+import AutoDriveEditor.Classes.MapTilePyramid;
 import AutoDriveEditor.GUI.Curves.CurvePanel;
-import AutoDriveEditor.GUI.RenderThreads.ConnectionDrawThread;
+import AutoDriveEditor.GUI.RenderThreads.ConnectionLayer;
+import AutoDriveEditor.GUI.RenderThreads.FrameScheduler;
 import AutoDriveEditor.GUI.RenderThreads.NodeDrawThread;
 import AutoDriveEditor.Listeners.MouseListener;
 import AutoDriveEditor.Managers.CopyPasteManager;
@@ -18,14 +20,10 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
-import java.awt.image.RasterFormatException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Objects;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import static AutoDriveEditor.AutoDriveEditor.*;
 import static AutoDriveEditor.Classes.MapImage.*;
@@ -47,6 +45,7 @@ import static AutoDriveEditor.GUI.Menus.DebugMenu.ShowProfileInfo.bDebugShowProf
 import static AutoDriveEditor.GUI.Menus.FileMenu.SaveConfigMenu.menu_SaveConfig;
 import static AutoDriveEditor.GUI.Menus.RoutesMenu.SaveRoutesXML.menu_SaveRoutesXML;
 import static AutoDriveEditor.GUI.RenderThreads.ConnectionDrawThread.*;
+import static AutoDriveEditor.GUI.RenderThreads.FrameScheduler.*;
 import static AutoDriveEditor.GUI.RenderThreads.NodeDrawThread.*;
 import static AutoDriveEditor.GUI.TextPanel.showInTextArea;
 import static AutoDriveEditor.Listeners.MouseListener.prevMousePosX;
@@ -74,14 +73,9 @@ public class MapPanel extends JPanel implements TableModelListener {
     public static double MIN_VISIBLE_NODE_SIZE = 2;
     public static int configType;
 
-    public final Thread nodeDrawThread;
-    public final Thread connectionDrawThread;
+    public final FrameScheduler frameScheduler;
+    public final Thread frameSchedulerThread;
 
-    public static final Lock drawLock = new ReentrantLock();
-    public static CountDownLatch threadCountLatch;
-    public static CountDownLatch drawOrderLatch;
-
-    public static BufferedImage croppedImage;
     public static BufferedImage cachedRegularNodeImage;
     public static BufferedImage cachedSubprioNodeImage;
 
@@ -89,9 +83,8 @@ public class MapPanel extends JPanel implements TableModelListener {
     public double offsetY, oldOffsetY;
 
     public double widthScaled;
-    public static double oldWidthScaled;
     public double heightScaled;
-    public static double oldHeightScaled;
+    private double oldZoomLevel;
 
     public static double nodeSizeScaled;
     public static double nodeSizeScaledHalf;
@@ -106,12 +99,12 @@ public class MapPanel extends JPanel implements TableModelListener {
     public Timer zoomTimer;
 
     public static boolean stale = false;
+    private static int editCount = 0;
     public static RoadMap roadMap;
     public static MapNode hoveredNode = null;
     public static boolean isDraggingMap = false;
     public static CopyPasteManager cnpManager;
     public static boolean bIsShiftPressed;
-    public static Graphics renderGraphics;
 
     public MapPanel() {
 
@@ -170,17 +163,11 @@ public class MapPanel extends JPanel implements TableModelListener {
 
         setFocusable(true);
 
-        // start the thread responsible for drawing node connections
-
-        ConnectionDrawThread t1 = new ConnectionDrawThread();
-        connectionDrawThread = new Thread(t1 ,"ConnectionDraw Thread");
-        connectionDrawThread.start();
-
-        // start the thread responsible for drawing nodes
+        // start the thread responsible for rendering the connections and nodes
 
-        NodeDrawThread t2 = new NodeDrawThread();
-        nodeDrawThread = new Thread(t2 ,"NodeDraw Thread");
-        nodeDrawThread.start();
+        frameScheduler = new FrameScheduler();
+        frameSchedulerThread = new Thread(frameScheduler ,"FrameScheduler Thread");
+        frameSchedulerThread.start();
 
         // initialize the copy/paste manager
 
@@ -197,10 +184,6 @@ public class MapPanel extends JPanel implements TableModelListener {
             LOG.info("AutoSave is disabled");
         }
 
-        // initialize the cropped buffer
-
-        croppedImage = getNewBufferImage(2024, 2048, Transparency.OPAQUE);
-
         // Not sure if this helps, but does not appear to have a negative effect either
 
         setDoubleBuffered(true);
@@ -233,17 +216,9 @@ public class MapPanel extends JPanel implements TableModelListener {
         }
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+    // The render thread uses the same hints for the frames, so they look the same as drawing straight to the MapPanel
 
-        ProfileUtil totalDrawTimer = new ProfileUtil();
-        ProfileUtil calcCroppedTimer = new ProfileUtil();
-        ProfileUtil croppedDrawTimer = new ProfileUtil();
-        ProfileUtil gridDrawTimer = new ProfileUtil();
-        ProfileUtil renderTimer = new ProfileUtil();
-
-        Graphics2D g2 = (Graphics2D) g.create();
+    public static void setMapPanelRenderingHints(Graphics2D g2) {
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_SPEED);
         g2.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
@@ -253,17 +228,34 @@ public class MapPanel extends JPanel implements TableModelListener {
         g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
         g2.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_DEFAULT);
         g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
 
-        if (roadMap != null && croppedImage != null) {
+        ProfileUtil totalDrawTimer = new ProfileUtil();
+        ProfileUtil calcTilesTimer = new ProfileUtil();
+        ProfileUtil tilesDrawTimer = new ProfileUtil();
+        ProfileUtil gridDrawTimer = new ProfileUtil();
+        ProfileUtil renderTimer = new ProfileUtil();
+
+        Graphics2D g2 = (Graphics2D) g.create();
+        setMapPanelRenderingHints(g2);
+
+        if (roadMap != null) {
 
             if (bDebugShowProfileInfo) totalDrawTimer.startTimer();
 
-            if (bDebugShowProfileInfo) calcCroppedTimer.startTimer();
+            if (bDebugShowProfileInfo) calcTilesTimer.startTimer();
             getResizedMap();
-            if (bDebugShowProfileInfo) calcCroppedTimer.stopTimer();
-            if (bDebugShowProfileInfo) croppedDrawTimer.startTimer();
-            g.drawImage(croppedImage, 0, 0, this.getWidth(), this.getHeight(), null);
-            if (bDebugShowProfileInfo) croppedDrawTimer.stopTimer();
+            MapTilePyramid mapTiles = getMapTiles();
+            if (bDebugShowProfileInfo) calcTilesTimer.stopTimer();
+            if (bDebugShowProfileInfo) tilesDrawTimer.startTimer();
+            if (mapTiles != null && pdaImage != null) {
+                mapTiles.drawVisibleTiles(g2, offsetX, offsetY, zoomLevel, this.getWidth(), this.getHeight());
+            }
+            if (bDebugShowProfileInfo) tilesDrawTimer.stopTimer();
 
             if (bShowGrid) {
                 gridDrawTimer.startTimer();
@@ -271,25 +263,17 @@ public class MapPanel extends JPanel implements TableModelListener {
                 gridDrawTimer.stopTimer();
             }
 
-            if (bDebugShowProfileInfo) renderTimer.startTimer();
-            if (roadMap != null) {
-
-                renderGraphics = g2;
-                threadCountLatch = new CountDownLatch(2);
-                drawOrderLatch = new CountDownLatch(1);
+            // Draw the last frame the render thread finished and the button/selection overlay, the
+            // EDT never waits for a frame here, a new one is presented as soon as it is ready
 
-                connectionDrawThread.interrupt();
-                nodeDrawThread.interrupt();
-
-                try {
-                    threadCountLatch.await();
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-                if (bDebugShowProfileInfo) renderTimer.stopTimer();
-                if (bDebugShowProfileInfo) totalDrawTimer.stopTimer();
-                drawNodeInfo(g2);
+            if (bDebugShowProfileInfo) renderTimer.startTimer();
+            if (pdaImage != null) {
+                frameScheduler.drawFrame(g2, getScaledViewTopLeft(), zoomLevel);
+                NodeDrawThread.drawOverlay(g2);
             }
+            if (bDebugShowProfileInfo) renderTimer.stopTimer();
+            if (bDebugShowProfileInfo) totalDrawTimer.stopTimer();
+            drawNodeInfo(g2);
         }
 
         if (bDebugShowProfileInfo) {
@@ -298,7 +282,7 @@ public class MapPanel extends JPanel implements TableModelListener {
             Graphics2D bg = (Graphics2D) g2.create();
             bg.setComposite(AlphaComposite.SrcOver.derive(0.75f));
             bg.setColor(Color.BLACK);
-            bg.fillRect(15, 15, 190, 345);
+            bg.fillRect(15, 15, 190, 390);
             bg.dispose();
 
             g.setColor(Color.WHITE);
@@ -314,6 +298,8 @@ public class MapPanel extends JPanel implements TableModelListener {
                 String textRenderString = "Text Render " + textDrawTimer.getTime(3) + " ms";
                 String buttonRenderString = "Button Render " + buttonDrawTimer.getTime(3) + " ms";
                 String rectangleRenderString = "Rectangle Render " + rectangleDrawTimer.getTime(3) + " ms";
+                String frameRenderString = "Frame Render " + frameRenderTimer.getTime(3) + " ms";
+                String framesSkippedString = "Frames Skipped " + framesSkipped;
 
                 g.drawString("Render Threads Profile", 20, 30);
                 g.drawString("----------------------------------------", 20, 40);
@@ -327,11 +313,13 @@ public class MapPanel extends JPanel implements TableModelListener {
                 g.drawString(textRenderString, 20, 165);
                 g.drawString(buttonRenderString, 20, 180);
                 g.drawString(rectangleRenderString, 20, 195);
+                g.drawString(frameRenderString, 20, 210);
+                g.drawString(framesSkippedString, 20, 225);
 
-                String calcCroppedString = "Calc Cropped Image " + calcCroppedTimer.getTime(3) + " ms";
-                String drawCroppedString = "Cropped -> MapPanel " + croppedDrawTimer.getTime(3) + " ms";
+                String calcCroppedString = "Calc Map Tiles " + calcTilesTimer.getTime(3) + " ms";
+                String drawCroppedString = "Map Tiles -> MapPanel " + tilesDrawTimer.getTime(3) + " ms";
                 String gridRenderString = "Grid Render " + gridDrawTimer.getTime(3) + " ms";
-                String renderString = "Render Threads " + renderTimer.getTime(3) + " ms";
+                String renderString = "Frame -> MapPanel " + renderTimer.getTime(3) + " ms";
                 String totalRenderString = "Total Render Time " + totalDrawTimer.getTime(3) + " ms";
 
                 g.drawString("Totals", 20, 240);
@@ -343,6 +331,13 @@ public class MapPanel extends JPanel implements TableModelListener {
                 g.drawString("----------------------------------------", 20, 330);
                 g.drawString(totalRenderString, 20, 345);
                 totalDrawTimer.resetTimer();
+
+                if (changeManager != null) {
+                    String undoSizeString = "Undo History " + changeManager.getHistorySize() + " changes";
+                    String undoMemoryString = "Undo Memory " + limitDoubleToDecimalPlaces(changeManager.getHistoryMemoryUse() / (1024.0 * 1024.0), 2, RoundingMode.HALF_UP) + " / " + maxUndoHistoryMemory + " MB";
+                    g.drawString(undoSizeString, 20, 375);
+                    g.drawString(undoMemoryString, 20, 390);
+                }
             }
         }
         if (bDebugShowZoomLevelInfo) {
@@ -405,7 +400,7 @@ public class MapPanel extends JPanel implements TableModelListener {
                         infoList.add(new NodeHoverTextList(hoveredNode.incoming.size() + " In ID:", TYPE_FOOTER, connectionFGColour, connectionBGColour, false, 0.75f));
                         for (MapNode inNode: hoveredNode.incoming) {
                             String type = "";
-                            if (isDual(inNode, hoveredNode)) {
+                            if (getConnectionType(inNode, hoveredNode) == CONNECTION_TYPE_DUAL) {
                                 if (inNode.flag == NODE_FLAG_REGULAR && hoveredNode.flag == NODE_FLAG_REGULAR) {
                                     type = "Dual";
                                 } else {
@@ -434,13 +429,14 @@ public class MapPanel extends JPanel implements TableModelListener {
                         int numOutgoing = 0;
                         for (MapNode outNode: hoveredNode.outgoing) {
                             String type = "";
-                            if (isDual(hoveredNode, outNode)) {
+                            byte connectionType = getConnectionType(hoveredNode, outNode);
+                            if (connectionType == CONNECTION_TYPE_DUAL) {
                                 if (hoveredNode.flag == NODE_FLAG_REGULAR && outNode.flag == NODE_FLAG_REGULAR) {
                                     type = "Dual";
                                 } else {
                                     type = "Subprio Dual";
                                 }
-                            } else if (isReverse(hoveredNode, outNode)) {
+                            } else if (connectionType == CONNECTION_TYPE_REVERSE) {
                                 if (hoveredNode.flag == NODE_FLAG_REGULAR) {
                                     type = "Reverse";
                                 } else {
@@ -558,11 +554,15 @@ public class MapPanel extends JPanel implements TableModelListener {
         }
     }
 
-    private void getResizedMap() throws RasterFormatException {
-        if (pdaImage != null) {
+    // Clamp the map position so we never scroll past the edges of the map image, then work out
+    // which part of the map image is visible. The background is drawn from the tile pyramid
+    // using these values, so there is no need to crop the map image here anymore.
+
+    private void getResizedMap() {
+        if (pdaImage != null && mapPanelImage != null) {
 
-            widthScaled = (int) (this.getWidth() / zoomLevel);
-            heightScaled = (int) (this.getHeight() / zoomLevel);
+            widthScaled = this.getWidth() / zoomLevel;
+            heightScaled = this.getHeight() / zoomLevel;
 
             double calcX = (((this.getWidth() * 0.5) / zoomLevel) / mapPanelImage.getWidth());
             double calcY = (((this.getHeight() * 0.5) / zoomLevel) / mapPanelImage.getHeight());
@@ -572,46 +572,51 @@ public class MapPanel extends JPanel implements TableModelListener {
             y = Math.min(y, 1 - calcY);
             y = Math.max(y, calcY);
 
-            int centerX = (int) (x * mapPanelImage.getWidth());
-            int centerY = (int) (y * mapPanelImage.getHeight());
-
-            double halfWidthScaled = widthScaled / 2;
-            double halfHeightScaled = heightScaled / 2;
+            // use the same top left position as worldPosToScreenPos(), so the map image
+            // and the nodes drawn on top of it always line up
 
-            offsetX = centerX - halfWidthScaled;
-            offsetX = Math.max(offsetX, 0);
-            offsetY = centerY - halfHeightScaled;
-            offsetY = Math.max(offsetY, 0);
+            offsetX = (x * mapPanelImage.getWidth()) - (widthScaled / 2);
+            offsetY = (y * mapPanelImage.getHeight()) - (heightScaled / 2);
 
-            if (offsetY + heightScaled > pdaImage.getHeight()) {
-                heightScaled = mapPanelImage.getHeight() - offsetY;
-            }
-            if (offsetX + widthScaled > pdaImage.getWidth()) {
-                widthScaled = mapPanelImage.getWidth() - offsetX;
-            }
-
-            if (offsetX != oldOffsetX || offsetY != oldOffsetY || widthScaled != oldWidthScaled || heightScaled != oldHeightScaled) {
-                try {
-                    croppedImage = mapPanelImage.getSubimage((int)offsetX, (int)offsetY, (int)widthScaled, (int)heightScaled);
-                    if (bDebugLogZoomScale) LOG.info("## MapPanel.ResizeMap() ## ZoomLevel = {} ## SubImage start at {},{} - size {},{}", zoomLevel, offsetX, offsetY, widthScaled, heightScaled);
-                    oldOffsetX = offsetX;
-                    oldOffsetY = offsetY;
-                    oldWidthScaled = widthScaled;
-                    oldHeightScaled = heightScaled;
-                } catch (Exception e) {
-                    LOG.info("## MapPanel.ResizeMap() ## Exception in getSubImage()");
-                    LOG.info("## MapPanel.ResizeMap() ## x = {} , y = {} , offsetX = {} , offsetY = {}  -- PanelWidth = {} , PanelHeight = {} , zoomLevel = {} , widthScaled = {} , heightScaled = {}", x, y, offsetX, offsetY, this.getWidth(), this.getHeight(), zoomLevel, widthScaled, heightScaled);
-                    e.printStackTrace();
-                }
+            if (offsetX != oldOffsetX || offsetY != oldOffsetY || zoomLevel != oldZoomLevel) {
+                if (bDebugLogZoomScale) LOG.info("## MapPanel.ResizeMap() ## ZoomLevel = {} ## Visible area start at {},{} - size {},{}", zoomLevel, offsetX, offsetY, widthScaled, heightScaled);
+                oldOffsetX = offsetX;
+                oldOffsetY = offsetY;
+                oldZoomLevel = zoomLevel;
             }
         }
     }
 
+    // All the normal repaint() calls might have changed something in the network, so the cached
+    // connection layer is invalidated first. Changes that only move the view or the hovered node
+    // use repaintView() instead, the connection layer is then shifted or re-used as is.
+
+    //
+    // Both also ask the FrameScheduler for a new frame, the repaint itself shows the last frame moved to
+    // the current view straight away, presentFrame() is used by the render thread once the new one is ready.
+    //
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        ConnectionLayer.invalidate();
+        if (frameScheduler != null) frameScheduler.requestFrame();
+        super.repaint(tm, x, y, width, height);
+    }
+
+    public void repaintView() {
+        if (frameScheduler != null) frameScheduler.requestFrame();
+        super.repaint(0, 0, 0, getWidth(), getHeight());
+    }
+
+    public void presentFrame() {
+        super.repaint(0, 0, 0, getWidth(), getHeight());
+    }
+
     public static void moveMapBy(int diffX, int diffY) {
         if (roadMap != null && pdaImage != null) {
             x -= diffX / (zoomLevel * pdaImage.getWidth());
             y -= diffY / (zoomLevel * pdaImage.getHeight());
-            getMapPanel().repaint();
+            getMapPanel().repaintView();
         }
     }
 
@@ -676,14 +681,11 @@ public class MapPanel extends JPanel implements TableModelListener {
         MapNode selected = null;
 
         if (roadMap != null) {
-            // make sure we prioritize returning control nodes over regular nodes
-            for (MapNode mapNode : RoadMap.networkNodesList) {
-                if (worldPosX < mapNode.x + nodeSizeWorld && worldPosX > mapNode.x - nodeSizeWorld && worldPosZ < mapNode.z + nodeSizeWorld && worldPosZ > mapNode.z - nodeSizeWorld) {
-                    selected = mapNode;
-                    break;
-                }
-            }
+            // the spatial index only looks at the cells around the position, the nodes are kept in
+            // the right cell while they are being dragged ( see RoadMap.refreshTableNode() )
+            selected = getNodeNearestWorldPosition(worldPosX, worldPosZ, nodeSizeWorld);
 
+            // make sure we prioritize returning control nodes over regular nodes
             if (quadCurve != null && isQuadCurveCreated) {
                 MapNode cpNode = quadCurve.getControlPoint();
                 if (worldPosX < cpNode.x + nodeSizeWorld && worldPosX > cpNode.x - nodeSizeWorld && worldPosZ < cpNode.z + nodeSizeWorld && worldPosZ > cpNode.z - nodeSizeWorld) {
@@ -803,6 +805,14 @@ public class MapPanel extends JPanel implements TableModelListener {
         return new Point2D.Double(worldPosX, worldPosY);
     }
 
+    // Top left of the MapPanel in scaled map image pixels, this is the same value worldPosToScreenPos() uses
+
+    public static Point2D getScaledViewTopLeft() {
+        double topLeftX = (x * (pdaImage.getWidth()*zoomLevel)) - (getMapPanel().getWidth() / 2F);
+        double topLeftY = (y * (pdaImage.getHeight()*zoomLevel)) - (getMapPanel().getHeight()/ 2F);
+        return new Point2D.Double(topLeftX, topLeftY);
+    }
+
     public static Point worldPosToScreenPos(double worldX, double worldZ) {
 
         int centerPointOffset = 1024 * mapScale;
@@ -873,6 +883,7 @@ public class MapPanel extends JPanel implements TableModelListener {
                 target.outgoing.remove(start);
             }
         }
+        markConnectionsChanged(start, target);
     }
 
     /*public static void createConnectionBetween(MapNode start, MapNode target, int type) {
@@ -982,7 +993,7 @@ public class MapPanel extends JPanel implements TableModelListener {
             MapNode cursorPosNode = getNodeAtScreenPosition(mousePosX, mousePosY);
             if (cursorPosNode != hoveredNode) {
                 hoveredNode = cursorPosNode;
-                this.repaint();
+                repaintView();
             }
         }
     }
@@ -1090,8 +1101,6 @@ public class MapPanel extends JPanel implements TableModelListener {
 
     public static void forceMapImageRedraw() {
         if (pdaImage != null) {
-            oldWidthScaled = 0;
-            oldHeightScaled = 0;
             int widthScaled = (int) (getMapPanel().getWidth() / zoomLevel);
             int heightScaled = (int) (getMapPanel().getHeight() / zoomLevel);
             if (widthScaled < 0 || widthScaled> pdaImage.getWidth() || heightScaled < 0 || heightScaled > pdaImage.getHeight()) {
@@ -1118,6 +1127,11 @@ public class MapPanel extends JPanel implements TableModelListener {
 
     public static boolean isStale() { return stale; }
 
+    // goes up every time the config is marked as stale, so a change since any point can be detected
+    // even if the config was already stale then
+
+    public static int getEditCount() { return editCount; }
+
     //
     // getters
     //
@@ -1128,11 +1142,16 @@ public class MapPanel extends JPanel implements TableModelListener {
     // setters
     //
 
-   public void setRoadMap(RoadMap roadMap) { MapPanel.roadMap = roadMap; }
+   public void setRoadMap(RoadMap roadMap) {
+        MapPanel.roadMap = roadMap;
+        if (roadMap != null) roadMap.addPropertyChangeListener(evt -> ConnectionLayer.invalidate());
+        ConnectionLayer.invalidate();
+   }
 
    public void setMapScale(int newMapScale) { MapPanel.mapScale = newMapScale; }
 
    public static void setStale(boolean newStaleState) {
+        if (newStaleState) editCount++;
         if (stale != newStaleState) {
             stale = newStaleState;
             editor.setTitle(createWindowTitleString());
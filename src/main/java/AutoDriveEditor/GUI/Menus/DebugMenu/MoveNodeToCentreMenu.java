@@ -39,11 +39,13 @@ public class MoveNodeToCentreMenu extends JMenuItemBase {
             if (option == JOptionPane.OK_OPTION) {
                 zoomLevel = maxZoomLevel;
                 updateNodeScaling();
-                MapNode node = RoadMap.networkNodesList.get(Integer.parseInt(centreNode.getText()) - 1);
-                Point2D target = worldPosToScreenPos(node.x, node.z);
-                double x = (mapPanel.getWidth() >> 1) - target.getX();
-                double y = (mapPanel.getHeight() >> 1) - target.getY();
-                moveMapBy((int)x,(int)y);
+                MapNode node = RoadMap.getNodeById(Integer.parseInt(centreNode.getText()));
+                if (node != null) {
+                    Point2D target = worldPosToScreenPos(node.x, node.z);
+                    double x = (mapPanel.getWidth() >> 1) - target.getX();
+                    double y = (mapPanel.getHeight() >> 1) - target.getY();
+                    moveMapBy((int)x,(int)y);
+                }
             }
         }
     }
@@ -45,12 +45,13 @@ public class OpenConfigMenu extends JMenuItemBase {
         });
 
         suspendAutoSaving();
+        int result = lfc.showOpenDialog(editor);
+        resumeAutoSaving();
 
-        if (lfc.showOpenDialog(editor) == JFileChooser.APPROVE_OPTION) {
+        // the load suspends the auto save itself until it has ended
+        if (result == JFileChooser.APPROVE_OPTION) {
             lastUsedLocation = lfc.getCurrentDirectory().getAbsolutePath();
             loadGameConfig(lfc.getSelectedFile());
         }
-
-        resumeAutoSaving();
     }
 }
@@ -31,6 +31,7 @@ public class FixNodesHeightMenu extends JMenuItemBase {
                     double heightMapY = getYValueFromHeightMap(node.x, node.z);
                     if (node.y == -1) {
                         node.y = heightMapY;
+                        RoadMap.markNodeChanged(node);
                     }
                 }
             } else {
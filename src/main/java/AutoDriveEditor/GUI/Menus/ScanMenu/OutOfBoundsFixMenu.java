@@ -50,6 +50,7 @@ public class OutOfBoundsFixMenu extends JMenuItemBase {
                         coordChanger.addCoordinateChange(node, 0, node.y, 0);
                         node.x = 0.0;
                         node.z = 0.0;
+                        RoadMap.updateNodeLocation(node);
                         //store first node found
                         if (firstMapNode == null)
                             firstMapNode = node;
@@ -61,6 +62,7 @@ public class OutOfBoundsFixMenu extends JMenuItemBase {
                     double x = (mapPanel.getWidth() >> 1) - target.getX();
                     double y = (mapPanel.getHeight() >> 1) - target.getY();
                     moveMapBy((int)x,(int)y);
+                    mapPanel.repaint();
                     changeManager.addChangeable(coordChanger);
                 }
             } else {
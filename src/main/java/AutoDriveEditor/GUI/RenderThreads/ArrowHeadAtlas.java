@@ -0,0 +1,88 @@
+package AutoDriveEditor.GUI.RenderThreads;
+
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+
+import static AutoDriveEditor.GUI.MapPanel.setMapPanelRenderingHints;
+import static AutoDriveEditor.Utils.ImageUtils.getNewBufferImage;
+
+// Pre-rendered filled arrow heads, one set for each connection colour, like the cached node images in MapPanel.
+//
+// The heads are rotated to the nearest ANGLE_STEP_DEGREES and only drawn the first time they are asked for,
+// after that an arrow head is a single image blit. The whole atlas is thrown away when the arrow size or
+// node size changes ( a zoom or a config change ). It is only used by the render thread, so it isn't
+// thread safe.
+
+public class ArrowHeadAtlas {
+
+    private static final int ANGLE_STEP_DEGREES = 3;
+    public static final int ANGLE_STEPS = 360 / ANGLE_STEP_DEGREES;
+    private static final double ANGLE_STEP_RAD = Math.toRadians(ANGLE_STEP_DEGREES);
+
+    private final HashMap<Color, BufferedImage[]> sprites = new HashMap<>();
+    private double cachedArrowLength = -1;
+    private double cachedNodeSizeHalf = -1;
+    private int spriteOffset;
+
+    //
+    // Make sure the atlas is for the current arrow length and node size, if not everything is dropped
+    //
+
+    public void update(double arrowLength, double nodeSizeHalf) {
+        if (arrowLength != cachedArrowLength || nodeSizeHalf != cachedNodeSizeHalf) {
+            sprites.clear();
+            cachedArrowLength = arrowLength;
+            cachedNodeSizeHalf = nodeSizeHalf;
+            // the sprite is centred on the node the arrow points at, so it has to reach the furthest point
+            spriteOffset = (int) Math.ceil(Math.max(arrowLength, nodeSizeHalf)) + 2;
+        }
+    }
+
+    // angle is the direction from the target node back to the start node, as used in drawArrowList()
+
+    public static int getAngleIndex(double angleRad) {
+        int index = (int) Math.round(angleRad / ANGLE_STEP_RAD) % ANGLE_STEPS;
+        return (index < 0) ? index + ANGLE_STEPS : index;
+    }
+
+    public int getSpriteOffset() {
+        return spriteOffset;
+    }
+
+    public BufferedImage getSprite(Color colour, int angleIndex) {
+        BufferedImage[] colourSprites = sprites.computeIfAbsent(colour, c -> new BufferedImage[ANGLE_STEPS]);
+        BufferedImage sprite = colourSprites[angleIndex];
+        if (sprite == null) {
+            sprite = createSprite(colour, angleIndex * ANGLE_STEP_RAD);
+            colourSprites[angleIndex] = sprite;
+        }
+        return sprite;
+    }
+
+    //
+    // Internal functions
+    //
+
+    // Same points as the filled arrow in drawArrowList(), relative to the centre of the target node
+
+    private BufferedImage createSprite(Color colour, double angleRad) {
+        int size = (spriteOffset * 2) + 1;
+        BufferedImage sprite = getNewBufferImage(size, size, Transparency.TRANSLUCENT);
+        Graphics2D g = sprite.createGraphics();
+        setMapPanelRenderingHints(g);
+        g.setColor(colour);
+
+        double arrowLeft = angleRad + Math.toRadians(-20);
+        double arrowRight = angleRad + Math.toRadians(20);
+        Path2D.Double head = new Path2D.Double();
+        head.moveTo(spriteOffset + (Math.cos(angleRad) * cachedNodeSizeHalf), spriteOffset + (Math.sin(angleRad) * cachedNodeSizeHalf));
+        head.lineTo(spriteOffset + (Math.cos(arrowLeft) * cachedArrowLength), spriteOffset + (Math.sin(arrowLeft) * cachedArrowLength));
+        head.lineTo(spriteOffset + (Math.cos(arrowRight) * cachedArrowLength), spriteOffset + (Math.sin(arrowRight) * cachedArrowLength));
+        head.closePath();
+        g.fill(head);
+        g.dispose();
+        return sprite;
+    }
+}
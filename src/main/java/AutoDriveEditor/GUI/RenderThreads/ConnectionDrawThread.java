@@ -1,171 +1,329 @@
 package AutoDriveEditor.GUI.RenderThreads;
 
-import AutoDriveEditor.RoadNetwork.MapNode;
-import AutoDriveEditor.RoadNetwork.RoadMap;
+import AutoDriveEditor.Utils.Classes.StoreGrid;
 import AutoDriveEditor.Utils.ProfileUtil;
 
 import java.awt.*;
-import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
-import static AutoDriveEditor.AutoDriveEditor.getMapPanel;
-import static AutoDriveEditor.Classes.MapImage.pdaImage;
-import static AutoDriveEditor.GUI.Buttons.ConnectionSelectBaseButton.Connection;
-import static AutoDriveEditor.GUI.Buttons.ConnectionSelectBaseButton.connectionsList;
 import static AutoDriveEditor.GUI.MapPanel.*;
+import static AutoDriveEditor.GUI.RenderThreads.RenderScene.*;
 import static AutoDriveEditor.GUI.Menus.DebugMenu.ShowProfileInfo.bDebugShowProfileInfo;
 import static AutoDriveEditor.RoadNetwork.MapNode.NODE_FLAG_REGULAR;
 import static AutoDriveEditor.RoadNetwork.MapNode.NODE_FLAG_SUBPRIO;
-import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.Utils.MathUtils.normalizeAngle;
 import static AutoDriveEditor.XMLConfig.EditorXML.*;
 
-public class ConnectionDrawThread implements Runnable{
+public class ConnectionDrawThread {
 
-    // The connection drawing thread finishes last in almost all cases, so we keep this as small as possible
+    // The connection compute finishes last in almost all cases, so we keep this as small as possible
     // we only draw the connections in the visible area (plus some extra padding) so we don't see the
-    // connections clipping.
+    // connections clipping. The compute is split into screen tiles that run in parallel, the drawing
+    // is still done by a single thread.
+    //
+    // The connections are drawn into a ConnectionLayer that is kept between frames, a pan only draws the
+    // strips that scrolled into view and a hover change just draws the layer again.
 
-    private static volatile boolean isStopped = false;
-    private final ArrayList<ConnectionDrawThread.ConnectionDrawList> drawList = new ArrayList<>();
+    private final ArrayList<ConnectionTile> tiles = new ArrayList<>();
+    private int numTiles = 0;
+    private static final int offScreenDistance = 24;
 
     public static final ProfileUtil connectionComputeTimer = new ProfileUtil();
     public static final ProfileUtil connectionDrawTimer = new ProfileUtil();
 
     public static int connectionDrawTotal;
 
-    private static class ConnectionDrawList {
-        final Point2D startPos;
-        final Point2D endPos;
-        final Color colour;
-        final boolean isDual;
-        final boolean isHidden;
-
-        public ConnectionDrawList(Point2D start, Point2D end, Color colour, boolean dual, boolean hidden) {
-            this.startPos = start;
-            this.endPos = end;
-            this.colour = colour;
-            this.isDual = dual;
-            this.isHidden = hidden;
+    private final ConnectionLayer connectionLayer = new ConnectionLayer();
+
+    // scene of the frame being rendered, and the zoom and node size the display lists were built for
+
+    private RenderScene scene;
+    private double frameZoomLevel;
+    private double frameNodeSize;
+    private double frameNodeSizeHalf;
+
+    // used by drawArrowList(), only the render thread uses them
+
+    private final Polygon arrowHead = new Polygon();
+    private final ArrowHeadAtlas arrowHeadAtlas = new ArrowHeadAtlas();
+
+    //
+    // Struct of arrays display list, one entry per connection. The colour and the dual/hidden flags are packed
+    // into a single int, the colour as an index into a small palette of the connection colours used. The
+    // arrays only ever grow, so once they are big enough for the busiest view nothing more is allocated.
+    //
+
+    static class ConnectionDrawList {
+        private static final int FLAG_DUAL = 1;
+        private static final int FLAG_HIDDEN = 2;
+        private static final int COLOUR_SHIFT = 8;
+
+        int size = 0;
+        int[] startX = new int[256];
+        int[] startY = new int[256];
+        int[] endX = new int[256];
+        int[] endY = new int[256];
+        int[] packed = new int[256];
+        final ArrayList<Color> palette = new ArrayList<>();
+
+        void clear() {
+            size = 0;
+            palette.clear();
         }
-    }
 
+        void add(int fromX, int fromY, int toX, int toY, Color colour, boolean dual, boolean hidden) {
+            if (size == startX.length) {
+                int newLength = size * 2;
+                startX = Arrays.copyOf(startX, newLength);
+                startY = Arrays.copyOf(startY, newLength);
+                endX = Arrays.copyOf(endX, newLength);
+                endY = Arrays.copyOf(endY, newLength);
+                packed = Arrays.copyOf(packed, newLength);
+            }
+            startX[size] = fromX;
+            startY[size] = fromY;
+            endX[size] = toX;
+            endY[size] = toY;
+            packed[size] = (getPaletteIndex(colour) << COLOUR_SHIFT) | (dual ? FLAG_DUAL : 0) | (hidden ? FLAG_HIDDEN : 0);
+            size++;
+        }
+
+        Color getColour(int index) { return palette.get(packed[index] >>> COLOUR_SHIFT); }
+
+        boolean isDual(int index) { return (packed[index] & FLAG_DUAL) != 0; }
 
-    public static void stop() {
-        LOG.info("Stopping ConnectionDraw Thread");
-        isStopped = true;
+        boolean isHidden(int index) { return (packed[index] & FLAG_HIDDEN) != 0; }
+
+        private int getPaletteIndex(Color colour) {
+            for (int i = 0; i < palette.size(); i++) {
+                if (palette.get(i) == colour) return i;
+            }
+            palette.add(colour);
+            return palette.size() - 1;
+        }
     }
 
-    @Override
-    public synchronized void run() {
+    // Each tile builds its own display list, the lists are drawn in tile order so the
+    // draw order is the same no matter which thread finished first
+
+    private class ConnectionTile extends ScreenTile {
+        final ConnectionDrawList drawList = new ConnectionDrawList();
+        final StoreGrid.IndexList tileConnections = new StoreGrid.IndexList();
+        // the start node and slot of each found connection, sorted to put them back in network order
+        long[] sortKeys = new long[256];
+
+        @Override
+        public Void call() {
+            drawList.clear();
+            tileConnections.clear();
+            computeConnectionsInTile(this);
+            return null;
+        }
+    }
 
-        LOG.info("Starting ConnectionDraw Thread");
+    //
+    // Work out which parts of the connection layer need drawing and build the display lists for them, only
+    // the scene is read so the EDT can change the network while we work.
+    //
 
-        while ( !isStopped ) {
+    public void computeFrame(RenderScene scene, ForkJoinPool pool) throws InterruptedException, ExecutionException {
 
-            try {
-                drawList.clear();
-                this.wait();
-            } catch (InterruptedException e) {
-                if (isStopped) {
-                    LOG.info("ConnectionDraw Thread exiting");
-                    return;
-                }
+        if (bDebugShowProfileInfo) {
+            connectionDrawTimer.resetTimer();
+            connectionComputeTimer.resetTimer();
+            connectionComputeTimer.startTimer();
+        }
 
-                if (bDebugShowProfileInfo) {
-                    connectionDrawTimer.resetTimer();
-                    connectionComputeTimer.resetTimer();
-                    connectionComputeTimer.startTimer();
-                }
+        this.scene = scene;
+        setArrowSize(scene.zoomLevel, scene.nodeSize, scene.nodeSizeHalf);
 
-                if (renderGraphics != null && pdaImage != null) {
-                    Point2D topLeft = screenPosToWorldPos(0,0);
-                    Point2D bottomRight = screenPosToWorldPos(getMapPanel().getWidth(),getMapPanel().getHeight());
-                    double offScreenDistance = 24;
-                    Color colour;
-
-                    for (MapNode mapNode : RoadMap.networkNodesList) {
-                        if (topLeft.getX() - offScreenDistance < mapNode.x && bottomRight.getX() + offScreenDistance > mapNode.x && topLeft.getY() - offScreenDistance < mapNode.z && bottomRight.getY() + offScreenDistance > mapNode.z) {
-                            if (mapNode.outgoing.size() > 0) {
-                                Point2D nodePos = worldPosToScreenPos(mapNode.x, mapNode.z);
-                                for (MapNode outgoing : mapNode.outgoing) {
-                                    Point2D outPos = worldPosToScreenPos(outgoing.x, outgoing.z);
-                                    int mapNodeFlag = (mapNode.getPreviewNodeFlagChange())? 1 - mapNode.flag : mapNode.flag;
-                                    int outFlag = (outgoing.getPreviewNodeFlagChange())? 1 - outgoing.flag : outgoing.flag;
-                                    boolean hidden = (Connection.contains(connectionsList, mapNode, outgoing) != mapNode.isConnectionHidden(outgoing));
-                                    if (RoadMap.isDual(mapNode, outgoing)) {
-                                        if (!mapNode.getIgnoreDrawingConnectionsList().contains(outgoing)) {
-                                            // for node type preview, if either node is subprio draw both arrows the correct colour
-                                            if (mapNodeFlag == NODE_FLAG_REGULAR && outFlag == NODE_FLAG_REGULAR) {
-                                                colour = colourConnectDual;
-                                            } else {
-                                                colour = colourConnectDualSubprio;
-                                            }
-                                            drawList.add(new ConnectionDrawList(nodePos, outPos, colour, true, hidden));
-                                        }
-                                    } else if (RoadMap.isReverse(mapNode, outgoing)) {
-                                        if (!mapNode.getIgnoreDrawingConnectionsList().contains(outgoing)) {
-                                            if (mapNodeFlag == NODE_FLAG_REGULAR) {
-                                                colour = colourConnectReverse;
-                                            } else {
-                                                colour = colourConnectReverseSubprio;
-                                            }
-                                            drawList.add(new ConnectionDrawList(nodePos, outPos, colour, false, hidden));
-                                        }
-                                    } else {
-                                        if (!mapNode.getIgnoreDrawingConnectionsList().contains(outgoing)) {
-                                            if (mapNodeFlag == NODE_FLAG_SUBPRIO) {
-                                                drawList.add(new ConnectionDrawList(nodePos, outPos, colourConnectSubprio, false, hidden));
-                                            } else {
-                                                drawList.add(new ConnectionDrawList(nodePos, outPos, colourConnectRegular, false, hidden));
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
+        ArrayList<Rectangle> dirtyAreas = connectionLayer.update(scene.width, scene.height, scene.topLeft, scene.zoomLevel, scene.nodeSize, scene.connectionLayerVersion);
+        numTiles = 0;
+        for (int i = 0; i < dirtyAreas.size(); i++) {
+            numTiles = ScreenTile.splitArea(dirtyAreas.get(i), i, tiles, numTiles, ConnectionTile::new);
+        }
+        ScreenTile.computeAll(pool, tiles.subList(0, numTiles));
 
-                    if (bDebugShowProfileInfo) connectionComputeTimer.stopTimer();
-                    drawLock.lock();
-                    try {
-                        if (bDebugShowProfileInfo) connectionDrawTimer.startTimer();
-                        drawArrowList(renderGraphics, drawList);
-                        if (bDebugShowProfileInfo) connectionDrawTimer.stopTimer();
-                    } finally {
-                        drawLock.unlock();
-                    }
+        int drawnTotal = 0;
+        for (int i = 0; i < numTiles; i++) {
+            drawnTotal += tiles.get(i).drawList.size;
+        }
+        connectionDrawTotal = drawnTotal;
+
+        if (bDebugShowProfileInfo) connectionComputeTimer.stopTimer();
+    }
+
+    // Draw the display lists made by computeFrame() into the connection layer, then the layer into the frame
+
+    public void drawFrame(Graphics2D g) {
+        if (bDebugShowProfileInfo) connectionDrawTimer.startTimer();
+        if (numTiles > 0) {
+            Graphics2D layerGraphics = connectionLayer.createGraphics();
+            setMapPanelRenderingHints(layerGraphics);
+            for (int i = 0; i < numTiles; i++) {
+                ConnectionTile tile = tiles.get(i);
+                layerGraphics.setClip(tile.area);
+                drawArrowList(layerGraphics, tile.drawList);
+                tile.drawList.clear();
+            }
+            layerGraphics.dispose();
+        }
+        g.drawImage(connectionLayer.getImage(), 0, 0, null);
+        if (bDebugShowProfileInfo) connectionDrawTimer.stopTimer();
+    }
+
+    //
+    // Add every connection owned by the tile that could be seen in its screen area to the tile's drawList.
+    // The grid finds the connections whose bounding box is near the tile, the owner tile always finds its
+    // connections as their start node is in the tile's bounds. They are sorted back into the network order,
+    // so the overlapping arrows are drawn the same way every frame.
+    //
+
+    private void computeConnectionsInTile(ConnectionTile tile) {
+        RenderScene scene = this.scene;
+        ScreenTransform transform = scene.transform;
+        Rectangle bounds = tile.bounds;
+        ConnectionDrawList drawList = tile.drawList;
+        StoreGrid.IndexList tileConnections = tile.tileConnections;
+        Color colour;
+
+        scene.grid.queryConnections(transform.toWorldX(bounds.x - offScreenDistance - 2), transform.toWorldZ(bounds.y - offScreenDistance - 2),
+                transform.toWorldX(bounds.x + bounds.width + offScreenDistance + 2), transform.toWorldZ(bounds.y + bounds.height + offScreenDistance + 2),
+                tileConnections);
+
+        int numConnections = tileConnections.size();
+        if (tile.sortKeys.length < numConnections) tile.sortKeys = new long[numConnections + (numConnections / 2)];
+        long[] sortKeys = tile.sortKeys;
+        for (int i = 0; i < numConnections; i++) {
+            int slot = tileConnections.get(i);
+            sortKeys[i] = ((long) scene.slotSource[slot] << 32) | slot;
+        }
+        Arrays.sort(sortKeys, 0, numConnections);
+
+        int node = -1;
+        int nodeX = 0;
+        int nodeY = 0;
+        boolean isOwned = false;
+        int nodeFlag = 0;
+        for (int i = 0; i < numConnections; i++) {
+            int c = (int) sortKeys[i];
+            int outgoing = scene.outTargets[c];
+            if (outgoing < 0) continue;
+            int source = (int) (sortKeys[i] >>> 32);
+            if (source != node) {
+                node = source;
+                nodeX = transform.toScreenX(scene.x[node]);
+                nodeY = transform.toScreenY(scene.z[node]);
+                isOwned = tile.ownsScreenPos(nodeX, nodeY);
+                nodeFlag = scene.getDrawFlag(node);
+            }
+            if (!isOwned) continue;
+            int outX = transform.toScreenX(scene.x[outgoing]);
+            int outY = transform.toScreenY(scene.z[outgoing]);
+            if (!isInArea(nodeX, nodeY, outX, outY, tile.area)) continue;
+            byte connection = scene.connectionState[c];
+            if ((connection & CONNECTION_IGNORED) != 0) continue;
+            int outFlag = scene.getDrawFlag(outgoing);
+            boolean hidden = (connection & CONNECTION_HIDDEN) != 0;
+            if ((connection & CONNECTION_DUAL) != 0) {
+                // for node type preview, if either node is subprio draw both arrows the correct colour
+                if (nodeFlag == NODE_FLAG_REGULAR && outFlag == NODE_FLAG_REGULAR) {
+                    colour = colourConnectDual;
+                } else {
+                    colour = colourConnectDualSubprio;
+                }
+                drawList.add(nodeX, nodeY, outX, outY, colour, true, hidden);
+            } else if ((connection & CONNECTION_REVERSE) != 0) {
+                if (nodeFlag == NODE_FLAG_REGULAR) {
+                    colour = colourConnectReverse;
+                } else {
+                    colour = colourConnectReverseSubprio;
+                }
+                drawList.add(nodeX, nodeY, outX, outY, colour, false, hidden);
+            } else {
+                if (nodeFlag == NODE_FLAG_SUBPRIO) {
+                    drawList.add(nodeX, nodeY, outX, outY, colourConnectSubprio, false, hidden);
+                } else {
+                    drawList.add(nodeX, nodeY, outX, outY, colourConnectRegular, false, hidden);
                 }
-                connectionDrawTotal = drawList.size();
-                threadCountLatch.countDown();
-                drawOrderLatch.countDown();
             }
         }
     }
 
-    private void drawArrowList(Graphics g, ArrayList<ConnectionDrawThread.ConnectionDrawList> nodeList) {
+    // Quick bounding box check, the padding makes sure the arrow heads at the end of the line are included
+
+    private static boolean isInArea(int startX, int startY, int endX, int endY, Rectangle area) {
+        int minX = Math.min(startX, endX) - offScreenDistance;
+        int maxX = Math.max(startX, endX) + offScreenDistance;
+        int minY = Math.min(startY, endY) - offScreenDistance;
+        int maxY = Math.max(startY, endY) + offScreenDistance;
+        return maxX >= area.x && minX <= area.x + area.width && maxY >= area.y && minY <= area.y + area.height;
+    }
+
+    // The zoom level and node size the arrows of the display lists are drawn with
+
+    void setArrowSize(double zoomLevel, double nodeSize, double nodeSizeHalf) {
+        frameZoomLevel = zoomLevel;
+        frameNodeSize = nodeSize;
+        frameNodeSizeHalf = nodeSizeHalf;
+    }
+
+    //
+    // The arrows are drawn in display list order, and every head and shaft is still its own draw call, so
+    // overlapping translucent arrows stack their alpha and overlap each other exactly as they always have. A
+    // run of consecutive entries with the same colour/dual/hidden bits shares its colour and composite, they
+    // are only set when the bits change instead of for every connection. The geometry is worked out exactly
+    // as before, including the (int) rounding of every point.
+    //
+    // Full size filled heads are blitted from the ArrowHeadAtlas instead of being filled, which saves the
+    // trig and the anti-aliased fill for nearly every arrow.
+    //
 
-        if (nodeList.size() > 0) {
+    void drawArrowList(Graphics g, ConnectionDrawList drawList) {
+
+        if (drawList.size > 0) {
 
             double startX;
             double startY;
             double targetX;
             double targetY;
 
-            Polygon p = new Polygon();
+            Polygon p = arrowHead;
             Graphics2D gTrans = (Graphics2D) g.create();
-
-            for (ConnectionDrawThread.ConnectionDrawList mapNode : nodeList) {
-
-                startX = mapNode.startPos.getX();
-                startY = mapNode.startPos.getY();
-                targetX = mapNode.endPos.getX();
-                targetY = mapNode.endPos.getY();
+            Composite visible = AlphaComposite.SrcOver;
+            Composite hidden = AlphaComposite.SrcOver.derive(hiddenNodesTransparencyLevel);
+
+            // full size filled heads are blitted from the atlas, the shortened heads of very short
+            // connections are still filled as polygons
+            double fullArrowLength = (nodeSize * frameZoomLevel) * 0.7;
+            boolean useHeadAtlas = bFilledArrows && frameNodeSize >= 2.0;
+            if (useHeadAtlas) arrowHeadAtlas.update(fullArrowLength, frameNodeSizeHalf);
+
+            int runKey = -1;
+            Color runColour = null;
+
+            for (int i = 0; i < drawList.size; i++) {
+
+                startX = drawList.startX[i];
+                startY = drawList.startY[i];
+                targetX = drawList.endX[i];
+                targetY = drawList.endY[i];
+                boolean isDual = drawList.isDual(i);
+
+                if (drawList.packed[i] != runKey) {
+                    runKey = drawList.packed[i];
+                    runColour = drawList.getColour(i);
+                    gTrans.setComposite(drawList.isHidden(i) ? hidden : visible);
+                    gTrans.setColor(runColour);
+                }
 
                 double angleRad = Math.atan2(startY - targetY, startX - targetX);
 
-                double distCos = (nodeSizeScaledHalf) * Math.cos(angleRad);
-                double distSin = (nodeSizeScaledHalf) * Math.sin(angleRad);
+                double distCos = (frameNodeSizeHalf) * Math.cos(angleRad);
+                double distSin = (frameNodeSizeHalf) * Math.sin(angleRad);
 
                 // calculate where the line starts based around the circumference of the start node
 
@@ -181,61 +339,57 @@ public class ConnectionDrawThread implements Runnable{
 
                 double maxDistance = Math.sqrt(Math.pow((targetX - startX), 2) + Math.pow((targetY - startY), 2));
 
-                float tr = 1f;
-                if (mapNode.isHidden) tr = hiddenNodesTransparencyLevel;
-                gTrans.setComposite(AlphaComposite.SrcOver.derive(tr));
-                gTrans.setColor(mapNode.colour);
-
-                if (nodeSizeScaled >= 2.0) {
-                    double lineLength = maxDistance - nodeSizeScaled;
+                if (frameNodeSize >= 2.0) {
+                    double lineLength = maxDistance - frameNodeSize;
                     int diff = 0;
 
-                    if (mapNode.isDual) {
-                        if (lineLength <= (nodeSizeScaled * 2)) {
-                            diff =(int) ((nodeSizeScaled * 2) - lineLength) / 2;
+                    if (isDual) {
+                        if (lineLength <= (frameNodeSize * 2)) {
+                            diff =(int) ((frameNodeSize * 2) - lineLength) / 2;
                         }
                     } else {
-                        if (lineLength <= nodeSizeScaled) {
-                            diff = (int) (nodeSizeScaled - lineLength);
+                        if (lineLength <= frameNodeSize) {
+                            diff = (int) (frameNodeSize - lineLength);
                         }
                     }
-                    double adjustedArrowLength = ((nodeSize * zoomLevel) * 0.7) - (diff / 1.15);
+                    double adjustedArrowLength = ((nodeSize * frameZoomLevel) * 0.7) - (diff / 1.15);
 
                     // Calculate where the center of the edge closest to the start point is
                     double targetPolygonCenterX = targetX + (Math.cos(angleRad) * (adjustedArrowLength));
                     double targetPolygonCenterY = targetY + (Math.sin(angleRad) * (adjustedArrowLength));
 
-                    double arrowLeft = normalizeAngle(angleRad + Math.toRadians(-20));
-                    double arrowLeftX = targetX + (Math.cos(arrowLeft) * adjustedArrowLength);
-                    double arrowLeftY = targetY + (Math.sin(arrowLeft) * adjustedArrowLength);
+                    if (maxDistance >= frameNodeSize && useHeadAtlas && diff == 0) {
+                        gTrans.drawImage(arrowHeadAtlas.getSprite(runColour, ArrowHeadAtlas.getAngleIndex(angleRad)),
+                                (int) targetX - arrowHeadAtlas.getSpriteOffset(), (int) targetY - arrowHeadAtlas.getSpriteOffset(), null);
+                    } else if (maxDistance >= frameNodeSize) {
+                        double arrowLeft = normalizeAngle(angleRad + Math.toRadians(-20));
+                        double arrowLeftX = targetX + (Math.cos(arrowLeft) * adjustedArrowLength);
+                        double arrowLeftY = targetY + (Math.sin(arrowLeft) * adjustedArrowLength);
 
-                    double arrowRight = normalizeAngle(angleRad + Math.toRadians(20));
-                    double arrowRightX = targetX + (Math.cos(arrowRight) * adjustedArrowLength);
-                    double arrowRightY = targetY + (Math.sin(arrowRight) * adjustedArrowLength);
+                        double arrowRight = normalizeAngle(angleRad + Math.toRadians(20));
+                        double arrowRightX = targetX + (Math.cos(arrowRight) * adjustedArrowLength);
+                        double arrowRightY = targetY + (Math.sin(arrowRight) * adjustedArrowLength);
 
-                    if (maxDistance >= nodeSizeScaled) {
                         if (bFilledArrows) {
                             // filled arrows look better, but have a performance impact on the draw times
                             p.addPoint((int) lineEndX, (int) lineEndY);
                             p.addPoint((int) arrowLeftX, (int) arrowLeftY);
-                            //p.addPoint((int) targetPolygonCenterX, (int) targetPolygonCenterY);
                             p.addPoint((int) arrowRightX, (int) arrowRightY);
                             gTrans.fillPolygon(p);
                             p.reset();
                         } else {
-                            gTrans.drawLine((int) lineStartX, (int) lineStartY, (int) lineEndX, (int) (lineEndY));
+                            gTrans.drawLine((int) lineStartX, (int) lineStartY, (int) lineEndX, (int) lineEndY);
                             gTrans.drawLine((int) lineEndX, (int) lineEndY, (int) arrowLeftX, (int) arrowLeftY);
                             gTrans.drawLine((int) lineEndX, (int) lineEndY, (int) arrowRightX, (int) arrowRightY);
                         }
                     }
-                    if (mapNode.isDual) {
+                    if (isDual) {
                         angleRad = normalizeAngle(angleRad+Math.PI);
                         double startPolygonCenterX = startX + (Math.cos(angleRad) * adjustedArrowLength);
                         double startPolygonCenterY = startY + (Math.sin(angleRad) * adjustedArrowLength);
                         gTrans.drawLine((int) startPolygonCenterX, (int) startPolygonCenterY, (int) targetPolygonCenterX, (int) targetPolygonCenterY);
                     } else {
                         gTrans.drawLine((int) lineStartX, (int) lineStartY, (int) targetPolygonCenterX, (int) targetPolygonCenterY);
-
                     }
                 } else {
                     // small zoomLevel's don't draw the actual Nodes, draw from the start to the end of
@@ -243,6 +397,7 @@ public class ConnectionDrawThread implements Runnable{
                     gTrans.drawLine((int) lineStartX, (int) lineStartY, (int) lineEndX, (int) lineEndY);
                 }
             }
+            gTrans.dispose();
         }
     }
 }
@@ -0,0 +1,140 @@
+package AutoDriveEditor.GUI.RenderThreads;
+
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static AutoDriveEditor.Utils.ImageUtils.getNewBufferImage;
+
+// Off-screen copy of the connections drawn in the last frame.
+//
+// The layer is only thrown away when something that changes how the connections look has happened,
+// that is a network change ( anything that calls invalidate() ), or the zoomLevel/node size/panel size
+// changed. A pan moves the previous layer by the same number of pixels and only the strips that
+// have just scrolled into view are returned to be re-drawn, a hover change doesn't redraw anything.
+
+public class ConnectionLayer {
+
+    private static final AtomicInteger layerVersion = new AtomicInteger();
+
+    private BufferedImage layerImage;
+    private BufferedImage spareImage;
+
+    private int cachedVersion = -1;
+    private double cachedZoomLevel;
+    private double cachedNodeSize;
+    private double cachedTopLeftX;
+    private double cachedTopLeftY;
+
+    private final ArrayList<Rectangle> dirtyAreas = new ArrayList<>();
+
+    // Mark the layer as out of date, the next frame will redraw all the visible connections
+
+    public static void invalidate() {
+        layerVersion.incrementAndGet();
+    }
+
+    public static int getLayerVersion() {
+        return layerVersion.get();
+    }
+
+    //
+    // Bring the layer up to date with the current view, the returned list contains the screen areas
+    // that have been cleared and need the connections drawn into them ( it is empty if the whole
+    // layer can be re-used as is ). topLeft is the position of the top left of the MapPanel in
+    // scaled map image pixels.
+    //
+
+    public ArrayList<Rectangle> update(int width, int height, Point2D topLeft, double zoomLevel, double nodeSize, int version) {
+        dirtyAreas.clear();
+
+        boolean needsFullRedraw = layerImage == null || layerImage.getWidth() != width || layerImage.getHeight() != height ||
+                version != cachedVersion || zoomLevel != cachedZoomLevel || nodeSize != cachedNodeSize;
+
+        if (!needsFullRedraw) {
+            double moveX = cachedTopLeftX - topLeft.getX();
+            double moveY = cachedTopLeftY - topLeft.getY();
+            int shiftX = (int) Math.round(moveX);
+            int shiftY = (int) Math.round(moveY);
+
+            // Only whole pixel moves can be shifted, anything else would leave the cached connections
+            // half a pixel away from where a full redraw would put them
+
+            if (Math.abs(moveX - shiftX) > 0.001 || Math.abs(moveY - shiftY) > 0.001 ||
+                    Math.abs(shiftX) >= width || Math.abs(shiftY) >= height) {
+                needsFullRedraw = true;
+            } else if (shiftX != 0 || shiftY != 0) {
+                shiftLayer(shiftX, shiftY);
+
+                // The X strip is the full height, the Y strip leaves out the part the
+                // X strip already covers so the corner isn't drawn twice.
+
+                int stripStartX = 0;
+                int stripEndX = width;
+                if (shiftX > 0) {
+                    dirtyAreas.add(new Rectangle(0, 0, shiftX, height));
+                    stripStartX = shiftX;
+                } else if (shiftX < 0) {
+                    dirtyAreas.add(new Rectangle(width + shiftX, 0, -shiftX, height));
+                    stripEndX = width + shiftX;
+                }
+                if (shiftY > 0) {
+                    dirtyAreas.add(new Rectangle(stripStartX, 0, stripEndX - stripStartX, shiftY));
+                } else if (shiftY < 0) {
+                    dirtyAreas.add(new Rectangle(stripStartX, height + shiftY, stripEndX - stripStartX, -shiftY));
+                }
+            }
+        }
+
+        if (needsFullRedraw) {
+            if (layerImage == null || layerImage.getWidth() != width || layerImage.getHeight() != height) {
+                layerImage = getNewBufferImage(width, height, Transparency.TRANSLUCENT);
+                spareImage = getNewBufferImage(width, height, Transparency.TRANSLUCENT);
+            }
+            dirtyAreas.add(new Rectangle(0, 0, width, height));
+        }
+
+        if (dirtyAreas.size() > 0) clearAreas(dirtyAreas);
+
+        cachedVersion = version;
+        cachedZoomLevel = zoomLevel;
+        cachedNodeSize = nodeSize;
+        cachedTopLeftX = topLeft.getX();
+        cachedTopLeftY = topLeft.getY();
+        return dirtyAreas;
+    }
+
+    public Graphics2D createGraphics() {
+        return layerImage.createGraphics();
+    }
+
+    public BufferedImage getImage() {
+        return layerImage;
+    }
+
+    //
+    // Internal functions
+    //
+
+    private void shiftLayer(int shiftX, int shiftY) {
+        Graphics2D g = spareImage.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(layerImage, shiftX, shiftY, null);
+        g.dispose();
+
+        BufferedImage swap = layerImage;
+        layerImage = spareImage;
+        spareImage = swap;
+    }
+
+    private void clearAreas(ArrayList<Rectangle> areas) {
+        Graphics2D g = layerImage.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        for (Rectangle area : areas) {
+            g.fillRect(area.x, area.y, area.width, area.height);
+        }
+        g.dispose();
+    }
+}
@@ -0,0 +1,192 @@
+package AutoDriveEditor.GUI.RenderThreads;
+
+import AutoDriveEditor.Utils.ProfileUtil;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import static AutoDriveEditor.AutoDriveEditor.getMapPanel;
+import static AutoDriveEditor.GUI.MapPanel.*;
+import static AutoDriveEditor.GUI.Menus.DebugMenu.ShowProfileInfo.bDebugShowProfileInfo;
+import static AutoDriveEditor.Utils.ImageUtils.getNewBufferImage;
+import static AutoDriveEditor.Utils.LoggerUtils.LOG;
+
+// Renders the connections and nodes into a frame off the EDT.
+//
+// Any number of repaint requests made while a frame is being rendered are merged into a single new frame,
+// so the render thread only ever works on the most recent view and the frames in between are skipped.
+// A finished frame is swapped with the one the EDT is showing and the MapPanel is asked to repaint, the
+// EDT never waits for a frame to be rendered, it just draws the last finished one.
+//
+// The render compute never reads the live network, each frame starts by asking the EDT to copy what has
+// changed into the RenderScene ( see RenderScene.capture() ) and the compute and draw phases only use that
+// copy. The render thread waits for the EDT to make the copy, the EDT never waits for the render thread, so
+// input, timers and dialogs carry on while a frame is being computed.
+//
+// Both the connections and nodes split their compute into screen tiles that are run on a ForkJoinPool
+// sized to the number of cores, the results are drawn by this thread alone in tile order.
+
+public class FrameScheduler implements Runnable {
+
+    public static final ProfileUtil frameRenderTimer = new ProfileUtil();
+    public static volatile int framesSkipped;
+
+    private static volatile boolean isStopped = false;
+
+    private final Object frameRequestLock = new Object();
+    private long frameRequested = 0;
+    private long frameRendered = 0;
+
+    private final Object frameSwapLock = new Object();
+    private RenderedFrame frontFrame = new RenderedFrame();
+    private RenderedFrame backFrame = new RenderedFrame();
+
+    private final RenderScene scene = new RenderScene();
+    private final ConnectionDrawThread connectionRenderer = new ConnectionDrawThread();
+    private final NodeDrawThread nodeRenderer = new NodeDrawThread();
+    private final ForkJoinPool computePool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    // A finished frame and the view it was rendered for, the EDT uses the view to line the
+    // frame up with the current one if the map has been moved since.
+
+    private static class RenderedFrame {
+        BufferedImage image;
+        double topLeftX;
+        double topLeftY;
+        double zoomLevel;
+        boolean isValid = false;
+    }
+
+    public void stop() {
+        LOG.info("Stopping FrameScheduler Thread");
+        isStopped = true;
+        synchronized (frameRequestLock) {
+            frameRequestLock.notifyAll();
+        }
+        computePool.shutdownNow();
+    }
+
+    // Safe to call from any thread, requests are merged until the render thread is ready for the next frame
+
+    public void requestFrame() {
+        synchronized (frameRequestLock) {
+            frameRequested++;
+            frameRequestLock.notifyAll();
+        }
+    }
+
+    @Override
+    public void run() {
+
+        LOG.info("Starting FrameScheduler Thread");
+
+        while (!isStopped) {
+            synchronized (frameRequestLock) {
+                while (frameRequested == frameRendered && !isStopped) {
+                    try {
+                        frameRequestLock.wait();
+                    } catch (InterruptedException e) {
+                        if (isStopped) break;
+                    }
+                }
+                if (isStopped) break;
+                framesSkipped += (int) (frameRequested - frameRendered - 1);
+                frameRendered = frameRequested;
+            }
+
+            try {
+                if (renderFrame()) {
+                    synchronized (frameSwapLock) {
+                        RenderedFrame swap = frontFrame;
+                        frontFrame = backFrame;
+                        backFrame = swap;
+                    }
+                    getMapPanel().presentFrame();
+                }
+            } catch (Exception e) {
+                LOG.error("## FrameScheduler ## Exception rendering frame", e);
+            }
+        }
+        LOG.info("FrameScheduler Thread exiting");
+    }
+
+    //
+    // Draw the last finished frame to the MapPanel, called by the EDT. If the view has moved since the
+    // frame was rendered it is scaled/moved to match, the next frame will be along shortly to replace it.
+    //
+
+    public void drawFrame(Graphics2D g, Point2D viewTopLeft, double viewZoomLevel) {
+        synchronized (frameSwapLock) {
+            if (!frontFrame.isValid) return;
+            BufferedImage image = frontFrame.image;
+            double scale = viewZoomLevel / frontFrame.zoomLevel;
+            double moveX = (frontFrame.topLeftX * scale) - viewTopLeft.getX();
+            double moveY = (frontFrame.topLeftY * scale) - viewTopLeft.getY();
+            if (scale == 1) {
+                g.drawImage(image, (int) Math.round(moveX), (int) Math.round(moveY), null);
+            } else {
+                g.drawImage(image, (int) Math.round(moveX), (int) Math.round(moveY),
+                        (int) Math.round(image.getWidth() * scale), (int) Math.round(image.getHeight() * scale), null);
+            }
+        }
+    }
+
+    //
+    // Internal functions
+    //
+
+    private boolean renderFrame() throws InterruptedException, ExecutionException, InvocationTargetException {
+
+        // Capture phase, the EDT copies the view and anything in the network that has changed into the scene
+
+        SwingUtilities.invokeAndWait(scene::capture);
+        int width = scene.width;
+        int height = scene.height;
+        if (width <= 0 || height <= 0) return false;
+
+        if (bDebugShowProfileInfo) {
+            frameRenderTimer.resetTimer();
+            frameRenderTimer.startTimer();
+        }
+
+        RenderedFrame frame = backFrame;
+        if (frame.image == null || frame.image.getWidth() != width || frame.image.getHeight() != height) {
+            frame.image = getNewBufferImage(width, height, Transparency.TRANSLUCENT);
+        }
+
+        // Compute phase, build the display lists for the view from the scene
+
+        boolean hasMap = scene.hasMap;
+        if (hasMap) {
+            scene.prepare();
+            frame.topLeftX = scene.topLeft.getX();
+            frame.topLeftY = scene.topLeft.getY();
+            frame.zoomLevel = scene.zoomLevel;
+            connectionRenderer.computeFrame(scene, computePool);
+            nodeRenderer.computeFrame(scene, computePool);
+        }
+
+        // Draw phase, connections first so the nodes are drawn on top of them
+
+        Graphics2D g = frame.image.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, width, height);
+        g.setComposite(AlphaComposite.SrcOver);
+        if (hasMap) {
+            setMapPanelRenderingHints(g);
+            g.setFont(getMapPanel().getFont());
+            connectionRenderer.drawFrame(g);
+            nodeRenderer.drawFrame(g);
+        }
+        g.dispose();
+        frame.isValid = hasMap;
+
+        if (bDebugShowProfileInfo) frameRenderTimer.stopTimer();
+        return true;
+    }
+}
@@ -1,37 +1,33 @@
 package AutoDriveEditor.GUI.RenderThreads;
 
 import AutoDriveEditor.Managers.CopyPasteManager;
-import AutoDriveEditor.RoadNetwork.MapNode;
-import AutoDriveEditor.RoadNetwork.RoadMap;
+import AutoDriveEditor.Utils.Classes.StoreGrid;
 import AutoDriveEditor.Utils.ProfileUtil;
 
 import java.awt.*;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
-import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 import static AutoDriveEditor.AutoDriveEditor.buttonManager;
-import static AutoDriveEditor.AutoDriveEditor.getMapPanel;
-import static AutoDriveEditor.Classes.MapImage.pdaImage;
 import static AutoDriveEditor.GUI.EditorImages.*;
 import static AutoDriveEditor.GUI.MapPanel.*;
-import static AutoDriveEditor.GUI.Menus.DebugMenu.ShowAllNodeIDMenu.bDebugShowAllNodeID;
-import static AutoDriveEditor.GUI.Menus.DebugMenu.ShowNodeHeightMenu.bDebugShowHeight;
+import static AutoDriveEditor.GUI.RenderThreads.RenderScene.*;
 import static AutoDriveEditor.GUI.Menus.DebugMenu.ShowProfileInfo.bDebugShowProfileInfo;
 import static AutoDriveEditor.Managers.CopyPasteManager.SCREEN_COORDINATES;
 import static AutoDriveEditor.Managers.CopyPasteManager.getSelectionBounds;
 import static AutoDriveEditor.Managers.MultiSelectManager.*;
 import static AutoDriveEditor.RoadNetwork.MapNode.NODE_FLAG_REGULAR;
-import static AutoDriveEditor.RoadNetwork.MapNode.NODE_WARNING_OVERLAP;
-import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.XMLConfig.EditorXML.*;
 
-public class NodeDrawThread implements Runnable {
+public class NodeDrawThread {
 
-    // The NodeDraw thread is 2 or 3 times quicker to execute than the connectionDraw() thread,
-    // so we try and spread the draw load around by doing the curve/line/rectangle drawing here
+    // The node compute is 2 or 3 times quicker to execute than the connection compute, like the
+    // connections it is split into screen tiles that are run on the FrameScheduler's ForkJoinPool.
 
     public static final ProfileUtil nodeComputeTimer = new ProfileUtil();
     public static final ProfileUtil nodeDrawTimer = new ProfileUtil();
@@ -42,191 +38,255 @@ public class NodeDrawThread implements Runnable {
 
     public static int nodeComputeTotal;
 
-    private static volatile boolean isStopped = false;
-
-    public static void stop() {
-        LOG.info("Stopping NodeDraw thread");
-        isStopped = true;
+    // extra screen area (in pixels) around the MapPanel to fetch nodes from
+    private static final int offScreenPadding = 100;
+
+    // display lists built by computeFrame(), then drawn by drawFrame()
+
+    private final ArrayList<NodeTile> tiles = new ArrayList<>();
+    private final NodeDisplayList hoverDrawArray = new NodeDisplayList();
+    private final TextRasterCache textRasterCache = new TextRasterCache();
+
+    // node ID strings, indexed by the ID, so the debug ID display doesn't make a new String for every node
+    private String[] nodeIdStrings = new String[0];
+    private final Rectangle visibleArea = new Rectangle();
+    private int numTiles = 0;
+    private int frameWidth;
+    private int frameHeight;
+
+    private class NodeTile extends ScreenTile {
+        final NodeDisplayList nodeDrawArray = new NodeDisplayList();
+        final ImageDisplayList imageDrawArray = new ImageDisplayList();
+        final TextDisplayList textDrawArray = new TextDisplayList();
+        final StoreGrid.IndexList tileNodes = new StoreGrid.IndexList();
+
+        @Override
+        public Void call() {
+            nodeDrawArray.clear();
+            imageDrawArray.clear();
+            textDrawArray.clear();
+            tileNodes.clear();
+            computeNodesInTile(this);
+            return null;
+        }
     }
 
-    @Override
-    public synchronized void run() {
+    // scene of the frame being rendered, and the node size and images the display lists were built for
 
-        LOG.info("Starting NodeDraw thread");
-        ArrayList<NodeDisplayList> nodeDrawArray = new ArrayList<>();
-        ArrayList<ImageDisplayList> imageDrawArray = new ArrayList<>();
-        ArrayList<TextDisplayStore> textDrawArray = new ArrayList<>();
-        ArrayList<RectangleDisplayList> rectangleDrawArray = new ArrayList<>();
+    private RenderScene scene;
+    private double frameNodeSize;
+    private double frameNodeSizeHalf;
+    private double frameNodeSizeQuarter;
+    private BufferedImage frameRegularNodeImage;
+    private BufferedImage frameSubprioNodeImage;
 
-        while ( !isStopped ) {
+    //
+    // Build the display lists for the nodes in the visible area, only the scene is read so the
+    // EDT can change the network while we work.
+    //
 
-            try {
-                nodeDrawArray.clear();
-                imageDrawArray.clear();
-                textDrawArray.clear();
-                rectangleDrawArray.clear();
+    public void computeFrame(RenderScene scene, ForkJoinPool pool) throws InterruptedException, ExecutionException {
 
-                this.wait();
-            } catch (InterruptedException e) {
+        if (bDebugShowProfileInfo) {
+            nodeComputeTimer.resetTimer();
+            nodeDrawTimer.resetTimer();
+            imageDrawTimer.resetTimer();
+            textDrawTimer.resetTimer();
+            nodeComputeTimer.startTimer();
+        }
 
-                if (isStopped) {
-                    LOG.info("NodeDraw Thread exiting");
-                    return;
-                }
+        this.scene = scene;
+        frameNodeSize = scene.nodeSize;
+        frameNodeSizeHalf = scene.nodeSizeHalf;
+        frameNodeSizeQuarter = scene.nodeSizeQuarter;
+        frameRegularNodeImage = scene.regularNodeImage;
+        frameSubprioNodeImage = scene.subprioNodeImage;
 
-                if (bDebugShowProfileInfo) {
-                    nodeComputeTimer.resetTimer();
-                    nodeDrawTimer.resetTimer();
-                    imageDrawTimer.resetTimer();
-                    textDrawTimer.resetTimer();
-                    buttonDrawTimer.resetTimer();
-                    rectangleDrawTimer.resetTimer();
-                    nodeComputeTimer.startTimer();
-                }
+        // Only visit the nodes the spatial index has in (or near) the visible area, the
+        // padding is so icons and marker names of nodes just off the screen edge are still drawn
 
-                int width = getMapPanel().getWidth();
-                int height = getMapPanel().getHeight();
-
-                if (renderGraphics != null && pdaImage != null) {
-
-                    //
-                    // Draw all visible nodes in screen area
-                    //
-
-                    boolean select;
-                    boolean vis;
-                    int flag;
-
-                    for (MapNode mapNode : RoadMap.networkNodesList) {
-                        Point nodePos = worldPosToScreenPos(mapNode.x, mapNode.z);
-                        if (0 < nodePos.getX() && width > nodePos.getX() && 0 < nodePos.getY() && height > nodePos.getY()) {
-                            if (nodeSizeScaled >= 2.0) {
-                                if (mapNode != hoveredNode) {
-                                    vis = mapNode.isNodeHidden() == mapNode.getPreviewNodeHiddenChange();
-                                    select = mapNode.isSelected() != mapNode.getPreviewNodeSelectionChange();
-                                    flag = (mapNode.getPreviewNodeFlagChange())? 1 - mapNode.flag : mapNode.flag;
-                                    nodeDrawArray.add(new NodeDisplayList((int) nodePos.getX(), (int) nodePos.getY(), flag, select, vis));
-                                }
-                            }
-
-                            if (bDebugShowAllNodeID) {
-                                textDrawArray.add(new TextDisplayStore(String.valueOf(mapNode.id), nodePos, Color.WHITE, false, null, false, 1.0f));
-                            }
-
-                            if (bDebugShowHeight) {
-                                Point2D newPoint = new Point2D.Double(nodePos.getX(), nodePos.getY() + 25);
-                                textDrawArray.add(new TextDisplayStore(String.valueOf(mapNode.y), newPoint, Color.WHITE, false, null, false, 1.0f));
-                            }
-                        }
-
-
-                        if (mapNode.hasWarning()) {
-                            if (mapNode.getWarningType() == NODE_WARNING_OVERLAP) {
-                                imageDrawArray.add(new ImageDisplayList(getOverlapWarningImage(), (int) nodePos.getX(), (int) nodePos.getY()));
-                            }
-                        } else {
-                            if (mapNode.y == -1) {
-                                imageDrawArray.add(new ImageDisplayList(getNegativeHeightWarningImage(), (int) nodePos.getX(), (int) nodePos.getY()));
-                            }
-                        }
-
-                        if (mapNode.isParkDestination() && bShowParkingIcons) {
-                            imageDrawArray.add(new ImageDisplayList(getParkingImage(), (int) nodePos.getX(), (int) nodePos.getY()));
-                        }
-
-                        // show the node ID if we in debug mode, the higher the node count, the more text spam there is :-P
-                        // It will affect editor speed, the more nodes the worse it will get, you have been warned :)
-
-                        if (mapNode.hasMapMarker()) {
-                            if (mapNode.getMarkerName() != null) {
-                                Point2D nodeScreenPos = worldPosToScreenPos(mapNode.x, mapNode.z - 1 );
-                                String markerText = mapNode.getMarkerName();
-                                if (hoveredNode == mapNode || bShowMarkerNames) {
-                                    if (mapNode == hoveredNode) markerText += " ( " + mapNode.getMarkerGroup() + " )";
-                                    textDrawArray.add(new TextDisplayStore(markerText, nodeScreenPos, Color.WHITE, false, null, false , 1.0f));
-                                }
-                                if (bShowMarkerIcons) {
-                                    imageDrawArray.add(new ImageDisplayList(getMarkerImage(), (int) nodeScreenPos.getX(), (int) nodeScreenPos.getY() - 20));
-                                }
-                            }
-                        }
-                    }
+        if (scene.showAllNodeID && nodeIdStrings.length <= scene.numNodes) {
+            nodeIdStrings = Arrays.copyOf(nodeIdStrings, scene.numNodes + 1024);
+        }
 
-                    // do we draw the node hover-over image and add the marker name/group to the drawToScreen list
+        frameWidth = scene.width;
+        frameHeight = scene.height;
+        visibleArea.setBounds(-offScreenPadding, -offScreenPadding, frameWidth + (offScreenPadding * 2), frameHeight + (offScreenPadding * 2));
+        numTiles = ScreenTile.splitArea(visibleArea, 0, tiles, 0, NodeTile::new);
+        ScreenTile.computeAll(pool, tiles.subList(0, numTiles));
 
-                    if (hoveredNode != null ) {
-                        if (!hoveredNode.isControlNode()) {
-                                Point2D hoverNodePos = worldPosToScreenPos(hoveredNode.x, hoveredNode.z);
-                                nodeDrawArray.add(new NodeDisplayList((int) hoverNodePos.getX(), (int) hoverNodePos.getY(), hoveredNode.flag, hoveredNode.isSelectable(), !hoveredNode.isNodeHidden()));
-                        }
+        // do we draw the node hover-over image and add the marker name/group to the drawToScreen list
+
+        hoverDrawArray.clear();
+        if (scene.drawHover) {
+            hoverDrawArray.add(scene.transform.toScreenX(scene.hoverX), scene.transform.toScreenY(scene.hoverZ), scene.hoverFlag, scene.hoverSelectable, scene.hoverVisible);
+        }
+
+        if (bDebugShowProfileInfo) {
+            nodeComputeTimer.stopTimer();
+            int nodeTotal = hoverDrawArray.size;
+            for (int i = 0; i < numTiles; i++) {
+                nodeTotal += tiles.get(i).nodeDrawArray.size;
+            }
+            nodeComputeTotal = nodeTotal;
+        }
+    }
+
+    private void computeNodesInTile(NodeTile tile) {
+        RenderScene scene = this.scene;
+        ScreenTransform transform = scene.transform;
+        int width = frameWidth;
+        int height = frameHeight;
+        NodeDisplayList nodeDrawArray = tile.nodeDrawArray;
+        ImageDisplayList imageDrawArray = tile.imageDrawArray;
+        TextDisplayList textDrawArray = tile.textDrawArray;
+
+        Rectangle bounds = tile.bounds;
+        scene.grid.queryArea(transform.toWorldX(bounds.x - 2), transform.toWorldZ(bounds.y - 2),
+                transform.toWorldX(bounds.x + bounds.width + 2), transform.toWorldZ(bounds.y + bounds.height + 2), scene.x, scene.z, tile.tileNodes);
+
+        for (int i = 0; i < tile.tileNodes.size(); i++) {
+            int node = tile.tileNodes.get(i);
+            int nodeX = transform.toScreenX(scene.x[node]);
+            int nodeY = transform.toScreenY(scene.z[node]);
+            if (!tile.ownsScreenPos(nodeX, nodeY)) continue;
+            byte state = scene.nodeState[node];
+            boolean isHovered = node == scene.hoveredIndex;
+            if (0 < nodeX && width > nodeX && 0 < nodeY && height > nodeY) {
+                if (frameNodeSize >= 2.0) {
+                    if (!isHovered) {
+                        nodeDrawArray.add(nodeX, nodeY, scene.getDrawFlag(node), (state & NODE_SELECTED) != 0, (state & NODE_VISIBLE) != 0);
                     }
                 }
 
-                if (isMultiSelectDragging) {
-                    if (useRectangularSelection) {
-                        Point2D rectScreenEnd = worldPosToScreenPos(multiSelectRect.getX() + multiSelectRect.getWidth(), multiSelectRect.getY() + multiSelectRect.getHeight());
-                        Point2D rectScreenStart = worldPosToScreenPos(multiSelectRect.getX(), multiSelectRect.getY());
-                        rectangleDrawArray.add(new RectangleDisplayList((int) rectScreenStart.getX(), (int) rectScreenStart.getY(), (int) (rectScreenEnd.getX() - rectScreenStart.getX()), (int) (rectScreenEnd.getY() - rectScreenStart.getY()), Color.WHITE, true));
-                    } else {
-                        Path2D freeformPath = getFreeformSelectionPath();
-                        Graphics2D newG = (Graphics2D) renderGraphics;
-                        newG.setColor(Color.WHITE);
-                        newG.draw(freeformPath);
-                        newG.setComposite(AlphaComposite.SrcOver.derive(0.25f));
-                        newG.drawLine((int) freeformPath.getCurrentPoint().getX(), (int) freeformPath.getCurrentPoint().getY(), (int) freeformSelectionStart.getX(), (int) freeformSelectionStart.getY());
-                        newG.setComposite(AlphaComposite.SrcOver.derive(1f));
-                    }
+                if (scene.showAllNodeID) {
+                    textDrawArray.add(getNodeIdString(scene.ids[node]), nodeX, nodeY, Color.WHITE);
                 }
 
-                if (isMultipleSelected && bShowSelectionBounds) {
-                    CopyPasteManager.selectionAreaInfo selectionInfo = getSelectionBounds(multiSelectList);
-                    Graphics2D gTemp = (Graphics2D) renderGraphics.create();
-                    gTemp.setColor(Color.WHITE);
-                    Point2D topLeft = selectionInfo.getSelectionStart(SCREEN_COORDINATES);
-                    Point2D bottomRight = selectionInfo.getSelectionEnd(SCREEN_COORDINATES);
-                    double rectSizeX = bottomRight.getX() - topLeft.getX();
-                    double rectSizeY = bottomRight.getY() - topLeft.getY();
-                    rectangleDrawArray.add(new RectangleDisplayList((int) (topLeft.getX() - nodeSizeScaledQuarter), (int) (topLeft.getY() - nodeSizeScaledQuarter), (int) (rectSizeX + (nodeSizeScaledQuarter * 2)), (int) (rectSizeY + (nodeSizeScaledQuarter * 2)), Color.WHITE, false));
+                if (scene.showHeight) {
+                    textDrawArray.add(String.valueOf(scene.y[node]), nodeX, nodeY + 25, Color.WHITE);
                 }
+            }
 
-                if (bDebugShowProfileInfo) nodeComputeTimer.stopTimer();
-                try {
-                    drawOrderLatch.await();
-                    drawLock.lock();
-                    if (bDebugShowProfileInfo) nodeDrawTimer.startTimer();
-                    if (nodeDrawArray.size() > 0) drawNodes(renderGraphics, nodeDrawArray);
-                    if (bDebugShowProfileInfo) nodeDrawTimer.stopTimer();
-                    if (bDebugShowProfileInfo) imageDrawTimer.startTimer();
-                    if (imageDrawArray.size() > 0) drawImages(renderGraphics, imageDrawArray);
-                    if (bDebugShowProfileInfo) imageDrawTimer.stopTimer();
-                    if (bDebugShowProfileInfo) textDrawTimer.startTimer();
-                    if (textDrawArray.size() > 0) drawText(renderGraphics, textDrawArray);
-                    if (bDebugShowProfileInfo) textDrawTimer.stopTimer();
-                    if (bDebugShowProfileInfo) buttonDrawTimer.startTimer();
-                    buttonManager.drawToScreen(renderGraphics);
-                    if (bDebugShowProfileInfo) buttonDrawTimer.stopTimer();
-                    if (bDebugShowProfileInfo) rectangleDrawTimer.startTimer();
-                    if (rectangleDrawArray.size() > 0) drawRectangles(renderGraphics, rectangleDrawArray);
-                    if (bDebugShowProfileInfo) rectangleDrawTimer.stopTimer();
-                } catch (InterruptedException ex) {
-                    ex.printStackTrace();
-                    throw new RuntimeException(ex);
-                } finally {
-                    drawLock.unlock();
+
+            if ((state & NODE_WARNING) != 0) {
+                if ((state & NODE_OVERLAP_WARNING) != 0) {
+                    imageDrawArray.add(getOverlapWarningImage(), nodeX, nodeY);
+                }
+            } else {
+                if (scene.y[node] == -1) {
+                    imageDrawArray.add(getNegativeHeightWarningImage(), nodeX, nodeY);
                 }
+            }
+
+            if ((state & NODE_PARK_DESTINATION) != 0 && scene.showParkingIcons) {
+                imageDrawArray.add(getParkingImage(), nodeX, nodeY);
+            }
 
-                if (bDebugShowProfileInfo) {
-                    nodeComputeTotal = nodeDrawArray.size();
+            // show the node ID if we in debug mode, the higher the node count, the more text spam there is :-P
+            // It will affect editor speed, the more nodes the worse it will get, you have been warned :)
+
+            String markerName = scene.markerNames[node];
+            if (markerName != null) {
+                int markerY = transform.toScreenY(scene.z[node] - 1);
+                if (isHovered || scene.showMarkerNames) {
+                    String markerText = (isHovered) ? markerName + " ( " + scene.markerGroups[node] + " )" : markerName;
+                    textDrawArray.add(markerText, nodeX, markerY, Color.WHITE);
+                }
+                if (scene.showMarkerIcons) {
+                    imageDrawArray.add(getMarkerImage(), nodeX, markerY - 20);
                 }
-                threadCountLatch.countDown();
             }
         }
     }
 
-    private void drawNodes(Graphics g,  ArrayList<NodeDisplayList> nodeList) {
-        if (nodeSizeScaled >= MIN_VISIBLE_NODE_SIZE) {
+    // The array is only resized in computeFrame(), before the tiles are started, each tile only writes the
+    // entries of the nodes it owns and the strings are the same whoever makes them.
+
+    private String getNodeIdString(int id) {
+        String[] idStrings = nodeIdStrings;
+        if (id < 0 || id >= idStrings.length) return String.valueOf(id);
+        String idString = idStrings[id];
+        if (idString == null) {
+            idString = String.valueOf(id);
+            idStrings[id] = idString;
+        }
+        return idString;
+    }
+
+    // Draw the display lists made by computeFrame() into the frame.
+    // The tiles are drawn in order, all the nodes first, then the images and text on top of them.
+
+    public void drawFrame(Graphics2D g) {
+        if (bDebugShowProfileInfo) nodeDrawTimer.startTimer();
+        for (int i = 0; i < numTiles; i++) {
+            if (tiles.get(i).nodeDrawArray.size > 0) drawNodes(g, tiles.get(i).nodeDrawArray);
+        }
+        if (hoverDrawArray.size > 0) drawNodes(g, hoverDrawArray);
+        if (bDebugShowProfileInfo) nodeDrawTimer.stopTimer();
+        if (bDebugShowProfileInfo) imageDrawTimer.startTimer();
+        for (int i = 0; i < numTiles; i++) {
+            if (tiles.get(i).imageDrawArray.size > 0) drawImages(g, tiles.get(i).imageDrawArray);
+        }
+        if (bDebugShowProfileInfo) imageDrawTimer.stopTimer();
+        if (bDebugShowProfileInfo) textDrawTimer.startTimer();
+        for (int i = 0; i < numTiles; i++) {
+            if (tiles.get(i).textDrawArray.size > 0) drawText(g, tiles.get(i).textDrawArray);
+        }
+        if (bDebugShowProfileInfo) textDrawTimer.stopTimer();
+    }
+
+    //
+    // The button previews and selection rectangles are drawn by the EDT straight onto the MapPanel after
+    // the frame, they read the button/selection state as it is being changed so they can't be part of the
+    // frame, and drawing them at the current view keeps them under the mouse cursor.
+    //
+
+    public static void drawOverlay(Graphics2D g) {
+        ArrayList<RectangleDisplayList> rectangleDrawArray = new ArrayList<>();
+
+        if (bDebugShowProfileInfo) {
+            buttonDrawTimer.resetTimer();
+            rectangleDrawTimer.resetTimer();
+        }
+
+        if (isMultiSelectDragging) {
+            if (useRectangularSelection) {
+                Point2D rectScreenEnd = worldPosToScreenPos(multiSelectRect.getX() + multiSelectRect.getWidth(), multiSelectRect.getY() + multiSelectRect.getHeight());
+                Point2D rectScreenStart = worldPosToScreenPos(multiSelectRect.getX(), multiSelectRect.getY());
+                rectangleDrawArray.add(new RectangleDisplayList((int) rectScreenStart.getX(), (int) rectScreenStart.getY(), (int) (rectScreenEnd.getX() - rectScreenStart.getX()), (int) (rectScreenEnd.getY() - rectScreenStart.getY()), Color.WHITE, true));
+            } else {
+                Path2D freeformPath = getFreeformSelectionPath();
+                Graphics2D newG = (Graphics2D) g.create();
+                newG.setColor(Color.WHITE);
+                newG.draw(freeformPath);
+                newG.setComposite(AlphaComposite.SrcOver.derive(0.25f));
+                newG.drawLine((int) freeformPath.getCurrentPoint().getX(), (int) freeformPath.getCurrentPoint().getY(), (int) freeformSelectionStart.getX(), (int) freeformSelectionStart.getY());
+                newG.dispose();
+            }
+        }
+
+        if (isMultipleSelected && bShowSelectionBounds) {
+            CopyPasteManager.selectionAreaInfo selectionInfo = getSelectionBounds(multiSelectList);
+            Point2D topLeft = selectionInfo.getSelectionStart(SCREEN_COORDINATES);
+            Point2D bottomRight = selectionInfo.getSelectionEnd(SCREEN_COORDINATES);
+            double rectSizeX = bottomRight.getX() - topLeft.getX();
+            double rectSizeY = bottomRight.getY() - topLeft.getY();
+            rectangleDrawArray.add(new RectangleDisplayList((int) (topLeft.getX() - nodeSizeScaledQuarter), (int) (topLeft.getY() - nodeSizeScaledQuarter), (int) (rectSizeX + (nodeSizeScaledQuarter * 2)), (int) (rectSizeY + (nodeSizeScaledQuarter * 2)), Color.WHITE, false));
+        }
+
+        if (bDebugShowProfileInfo) buttonDrawTimer.startTimer();
+        buttonManager.drawToScreen(g);
+        if (bDebugShowProfileInfo) buttonDrawTimer.stopTimer();
+        if (bDebugShowProfileInfo) rectangleDrawTimer.startTimer();
+        if (rectangleDrawArray.size() > 0) drawRectangles(g, rectangleDrawArray);
+        if (bDebugShowProfileInfo) rectangleDrawTimer.stopTimer();
+    }
+
+    private void drawNodes(Graphics g, NodeDisplayList nodeList) {
+        if (frameNodeSize >= MIN_VISIBLE_NODE_SIZE) {
             Graphics2D gTrans = (Graphics2D) g.create();
-            BasicStroke selectedStroke = new BasicStroke((float) (nodeSizeScaledQuarter * 0.8));
+            BasicStroke selectedStroke = new BasicStroke((float) (frameNodeSizeQuarter * 0.8));
 
             Graphics2D gSelected = (Graphics2D) g.create();
             gSelected.setColor(colourNodeSelected);
@@ -235,63 +295,56 @@ public class NodeDrawThread implements Runnable {
             Composite visible = AlphaComposite.SrcOver.derive(1f);
             Composite hidden = AlphaComposite.SrcOver.derive(hiddenNodesTransparencyLevel);
 
-            for (NodeDisplayList node : nodeList) {
-                if (node.isVisible) {
+            for (int i = 0; i < nodeList.size; i++) {
+                int nodeX = nodeList.x[i];
+                int nodeY = nodeList.y[i];
+                boolean isVisible = nodeList.isVisible(i);
+                if (isVisible) {
                     gTrans.setComposite(visible);
                 } else {
                     gTrans.setComposite(hidden);
                 }
 
-                if (node.flag == NODE_FLAG_REGULAR) {
-                    gTrans.drawImage(cachedRegularNodeImage, (int) (node.x - cachedRegularNodeImage.getWidth()/2), (int) (node.y - cachedRegularNodeImage.getHeight()/2), (int) nodeSizeScaled, (int) nodeSizeScaled, null);
+                if (nodeList.getFlag(i) == NODE_FLAG_REGULAR) {
+                    gTrans.drawImage(frameRegularNodeImage, nodeX - frameRegularNodeImage.getWidth()/2, nodeY - frameRegularNodeImage.getHeight()/2, (int) frameNodeSize, (int) frameNodeSize, null);
                 } else {
-                    gTrans.drawImage(cachedSubprioNodeImage, (int) (node.x - cachedRegularNodeImage.getWidth()/2), (int) (node.y - cachedRegularNodeImage.getHeight()/2), (int) nodeSizeScaled, (int) nodeSizeScaled, null);
+                    gTrans.drawImage(frameSubprioNodeImage, nodeX - frameRegularNodeImage.getWidth()/2, nodeY - frameRegularNodeImage.getHeight()/2, (int) frameNodeSize, (int) frameNodeSize, null);
 
                 }
-                if (node.isSelected) {
-                    if (node.isVisible) {
+                if (nodeList.isSelected(i)) {
+                    if (isVisible) {
                         gSelected.setComposite(visible);
                     } else {
                         gSelected.setComposite(hidden);
                     }
-                    gSelected.drawArc((int) (node.x - (nodeSizeScaledHalf * 0.8)), (int) (node.y - (nodeSizeScaledHalf * 0.8)), (int) (nodeSizeScaled - (nodeSizeScaledQuarter * 0.8)), (int) (nodeSizeScaled - (nodeSizeScaledQuarter * 0.8)), 0, 360);
+                    gSelected.drawArc((int) (nodeX - (frameNodeSizeHalf * 0.8)), (int) (nodeY - (frameNodeSizeHalf * 0.8)), (int) (frameNodeSize - (frameNodeSizeQuarter * 0.8)), (int) (frameNodeSize - (frameNodeSizeQuarter * 0.8)), 0, 360);
                 }
             }
             gTrans.dispose();
+            gSelected.dispose();
         }
     }
 
-    private void drawImages(Graphics g, ArrayList<ImageDisplayList> imageList) {
+    private void drawImages(Graphics g, ImageDisplayList imageList) {
         int imageWidth;
         int imageHeight;
-        for (ImageDisplayList list : imageList)  {
-            imageWidth = list.image.getWidth();
-            imageHeight = list.image.getHeight();
-            g.drawImage(list.image, (list.x - (imageWidth / 2)), (list.y - (imageHeight / 2)), imageWidth, imageHeight, null);
+        for (int i = 0; i < imageList.size; i++)  {
+            BufferedImage image = imageList.image[i];
+            imageWidth = image.getWidth();
+            imageHeight = image.getHeight();
+            g.drawImage(image, (imageList.x[i] - (imageWidth / 2)), (imageList.y[i] - (imageHeight / 2)), imageWidth, imageHeight, null);
         }
     }
 
-    private void drawText(Graphics g, ArrayList<TextDisplayStore> textList) {
-        FontMetrics fm = g.getFontMetrics();
-        for (TextDisplayStore list : textList) {
-            Rectangle2D rect = fm.getStringBounds(list.text, renderGraphics);
-            if (list.useBackground) {
-                Graphics2D gText = (Graphics2D) g.create();
-                gText.setComposite(AlphaComposite.SrcOver.derive(list.transparencyLevel));
-                gText.setColor(list.bgColour);
-                gText.fillRect((int)list.position.getX(),
-                        (int) list.position.getY() - fm.getAscent(),
-                        (int) rect.getWidth(),
-                        (int) rect.getHeight() + 2);
-                gText.setComposite(AlphaComposite.SrcOver.derive(1.0f));
-                gText.dispose();
-            }
-            g.setColor(list.colour);
-            g.drawString(list.text, (int) (list.position.getX() - (rect.getWidth() / 2)), (int) (list.position.getY() + (( rect.getHeight() / 2) - 3)));
+    // Every label is drawn from the text raster cache, it is only laid out the first time it is seen
+
+    private void drawText(Graphics2D g, TextDisplayList textList) {
+        for (int i = 0; i < textList.size; i++) {
+            textRasterCache.drawCentredText(g, textList.text[i], textList.x[i], textList.y[i], textList.colour[i]);
         }
     }
 
-    private void drawRectangles(Graphics g, ArrayList<RectangleDisplayList> rectangleList) {
+    private static void drawRectangles(Graphics g, ArrayList<RectangleDisplayList> rectangleList) {
         Graphics2D gRect = (Graphics2D) g.create();
         BasicStroke stDash = new BasicStroke(1, BasicStroke.CAP_BUTT,
                 BasicStroke.JOIN_ROUND, 1.0f, new float[]{10f, 0f, 2f}, 2f);
@@ -309,51 +362,91 @@ public class NodeDrawThread implements Runnable {
         gRect.dispose();
     }
 
+    //
+    // Struct of arrays display lists, the arrays are kept between frames and only grow, so once they
+    // are big enough for the busiest view nothing more is allocated for them.
+    //
+
     private static class NodeDisplayList {
-        final double x;
-        final double y;
-        final int flag;
-        final boolean isSelected;
-        final boolean isVisible;
-
-        public NodeDisplayList(int x, int y, int flag, boolean isSelected, boolean isVisible) {
-            this.x = x;
-            this.y = y;
-            this.flag = flag;
-            this.isSelected = isSelected;
-            this.isVisible = isVisible;
+        private static final int FLAG_MASK = 0xFF;
+        private static final int SELECTED = 0x100;
+        private static final int VISIBLE = 0x200;
+
+        int size = 0;
+        int[] x = new int[256];
+        int[] y = new int[256];
+        int[] packed = new int[256];
+
+        void clear() { size = 0; }
+
+        void add(int nodeX, int nodeY, int flag, boolean isSelected, boolean isVisible) {
+            if (size == x.length) {
+                x = Arrays.copyOf(x, size * 2);
+                y = Arrays.copyOf(y, size * 2);
+                packed = Arrays.copyOf(packed, size * 2);
+            }
+            x[size] = nodeX;
+            y[size] = nodeY;
+            packed[size] = (flag & FLAG_MASK) | (isSelected ? SELECTED : 0) | (isVisible ? VISIBLE : 0);
+            size++;
         }
+
+        int getFlag(int index) { return packed[index] & FLAG_MASK; }
+
+        boolean isSelected(int index) { return (packed[index] & SELECTED) != 0; }
+
+        boolean isVisible(int index) { return (packed[index] & VISIBLE) != 0; }
     }
 
     private static class ImageDisplayList {
-        final BufferedImage image;
-        final int x;
-        final int y;
-
-        public ImageDisplayList(BufferedImage image, int x, int y) {
-            this.image = image;
-            this.x = x;
-            this.y = y;
+        int size = 0;
+        BufferedImage[] image = new BufferedImage[64];
+        int[] x = new int[64];
+        int[] y = new int[64];
+
+        void clear() {
+            // drop the image references so they don't outlive a change of icon set
+            Arrays.fill(image, 0, size, null);
+            size = 0;
+        }
+
+        void add(BufferedImage displayImage, int imageX, int imageY) {
+            if (size == x.length) {
+                image = Arrays.copyOf(image, size * 2);
+                x = Arrays.copyOf(x, size * 2);
+                y = Arrays.copyOf(y, size * 2);
+            }
+            image[size] = displayImage;
+            x[size] = imageX;
+            y[size] = imageY;
+            size++;
         }
     }
 
-    private static class TextDisplayStore {
-        final String text;
-        final Point2D position;
-        final Color colour;
-        final boolean useBackground;
-        final Color bgColour;
-        final boolean bgTransparency;
-        final float transparencyLevel;
-
-        public TextDisplayStore(String text, Point2D textPos, Color textColour, boolean background, Color bgColour, boolean bgTransparency, float transparencyLevel) {
-            this.text = text;
-            this.position = textPos;
-            this.colour = textColour;
-            this.useBackground = background;
-            this.bgColour = bgColour;
-            this.bgTransparency = bgTransparency;
-            this.transparencyLevel = transparencyLevel;
+    private static class TextDisplayList {
+        int size = 0;
+        String[] text = new String[64];
+        int[] x = new int[64];
+        int[] y = new int[64];
+        int[] colour = new int[64];
+
+        void clear() {
+            Arrays.fill(text, 0, size, null);
+            size = 0;
+        }
+
+        void add(String displayText, int textX, int textY, Color textColour) {
+            if (size == x.length) {
+                text = Arrays.copyOf(text, size * 2);
+                x = Arrays.copyOf(x, size * 2);
+                y = Arrays.copyOf(y, size * 2);
+                colour = Arrays.copyOf(colour, size * 2);
+            }
+            text[size] = displayText;
+            x[size] = textX;
+            y[size] = textY;
+            colour[size] = textColour.getRGB();
+            size++;
         }
     }
 
@@ -0,0 +1,334 @@
+package AutoDriveEditor.GUI.RenderThreads;
+
+import AutoDriveEditor.Utils.Classes.StoreGrid;
+
+import java.util.Arrays;
+
+// Uniform grid over the world X/Z plane of the RenderScene's copy of the network.
+//
+// Like the StoreGrid the cells hold node indexes, but it can be changed one node at a time, so the nodes
+// moved or added in a frame are the only ones RenderScene.prepare() has to touch. Each cell keeps its
+// indexes in order, so a query still returns the nodes of a cell in network order. The area the grid
+// covers is fixed when it is rebuilt, a node moved or added outside of it is kept in the nearest border
+// cell, which is why the queries always look in the border cells next to their area.
+//
+// The connections are kept in the same cells by their slot in the scene, like the ConnectionGrid every
+// cell their bounding box touches has them. A connection covering more than MAX_CONNECTION_CELLS cells is
+// kept in one list every query returns instead, so a few very long ones don't fill thousands of cells.
+//
+// Only changed by the render thread in RenderScene.prepare(), the tiles only query it.
+
+class RenderGrid {
+
+    // the cell size is doubled until there are no more cells than nodes ( or MIN_CELLS )
+    private static final int MAX_CELLS_PER_NODE = 1;
+    private static final int MIN_CELLS = 1024;
+    private static final int[] EMPTY_CELL = new int[0];
+    private static final int MAX_CONNECTION_CELLS = 64;
+    // slotMinCell of a connection that isn't in the grid, and of one in the long connection list
+    private static final int NOT_IN_GRID = -1;
+    private static final int LONG_CONNECTION = -2;
+    // what forEachConnectionCell() does with each cell
+    private static final int COUNT_IN_CELL = 0;
+    private static final int ADD_TO_CELL = 1;
+    private static final int REMOVE_FROM_CELL = 2;
+
+    private final double baseCellSize;
+    private double cellSize;
+    private double originX;
+    private double originZ;
+    private int cellsX = 1;
+    private int cellsZ = 1;
+    private int[][] cellNodes = { EMPTY_CELL };
+    private int[] cellCount = new int[1];
+    // the cell each node index is in, -1 for an index that isn't in the grid yet
+    private int[] nodeCell = new int[0];
+
+    // connection slots of each cell, the list after the last cell is the long connections
+    private int[][] cellSlots = { EMPTY_CELL, EMPTY_CELL };
+    private int[] cellSlotCount = new int[2];
+    // first and last cell of each slot's bounding box
+    private int[] slotMinCell = new int[0];
+    private int[] slotMaxCell = new int[0];
+
+    RenderGrid(double cellSize) {
+        this.baseCellSize = cellSize;
+        this.cellSize = cellSize;
+    }
+
+    //
+    // Make the grid again for the scene's network, the area is fitted to where the nodes are now
+    //
+
+    void rebuild(RenderScene scene) {
+        rebuildNodes(scene.x, scene.z, scene.numNodes);
+        rebuildConnections(scene);
+    }
+
+    void rebuildNodes(double[] nodeX, double[] nodeZ, int numNodes) {
+        double minX = Double.MAX_VALUE;
+        double minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxZ = -Double.MAX_VALUE;
+        for (int i = 0; i < numNodes; i++) {
+            if (!Double.isFinite(nodeX[i]) || !Double.isFinite(nodeZ[i])) continue;
+            minX = Math.min(minX, nodeX[i]);
+            maxX = Math.max(maxX, nodeX[i]);
+            minZ = Math.min(minZ, nodeZ[i]);
+            maxZ = Math.max(maxZ, nodeZ[i]);
+        }
+        if (minX > maxX) {
+            minX = maxX = 0;
+            minZ = maxZ = 0;
+        }
+        originX = minX;
+        originZ = minZ;
+
+        cellSize = baseCellSize;
+        long maxCells = Math.max(MIN_CELLS, (long) numNodes * MAX_CELLS_PER_NODE);
+        while (true) {
+            cellsX = (int) Math.min(Math.floor((maxX - originX) / cellSize) + 1, Integer.MAX_VALUE);
+            cellsZ = (int) Math.min(Math.floor((maxZ - originZ) / cellSize) + 1, Integer.MAX_VALUE);
+            if ((long) cellsX * cellsZ <= maxCells) break;
+            cellSize *= 2;
+        }
+
+        // count the nodes of each cell first, so every cell array is made at the right size and filled in order
+        int numCells = cellsX * cellsZ;
+        if (nodeCell.length < numNodes) nodeCell = new int[numNodes + (numNodes / 8)];
+        Arrays.fill(nodeCell, -1);
+        cellCount = new int[numCells];
+        for (int i = 0; i < numNodes; i++) {
+            int cell = getCell(nodeX[i], nodeZ[i]);
+            nodeCell[i] = cell;
+            cellCount[cell]++;
+        }
+        cellNodes = new int[numCells][];
+        for (int cell = 0; cell < numCells; cell++) {
+            cellNodes[cell] = (cellCount[cell] > 0) ? new int[cellCount[cell]] : EMPTY_CELL;
+            cellCount[cell] = 0;
+        }
+        for (int i = 0; i < numNodes; i++) {
+            int cell = nodeCell[i];
+            cellNodes[cell][cellCount[cell]++] = i;
+        }
+
+        // the connections were in the old cells, so the grid starts again without them
+        cellSlots = new int[numCells + 1][];
+        Arrays.fill(cellSlots, EMPTY_CELL);
+        cellSlotCount = new int[numCells + 1];
+        Arrays.fill(slotMinCell, NOT_IN_GRID);
+        Arrays.fill(slotMaxCell, NOT_IN_GRID);
+    }
+
+    // Put the node in the cell for its position, the index can be a node that isn't in the grid yet
+
+    void updateNode(int index, double x, double z) {
+        if (index >= nodeCell.length) {
+            int oldLength = nodeCell.length;
+            nodeCell = Arrays.copyOf(nodeCell, index + 1 + ((index + 1) / 8));
+            Arrays.fill(nodeCell, oldLength, nodeCell.length, -1);
+        }
+        int cell = getCell(x, z);
+        int oldCell = nodeCell[index];
+        if (cell == oldCell) return;
+        if (oldCell >= 0) removeFromList(cellNodes, cellCount, oldCell, index);
+        addToList(cellNodes, cellCount, cell, index);
+        nodeCell[index] = cell;
+    }
+
+    // Put the connection in the cells of its bounding box, the slot can be one that isn't in the grid yet
+
+    void updateConnection(int slot, double startX, double startZ, double endX, double endZ) {
+        ensureSlotCapacity(slot + 1);
+        int minCell = getCell(Math.min(startX, endX), Math.min(startZ, endZ));
+        int maxCell = getCell(Math.max(startX, endX), Math.max(startZ, endZ));
+        if (isLongConnection(minCell, maxCell)) minCell = maxCell = LONG_CONNECTION;
+        if (minCell == slotMinCell[slot] && maxCell == slotMaxCell[slot]) return;
+        removeConnection(slot);
+        slotMinCell[slot] = minCell;
+        slotMaxCell[slot] = maxCell;
+        forEachConnectionCell(slot, ADD_TO_CELL);
+    }
+
+    void removeConnection(int slot) {
+        if (slot >= slotMinCell.length || slotMinCell[slot] == NOT_IN_GRID) return;
+        forEachConnectionCell(slot, REMOVE_FROM_CELL);
+        slotMinCell[slot] = NOT_IN_GRID;
+        slotMaxCell[slot] = NOT_IN_GRID;
+    }
+
+    //
+    // Adds the indexes of all the nodes inside the world area to the result list, the area is inclusive of its
+    // edges. The result list is not cleared, so callers can re-use the same list every frame. The positions are
+    // passed in as the scene may have replaced its arrays since the grid was made.
+    //
+
+    void queryArea(double minX, double minZ, double maxX, double maxZ, double[] nodeX, double[] nodeZ, StoreGrid.IndexList result) {
+        double areaMinX = Math.min(minX, maxX);
+        double areaMaxX = Math.max(minX, maxX);
+        double areaMinZ = Math.min(minZ, maxZ);
+        double areaMaxZ = Math.max(minZ, maxZ);
+
+        int startCellX = getCellIndex(areaMinX, originX, cellsX);
+        int endCellX = getCellIndex(areaMaxX, originX, cellsX);
+        int startCellZ = getCellIndex(areaMinZ, originZ, cellsZ);
+        int endCellZ = getCellIndex(areaMaxZ, originZ, cellsZ);
+
+        for (int cellZ = startCellZ; cellZ <= endCellZ; cellZ++) {
+            for (int cellX = startCellX; cellX <= endCellX; cellX++) {
+                int cell = (cellZ * cellsX) + cellX;
+                int[] nodes = cellNodes[cell];
+                for (int c = 0; c < cellCount[cell]; c++) {
+                    int index = nodes[c];
+                    double x = nodeX[index];
+                    double z = nodeZ[index];
+                    if (x >= areaMinX && x <= areaMaxX && z >= areaMinZ && z <= areaMaxZ) result.add(index);
+                }
+            }
+        }
+    }
+
+    //
+    // Adds the slots of all the connections whose bounding box could touch the world area to the result list,
+    // each only once. These are only candidates, the caller still has to test the connection itself.
+    //
+
+    void queryConnections(double minX, double minZ, double maxX, double maxZ, StoreGrid.IndexList result) {
+        int startCellX = getCellIndex(Math.min(minX, maxX), originX, cellsX);
+        int endCellX = getCellIndex(Math.max(minX, maxX), originX, cellsX);
+        int startCellZ = getCellIndex(Math.min(minZ, maxZ), originZ, cellsZ);
+        int endCellZ = getCellIndex(Math.max(minZ, maxZ), originZ, cellsZ);
+
+        for (int cellZ = startCellZ; cellZ <= endCellZ; cellZ++) {
+            for (int cellX = startCellX; cellX <= endCellX; cellX++) {
+                int cell = (cellZ * cellsX) + cellX;
+                int[] slots = cellSlots[cell];
+                for (int c = 0; c < cellSlotCount[cell]; c++) {
+                    int slot = slots[c];
+                    // a connection in more than one of the cells is only added from the first of them
+                    int minCell = slotMinCell[slot];
+                    if (Math.max(minCell % cellsX, startCellX) == cellX && Math.max(minCell / cellsX, startCellZ) == cellZ) {
+                        result.add(slot);
+                    }
+                }
+            }
+        }
+
+        int longList = cellsX * cellsZ;
+        for (int c = 0; c < cellSlotCount[longList]; c++) {
+            result.add(cellSlots[longList][c]);
+        }
+    }
+
+    //
+    // Internal functions
+    //
+
+    private void rebuildConnections(RenderScene scene) {
+        int numCells = cellsX * cellsZ;
+        ensureSlotCapacity(scene.numSlots);
+
+        // same as the nodes, count first and then fill the exact sized cell arrays in slot order
+        for (int node = 0; node < scene.numNodes; node++) {
+            for (int slot = scene.outStart[node]; slot < scene.outStart[node] + scene.outCount[node]; slot++) {
+                int target = scene.outTargets[slot];
+                if (target < 0) continue;
+                int minCell = getCell(Math.min(scene.x[node], scene.x[target]), Math.min(scene.z[node], scene.z[target]));
+                int maxCell = getCell(Math.max(scene.x[node], scene.x[target]), Math.max(scene.z[node], scene.z[target]));
+                if (isLongConnection(minCell, maxCell)) minCell = maxCell = LONG_CONNECTION;
+                slotMinCell[slot] = minCell;
+                slotMaxCell[slot] = maxCell;
+                forEachConnectionCell(slot, COUNT_IN_CELL);
+            }
+        }
+        cellSlots = new int[numCells + 1][];
+        for (int cell = 0; cell <= numCells; cell++) {
+            cellSlots[cell] = (cellSlotCount[cell] > 0) ? new int[cellSlotCount[cell]] : EMPTY_CELL;
+            cellSlotCount[cell] = 0;
+        }
+        for (int slot = 0; slot < scene.numSlots; slot++) {
+            if (slotMinCell[slot] != NOT_IN_GRID) forEachConnectionCell(slot, ADD_TO_CELL);
+        }
+    }
+
+    // Counts, adds or removes the slot in every cell of its bounding box
+
+    private void forEachConnectionCell(int slot, int action) {
+        int minCell = slotMinCell[slot];
+        int maxCell = slotMaxCell[slot];
+        if (minCell == LONG_CONNECTION) {
+            changeConnectionCell(cellsX * cellsZ, slot, action);
+            return;
+        }
+        for (int cellZ = minCell / cellsX; cellZ <= maxCell / cellsX; cellZ++) {
+            for (int cellX = minCell % cellsX; cellX <= maxCell % cellsX; cellX++) {
+                changeConnectionCell((cellZ * cellsX) + cellX, slot, action);
+            }
+        }
+    }
+
+    private void changeConnectionCell(int cell, int slot, int action) {
+        if (action == COUNT_IN_CELL) {
+            cellSlotCount[cell]++;
+        } else if (action == ADD_TO_CELL) {
+            addToList(cellSlots, cellSlotCount, cell, slot);
+        } else {
+            removeFromList(cellSlots, cellSlotCount, cell, slot);
+        }
+    }
+
+    private boolean isLongConnection(int minCell, int maxCell) {
+        long width = (maxCell % cellsX) - (minCell % cellsX) + 1;
+        long height = (maxCell / cellsX) - (minCell / cellsX) + 1;
+        return width * height > MAX_CONNECTION_CELLS;
+    }
+
+    private void ensureSlotCapacity(int count) {
+        if (slotMinCell.length >= count) return;
+        int oldLength = slotMinCell.length;
+        int newLength = count + (count / 2);
+        slotMinCell = Arrays.copyOf(slotMinCell, newLength);
+        slotMaxCell = Arrays.copyOf(slotMaxCell, newLength);
+        Arrays.fill(slotMinCell, oldLength, newLength, NOT_IN_GRID);
+        Arrays.fill(slotMaxCell, oldLength, newLength, NOT_IN_GRID);
+    }
+
+    private int getCell(double x, double z) {
+        return (getCellIndex(z, originZ, cellsZ) * cellsX) + getCellIndex(x, originX, cellsX);
+    }
+
+    // anything outside the grid is in the border cell nearest to it
+    private int getCellIndex(double worldPos, double origin, int numCells) {
+        double cell = Math.floor((worldPos - origin) / cellSize);
+        if (!(cell > 0)) return 0;
+        if (cell >= numCells - 1) return numCells - 1;
+        return (int) cell;
+    }
+
+    // the lists of a cell are kept in order, so they can be searched and a query returns them in order
+
+    private static void addToList(int[][] lists, int[] counts, int cell, int value) {
+        int count = counts[cell];
+        int[] list = lists[cell];
+        int pos = Arrays.binarySearch(list, 0, count, value);
+        if (pos >= 0) return;
+        pos = -(pos + 1);
+        if (count == list.length) {
+            list = Arrays.copyOf(list, Math.max(4, count * 2));
+            lists[cell] = list;
+        }
+        System.arraycopy(list, pos, list, pos + 1, count - pos);
+        list[pos] = value;
+        counts[cell] = count + 1;
+    }
+
+    private static void removeFromList(int[][] lists, int[] counts, int cell, int value) {
+        int count = counts[cell];
+        int[] list = lists[cell];
+        int pos = Arrays.binarySearch(list, 0, count, value);
+        if (pos < 0) return;
+        System.arraycopy(list, pos + 1, list, pos, count - pos - 1);
+        counts[cell] = count - 1;
+    }
+}
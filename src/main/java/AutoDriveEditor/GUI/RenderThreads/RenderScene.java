@@ -0,0 +1,473 @@
+package AutoDriveEditor.GUI.RenderThreads;
+
+import AutoDriveEditor.GUI.Buttons.ConnectionSelectBaseButton.Connection;
+import AutoDriveEditor.GUI.MapPanel;
+import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.RoadMap;
+
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import static AutoDriveEditor.AutoDriveEditor.getMapPanel;
+import static AutoDriveEditor.Classes.MapImage.pdaImage;
+import static AutoDriveEditor.GUI.Buttons.ConnectionSelectBaseButton.connectionsList;
+import static AutoDriveEditor.GUI.MapPanel.*;
+import static AutoDriveEditor.GUI.Menus.DebugMenu.ShowAllNodeIDMenu.bDebugShowAllNodeID;
+import static AutoDriveEditor.GUI.Menus.DebugMenu.ShowNodeHeightMenu.bDebugShowHeight;
+import static AutoDriveEditor.RoadNetwork.MapNode.NODE_WARNING_OVERLAP;
+import static AutoDriveEditor.RoadNetwork.RoadMap.CONNECTION_TYPE_DUAL;
+import static AutoDriveEditor.RoadNetwork.RoadMap.CONNECTION_TYPE_REVERSE;
+import static AutoDriveEditor.RoadNetwork.RoadMap.SPATIAL_GRID_CELL_SIZE;
+import static AutoDriveEditor.XMLConfig.EditorXML.*;
+
+// Everything the render compute reads from the editor, brought up to date by the EDT at the start of every frame.
+//
+// The FrameScheduler asks the EDT to run capture() and waits for it to finish, the EDT never waits for the
+// render thread. The view ( position, zoom, node size, hovered node ) is taken every frame. The network is
+// kept in arrays indexed like RoadMap.networkNodesList, and a frame only copies the nodes RoadMap has queued
+// since the last one ( see RoadMap.markNodeChanged() ) and any nodes added to the end of the list, so a
+// repaint() that didn't change the network copies nothing. All of it is only copied again after a change to
+// the list itself ( nodes removed or inserted, another config ), or when so many nodes were queued that going
+// through them would take longer.
+//
+// The outgoing connections of all the nodes share one set of slot arrays, node n uses outCount[n] slots from
+// outStart[n]. A node that gains connections is moved to new slots at the end, the old ones are left unused
+// until there are enough of them to make packing them with a full copy worth it. Every slot is also in a list
+// of the slots pointing at the same node ( inHead/inNext ), so the connections into a moved node can be found,
+// the reverse ones included, RoadMap only keeps those in the start node's list.
+//
+// The spatial grid is brought up to date by the render thread in prepare(), only the copied nodes and the
+// connections to and from them are moved.
+//
+// Only the render thread uses the scene, and it is waiting in invokeAndWait() while the EDT fills it in,
+// so the scene is never read and written at the same time.
+
+public class RenderScene {
+
+    // node state bits, the visible/selected bits already include the preview changes
+    static final byte NODE_VISIBLE = 1;
+    static final byte NODE_SELECTED = 2;
+    static final byte NODE_FLAG_PREVIEW = 4;
+    static final byte NODE_WARNING = 8;
+    static final byte NODE_OVERLAP_WARNING = 16;
+    static final byte NODE_PARK_DESTINATION = 32;
+
+    // connection state bits, one entry for each slot, the hidden bit already includes the connection selection
+    static final byte CONNECTION_DUAL = 1;
+    static final byte CONNECTION_REVERSE = 2;
+    static final byte CONNECTION_HIDDEN = 4;
+    static final byte CONNECTION_IGNORED = 8;
+
+    // the unused slots are only packed once there are more of them than this and the slots in use
+    private static final int MIN_UNUSED_SLOTS = 4096;
+
+    // view, taken every frame
+
+    final ScreenTransform transform = new ScreenTransform();
+    boolean hasMap;
+    int width;
+    int height;
+    Point2D topLeft;
+    double zoomLevel;
+    double nodeSize;
+    double nodeSizeHalf;
+    double nodeSizeQuarter;
+    BufferedImage regularNodeImage;
+    BufferedImage subprioNodeImage;
+    boolean showAllNodeID;
+    boolean showHeight;
+    boolean showParkingIcons;
+    boolean showMarkerNames;
+    boolean showMarkerIcons;
+
+    // the hovered node is drawn on its own, hoveredIndex is its index in the scene ( -1 if it isn't in it )
+    boolean drawHover;
+    int hoveredIndex = -1;
+    double hoverX;
+    double hoverZ;
+    int hoverFlag;
+    boolean hoverSelectable;
+    boolean hoverVisible;
+
+    // network, the arrays only grow and are only valid up to numNodes ( numSlots for the slot arrays )
+
+    int numNodes;
+    private MapNode[] mapNodes = new MapNode[0];
+    int[] ids = new int[0];
+    double[] x = new double[0];
+    double[] y = new double[0];
+    double[] z = new double[0];
+    int[] flags = new int[0];
+    byte[] nodeState = new byte[0];
+    String[] markerNames = new String[0];
+    String[] markerGroups = new String[0];
+
+    // outTargets is the index of the target node, or -1 for a node that isn't in the network
+    int[] outStart = new int[0];
+    int[] outCount = new int[0];
+    int[] outTargets = new int[0];
+    byte[] connectionState = new byte[0];
+    int[] slotSource = new int[0];
+    int numSlots;
+    private int[] outCapacity = new int[0];
+    private int[] inHead = new int[0];
+    private int[] inNext = new int[0];
+    private int unusedSlots;
+    private int unresolvedSlots;
+
+    // networkVersion goes up every time the copy is changed, the connection layer is redrawn when
+    // either it or the layer version taken from ConnectionLayer has changed
+    private int networkVersion = 0;
+    int connectionLayerVersion;
+
+    private List<MapNode> copiedList;
+    private final ArrayList<MapNode> changedNodes = new ArrayList<>();
+    private IdentityHashMap<MapNode, ArrayList<MapNode>> selectedConnections;
+
+    // the nodes copied since the last prepare(), copiedStamp stops a node being copied twice in a frame
+    private int[] copiedStamp = new int[0];
+    private int captureStamp = 0;
+    private int[] copiedIndexes = new int[256];
+    private int numCopied = 0;
+    // slots given up since the last prepare(), when a node's connections were moved or it lost some
+    private int[] releasedSlots = new int[256];
+    private int numReleased = 0;
+    private boolean rebuildGrid = true;
+
+    // kept up to date by prepare()
+    final RenderGrid grid = new RenderGrid(SPATIAL_GRID_CELL_SIZE);
+
+    //
+    // Called on the EDT
+    //
+
+    void capture() {
+        width = getMapPanel().getWidth();
+        height = getMapPanel().getHeight();
+        hasMap = roadMap != null && pdaImage != null;
+        if (!hasMap || width <= 0 || height <= 0) return;
+
+        transform.captureView();
+        topLeft = getScaledViewTopLeft();
+        zoomLevel = MapPanel.zoomLevel;
+        nodeSize = nodeSizeScaled;
+        nodeSizeHalf = nodeSizeScaledHalf;
+        nodeSizeQuarter = nodeSizeScaledQuarter;
+        regularNodeImage = cachedRegularNodeImage;
+        subprioNodeImage = cachedSubprioNodeImage;
+        showAllNodeID = bDebugShowAllNodeID;
+        showHeight = bDebugShowHeight;
+        showParkingIcons = bShowParkingIcons;
+        showMarkerNames = bShowMarkerNames;
+        showMarkerIcons = bShowMarkerIcons;
+
+        int layerVersion = ConnectionLayer.getLayerVersion();
+        updateNetwork(RoadMap.networkNodesList);
+        // both only ever go up, so the sum changes whenever either of them does
+        connectionLayerVersion = layerVersion + networkVersion;
+
+        MapNode hovered = hoveredNode;
+        hoveredIndex = (hovered != null) ? getNodeIndex(hovered) : -1;
+        drawHover = hovered != null && !hovered.isControlNode();
+        if (drawHover) {
+            hoverX = hovered.x;
+            hoverZ = hovered.z;
+            hoverFlag = hovered.flag;
+            hoverSelectable = hovered.isSelectable();
+            hoverVisible = !hovered.isNodeHidden();
+        }
+    }
+
+    //
+    // Called on the render thread after capture(), move the copied nodes and their connections to their cells
+    // in the spatial grid, the connections into a node are moved with it as their bounding box has changed too
+    //
+
+    void prepare() {
+        if (rebuildGrid) {
+            grid.rebuild(this);
+            rebuildGrid = false;
+        } else {
+            for (int i = 0; i < numReleased; i++) {
+                grid.removeConnection(releasedSlots[i]);
+            }
+            for (int i = 0; i < numCopied; i++) {
+                int node = copiedIndexes[i];
+                grid.updateNode(node, x[node], z[node]);
+                for (int c = outStart[node]; c < outStart[node] + outCount[node]; c++) {
+                    updateConnectionCells(c);
+                }
+                for (int c = inHead[node]; c >= 0; c = inNext[c]) {
+                    updateConnectionCells(c);
+                }
+            }
+        }
+        numCopied = 0;
+        numReleased = 0;
+    }
+
+    // the flag the node is drawn with, a node type preview swaps it
+
+    int getDrawFlag(int index) {
+        int flag = flags[index];
+        return ((nodeState[index] & NODE_FLAG_PREVIEW) != 0) ? 1 - flag : flag;
+    }
+
+    //
+    // Internal functions
+    //
+
+    private void updateNetwork(List<MapNode> nodes) {
+        boolean allChanged = RoadMap.takeChangedNodes(changedNodes);
+        if (allChanged || nodes != copiedList || nodes.size() < numNodes) {
+            copyNetwork(nodes);
+        } else if (nodes.size() > numNodes || !changedNodes.isEmpty()) {
+            copyChangedNodes(nodes);
+        }
+        changedNodes.clear();
+        selectedConnections = null;
+    }
+
+    private void copyNetwork(List<MapNode> nodes) {
+        int count = nodes.size();
+        ensureNodeCapacity(count);
+        for (int i = 0; i < count; i++) {
+            mapNodes[i] = nodes.get(i);
+            outCount[i] = 0;
+            outCapacity[i] = 0;
+            inHead[i] = -1;
+        }
+        // drop anything left over from a bigger network
+        Arrays.fill(mapNodes, count, mapNodes.length, null);
+        Arrays.fill(markerNames, count, markerNames.length, null);
+        Arrays.fill(markerGroups, count, markerGroups.length, null);
+        numNodes = count;
+        numSlots = 0;
+        unusedSlots = 0;
+        unresolvedSlots = 0;
+
+        for (int i = 0; i < count; i++) {
+            copyNode(i);
+        }
+
+        copiedList = nodes;
+        numCopied = 0;
+        numReleased = 0;
+        rebuildGrid = true;
+        networkVersion++;
+    }
+
+    private void copyChangedNodes(List<MapNode> nodes) {
+        int oldCount = numNodes;
+        int count = nodes.size();
+
+        // a connection to a node that wasn't in the network could be to one of the new nodes
+        if (count > oldCount && unresolvedSlots > 0) {
+            copyNetwork(nodes);
+            return;
+        }
+
+        captureStamp++;
+        if (count > oldCount) {
+            ensureNodeCapacity(count);
+            for (int i = oldCount; i < count; i++) {
+                mapNodes[i] = nodes.get(i);
+                outCount[i] = 0;
+                outCapacity[i] = 0;
+                inHead[i] = -1;
+            }
+            numNodes = count;
+            for (int i = oldCount; i < count; i++) {
+                copyChangedNode(i);
+            }
+        }
+        for (MapNode mapNode : changedNodes) {
+            int index = getNodeIndex(mapNode);
+            if (index >= 0 && copiedStamp[index] != captureStamp) copyChangedNode(index);
+        }
+
+        if (unusedSlots > MIN_UNUSED_SLOTS && unusedSlots > numSlots - unusedSlots) {
+            copyNetwork(nodes);
+        } else {
+            networkVersion++;
+        }
+    }
+
+    private void copyChangedNode(int index) {
+        copiedStamp[index] = captureStamp;
+        copyNode(index);
+        if (numCopied == copiedIndexes.length) copiedIndexes = Arrays.copyOf(copiedIndexes, numCopied * 2);
+        copiedIndexes[numCopied++] = index;
+    }
+
+    private void copyNode(int index) {
+        MapNode mapNode = mapNodes[index];
+        ids[index] = mapNode.id;
+        x[index] = mapNode.x;
+        y[index] = mapNode.y;
+        z[index] = mapNode.z;
+        flags[index] = mapNode.flag;
+
+        byte state = 0;
+        if (mapNode.isNodeHidden() == mapNode.getPreviewNodeHiddenChange()) state |= NODE_VISIBLE;
+        if (mapNode.isSelected() != mapNode.getPreviewNodeSelectionChange()) state |= NODE_SELECTED;
+        if (mapNode.getPreviewNodeFlagChange()) state |= NODE_FLAG_PREVIEW;
+        if (mapNode.hasWarning()) {
+            state |= NODE_WARNING;
+            if (mapNode.getWarningType() == NODE_WARNING_OVERLAP) state |= NODE_OVERLAP_WARNING;
+        }
+        if (mapNode.isParkDestination()) state |= NODE_PARK_DESTINATION;
+        nodeState[index] = state;
+
+        boolean hasMarker = mapNode.hasMapMarker();
+        markerNames[index] = (hasMarker) ? mapNode.getMarkerName() : null;
+        markerGroups[index] = (hasMarker) ? mapNode.getMarkerGroup() : null;
+
+        copyConnections(index, mapNode);
+    }
+
+    private void copyConnections(int index, MapNode mapNode) {
+        // take the old slots out of the lists of the nodes they pointed at
+        int start = outStart[index];
+        for (int c = start; c < start + outCount[index]; c++) {
+            if (outTargets[c] >= 0) {
+                removeFromInList(outTargets[c], c);
+            } else {
+                unresolvedSlots--;
+            }
+        }
+
+        int oldCount = outCount[index];
+        int count = mapNode.outgoing.size();
+        if (count > outCapacity[index]) {
+            releaseSlots(start, oldCount);
+            unusedSlots += outCapacity[index];
+            ensureSlotCapacity(numSlots + count);
+            start = numSlots;
+            numSlots += count;
+            outStart[index] = start;
+            outCapacity[index] = count;
+        } else if (count < oldCount) {
+            releaseSlots(start + count, oldCount - count);
+        }
+        outCount[index] = count;
+        if (count == 0) return;
+
+        List<MapNode> ignoredConnections = mapNode.getIgnoreDrawingConnectionsList();
+        ArrayList<MapNode> selectedEnds = getSelectedEnds(mapNode);
+        for (int o = 0; o < count; o++) {
+            MapNode outgoing = mapNode.outgoing.get(o);
+            int c = start + o;
+            int target = getNodeIndex(outgoing);
+            outTargets[c] = target;
+            slotSource[c] = index;
+            if (target >= 0) {
+                inNext[c] = inHead[target];
+                inHead[target] = c;
+            } else {
+                unresolvedSlots++;
+            }
+
+            byte connection = 0;
+            byte connectionType = RoadMap.getConnectionType(mapNode, o);
+            if (connectionType == CONNECTION_TYPE_DUAL) {
+                connection |= CONNECTION_DUAL;
+            } else if (connectionType == CONNECTION_TYPE_REVERSE) {
+                connection |= CONNECTION_REVERSE;
+            }
+            boolean isSelected = selectedEnds != null && selectedEnds.contains(outgoing);
+            if (isSelected != mapNode.isConnectionHidden(outgoing)) connection |= CONNECTION_HIDDEN;
+            if (!ignoredConnections.isEmpty() && ignoredConnections.contains(outgoing)) connection |= CONNECTION_IGNORED;
+            connectionState[c] = connection;
+        }
+    }
+
+    private void removeFromInList(int target, int slot) {
+        int previous = -1;
+        int c = inHead[target];
+        while (c >= 0 && c != slot) {
+            previous = c;
+            c = inNext[c];
+        }
+        if (c < 0) return;
+        if (previous < 0) {
+            inHead[target] = inNext[slot];
+        } else {
+            inNext[previous] = inNext[slot];
+        }
+    }
+
+    // Index of the node in the scene, -1 if it isn't in the copy of the network
+
+    private int getNodeIndex(MapNode mapNode) {
+        int index = mapNode.id - 1;
+        return (index >= 0 && index < numNodes && mapNodes[index] == mapNode) ? index : -1;
+    }
+
+    // The selected connections by start node, so each connection is a map lookup instead of a search of the
+    // list. It is only made the first time a frame copies a node while there are selected connections.
+
+    private ArrayList<MapNode> getSelectedEnds(MapNode mapNode) {
+        if (connectionsList.isEmpty()) return null;
+        if (selectedConnections == null) {
+            selectedConnections = new IdentityHashMap<>();
+            for (Connection connection : connectionsList) {
+                selectedConnections.computeIfAbsent(connection.getStartNode(), k -> new ArrayList<>(1)).add(connection.getEndNode());
+            }
+        }
+        return selectedConnections.get(mapNode);
+    }
+
+    // the grid only has the connections to a node in the network
+
+    private void updateConnectionCells(int slot) {
+        int target = outTargets[slot];
+        if (target < 0) {
+            grid.removeConnection(slot);
+        } else {
+            int source = slotSource[slot];
+            grid.updateConnection(slot, x[source], z[source], x[target], z[target]);
+        }
+    }
+
+    private void releaseSlots(int firstSlot, int count) {
+        if (numReleased + count > releasedSlots.length) {
+            releasedSlots = Arrays.copyOf(releasedSlots, Math.max(releasedSlots.length * 2, numReleased + count));
+        }
+        for (int c = firstSlot; c < firstSlot + count; c++) {
+            releasedSlots[numReleased++] = c;
+        }
+    }
+
+    private void ensureNodeCapacity(int count) {
+        if (mapNodes.length >= count) return;
+        int newLength = count + (count / 8);
+        mapNodes = Arrays.copyOf(mapNodes, newLength);
+        ids = Arrays.copyOf(ids, newLength);
+        x = Arrays.copyOf(x, newLength);
+        y = Arrays.copyOf(y, newLength);
+        z = Arrays.copyOf(z, newLength);
+        flags = Arrays.copyOf(flags, newLength);
+        nodeState = Arrays.copyOf(nodeState, newLength);
+        markerNames = Arrays.copyOf(markerNames, newLength);
+        markerGroups = Arrays.copyOf(markerGroups, newLength);
+        outStart = Arrays.copyOf(outStart, newLength);
+        outCount = Arrays.copyOf(outCount, newLength);
+        outCapacity = Arrays.copyOf(outCapacity, newLength);
+        inHead = Arrays.copyOf(inHead, newLength);
+        copiedStamp = Arrays.copyOf(copiedStamp, newLength);
+    }
+
+    private void ensureSlotCapacity(int count) {
+        if (outTargets.length >= count) return;
+        int newLength = Math.max(256, count + (count / 2));
+        outTargets = Arrays.copyOf(outTargets, newLength);
+        connectionState = Arrays.copyOf(connectionState, newLength);
+        slotSource = Arrays.copyOf(slotSource, newLength);
+        inNext = Arrays.copyOf(inNext, newLength);
+    }
+}
@@ -0,0 +1,64 @@
+package AutoDriveEditor.GUI.RenderThreads;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+// One TILE_SIZE piece of a screen area, the render compute is split into these so it can be
+// spread over all the cores by the FrameScheduler's ForkJoinPool.
+//
+// Every element is owned by exactly one tile, the one its screen position falls in after being
+// clamped to the area, so nothing is added twice and anything just outside the area is owned
+// by the tile on that edge. The tiles are created once and re-used for every frame.
+
+abstract class ScreenTile implements Callable<Void> {
+
+    public static final int TILE_SIZE = 256;
+
+    final Rectangle bounds = new Rectangle();
+    Rectangle area;
+    int areaIndex;
+    boolean isLeftEdge;
+    boolean isRightEdge;
+    boolean isTopEdge;
+    boolean isBottomEdge;
+
+    // Fill the tiles list (from index numTiles) with the tiles covering the area, the list only grows,
+    // returns the new number of tiles in use
+
+    static <T extends ScreenTile> int splitArea(Rectangle area, int areaIndex, ArrayList<T> tiles, int numTiles, Supplier<T> newTile) {
+        for (int tileY = area.y; tileY < area.y + area.height; tileY += TILE_SIZE) {
+            for (int tileX = area.x; tileX < area.x + area.width; tileX += TILE_SIZE) {
+                if (numTiles == tiles.size()) tiles.add(newTile.get());
+                T tile = tiles.get(numTiles++);
+                tile.area = area;
+                tile.areaIndex = areaIndex;
+                tile.bounds.setBounds(tileX, tileY, Math.min(TILE_SIZE, area.x + area.width - tileX), Math.min(TILE_SIZE, area.y + area.height - tileY));
+                tile.isLeftEdge = tileX == area.x;
+                tile.isTopEdge = tileY == area.y;
+                tile.isRightEdge = tileX + TILE_SIZE >= area.x + area.width;
+                tile.isBottomEdge = tileY + TILE_SIZE >= area.y + area.height;
+            }
+        }
+        return numTiles;
+    }
+
+    // Run the compute of all the tiles on the pool, any exception thrown by a tile is passed on
+
+    static void computeAll(ForkJoinPool pool, List<? extends ScreenTile> tiles) throws InterruptedException, ExecutionException {
+        for (Future<Void> result : pool.invokeAll(tiles)) {
+            result.get();
+        }
+    }
+
+    boolean ownsScreenPos(int screenX, int screenY) {
+        int clampedX = Math.max(area.x, Math.min(screenX, area.x + area.width - 1));
+        int clampedY = Math.max(area.y, Math.min(screenY, area.y + area.height - 1));
+        return bounds.contains(clampedX, clampedY);
+    }
+}
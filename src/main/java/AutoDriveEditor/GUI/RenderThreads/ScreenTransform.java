@@ -0,0 +1,45 @@
+package AutoDriveEditor.GUI.RenderThreads;
+
+import java.awt.geom.Point2D;
+
+import static AutoDriveEditor.GUI.MapPanel.*;
+
+// World to screen transform of one frame, the values are taken from the MapPanel once when the
+// frame starts so the render compute can transform positions without creating a Point for each one.
+//
+// The maths is the same as MapPanel.worldPosToScreenPos(), so the results are identical. The world
+// positions of screen areas are the same as MapPanel.screenPosToWorldPos() without the rounding.
+
+public class ScreenTransform {
+
+    private int viewMapScale;
+    private int viewCenterPointOffset;
+    private double viewZoomLevel;
+    private double viewTopLeftX;
+    private double viewTopLeftY;
+
+    public void captureView() {
+        Point2D topLeft = getScaledViewTopLeft();
+        viewMapScale = mapScale;
+        viewCenterPointOffset = 1024 * mapScale;
+        viewZoomLevel = zoomLevel;
+        viewTopLeftX = topLeft.getX();
+        viewTopLeftY = topLeft.getY();
+    }
+
+    public int toScreenX(double worldX) {
+        return (int) ((((worldX + viewCenterPointOffset) / viewMapScale) * viewZoomLevel) - viewTopLeftX);
+    }
+
+    public int toScreenY(double worldZ) {
+        return (int) ((((worldZ + viewCenterPointOffset) / viewMapScale) * viewZoomLevel) - viewTopLeftY);
+    }
+
+    public double toWorldX(double screenX) {
+        return (((screenX + viewTopLeftX) / viewZoomLevel) * viewMapScale) - viewCenterPointOffset;
+    }
+
+    public double toWorldZ(double screenY) {
+        return (((screenY + viewTopLeftY) / viewZoomLevel) * viewMapScale) - viewCenterPointOffset;
+    }
+}
@@ -0,0 +1,131 @@
+package AutoDriveEditor.GUI.RenderThreads;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static AutoDriveEditor.GUI.MapPanel.setMapPanelRenderingHints;
+import static AutoDriveEditor.Utils.ImageUtils.getNewBufferImage;
+
+// Cache of text that has already been drawn, so a label is laid out and rasterised once and then
+// drawn as an image blit in every frame after that.
+//
+// The entries are keyed by string, font and colour and kept in least recently used order, when the
+// images in the cache go over the pixel budget the oldest ones are dropped. It is only used by the
+// render thread, so it isn't thread safe.
+
+public class TextRasterCache {
+
+    // 2M pixels is 8MB of ARGB images, enough for many thousands of node ID's
+    private static final long PIXEL_BUDGET = 2 * 1024 * 1024;
+
+    // extra pixels around the text so glyphs that overhang their advance aren't cut off
+    private static final int PADDING = 2;
+
+    private final LinkedHashMap<TextKey, TextRaster> cache = new LinkedHashMap<>(256, 0.75f, true);
+    private final TextKey lookupKey = new TextKey();
+    private long cachedPixels = 0;
+
+    //
+    // Draw the text at the same position Graphics.drawString() would for the centred labels in
+    // NodeDrawThread, that is centred on x with the baseline a little under y.
+    //
+
+    public void drawCentredText(Graphics2D g, String text, int x, int y, int argb) {
+        TextRaster raster = getRaster(g, text, argb);
+        int drawX = (int) (x - (raster.width / 2)) - PADDING;
+        int drawY = (int) (y + ((raster.height / 2) - 3)) - raster.ascent - PADDING;
+        g.drawImage(raster.image, drawX, drawY, null);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    //
+    // Internal functions
+    //
+
+    private TextRaster getRaster(Graphics2D g, String text, int argb) {
+        Font font = g.getFont();
+        lookupKey.set(text, font, argb);
+        TextRaster raster = cache.get(lookupKey);
+        if (raster == null) {
+            raster = createRaster(g, text, font, argb);
+            cache.put(new TextKey().set(text, font, argb), raster);
+            cachedPixels += (long) raster.image.getWidth() * raster.image.getHeight();
+            evictOverBudget();
+        }
+        return raster;
+    }
+
+    private TextRaster createRaster(Graphics2D g, String text, Font font, int argb) {
+        FontMetrics fm = g.getFontMetrics(font);
+        Rectangle2D rect = fm.getStringBounds(text, g);
+        int imageWidth = (int) Math.ceil(rect.getWidth()) + (PADDING * 2);
+        int imageHeight = fm.getHeight() + (PADDING * 2);
+
+        BufferedImage image = getNewBufferImage(Math.max(1, imageWidth), Math.max(1, imageHeight), Transparency.TRANSLUCENT);
+        Graphics2D gText = image.createGraphics();
+        setMapPanelRenderingHints(gText);
+        gText.setFont(font);
+        gText.setColor(new Color(argb, true));
+        gText.drawString(text, PADDING, PADDING + fm.getAscent());
+        gText.dispose();
+        return new TextRaster(image, rect.getWidth(), rect.getHeight(), fm.getAscent());
+    }
+
+    private void evictOverBudget() {
+        Iterator<Map.Entry<TextKey, TextRaster>> iterator = cache.entrySet().iterator();
+        while (cachedPixels > PIXEL_BUDGET && iterator.hasNext()) {
+            BufferedImage image = iterator.next().getValue().image;
+            cachedPixels -= (long) image.getWidth() * image.getHeight();
+            iterator.remove();
+        }
+    }
+
+    private static class TextRaster {
+        final BufferedImage image;
+        final double width;
+        final double height;
+        final int ascent;
+
+        TextRaster(BufferedImage image, double width, double height, int ascent) {
+            this.image = image;
+            this.width = width;
+            this.height = height;
+            this.ascent = ascent;
+        }
+    }
+
+    // Mutable so a single instance can be used for the lookups, only new entries get their own key
+
+    private static class TextKey {
+        String text;
+        Font font;
+        int argb;
+
+        TextKey set(String text, Font font, int argb) {
+            this.text = text;
+            this.font = font;
+            this.argb = argb;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TextKey)) return false;
+            TextKey other = (TextKey) o;
+            return argb == other.argb && text.equals(other.text) && font.equals(other.font);
+        }
+
+        @Override
+        public int hashCode() {
+            return (((31 * text.hashCode()) + font.hashCode()) * 31) + argb;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package AutoDriveEditor.GUI.RouteNodesTable;
 // Packages to import
 
 import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.NetworkChangeBatch;
 
 import javax.swing.*;
 import java.beans.PropertyChangeEvent;
@@ -96,9 +97,13 @@ public class RouteNodesTable implements PropertyChangeListener {
                 nodesTableModel.updateNode((MapNode) evt.getNewValue());
                 break;
             case "networkNodesList.removeAll":
-                for (MapNode node : safeCastToLinkedListMapNode(evt.getOldValue())) {
-                    nodesTableModel.removeNode(node);
-                }
+                nodesTableModel.removeNodes(safeCastToLinkedListMapNode(evt.getOldValue()));
+                break;
+            case "networkNodesList.batch":
+                NetworkChangeBatch batch = (NetworkChangeBatch) evt.getNewValue();
+                nodesTableModel.applyBatch(batch);
+                // same as addAll, new rows can need wider columns
+                if (!batch.getAddedNodes().isEmpty()) nodesTableView.resizeTableColumns();
                 break;
             case "networkNodesList.addAll":
                 if (evt.getNewValue() != null) {
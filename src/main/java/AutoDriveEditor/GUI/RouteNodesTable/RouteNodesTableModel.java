@@ -1,9 +1,13 @@
 package AutoDriveEditor.GUI.RouteNodesTable;
 
 import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.NetworkChangeBatch;
 import AutoDriveEditor.Utils.Classes.CoordinateChanger;
 
 import javax.swing.table.AbstractTableModel;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
@@ -18,6 +22,8 @@ import static AutoDriveEditor.GUI.Buttons.Markers.EditMarkerButton.editMarker;
 import static AutoDriveEditor.GUI.Buttons.Nodes.SwapNodePriorityButton.changeNodePriority;
 import static AutoDriveEditor.GUI.MapPanel.setStale;
 import static AutoDriveEditor.RoadNetwork.MapNode.NODE_FLAG_REGULAR;
+import static AutoDriveEditor.RoadNetwork.RoadMap.markNodeChanged;
+import static AutoDriveEditor.RoadNetwork.RoadMap.updateNodeLocation;
 import static AutoDriveEditor.XMLConfig.AutoSave.resumeAutoSaving;
 import static AutoDriveEditor.XMLConfig.AutoSave.suspendAutoSaving;
 
@@ -75,6 +81,63 @@ public class RouteNodesTableModel extends AbstractTableModel {
         fireTableRowsDeleted(rowIndex, rowIndex);
     }
 
+    /**
+     * Remove a group of MapNodes from the model in one pass, listeners get a single data changed event
+     *
+     * @param mapNodes The MapNodes to remove
+     */
+    public void removeNodes(Collection<MapNode> mapNodes) {
+        if (mapNodes.isEmpty()) return;
+        HashSet<MapNode> removeSet = new HashSet<>(mapNodes);
+        if (data.removeIf(removeSet::contains)) {
+            fireTableDataChanged();
+        }
+    }
+
+    /**
+     * Apply all the changes from a RoadMap change transaction, listeners get at most one event
+     * for the removed rows, one for the added rows and one for the updated rows.
+     *
+     * @param batch The changes to apply
+     */
+    public void applyBatch(NetworkChangeBatch batch) {
+        boolean dataChanged = false;
+        if (!batch.getRemovedNodes().isEmpty()) {
+            HashSet<MapNode> removeSet = new HashSet<>(batch.getRemovedNodes());
+            dataChanged = data.removeIf(removeSet::contains);
+        }
+
+        int firstAddedRow = data.size();
+        data.addAll(batch.getAddedNodes());
+
+        if (dataChanged || batch.isRefreshAll()) {
+            // row indexes have moved, so the added and updated rows can't be reported separately
+            fireTableDataChanged();
+            return;
+        }
+        if (data.size() > firstAddedRow) {
+            fireTableRowsInserted(firstAddedRow, data.size() - 1);
+        }
+
+        Collection<MapNode> updatedNodes = batch.getUpdatedNodes();
+        if (updatedNodes.size() == 1) {
+            updateNode(updatedNodes.iterator().next());
+        } else if (updatedNodes.size() > 1) {
+            // one event covering the range of updated rows, found with a single pass over the model
+            IdentityHashMap<MapNode, Boolean> updateSet = new IdentityHashMap<>(updatedNodes.size());
+            for (MapNode mapNode : updatedNodes) updateSet.put(mapNode, Boolean.TRUE);
+            int firstRow = -1;
+            int lastRow = -1;
+            for (int i = 0; i < firstAddedRow; i++) {
+                if (updateSet.containsKey(data.get(i))) {
+                    if (firstRow == -1) firstRow = i;
+                    lastRow = i;
+                }
+            }
+            if (firstRow != -1) fireTableRowsUpdated(firstRow, lastRow);
+        }
+    }
+
     /**
      * Get MapNode by its MapNode.id
      *
@@ -175,16 +238,19 @@ public class RouteNodesTableModel extends AbstractTableModel {
                 double newX = (double) aValue;
                 changeManager.addChangeable(new CoordinateChanger(node, newX, node.y, node.z));
                 node.x = newX;
+                updateNodeLocation(node);
                 break;
             case 2:
                 double newY = (double) aValue;
                 changeManager.addChangeable(new CoordinateChanger(node, node.x, newY, node.z));
                 node.y = newY;
+                markNodeChanged(node);
                 break;
             case 3:
                 double newZ = (double) aValue;
                 changeManager.addChangeable(new CoordinateChanger(node, node.x, node.y, newZ));
                 node.z = newZ;
+                updateNodeLocation(node);
                 break;
             case 4:
                 String newMarkerName = (String) aValue;
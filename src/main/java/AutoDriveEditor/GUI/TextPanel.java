@@ -161,6 +161,11 @@ public class TextPanel extends JPanel {
     }
 
     public static void showInTextArea(String text, boolean clearAll, boolean outputToLogFile) {
+        // the map images can be looked up on the config load threads
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> showInTextArea(text, clearAll, outputToLogFile));
+            return;
+        }
         if (clearAll) {
             textArea.selectAll();
             textArea.replaceSelection(null);
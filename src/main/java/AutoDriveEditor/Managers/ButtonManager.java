@@ -9,7 +9,6 @@ import java.util.List;
 import java.util.Objects;
 
 import static AutoDriveEditor.Classes.MapImage.pdaImage;
-import static AutoDriveEditor.GUI.MapPanel.renderGraphics;
 import static AutoDriveEditor.GUI.Menus.DebugMenu.Logging.LogButtonInfoMenu.bDebugLogButton;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 
@@ -151,21 +150,6 @@ public class ButtonManager {
 
         Boolean previewConnectionHiddenChange();
 
-        /**
-         * getLineDetectionInterval() - Used by ConnectSelectBaseButton only
-         *
-         * Only used when freeform selection is used, sets the interval in
-         * pixels to move along the length of a line and test each point is
-         * inside the selection area.
-         * NOTE:- Small values are more CPU intensive
-         * Default: 10
-         * @return Integer
-         */
-        Integer getLineDetectionInterval();
-
-
-
-
 
         /**
          * sets a unique reference for this button.
@@ -340,7 +324,7 @@ public class ButtonManager {
 
     public void drawToScreen(Graphics g) {
         for (ButtonNode buttonNode : buttonList) {
-            if (renderGraphics != null && pdaImage != null) {
+            if (pdaImage != null) {
                 buttonNode.button.drawToScreen(g);
             }
         }
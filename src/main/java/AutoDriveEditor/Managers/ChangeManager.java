@@ -1,11 +1,18 @@
 package AutoDriveEditor.Managers;
 
+import AutoDriveEditor.RoadNetwork.MapNode;
+
+import java.util.Collection;
+
 import static AutoDriveEditor.GUI.Menus.DebugMenu.Logging.LogUndoRedoMenu.bDebugLogUndoRedo;
 import static AutoDriveEditor.GUI.Menus.EditMenu.RedoMenu.menu_Redo;
 import static AutoDriveEditor.GUI.Menus.EditMenu.UndoMenu.menu_Undo;
+import static AutoDriveEditor.RoadNetwork.RoadMap.beginChanges;
+import static AutoDriveEditor.RoadNetwork.RoadMap.commitChanges;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.XMLConfig.AutoSave.resumeAutoSaving;
 import static AutoDriveEditor.XMLConfig.AutoSave.suspendAutoSaving;
+import static AutoDriveEditor.XMLConfig.EditorXML.maxUndoHistoryMemory;
 
 /**
  * Manages a Queue of Changables to perform undo and/or redo operations. Clients can add implementations of the Changeable
@@ -26,8 +33,42 @@ public class ChangeManager {
 
         // Redoes an action
         void redo();
+
+        // Rough number of bytes the change keeps alive, used to limit the size of the undo history.
+        // Changes that store nodes or lists should override this, see the estimate functions below.
+        default long getEstimatedMemoryUse() { return CHANGEABLE_SIZE; }
+    }
+
+    //
+    // Size estimates for the undo history, these don't need to be exact, only close enough that a
+    // history full of large changes ( e.g. deleting or pasting thousands of nodes ) is kept in check.
+    //
+
+    public static final long CHANGEABLE_SIZE = 64;
+    // a MapNode with its connection lists ( see MapNodeFootprintBenchmark )
+    public static final long MAP_NODE_SIZE = 250;
+    // per entry cost of a collection, a LinkedList node is 24 bytes, an ArrayList slot 4 ( compressed oops )
+    public static final long LINKED_LIST_ENTRY_SIZE = 24;
+    public static final long ARRAY_LIST_ENTRY_SIZE = 4;
+
+    // nodes that might only be referenced by the history ( e.g. deleted nodes ), with their connections
+    public static long estimateNodesSize(Collection<MapNode> nodes) {
+        long size = 0;
+        for (MapNode node : nodes) {
+            size += MAP_NODE_SIZE + (node.incoming.size() + node.outgoing.size()) * ARRAY_LIST_ENTRY_SIZE;
+        }
+        return size;
+    }
+
+    // a LinkedList where each entry holds an object of entrySize bytes, use 0 for references to existing objects
+    public static long estimateLinkedListSize(int numEntries, long entrySize) {
+        return CHANGEABLE_SIZE + numEntries * (LINKED_LIST_ENTRY_SIZE + entrySize);
     }
 
+    // estimated memory held by all the changes in the history, and the number of changes
+    private long historyMemoryUse = 0;
+    private int historySize = 0;
+
     //the current index node
     private Node currentIndex;
     //the parent node far left node.
@@ -55,19 +96,51 @@ public class ChangeManager {
     @SuppressWarnings("unused")
     public void clear(){
         currentIndex = parentNode;
+        parentNode.right = null;
+        historyMemoryUse = 0;
+        historySize = 0;
     }
 
      // Add a Changeable to manage.
 
     public void addChangeable(Changeable changeable){
         Node node = new Node(changeable);
+        // the redo entries are replaced by the new change
+        for (Node redoNode = currentIndex.right; redoNode != null; redoNode = redoNode.right) {
+            historyMemoryUse -= redoNode.memoryUse;
+            historySize--;
+        }
         currentIndex.right = node;
         node.left = currentIndex;
         currentIndex = node;
-        if (bDebugLogUndoRedo) LOG.info("addChangeable");
+        historyMemoryUse += node.memoryUse;
+        historySize++;
+        if (bDebugLogUndoRedo) LOG.info("addChangeable ( estimated size {} bytes, history {} entries, {} bytes )", node.memoryUse, historySize, historyMemoryUse);
+        removeOldestChanges();
         menu_Undo.setEnabled(true);
     }
 
+    //
+    // Drop the oldest changes until the history fits in the memory budget, the latest change is always
+    // kept, so it can be undone however large it is.
+    //
+
+    private void removeOldestChanges() {
+        long maxMemoryUse = (long) maxUndoHistoryMemory * 1024 * 1024;
+        while (historyMemoryUse > maxMemoryUse && parentNode.right != null && parentNode.right != currentIndex) {
+            Node oldest = parentNode.right;
+            parentNode.right = oldest.right;
+            oldest.right.left = parentNode;
+            historyMemoryUse -= oldest.memoryUse;
+            historySize--;
+            if (bDebugLogUndoRedo) LOG.info("Undo history over {} MB, removed the oldest change ( {} bytes )", maxUndoHistoryMemory, oldest.memoryUse);
+        }
+    }
+
+    public long getHistoryMemoryUse() { return historyMemoryUse; }
+
+    public int getHistorySize() { return historySize; }
+
      // Return if undo can be performed.
 
     public boolean canUndo() { return currentIndex != parentNode;}
@@ -89,9 +162,14 @@ public class ChangeManager {
             return;
             //throw new IllegalStateException("Cannot undo. Index is out of range.");
         }
-        //undo
+        //undo, the table is updated once with all the node changes when it has finished
         if (currentIndex.changeable != null) {
-            currentIndex.changeable.undo();
+            beginChanges();
+            try {
+                currentIndex.changeable.undo();
+            } finally {
+                commitChanges();
+            }
         } else {
             LOG.info("Unable to Undo");
         }
@@ -145,9 +223,14 @@ public class ChangeManager {
         }
         //reset index
         moveRight();
-        //redo
+        //redo, the table is updated once with all the node changes when it has finished
         if (currentIndex.changeable != null) {
-            currentIndex.changeable.redo();
+            beginChanges();
+            try {
+                currentIndex.changeable.redo();
+            } finally {
+                commitChanges();
+            }
         } else {
             LOG.info("Unable to Redo");
         }
@@ -165,13 +248,16 @@ public class ChangeManager {
         private Node left = null;
         private Node right = null;
         private final Changeable changeable;
+        private final long memoryUse;
 
         public Node(Changeable c){
             changeable = c;
+            memoryUse = c.getEstimatedMemoryUse();
         }
 
         public Node(){
             changeable = null;
+            memoryUse = 0;
         }
     }
 }
\ No newline at end of file
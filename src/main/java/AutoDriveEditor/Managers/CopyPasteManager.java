@@ -6,7 +6,9 @@ import AutoDriveEditor.RoadNetwork.RoadMap;
 
 import java.awt.*;
 import java.awt.geom.Point2D;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.Map;
 
 import static AutoDriveEditor.AutoDriveEditor.changeManager;
 import static AutoDriveEditor.AutoDriveEditor.getMapPanel;
@@ -15,7 +17,7 @@ import static AutoDriveEditor.GUI.MapPanel.*;
 import static AutoDriveEditor.GUI.Menus.DebugMenu.Logging.LogCopyPasteMenu.bDebugLogCopyPasteInfo;
 import static AutoDriveEditor.GUI.Menus.EditorMenu.updateEditMenu;
 import static AutoDriveEditor.Managers.MultiSelectManager.*;
-import static AutoDriveEditor.RoadNetwork.RoadMap.addNodeToNetwork;
+import static AutoDriveEditor.Managers.ScanManager.checkNodeOverlap;
 import static AutoDriveEditor.RoadNetwork.RoadMap.createMapNode;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.Utils.MathUtils.roundUpDoubleToDecimalPlaces;
@@ -30,24 +32,6 @@ public class CopyPasteManager {
 
     private LinkedList<MapNode> nodeCache;
 
-    // NodeTransform is used to reference the old to new map nodes when re-creating
-    // the connections to the new nodes, this way we can keep the valid connections
-    // when they are added to the node network
-
-    private static class NodeTransform {
-        final MapNode originalNode;
-        final MapNode newNode;
-        final LinkedList<MapNode> incoming;
-        final LinkedList<MapNode> outgoing;
-
-        public NodeTransform(MapNode origNode, MapNode newNode) {
-            this.originalNode = origNode;
-            this.newNode = newNode;
-            this.incoming = new LinkedList<>();
-            this.outgoing = new LinkedList<>();
-        }
-    }
-
     public CopyPasteManager() {
         this.nodeCache = new LinkedList<>();
     }
@@ -95,62 +79,44 @@ public class CopyPasteManager {
 
     public LinkedList<MapNode> createNewMapNodesFromList(LinkedList<MapNode> list) {
 
-        // create a new MapNode for each node in the list
+        // create a new MapNode for each node in the list, the identity map references the old to new
+        // map nodes, so each connection is remade with a single lookup. Connections to nodes that
+        // are not in the list have no entry in the map and are dropped.
 
-        LinkedList<NodeTransform> tempWorkBuffer = new LinkedList<>();
+        IdentityHashMap<MapNode, MapNode> originalToNewNode = new IdentityHashMap<>(list.size());
         LinkedList<MapNode> tempCache = new LinkedList<>();
 
         int n = 1;
         for (MapNode node : list) {
-            if (!node.isControlNode()) {
+            if (!node.isControlNode() && !originalToNewNode.containsKey(node)) {
                 MapNode workBufferNode = createMapNode(n++, node.x, node.y, node.z, node.flag, true, false);
                 if (node.hasMapMarker()) {
                     workBufferNode.createMapMarker(node.getMarkerName(), node.getMarkerGroup());
                 }
-                tempWorkBuffer.add(new NodeTransform(node, workBufferNode));
+                originalToNewNode.put(node, workBufferNode);
+                tempCache.add(workBufferNode);
             }
         }
 
-        // iterate through the list and remake the connections using the new nodes
+        // remake the connections using the new nodes, in one pass over the links of each node
 
-        for (MapNode originalListNode : list) {
-            MapNode sourceNode = null;
+        for (Map.Entry<MapNode, MapNode> entry : originalToNewNode.entrySet()) {
+            MapNode originalNode = entry.getKey();
+            MapNode sourceNode = entry.getValue();
 
-            for (NodeTransform workBufferNode : tempWorkBuffer) {
-                if (workBufferNode.originalNode == originalListNode) {
-                    sourceNode = workBufferNode.newNode;
-                    break;
-                }
+            sourceNode.incoming.ensureCapacity(originalNode.incoming.size());
+            for (MapNode originalIncomingNode : originalNode.incoming) {
+                MapNode destNode = originalToNewNode.get(originalIncomingNode);
+                if (destNode != null) sourceNode.incoming.add(destNode);
             }
 
-            if (sourceNode != null) {
-                MapNode destNode;
-                for (int in = 0; in < originalListNode.incoming.size(); in++) {
-                    MapNode originalIncomingNode = originalListNode.incoming.get(in);
-                    for (NodeTransform workBufferNode : tempWorkBuffer) {
-                        if (workBufferNode.originalNode == originalIncomingNode) {
-                            destNode = workBufferNode.newNode;
-                            sourceNode.incoming.add(destNode);
-                            break;
-                        }
-                    }
-                }
-
-                for (int out = 0; out < originalListNode.outgoing.size(); out++) {
-                    MapNode originalOutgoingNode = originalListNode.outgoing.get(out);
-                    for (NodeTransform workNode : tempWorkBuffer) {
-                        if (workNode.originalNode == originalOutgoingNode) {
-                            destNode = workNode.newNode;
-                            sourceNode.outgoing.add(destNode);
-                        }
-                    }
-                }
+            sourceNode.outgoing.ensureCapacity(originalNode.outgoing.size());
+            for (MapNode originalOutgoingNode : originalNode.outgoing) {
+                MapNode destNode = originalToNewNode.get(originalOutgoingNode);
+                if (destNode != null) sourceNode.outgoing.add(destNode);
             }
         }
 
-        for (NodeTransform node : tempWorkBuffer) {
-            tempCache.add(node.newNode);
-        }
         return tempCache;
     }
 
@@ -187,10 +153,13 @@ public class CopyPasteManager {
                     if (yValue != -1) node.y = yValue;
                 }
                 node.setSelected(true);
-                addNodeToNetwork(node);
-                multiSelectList.add(node);
             }
 
+            // add the pasted nodes to the network and check them for overlaps as one batch
+            RoadMap.addNodesToNetwork(newNodes);
+            checkNodeOverlap(newNodes);
+            multiSelectList.addAll(newNodes);
+
             isMultipleSelected = true;
 
             changeManager.addChangeable( new PasteSelectionButton.PasteSelectionChanger(newNodes) );
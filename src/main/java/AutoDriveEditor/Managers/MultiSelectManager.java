@@ -2,6 +2,7 @@ package AutoDriveEditor.Managers;
 
 import AutoDriveEditor.RoadNetwork.MapNode;
 import AutoDriveEditor.RoadNetwork.RoadMap;
+import AutoDriveEditor.Utils.Classes.LassoPolygon;
 
 import java.awt.*;
 import java.awt.event.MouseEvent;
@@ -11,6 +12,9 @@ import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 
 import static AutoDriveEditor.AutoDriveEditor.getMapPanel;
@@ -23,6 +27,7 @@ import static AutoDriveEditor.GUI.MapPanel.*;
 import static AutoDriveEditor.GUI.Menus.DebugMenu.Logging.LogMultiSelectInfoMenu.bDebugLogMultiSelectInfo;
 import static AutoDriveEditor.GUI.Menus.EditorMenu.updateEditMenu;
 import static AutoDriveEditor.Managers.ButtonManager.getCurrentButton;
+import static AutoDriveEditor.RoadNetwork.RoadMap.getNodesInWorldArea;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.Utils.MathUtils.getNormalizedRectangle;
 import static AutoDriveEditor.Utils.MathUtils.roundUpDoubleToDecimalPlaces;
@@ -35,6 +40,10 @@ public class MultiSelectManager implements MouseListener, MouseMotionListener {
     public static final LinkedList<MapNode> multiSelectList = new LinkedList<>();
     // List of nodes that were selected on the current run
     public static final ArrayList<MapNode> selectedNodes = new ArrayList<>();
+    // Position of each node in selectedNodes, so the drag can check and remove nodes without searching the list
+    private static final HashMap<MapNode, Integer> selectedNodeIndex = new HashMap<>();
+    // Nodes returned by the spatial index queries, re-used for every drag event
+    private static final ArrayList<MapNode> candidateNodes = new ArrayList<>();
     public static boolean isMultipleSelected = false;
     public static boolean isMultiSelectDragging;
 
@@ -46,6 +55,8 @@ public class MultiSelectManager implements MouseListener, MouseMotionListener {
     // Stores the dimensions of the selection box
     public static Rectangle2D multiSelectRect = new Rectangle2D.Double();
     public static boolean useRectangularSelection = true;
+    // The rectangle the selectedNodes list was last updated for, null at the start of a selection
+    private static Rectangle2D previousSelectRect;
 
     //
     // Freeform selection
@@ -53,9 +64,15 @@ public class MultiSelectManager implements MouseListener, MouseMotionListener {
 
     // Stores the path the freeform selection takes
     private static final Path2D freeformSelectionPath  = new Path2D.Double();
+    // The same path as a flat polygon, for the exact connection selection tests
+    private static final LassoPolygon freeformSelectionPolygon = new LassoPolygon();
     // Where the freeform selection starts
     public static Point2D freeformSelectionStart;
     public static boolean useFreeformSelection = false;
+    // The view the freeform selection was last updated for, the path is in screen co-ordinates so
+    // if the map is moved or zoomed during the selection the selected nodes are worked out again
+    private static Point2D freeformViewTopLeft;
+    private static double freeformViewZoomLevel;
 
     @Override
     public void mouseClicked(MouseEvent e) {
@@ -114,46 +131,15 @@ public class MultiSelectManager implements MouseListener, MouseMotionListener {
             if (getCurrentButton().useMultiSelection()) {
                 /// check if a selection started
                 if (selectStart != null && isMultiSelectDragging) {
-                    // clear the inSelectionArea flag on the previously selected nodes, if not, the visual preview won't update properly
-                    for (MapNode node : selectedNodes) {
-                        node.setPreviewNodeSelectionChange(false);
-                        node.setPreviewNodeHiddenChange(false);
-                        node.setPreviewNodeFlagChange(false);
-                    }
-                    selectedNodes.clear();
                     // which selection method are we using
                     if (useRectangularSelection) {
                         // as we use a Rectangle2D to hold the selection dimensions, we have to normalize the rectangle
                         multiSelectRect = getNormalizedRectangle(selectStart, screenPosToWorldPos(e.getX(), e.getY()));
-                        // search through the entire node network and check if they need adding to the selectedNodes list
-                        for (MapNode mapNode : RoadMap.networkNodesList) {
-                            if (mapNode.x > multiSelectRect.getX() && mapNode.x < multiSelectRect.getX() + multiSelectRect.getWidth() && mapNode.z > multiSelectRect.getY() && mapNode.z < multiSelectRect.getY() + multiSelectRect.getHeight()) {
-                                // TODO Fix node visibility check
-                                if (getCurrentButton().alwaysSelectHidden() || mapNode.isSelectable()) {
-                                    if (!selectedNodes.contains(mapNode)) selectedNodes.add(mapNode);
-                                    // check if we need to set the node to display as selected
-                                    if (getCurrentButton().previewNodeSelectionChange()) mapNode.setPreviewNodeSelectionChange(true);
-                                    if (getCurrentButton().previewNodeHiddenChange()) mapNode.setPreviewNodeHiddenChange(true);
-                                    if (getCurrentButton().previewNodeFlagChange()) mapNode.setPreviewNodeFlagChange(true);
-                                }
-                            }
-                        }
+                        updateRectangleSelection(multiSelectRect);
                     } else {
                         //update the last point of the path
                         freeformSelectionPath.lineTo(e.getX(), e.getY());
-                        // search the entire node network and add only the mapNodes inside the selection area to the selectedNodes list
-                        for (MapNode mapNode : RoadMap.networkNodesList) {
-                            Point2D nodePosScreen = worldPosToScreenPos(mapNode.x, mapNode.z);
-                            if (freeformSelectionPath.contains(nodePosScreen)) {
-                                if (getCurrentButton().alwaysSelectHidden() || mapNode.isSelectable()) {
-                                    selectedNodes.add(mapNode);
-                                    // check if we need to set the node to display as selected
-                                    if (getCurrentButton().previewNodeSelectionChange()) mapNode.setPreviewNodeSelectionChange(true);
-                                    if (getCurrentButton().previewNodeHiddenChange()) mapNode.setPreviewNodeHiddenChange(true);
-                                    if (getCurrentButton().previewNodeFlagChange()) mapNode.setPreviewNodeFlagChange(true);
-                                }
-                            }
-                        }
+                        updateFreeformSelection(e.getX(), e.getY());
                     }
                     // update the screen to show the changes
                     getMapPanel().repaint();
@@ -174,7 +160,7 @@ public class MultiSelectManager implements MouseListener, MouseMotionListener {
     public static void startMultiSelect(int mousePosX, int mousePosY) {
         if ( pdaImage != null ) {
             // clear the list of previously selected nodes
-            selectedNodes.clear();
+            clearSelectedNodes();
             // set the selection start at world co-ordinates of mouse position
             selectStart = screenPosToWorldPos(mousePosX, mousePosY);
             if (bDebugLogMultiSelectInfo) LOG.info("Multi select started at world position x = {}, z = {}", selectStart.getX(), selectStart.getY());
@@ -183,6 +169,10 @@ public class MultiSelectManager implements MouseListener, MouseMotionListener {
                 freeformSelectionPath.reset();
                 freeformSelectionStart = new Point(mousePosX, mousePosY);
                 freeformSelectionPath.moveTo(mousePosX, mousePosY);
+                freeformSelectionPolygon.reset();
+                freeformSelectionPolygon.addPoint(mousePosX, mousePosY);
+                freeformViewTopLeft = getScaledViewTopLeft();
+                freeformViewZoomLevel = zoomLevel;
             }
             // set selection in progress
             setIsMultiSelectDragging(true);
@@ -222,28 +212,154 @@ public class MultiSelectManager implements MouseListener, MouseMotionListener {
     @SuppressWarnings("unused")
     public boolean isMultiSelectDragging() { return isMultiSelectDragging; }
 
+    //
+    // Incremental drag selection
+    //
+    // Only the nodes in the part of the selection area that changed since the last drag event are looked at,
+    // they are found through the RoadMap spatial index and added to/removed from selectedNodes, nothing
+    // else in the network is visited.
+    //
+
+    private static void updateRectangleSelection(Rectangle2D newRect) {
+        candidateNodes.clear();
+        addNodesInRectangleDifference(newRect, previousSelectRect);
+        if (previousSelectRect != null) addNodesInRectangleDifference(previousSelectRect, newRect);
+        for (MapNode mapNode : candidateNodes) {
+            boolean inSelection = mapNode.x > newRect.getX() && mapNode.x < newRect.getX() + newRect.getWidth() && mapNode.z > newRect.getY() && mapNode.z < newRect.getY() + newRect.getHeight();
+            updateSelectedNode(mapNode, inSelection);
+        }
+        candidateNodes.clear();
+        previousSelectRect = newRect;
+    }
+
+    // Query the parts of area that are not inside the exclude rectangle, at most 4 strips
+
+    private static void addNodesInRectangleDifference(Rectangle2D area, Rectangle2D exclude) {
+        if (exclude == null || !area.intersects(exclude)) {
+            getNodesInWorldArea(area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY(), candidateNodes);
+            return;
+        }
+        if (area.getMinX() < exclude.getMinX()) {
+            getNodesInWorldArea(area.getMinX(), area.getMinY(), exclude.getMinX(), area.getMaxY(), candidateNodes);
+        }
+        if (area.getMaxX() > exclude.getMaxX()) {
+            getNodesInWorldArea(exclude.getMaxX(), area.getMinY(), area.getMaxX(), area.getMaxY(), candidateNodes);
+        }
+        double middleMinX = Math.max(area.getMinX(), exclude.getMinX());
+        double middleMaxX = Math.min(area.getMaxX(), exclude.getMaxX());
+        if (area.getMinY() < exclude.getMinY()) {
+            getNodesInWorldArea(middleMinX, area.getMinY(), middleMaxX, exclude.getMinY(), candidateNodes);
+        }
+        if (area.getMaxY() > exclude.getMaxY()) {
+            getNodesInWorldArea(middleMinX, exclude.getMaxY(), middleMaxX, area.getMaxY(), candidateNodes);
+        }
+    }
+
+    //
+    // Adding a point to the freeform polygon only changes the area inside the triangle made by the first
+    // point, the previous last point and the new point, so only the nodes inside that triangle can change.
+    //
+
+    private static void updateFreeformSelection(int mouseX, int mouseY) {
+        LassoPolygon polygon = freeformSelectionPolygon;
+        int lastPoint = polygon.getNumPoints() - 1;
+        double firstX = polygon.getPointX(0);
+        double firstY = polygon.getPointY(0);
+        double lastX = polygon.getPointX(lastPoint);
+        double lastY = polygon.getPointY(lastPoint);
+        polygon.addPoint(mouseX, mouseY);
+
+        Point2D viewTopLeft = getScaledViewTopLeft();
+        boolean viewChanged = !viewTopLeft.equals(freeformViewTopLeft) || zoomLevel != freeformViewZoomLevel;
+        freeformViewTopLeft = viewTopLeft;
+        freeformViewZoomLevel = zoomLevel;
+
+        candidateNodes.clear();
+        if (viewChanged) {
+            // all the screen positions have changed, check everything inside the polygon again
+            for (int i = selectedNodes.size() - 1; i >= 0; i--) {
+                candidateNodes.add(selectedNodes.get(i));
+            }
+            addNodesInScreenArea(polygon.getMinX(), polygon.getMinY(), polygon.getMaxX(), polygon.getMaxY());
+        } else {
+            addNodesInScreenArea(Math.min(firstX, Math.min(lastX, mouseX)), Math.min(firstY, Math.min(lastY, mouseY)),
+                    Math.max(firstX, Math.max(lastX, mouseX)), Math.max(firstY, Math.max(lastY, mouseY)));
+        }
+
+        for (MapNode mapNode : candidateNodes) {
+            Point nodePosScreen = worldPosToScreenPos(mapNode.x, mapNode.z);
+            if (viewChanged || isInTriangle(nodePosScreen.x, nodePosScreen.y, firstX, firstY, lastX, lastY, mouseX, mouseY)) {
+                updateSelectedNode(mapNode, polygon.contains(nodePosScreen.x, nodePosScreen.y));
+            }
+        }
+        candidateNodes.clear();
+    }
+
+    private static void addNodesInScreenArea(double minX, double minY, double maxX, double maxY) {
+        Point2D worldStart = screenPosToWorldPos((int) Math.floor(minX) - 1, (int) Math.floor(minY) - 1);
+        Point2D worldEnd = screenPosToWorldPos((int) Math.ceil(maxX) + 1, (int) Math.ceil(maxY) + 1);
+        getNodesInWorldArea(worldStart.getX(), worldStart.getY(), worldEnd.getX(), worldEnd.getY(), candidateNodes);
+    }
+
+    // inclusive of the edges, works for either winding direction
+
+    private static boolean isInTriangle(double x, double y, double x1, double y1, double x2, double y2, double x3, double y3) {
+        double d1 = ((x2 - x1) * (y - y1)) - ((x - x1) * (y2 - y1));
+        double d2 = ((x3 - x2) * (y - y2)) - ((x - x2) * (y3 - y2));
+        double d3 = ((x1 - x3) * (y - y3)) - ((x - x3) * (y1 - y3));
+        boolean hasNegative = d1 < 0 || d2 < 0 || d3 < 0;
+        boolean hasPositive = d1 > 0 || d2 > 0 || d3 > 0;
+        return !(hasNegative && hasPositive);
+    }
+
+    private static void updateSelectedNode(MapNode mapNode, boolean inSelection) {
+        if (inSelection && (getCurrentButton().alwaysSelectHidden() || mapNode.isSelectable())) {
+            if (!selectedNodeIndex.containsKey(mapNode)) {
+                selectedNodeIndex.put(mapNode, selectedNodes.size());
+                selectedNodes.add(mapNode);
+                // check if we need to set the node to display as selected
+                if (getCurrentButton().previewNodeSelectionChange()) mapNode.setPreviewNodeSelectionChange(true);
+                if (getCurrentButton().previewNodeHiddenChange()) mapNode.setPreviewNodeHiddenChange(true);
+                if (getCurrentButton().previewNodeFlagChange()) mapNode.setPreviewNodeFlagChange(true);
+            }
+        } else {
+            Integer index = selectedNodeIndex.remove(mapNode);
+            if (index != null) {
+                // move the last node into the gap so nothing has to be shifted along
+                MapNode lastNode = selectedNodes.remove(selectedNodes.size() - 1);
+                if (lastNode != mapNode) {
+                    selectedNodes.set(index, lastNode);
+                    selectedNodeIndex.put(lastNode, index);
+                }
+                mapNode.setPreviewNodeSelectionChange(false);
+                mapNode.setPreviewNodeHiddenChange(false);
+                mapNode.setPreviewNodeFlagChange(false);
+            }
+        }
+    }
+
+    private static void clearSelectedNodes() {
+        selectedNodes.clear();
+        selectedNodeIndex.clear();
+        previousSelectRect = null;
+    }
+
 
     @SuppressWarnings("UnusedReturnValue")
     public static int getAllNodesInSelectedArea(Path2D path, boolean setSelected) {
 
         int count = 0;
         if (roadMap != null) {
-            for (MapNode mapNode : RoadMap.networkNodesList) {
+            candidateNodes.clear();
+            Rectangle2D bounds = path.getBounds2D();
+            addNodesInScreenArea(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+            ArrayList<MapNode> nodesInArea = new ArrayList<>();
+            for (MapNode mapNode : candidateNodes) {
                 Point2D point = worldPosToScreenPos(mapNode.x, mapNode.z);
-                if (path.contains(point)) {
-                    if (mapNode.isSelectable()) {
-                        if (multiSelectList.contains(mapNode)) {
-                            multiSelectList.remove(mapNode);
-                            mapNode.setSelected(false);
-                            count--;
-                        } else {
-                            multiSelectList.add(mapNode);
-                            if (setSelected) mapNode.setSelected(true);
-                            count++;
-                        }
-                    }
-                }
+                if (path.contains(point)) nodesInArea.add(mapNode);
             }
+            candidateNodes.clear();
+            count = toggleNodesInMultiSelectList(nodesInArea, setSelected);
 
             if (isQuadCurveCreated) {
                 MapNode controlPoint = quadCurve.getControlPoint();
@@ -314,22 +430,17 @@ public class MultiSelectManager implements MouseListener, MouseMotionListener {
         int count = 0;
 
         if (roadMap != null) {
-            for (MapNode mapNode : RoadMap.networkNodesList) {
+            candidateNodes.clear();
+            getNodesInWorldArea(rect.getMinX(), rect.getMinY(), rect.getMaxX(), rect.getMaxY(), candidateNodes);
+            ArrayList<MapNode> nodesInArea = new ArrayList<>();
+            for (MapNode mapNode : candidateNodes) {
                 if (mapNode.x > rect.getX() && mapNode.x < rect.getX() + rect.getWidth() && mapNode.z > rect.getY() && mapNode.z < rect.getY() + rect.getHeight()) {
-                    // TODO Fix node visibility check
-                    if (mapNode.isSelectable()) {
-                        if (multiSelectList.contains(mapNode)) {
-                            multiSelectList.remove(mapNode);
-                            mapNode.setSelected(false);
-                            count--;
-                        } else {
-                            multiSelectList.add(mapNode);
-                            if (setSelected) mapNode.setSelected(true);
-                            count++;
-                        }
-                    }
+                    nodesInArea.add(mapNode);
                 }
             }
+            candidateNodes.clear();
+            // TODO Fix node visibility check
+            count = toggleNodesInMultiSelectList(nodesInArea, setSelected);
 
             if (isQuadCurveCreated) {
                 MapNode controlPoint = quadCurve.getControlPoint();
@@ -390,11 +501,43 @@ public class MultiSelectManager implements MouseListener, MouseMotionListener {
         return count;
     }
 
+    //
+    // Selectable nodes already in the multiSelectList are removed from it, the others are added to the end
+    // in network order, returns the change in the list size. A set is used for the membership checks, so
+    // big selections don't search the list once for every node.
+    //
+
+    private static int toggleNodesInMultiSelectList(ArrayList<MapNode> nodes, boolean setSelected) {
+        int count = 0;
+        HashSet<MapNode> currentSelection = new HashSet<>(multiSelectList);
+        HashSet<MapNode> toRemove = new HashSet<>();
+        ArrayList<MapNode> toAdd = new ArrayList<>();
+        for (MapNode mapNode : nodes) {
+            if (mapNode.isSelectable()) {
+                if (currentSelection.contains(mapNode)) {
+                    if (toRemove.add(mapNode)) {
+                        mapNode.setSelected(false);
+                        count--;
+                    }
+                } else if (currentSelection.add(mapNode)) {
+                    toAdd.add(mapNode);
+                    if (setSelected) mapNode.setSelected(true);
+                    count++;
+                }
+            }
+        }
+        if (!toRemove.isEmpty()) multiSelectList.removeIf(toRemove::contains);
+        toAdd.sort(Comparator.comparingInt(node -> node.id));
+        multiSelectList.addAll(toAdd);
+        return count;
+    }
+
     //
     //  Getters
     //
 
     public static Path2D getFreeformSelectionPath() { return freeformSelectionPath; }
+    public static LassoPolygon getFreeformSelectionPolygon() { return freeformSelectionPolygon; }
     public static ArrayList<MapNode> getSelectedNodes() { return selectedNodes; }
     public static boolean getIsMultiSelectDragging() { return isMultiSelectDragging; }
 
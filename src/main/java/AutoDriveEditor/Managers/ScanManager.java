@@ -2,11 +2,14 @@ package AutoDriveEditor.Managers;
 
 import AutoDriveEditor.AutoDriveEditor;
 import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.NetworkStore;
 import AutoDriveEditor.RoadNetwork.RoadMap;
-import AutoDriveEditor.Utils.Classes.KDTree3D;
+import AutoDriveEditor.Utils.Classes.StoreGrid;
 import AutoDriveEditor.Utils.ProfileUtil;
 
 import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -17,8 +20,12 @@ import static AutoDriveEditor.GUI.Menus.DebugMenu.Logging.LogScanManagerInfoMenu
 import static AutoDriveEditor.GUI.TextPanel.showInTextArea;
 import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
 import static AutoDriveEditor.RoadNetwork.MapNode.NODE_WARNING_OVERLAP;
+import static AutoDriveEditor.RoadNetwork.RoadMap.SPATIAL_GRID_CELL_SIZE;
+import static AutoDriveEditor.RoadNetwork.RoadMap.beginChanges;
+import static AutoDriveEditor.RoadNetwork.RoadMap.commitChanges;
+import static AutoDriveEditor.RoadNetwork.RoadMap.markAllConnectionsChanged;
 import static AutoDriveEditor.RoadNetwork.RoadMap.networkNodesList;
-import static AutoDriveEditor.RoadNetwork.RoadMap.removeMapNode;
+import static AutoDriveEditor.RoadNetwork.RoadMap.removeMapNodes;
 import static AutoDriveEditor.Utils.FileUtils.removeExtension;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.XMLConfig.AutoSave.resumeAutoSaving;
@@ -31,8 +38,8 @@ import static AutoDriveEditor.XMLConfig.RoutesXML.saveRouteManagerXML;
 public class ScanManager {
 
     public static final double searchDistance = 0.1;
-    private static final ProfileUtil treeInsertTimer = new ProfileUtil();
-    private static final ProfileUtil treeSearchTimer = new ProfileUtil();
+    private static final ProfileUtil gridCreateTimer = new ProfileUtil();
+    private static final ProfileUtil scanTimer = new ProfileUtil();
 
     public static void  scanNetworkForOverlapNodes() {
         scanNetworkForOverlapNodes(searchDistance);
@@ -46,47 +53,58 @@ public class ScanManager {
         // clear all previous warnings
         for (MapNode node : RoadMap.networkNodesList) {
             node.clearWarningNodes();
-            node.getWarningNodes().clear();
         }
 
         // start profile timers
-        if (bDebugLogScanManagerInfo) treeInsertTimer.startTimer();
-        treeSearchTimer.startTimer();
+        if (bDebugLogScanManagerInfo) gridCreateTimer.startTimer();
+        scanTimer.startTimer();
 
-        // Create the KDTree and populate it with all the nodes from the network
-        KDTree3D networkTree = new KDTree3D();
+        // Take a copy of the network and put it in a grid, the search only reads the arrays of the copy,
+        // the MapNodes are only used to store the warnings that are found
 
-        for (MapNode node : RoadMap.networkNodesList) {
-            networkTree.insert(node);
-        }
+        NetworkStore store = NetworkStore.fromNetwork(RoadMap.networkNodesList);
+        StoreGrid networkGrid = new StoreGrid(store, SPATIAL_GRID_CELL_SIZE);
 
         if (bDebugLogScanManagerInfo) {
-            treeInsertTimer.stopTimer();
-            LOG.info("## Scan Manager DEBUG ## Tree Creation Time = {}ms , Num Nodes Added = {}", treeInsertTimer.getTime(3), networkTree.size());
+            gridCreateTimer.stopTimer();
+            LOG.info("## Scan Manager DEBUG ## Grid Creation Time = {}ms , Num Nodes Added = {}", gridCreateTimer.getTime(3), store.numNodes);
         }
 
-        // start the network search
-        List<MapNode> nodesWithinDistance;
+        // start the network search, any node less than searchDistance away ( in 3D ) overlaps
+
+        StoreGrid.IndexList nodesWithinArea = new StoreGrid.IndexList();
         int numOverlaps = 0;
         StringBuilder list = new StringBuilder();
-        for (MapNode mapNode : RoadMap.networkNodesList) {
-            nodesWithinDistance = networkTree.withinDistance(mapNode, 0.1);
-            if (nodesWithinDistance.size() > 0) {
-                numOverlaps++;
-                for (MapNode overlapNode : nodesWithinDistance) {
-                    if (!mapNode.getWarningNodes().contains(overlapNode)) {
-                        mapNode.getWarningNodes().add(overlapNode);
-                        mapNode.setHasWarning(true, NODE_WARNING_OVERLAP);
-                    }
-                    if (bDebugLogScanManagerInfo) list.append(overlapNode.id).append(",");
+        for (int i = 0; i < store.numNodes; i++) {
+            double nodeX = store.x[i];
+            double nodeY = store.y[i];
+            double nodeZ = store.z[i];
+            nodesWithinArea.clear();
+            networkGrid.queryArea(nodeX - searchDistance, nodeZ - searchDistance, nodeX + searchDistance, nodeZ + searchDistance, nodesWithinArea);
+            MapNode mapNode = store.getNode(i);
+            boolean hasOverlap = false;
+            for (int n = 0; n < nodesWithinArea.size(); n++) {
+                int overlap = nodesWithinArea.get(n);
+                if (overlap == i) continue;
+                double diffX = store.x[overlap] - nodeX;
+                double diffY = store.y[overlap] - nodeY;
+                double diffZ = store.z[overlap] - nodeZ;
+                if ((diffX * diffX) + (diffY * diffY) + (diffZ * diffZ) > searchDistance * searchDistance) continue;
+                hasOverlap = true;
+                MapNode overlapNode = store.getNode(overlap);
+                if (!mapNode.getWarningNodes().contains(overlapNode)) {
+                    mapNode.addWarningNode(overlapNode);
+                    mapNode.setHasWarning(true, NODE_WARNING_OVERLAP);
                 }
+                if (bDebugLogScanManagerInfo) list.append(overlapNode.id).append(",");
             }
+            if (hasOverlap) numOverlaps++;
         }
 
-        if (bDebugLogScanManagerInfo) { LOG.info("## Scan Manager DEBUG ## KDTree matches {}", list); }
+        if (bDebugLogScanManagerInfo) { LOG.info("## Scan Manager DEBUG ## Grid matches {}", list); }
 
-        treeSearchTimer.stopTimer();
-        showInTextArea("Network scan completed, Checked " + networkNodesList.size() + " Roadmap nodes --- Found " + numOverlaps + " nodes overlapping --- Time Taken " + treeSearchTimer.getTime(2) + "ms", true, true);
+        scanTimer.stopTimer();
+        showInTextArea("Network scan completed, Checked " + store.numNodes + " Roadmap nodes --- Found " + numOverlaps + " nodes overlapping --- Time Taken " + scanTimer.getTime(2) + "ms", true, true);
         return numOverlaps;
     }
 
@@ -116,11 +134,11 @@ public class ScanManager {
                         result += 1;
 
                         if (!mapNode.getWarningNodes().contains(node)) {
-                            mapNode.getWarningNodes().add(node);
+                            mapNode.addWarningNode(node);
                             mapNode.setHasWarning(true, NODE_WARNING_OVERLAP);
                         }
                         if (!node.getWarningNodes().contains(mapNode)) {
-                            node.getWarningNodes().add(mapNode);
+                            node.addWarningNode(mapNode);
                             node.setHasWarning(true, NODE_WARNING_OVERLAP);
                         }
                     }
@@ -138,7 +156,7 @@ public class ScanManager {
         }
         if (checkAreaForNodeOverlap(node) == 0 ) {
             for (MapNode mapNode : node.getWarningNodes()) {
-                mapNode.getWarningNodes().remove(node);
+                mapNode.removeWarningNode(node);
                 if (mapNode.getWarningNodes().size() != 0) {
                     mapNode.setHasWarning(true, NODE_WARNING_OVERLAP);
                 } else {
@@ -147,11 +165,41 @@ public class ScanManager {
             }
 
             node.clearWarningNodes();
-            node.getWarningNodes().clear();
             getMapPanel().repaint();
         }
     }
 
+    //
+    // Overlap check for a group of nodes that have just been added to the network ( e.g. a paste ), the
+    // same test as checkAreaForNodeOverlap() but only the nodes in the spatial grid cells around each
+    // node are compared, instead of the whole network for every node.
+    //
+
+    public static void checkNodeOverlap(Collection<MapNode> addedNodes) {
+        if (roadMap == null) return;
+        double searchAreaHalf = searchDistance / 2;
+        double searchRange = searchAreaHalf + searchDistance;
+        ArrayList<MapNode> nearbyNodes = new ArrayList<>();
+
+        for (MapNode node : addedNodes) {
+            nearbyNodes.clear();
+            RoadMap.getNodesInWorldArea(node.x - searchRange, node.z - searchRange, node.x + searchRange, node.z + searchRange, nearbyNodes);
+            for (MapNode mapNode : nearbyNodes) {
+                if (mapNode != node && Math.abs(mapNode.x - node.x) < searchRange && Math.abs(mapNode.y - node.y) < searchRange && Math.abs(mapNode.z - node.z) < searchRange) {
+                    if (!mapNode.getWarningNodes().contains(node)) {
+                        mapNode.addWarningNode(node);
+                        mapNode.setHasWarning(true, NODE_WARNING_OVERLAP);
+                    }
+                    if (!node.getWarningNodes().contains(mapNode)) {
+                        node.addWarningNode(mapNode);
+                        node.setHasWarning(true, NODE_WARNING_OVERLAP);
+                    }
+                }
+            }
+        }
+        getMapPanel().repaint();
+    }
+
     public static void  mergeOverlappingNodes() {
         int response = JOptionPane.showConfirmDialog(AutoDriveEditor.editor, getLocaleString("dialog_merge_confirm"), "AutoDrive Editor", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
         if (response == JOptionPane.YES_OPTION) {
@@ -238,21 +286,27 @@ public class ScanManager {
                     mergedOutgoing.clear();
                 }
             }
+            // the merge moves connections between nodes all over the network
+            markAllConnectionsChanged();
             String text = "Merging nodes completed - Removing " + deleteNodeList.size() + " nodes";
             showInTextArea(text, true, true);
-            for (MapNode nodeToDelete : deleteNodeList) {
-                removeMapNode(nodeToDelete);
-            }
-
-            for (MapNode mergedNode : mergeNodeList) {
-                if (checkAreaForNodeOverlap(mergedNode) == 0) {
-                    mergedNode.clearWarningNodes();
-                    getMapPanel().getRoadMap().refreshTableNode(mergedNode);
-                    getMapPanel().repaint();
-                } else {
-                    LOG.info("mapNode is still overlapping");
+            // the table gets the removed and the merged nodes as one batch
+            beginChanges();
+            try {
+                removeMapNodes(deleteNodeList);
+
+                for (MapNode mergedNode : mergeNodeList) {
+                    if (checkAreaForNodeOverlap(mergedNode) == 0) {
+                        mergedNode.clearWarningNodes();
+                        getMapPanel().getRoadMap().refreshTableNode(mergedNode);
+                    } else {
+                        LOG.info("mapNode is still overlapping");
+                    }
                 }
+            } finally {
+                commitChanges();
             }
+            getMapPanel().repaint();
 
             for (MapNode node : RoadMap.networkNodesList) {
                 if ( node.incoming.size() >10 || node.outgoing.size() > 10 ) {
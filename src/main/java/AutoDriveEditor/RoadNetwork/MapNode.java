@@ -1,11 +1,14 @@
 package AutoDriveEditor.RoadNetwork;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Predicate;
 
 import static AutoDriveEditor.GUI.Buttons.ConnectionSelectBaseButton.getIgnore;
 import static AutoDriveEditor.GUI.Menus.DebugMenu.Logging.LogMarkerInfoMenu.bDebugLogMarkerInfo;
 import static AutoDriveEditor.RoadNetwork.RoadMap.createMapNode;
+import static AutoDriveEditor.RoadNetwork.RoadMap.markNodeChanged;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.Utils.MathUtils.roundUpDoubleToDecimalPlaces;
 import static AutoDriveEditor.XMLConfig.EditorXML.bSelectHidden;
@@ -22,6 +25,16 @@ public class MapNode  implements Comparable<MapNode> {
     public static final int NODE_WARNING_NEGATIVE_Y = 2;
     public static final int NODE_WARNING_OVERLAP_Y = 3;
 
+    // bits used in editorState
+    private static final int STATE_SELECTED = 1;
+    private static final int STATE_CONTROL_NODE = 1 << 1;
+    private static final int STATE_HAS_WARNING = 1 << 2;
+    private static final int STATE_SCHEDULED_TO_BE_DELETED = 1 << 3;
+    private static final int STATE_SELECTION_PREVIEW = 1 << 4;
+    private static final int STATE_HIDDEN_PREVIEW = 1 << 5;
+    private static final int STATE_FLAG_CHANGE_PREVIEW = 1 << 6;
+    private static final int STATE_HIDDEN = 1 << 7;
+
     public int id;
     public double x, y, z;
     public ArrayList<MapNode> incoming;
@@ -29,18 +42,18 @@ public class MapNode  implements Comparable<MapNode> {
     public int flag;
     public MapMarker mapMarker;
 
-    private boolean isSelected;
-    private boolean isControlNode;
-    private boolean hasWarning;
-    private final ArrayList<MapNode> warningNodes;
-    private int warningType;
-    private boolean scheduledToBeDeleted;
-    private boolean showNodeSelectionPreview;
-    private boolean showNodeHiddenPreview;
-    private boolean showNodeFlagChangePreview;
-    private boolean isNodeHidden;
-    private final ArrayList<MapNode> ignoreDrawingConnectionsList;
-    private final ArrayList<MapNode> hiddenConnectionsList;
+    // The editor only state is kept as small as possible, large maps have millions of nodes and
+    // hardly any of them use it. The booleans are packed into editorState and the lists are only
+    // created when the first node is added to them, until then they are null and the getters
+    // return an empty list. Use the add/remove/clear functions to change them.
+    private byte editorState;
+    private byte warningType;
+    private ArrayList<MapNode> warningNodes;
+    private ArrayList<MapNode> ignoreDrawingConnectionsList;
+    private ArrayList<MapNode> hiddenConnectionsList;
+
+    // cached types of the outgoing connections, only used by RoadMap.getConnectionType()
+    RoadMap.ConnectionTypes connectionTypes;
 
 
     public MapNode(int id, double x, double y, double z, int flag, boolean isSelected, boolean isControlNode) {
@@ -57,21 +70,30 @@ public class MapNode  implements Comparable<MapNode> {
 
         // editor use only!
 
+        // the state bits are set directly, the loaders make nodes on their own threads and
+        // a new node isn't in the network yet, so there is nothing for the render to update
+
         this.mapMarker = null;
-        this.isSelected = isSelected;
-        this.isControlNode = isControlNode;
-        this.hasWarning = false;
-        this.warningNodes = new ArrayList<>();
+        if (isSelected) this.editorState |= (byte) STATE_SELECTED;
+        if (isControlNode) this.editorState |= (byte) STATE_CONTROL_NODE;
         this.warningType = NODE_WARNING_NONE;
-        this.scheduledToBeDeleted = false;
-        this.showNodeSelectionPreview = false;  // used by SelectionManager
-        this.showNodeHiddenPreview = false;  // used by SelectionManager
-        this.showNodeFlagChangePreview = false;
-        this.isNodeHidden = false;
-        this.ignoreDrawingConnectionsList = new ArrayList<>();
-        this.hiddenConnectionsList = new ArrayList<>();
     }
 
+    private boolean getState(int stateBit) { return (this.editorState & stateBit) != 0; }
+
+    private void setState(int stateBit, boolean value) {
+        byte oldState = this.editorState;
+        if (value) {
+            this.editorState |= (byte) stateBit;
+        } else {
+            this.editorState &= (byte) ~stateBit;
+        }
+        if (this.editorState != oldState) markNodeChanged(this);
+    }
+
+    // The loaders add the markers on their own threads, so unlike the other setters these don't
+    // queue the node for the render, an editor change has to call RoadMap.markNodeChanged() itself.
+
     public void createMapMarker(String newName, String newGroup) {
         if (bDebugLogMarkerInfo) LOG.info("Creating Map Marker for Node ID {} ( Name = {}, Group = {} )", this.id, newName, newGroup);
         this.mapMarker = new MapMarker(newName, newGroup, null, null);
@@ -87,6 +109,7 @@ public class MapNode  implements Comparable<MapNode> {
     public void removeMapMarker() {
         if (bDebugLogMarkerInfo) LOG.info("Removing Map Marker from Node ID {}", this.id);
         this.mapMarker = null;
+        markNodeChanged(this);
     }
 
     // EXPERIMENTAL CODE
@@ -95,9 +118,9 @@ public class MapNode  implements Comparable<MapNode> {
     // END EXPERIMENTAL CODE
 
     public void clearWarningNodes() {
-        this.warningNodes.clear();
-        this.hasWarning = false;
-        this.warningType = NODE_WARNING_NONE;
+        this.warningNodes = null;
+        setState(STATE_HAS_WARNING, false);
+        setWarningType(NODE_WARNING_NONE);
     }
 
     //
@@ -107,15 +130,15 @@ public class MapNode  implements Comparable<MapNode> {
     public boolean hasMapMarker() {
         return this.mapMarker != null;
     }
-    public boolean hasWarning() { return this.hasWarning; }
+    public boolean hasWarning() { return getState(STATE_HAS_WARNING); }
 
     public boolean hasVehicleParking() { return !this.getParkedVehiclesList().isEmpty(); }
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
-    public boolean isScheduledToBeDeleted() { return this.scheduledToBeDeleted; }
-    public boolean isControlNode() { return this.isControlNode; }
-    public boolean isSelected() { return this.isSelected; }
-    public boolean isNodeHidden() { return this.isNodeHidden; }
-    public boolean isSelectable() { return bSelectHidden || !this.isNodeHidden; }
+    public boolean isScheduledToBeDeleted() { return getState(STATE_SCHEDULED_TO_BE_DELETED); }
+    public boolean isControlNode() { return getState(STATE_CONTROL_NODE); }
+    public boolean isSelected() { return getState(STATE_SELECTED); }
+    public boolean isNodeHidden() { return getState(STATE_HIDDEN); }
+    public boolean isSelectable() { return bSelectHidden || !isNodeHidden(); }
 
     public boolean isGH() {
         if (getIgnore()) {
@@ -129,10 +152,12 @@ public class MapNode  implements Comparable<MapNode> {
     // Getters
     //
 
-    public ArrayList<MapNode> getWarningNodes() { return this.warningNodes; }
+    // The returned lists are read only when empty, use the add/remove/clear functions to change them
+
+    public List<MapNode> getWarningNodes() { return (this.warningNodes != null) ? this.warningNodes : Collections.emptyList(); }
     public List<Integer> getParkedVehiclesList() { return this.mapMarker.parkedVehiclesList; }
-    public ArrayList<MapNode> getIgnoreDrawingConnectionsList() { return this.ignoreDrawingConnectionsList; }
-    public ArrayList<MapNode> getHiddenConnectionsList() { return this.hiddenConnectionsList; }
+    public List<MapNode> getIgnoreDrawingConnectionsList() { return (this.ignoreDrawingConnectionsList != null) ? this.ignoreDrawingConnectionsList : Collections.emptyList(); }
+    public List<MapNode> getHiddenConnectionsList() { return (this.hiddenConnectionsList != null) ? this.hiddenConnectionsList : Collections.emptyList(); }
 
     public String getMarkerName() {
         return this.mapMarker.name;
@@ -141,9 +166,9 @@ public class MapNode  implements Comparable<MapNode> {
         return this.mapMarker.group;
     }
     public int getWarningType() { return this.warningType; }
-    public boolean getPreviewNodeSelectionChange() { return this.showNodeSelectionPreview; }
-    public boolean getPreviewNodeHiddenChange() { return this.showNodeHiddenPreview; }
-    public boolean getPreviewNodeFlagChange() { return this.showNodeFlagChangePreview; }
+    public boolean getPreviewNodeSelectionChange() { return getState(STATE_SELECTION_PREVIEW); }
+    public boolean getPreviewNodeHiddenChange() { return getState(STATE_HIDDEN_PREVIEW); }
+    public boolean getPreviewNodeFlagChange() { return getState(STATE_FLAG_CHANGE_PREVIEW); }
 
 
     //
@@ -152,46 +177,83 @@ public class MapNode  implements Comparable<MapNode> {
 
     public void setMarkerName(String markerName) {
         this.mapMarker.name = markerName;
+        markNodeChanged(this);
     }
     public void setMarkerGroup(String markerGroup) {
         this.mapMarker.group = markerGroup;
+        markNodeChanged(this);
     }
     public void setParkedVehiclesList(List<Integer> parkedVehiclesList) {
         this.mapMarker.parkedVehiclesList = parkedVehiclesList;
+        markNodeChanged(this);
     }
     public void setHasWarning(boolean hasWarning, int warningType) {
-        this.hasWarning = hasWarning;
-        this.warningType = warningType;
+        setState(STATE_HAS_WARNING, hasWarning);
+        setWarningType(warningType);
     }
-    //public void setWarningType(int warningType) { this.warningType = warningType; }
-    public void setScheduledToBeDeleted(boolean toDelete) { this.scheduledToBeDeleted = toDelete; }
+    private void setWarningType(int warningType) {
+        if (this.warningType != (byte) warningType) {
+            this.warningType = (byte) warningType;
+            markNodeChanged(this);
+        }
+    }
+    public void setScheduledToBeDeleted(boolean toDelete) { setState(STATE_SCHEDULED_TO_BE_DELETED, toDelete); }
     public void setIsControlNode(boolean isControlNode) {
-        this.isControlNode = isControlNode;
+        setState(STATE_CONTROL_NODE, isControlNode);
     }
     public void setSelected(boolean selected) {
-        this.isSelected = selected;
+        setState(STATE_SELECTED, selected);
+    }
+    public void setPreviewNodeSelectionChange(boolean showNodeSelectionPreview) { setState(STATE_SELECTION_PREVIEW, showNodeSelectionPreview); }
+    public void setPreviewNodeHiddenChange(boolean showNodeHiddenPreview) { setState(STATE_HIDDEN_PREVIEW, showNodeHiddenPreview); }
+    public void setPreviewNodeFlagChange(boolean showFlagChangePreview) { setState(STATE_FLAG_CHANGE_PREVIEW, showFlagChangePreview); }
+    public void setNodeHidden(boolean isVisible) { setState(STATE_HIDDEN, isVisible); }
+
+    public void addWarningNode(MapNode mapNode) {
+        if (this.warningNodes == null) this.warningNodes = new ArrayList<>(1);
+        this.warningNodes.add(mapNode);
+    }
+    public void removeWarningNode(MapNode mapNode) {
+        if (this.warningNodes != null) this.warningNodes.remove(mapNode);
+    }
+
+    public void addIgnoreDrawingConnection(MapNode mapNode) {
+        if (this.ignoreDrawingConnectionsList == null) this.ignoreDrawingConnectionsList = new ArrayList<>(1);
+        this.ignoreDrawingConnectionsList.add(mapNode);
+        markNodeChanged(this);
     }
-    public void setPreviewNodeSelectionChange(boolean showNodeSelectionPreview) { this.showNodeSelectionPreview = showNodeSelectionPreview; }
-    public void setPreviewNodeHiddenChange(boolean showNodeHiddenPreview) { this.showNodeHiddenPreview = showNodeHiddenPreview; }
-    public void setPreviewNodeFlagChange(boolean showFlagChangePreview) { this.showNodeFlagChangePreview = showFlagChangePreview; }
-    public void setNodeHidden(boolean isVisible) { this.isNodeHidden = isVisible; }
+    public void clearIgnoreDrawingConnections() {
+        if (this.ignoreDrawingConnectionsList != null) markNodeChanged(this);
+        this.ignoreDrawingConnectionsList = null;
+    }
+
     @SuppressWarnings("UnusedReturnValue")
     public boolean addHiddenConnection(MapNode mapNode) {
         if (this.outgoing.contains(mapNode)) {
+            if (this.hiddenConnectionsList == null) this.hiddenConnectionsList = new ArrayList<>(1);
             this.hiddenConnectionsList.add(mapNode);
+            markNodeChanged(this);
             return true;
         }
         return false;
     }
     @SuppressWarnings("UnusedReturnValue")
     public boolean removeHiddenConnection(MapNode mapNode) {
-        if (this.hiddenConnectionsList.contains(mapNode)) {
-            return this.hiddenConnectionsList.remove(mapNode);
+        if (this.hiddenConnectionsList != null && this.hiddenConnectionsList.remove(mapNode)) {
+            markNodeChanged(this);
+            return true;
         }
         return false;
     }
+    public void removeHiddenConnectionsIf(Predicate<MapNode> filter) {
+        if (this.hiddenConnectionsList != null && this.hiddenConnectionsList.removeIf(filter)) markNodeChanged(this);
+    }
+    public void clearHiddenConnections() {
+        if (this.hiddenConnectionsList != null) markNodeChanged(this);
+        this.hiddenConnectionsList = null;
+    }
 
-    public boolean isConnectionHidden(MapNode outNode) { return this.hiddenConnectionsList.contains(outNode); }
+    public boolean isConnectionHidden(MapNode outNode) { return this.hiddenConnectionsList != null && this.hiddenConnectionsList.contains(outNode); }
 
 
 
@@ -250,7 +312,7 @@ public class MapNode  implements Comparable<MapNode> {
     }
 
     public MapNode getCopyOfNode(MapNode oldNode) {
-        MapNode newNode = createMapNode(oldNode.id, oldNode.x, oldNode.y, oldNode.z, oldNode.flag, oldNode.isSelected, oldNode.isControlNode);
+        MapNode newNode = createMapNode(oldNode.id, oldNode.x, oldNode.y, oldNode.z, oldNode.flag, oldNode.isSelected(), oldNode.isControlNode());
         newNode.incoming = new ArrayList<>();
         newNode.incoming.addAll(oldNode.incoming);
         newNode.outgoing = new ArrayList<>();
@@ -258,10 +320,10 @@ public class MapNode  implements Comparable<MapNode> {
         if (oldNode.hasMapMarker()) {
             newNode.createMapMarker(oldNode.getMarkerName(), oldNode.getMarkerGroup());
         }
-        newNode.hasWarning = oldNode.hasWarning;
-        newNode.warningNodes.addAll(oldNode.warningNodes);
+        newNode.setState(STATE_HAS_WARNING, oldNode.hasWarning());
+        if (oldNode.warningNodes != null) newNode.warningNodes = new ArrayList<>(oldNode.warningNodes);
         newNode.warningType = oldNode.warningType;
-        newNode.scheduledToBeDeleted = oldNode.scheduledToBeDeleted;
+        newNode.setState(STATE_SCHEDULED_TO_BE_DELETED, oldNode.isScheduledToBeDeleted());
         return newNode;
     }
 
@@ -0,0 +1,59 @@
+package AutoDriveEditor.RoadNetwork;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+//
+// The network changes collected between RoadMap.beginChanges() and RoadMap.commitChanges(), sent
+// to the listeners as the new value of a single "networkNodesList.batch" event.
+//
+// The changes are merged as they are added, a node that is added and then removed again in the
+// same batch is dropped, a node that is removed and then added back is only reported as updated,
+// and an update to a node that is already in the added list is ignored.
+//
+
+public class NetworkChangeBatch {
+
+    private final LinkedHashSet<MapNode> addedNodes = new LinkedHashSet<>();
+    private final LinkedHashSet<MapNode> removedNodes = new LinkedHashSet<>();
+    private final LinkedHashSet<MapNode> updatedNodes = new LinkedHashSet<>();
+    private boolean refreshAll = false;
+
+    void nodeAdded(MapNode mapNode) {
+        if (removedNodes.remove(mapNode)) {
+            updatedNodes.add(mapNode);
+        } else {
+            addedNodes.add(mapNode);
+        }
+    }
+
+    void nodeRemoved(MapNode mapNode) {
+        if (!addedNodes.remove(mapNode)) {
+            updatedNodes.remove(mapNode);
+            removedNodes.add(mapNode);
+        }
+    }
+
+    void nodeUpdated(MapNode mapNode) {
+        if (!addedNodes.contains(mapNode) && !removedNodes.contains(mapNode)) updatedNodes.add(mapNode);
+    }
+
+    void refreshAll() {
+        refreshAll = true;
+    }
+
+    //
+    // getters
+    //
+
+    public Collection<MapNode> getAddedNodes() { return Collections.unmodifiableCollection(addedNodes); }
+    public Collection<MapNode> getRemovedNodes() { return Collections.unmodifiableCollection(removedNodes); }
+    public Collection<MapNode> getUpdatedNodes() { return Collections.unmodifiableCollection(updatedNodes); }
+    // true if every row needs redrawing ( e.g. the IDs were renumbered ), the updated nodes can then be ignored
+    public boolean isRefreshAll() { return refreshAll; }
+
+    public boolean isEmpty() {
+        return addedNodes.isEmpty() && removedNodes.isEmpty() && updatedNodes.isEmpty() && !refreshAll;
+    }
+}
@@ -0,0 +1,189 @@
+package AutoDriveEditor.RoadNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+// Compact copy of a road network held in primitive arrays, one entry per node in network order.
+//
+// The connections are stored in compressed sparse row form, the outgoing connections of node i are the
+// node indexes outTargets[outStart[i]] up to outTargets[outStart[i + 1] - 1] ( the same for incoming ),
+// in the same order as the MapNode lists. There are no per node or per connection objects, so a 100k node
+// network is a handful of arrays instead of hundreds of thousands of ArrayLists.
+//
+// A store is a snapshot, not a replacement for the MapNode objects, the editor still works on the MapNode
+// network and a store doesn't follow any changes made to it after it was taken. The loaders parse the config
+// straight into a store and then create the MapNode objects from it, saving goes the other way by taking a
+// store from the current network. The network scan reads a store taken from the network too. The MapNode
+// objects created from ( or used to create ) a store are kept, so getNode() can map an index back to its node.
+
+public class NetworkStore {
+
+    public final int numNodes;
+    public final int[] ids;
+    public final double[] x;
+    public final double[] y;
+    public final double[] z;
+    public final int[] flags;
+
+    public final int[] outStart;
+    public final int[] outTargets;
+    public final int[] inStart;
+    public final int[] inTargets;
+
+    private MapNode[] mapNodes;
+
+    public NetworkStore(int[] ids, double[] x, double[] y, double[] z, int[] flags, AdjacencyBuilder outgoing, AdjacencyBuilder incoming) {
+        this.numNodes = ids.length;
+        if (x.length != numNodes || y.length != numNodes || z.length != numNodes || flags.length != numNodes) {
+            throw new IllegalArgumentException("NetworkStore column lengths don't match the number of nodes ( " + numNodes + " )");
+        }
+        if (outgoing.getNumNodes() != numNodes || incoming.getNumNodes() != numNodes) {
+            throw new IllegalArgumentException("NetworkStore connection lists don't match the number of nodes ( " + numNodes + " )");
+        }
+        this.ids = ids;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.flags = flags;
+        this.outStart = outgoing.getStart();
+        this.outTargets = outgoing.getTargets();
+        this.inStart = incoming.getStart();
+        this.inTargets = incoming.getTargets();
+    }
+
+    //
+    // Take a copy of the network, the connection targets are looked up by ID first ( the ID of every network
+    // node matches its position ), only a network that is out of step falls back to an identity map.
+    //
+
+    public static NetworkStore fromNetwork(List<MapNode> nodes) {
+        MapNode[] nodeArray = nodes.toArray(new MapNode[0]);
+        int numNodes = nodeArray.length;
+
+        int[] ids = new int[numNodes];
+        double[] x = new double[numNodes];
+        double[] y = new double[numNodes];
+        double[] z = new double[numNodes];
+        int[] flags = new int[numNodes];
+        int numOut = 0;
+        int numIn = 0;
+        for (int i = 0; i < numNodes; i++) {
+            MapNode mapNode = nodeArray[i];
+            ids[i] = mapNode.id;
+            x[i] = mapNode.x;
+            y[i] = mapNode.y;
+            z[i] = mapNode.z;
+            flags[i] = mapNode.flag;
+            numOut += mapNode.outgoing.size();
+            numIn += mapNode.incoming.size();
+        }
+
+        NodeIndexer indexer = new NodeIndexer(nodeArray);
+        AdjacencyBuilder outgoing = new AdjacencyBuilder(numNodes, numOut);
+        AdjacencyBuilder incoming = new AdjacencyBuilder(numNodes, numIn);
+        for (MapNode mapNode : nodeArray) {
+            for (MapNode outNode : mapNode.outgoing) outgoing.addConnection(indexer.indexOf(outNode));
+            outgoing.endNode();
+            for (MapNode inNode : mapNode.incoming) incoming.addConnection(indexer.indexOf(inNode));
+            incoming.endNode();
+        }
+
+        NetworkStore store = new NetworkStore(ids, x, y, z, flags, outgoing, incoming);
+        store.mapNodes = nodeArray;
+        return store;
+    }
+
+    //
+    // Create the MapNode objects for the store, with their connection lists sized to fit
+    //
+
+    public MapNode[] createMapNodes() {
+        MapNode[] nodes = new MapNode[numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            nodes[i] = new MapNode(ids[i], x[i], y[i], z[i], flags[i], false, false);
+        }
+        for (int i = 0; i < numNodes; i++) {
+            MapNode mapNode = nodes[i];
+            // sized to fit, an ArrayList grows to 10 entries on its first add, most nodes only have one or two connections
+            mapNode.outgoing = new ArrayList<>(getOutDegree(i));
+            for (int c = outStart[i]; c < outStart[i + 1]; c++) mapNode.outgoing.add(nodes[outTargets[c]]);
+            mapNode.incoming = new ArrayList<>(getInDegree(i));
+            for (int c = inStart[i]; c < inStart[i + 1]; c++) mapNode.incoming.add(nodes[inTargets[c]]);
+        }
+        mapNodes = nodes;
+        return nodes;
+    }
+
+    public MapNode getNode(int index) { return (mapNodes != null) ? mapNodes[index] : null; }
+
+    public int getOutDegree(int index) { return outStart[index + 1] - outStart[index]; }
+
+    public int getInDegree(int index) { return inStart[index + 1] - inStart[index]; }
+
+    public int getNumOutgoing() { return outTargets.length; }
+
+    public int getNumIncoming() { return inTargets.length; }
+
+    //
+    // Builds one side of the CSR adjacency a node at a time, add the connections of a node and then call
+    // endNode(), nodes without connections just call endNode().
+    //
+
+    public static class AdjacencyBuilder {
+
+        private int[] start;
+        private int[] targets;
+        private int numNodes = 0;
+        private int numConnections = 0;
+
+        public AdjacencyBuilder(int expectedNodes, int expectedConnections) {
+            start = new int[Math.max(expectedNodes, 0) + 1];
+            targets = new int[Math.max(expectedConnections, 0)];
+        }
+
+        public void addConnection(int targetIndex) {
+            if (numConnections == targets.length) targets = Arrays.copyOf(targets, Math.max(16, numConnections * 2));
+            targets[numConnections++] = targetIndex;
+        }
+
+        public void endNode() {
+            if (numNodes + 1 == start.length) start = Arrays.copyOf(start, start.length * 2);
+            start[++numNodes] = numConnections;
+        }
+
+        public int getNumNodes() { return numNodes; }
+
+        public int getNumConnections() { return numConnections; }
+
+        int[] getStart() { return (start.length == numNodes + 1) ? start : Arrays.copyOf(start, numNodes + 1); }
+
+        int[] getTargets() { return (targets.length == numConnections) ? targets : Arrays.copyOf(targets, numConnections); }
+    }
+
+    //
+    // Internal functions
+    //
+
+    private static class NodeIndexer {
+        private final MapNode[] nodes;
+        private IdentityHashMap<MapNode, Integer> indexMap;
+
+        NodeIndexer(MapNode[] nodes) {
+            this.nodes = nodes;
+        }
+
+        // a connection to a node that isn't in the network is stored as -1
+        int indexOf(MapNode mapNode) {
+            int index = mapNode.id - 1;
+            if (index >= 0 && index < nodes.length && nodes[index] == mapNode) return index;
+            if (indexMap == null) {
+                indexMap = new IdentityHashMap<>(nodes.length);
+                for (int i = 0; i < nodes.length; i++) indexMap.put(nodes[i], i);
+            }
+            Integer found = indexMap.get(mapNode);
+            return (found != null) ? found : -1;
+        }
+    }
+}
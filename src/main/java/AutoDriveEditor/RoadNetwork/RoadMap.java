@@ -1,15 +1,20 @@
 package AutoDriveEditor.RoadNetwork;
 
+import AutoDriveEditor.Utils.Classes.ConnectionGrid;
+import AutoDriveEditor.Utils.Classes.SpatialGrid;
 import AutoDriveEditor.Utils.ExceptionUtils;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.List;
 import java.util.UUID;
 
-import static AutoDriveEditor.AutoDriveEditor.getMapPanel;
 import static AutoDriveEditor.GUI.MapPanel.getYValueFromHeightMap;
 import static AutoDriveEditor.GUI.MapPanel.roadMap;
 import static AutoDriveEditor.GUI.Menus.DebugMenu.Logging.LogUndoRedoMenu.bDebugLogUndoRedo;
@@ -22,15 +27,55 @@ import static AutoDriveEditor.Utils.MathUtils.limitDoubleToDecimalPlaces;
 public class RoadMap {
 
     public static String mapName;
-    public static LinkedList<MapNode> networkNodesList;
+    // The ID of every network node matches its position in the list ( ID = index + 1 ), this is what
+    // makes getNodeById() and getIndexPositionOfNode() constant time, so it is kept array backed.
+    public static ArrayList<MapNode> networkNodesList;
     public static UUID uuid;
 
+    // Size (in world units) of each cell in the spatial grid, small enough that a zoomed-in
+    // view only touches a handful of cells, large enough that a full map doesn't create too many.
+    public static final double SPATIAL_GRID_CELL_SIZE = 32;
+
     private static PropertyChangeSupport pcs;
+    private static SpatialGrid networkGrid;
+
+    // While a change transaction is open ( see beginChanges() ) the listener events are collected
+    // here instead of being fired one at a time.
+    private static NetworkChangeBatch pendingChanges = null;
+    private static int changeDepth = 0;
+
+    // The connection grid is only rebuilt when it is asked for after something has changed the
+    // connections or moved a node, a connection change bumps connectionsVersion and a move bumps
+    // nodeLocationsVersion. The cached connection types are dropped node by node instead, see
+    // markConnectionsChanged().
+    private static final ConnectionGrid connectionGrid = new ConnectionGrid(SPATIAL_GRID_CELL_SIZE);
+    private static int connectionsVersion = 0;
+    private static int nodeLocationsVersion = 0;
+    private static int connectionGridVersion = -1;
+    private static int connectionGridLocationsVersion = -1;
+
+    // The nodes changed since the render last took a copy of the network, see markNodeChanged(). When
+    // allNodesChanged is set the list isn't used, the render copies the whole network again.
+    private static final ArrayList<MapNode> changedNodes = new ArrayList<>();
+    private static boolean allNodesChanged = true;
+    // past this many queued nodes ( or a quarter of the network ) a full copy is quicker than working through them
+    private static final int MIN_CHANGED_NODES_LIMIT = 4096;
+
+    // Connection types returned by getConnectionType()
+    public static final byte CONNECTION_TYPE_NONE = -1;
+    public static final byte CONNECTION_TYPE_REGULAR = 0;
+    public static final byte CONNECTION_TYPE_DUAL = 1;
+    public static final byte CONNECTION_TYPE_REVERSE = 2;
 
     public RoadMap() {
-        networkNodesList = new LinkedList<>();
+        networkNodesList = new ArrayList<>();
+        networkGrid = new SpatialGrid(SPATIAL_GRID_CELL_SIZE);
+        connectionsVersion++;
+        markAllNodesChanged();
         mapName = null;
         pcs = new PropertyChangeSupport(this);
+        pendingChanges = null;
+        changeDepth = 0;
 
         // generate a unique random UUID, we can use this to compare and detect when
         // a different config has been loaded.
@@ -60,7 +105,8 @@ public class RoadMap {
     public static MapNode createNewNetworkNode(double x, double z, int nodeType, boolean isSelected, boolean isControlNode) {
         MapNode createdNode = createMapNode(RoadMap.networkNodesList.size() + 1, x, z, nodeType, isSelected, isControlNode);
         RoadMap.networkNodesList.add(createdNode);
-        pcs.firePropertyChange("networkNodesList.add", null,createdNode);
+        networkGrid.insert(createdNode);
+        fireNodeAdded(createdNode);
         checkNodeOverlap(createdNode);
         return createdNode;
     }
@@ -68,7 +114,8 @@ public class RoadMap {
     public static MapNode createNewNetworkNode(double x, double y, double z, int nodeType, boolean isSelected, boolean isControlNode) {
         MapNode createdNode = createMapNode(RoadMap.networkNodesList.size() + 1, x, y, z, nodeType, isSelected, isControlNode);
         RoadMap.networkNodesList.add(createdNode);
-        pcs.firePropertyChange("networkNodesList.add", null,createdNode);
+        networkGrid.insert(createdNode);
+        fireNodeAdded(createdNode);
         checkNodeOverlap(createdNode);
         return createdNode;
     }
@@ -77,29 +124,53 @@ public class RoadMap {
     public static boolean addNodeToNetwork(MapNode node) {
         if (node != null) {
             RoadMap.networkNodesList.add(node);
+            networkGrid.insert(node);
+            markConnectionsChanged(node);
             checkNodeOverlap(node);
             return true;
         }
         return false;
     }
 
+    // Add/remove a group of nodes without notifying the listeners, used by the paste undo/redo
+
+    public static void addNodesToNetwork(Collection<MapNode> nodes) {
+        networkNodesList.addAll(nodes);
+        networkGrid.insertAll(nodes);
+        nodes.forEach(RoadMap::markConnectionsChanged);
+    }
+
+    public static void removeNodesFromNetwork(Collection<MapNode> nodes) {
+        networkNodesList.removeAll(new HashSet<>(nodes));
+        markAllNodesChanged();
+        networkGrid.removeAll(nodes);
+        nodes.forEach(RoadMap::markConnectionsChanged);
+    }
+
     public static MapNode createControlNode(double x, double z) {
         return new MapNode(-99, x, 0, z, NODE_FLAG_REGULAR, false, true);
     }
 
     public static void addMapNode(MapNode newNode) {
         networkNodesList.add(newNode);
-        pcs.firePropertyChange("networkNodesList.add", null,newNode);
+        networkGrid.insert(newNode);
+        markConnectionsChanged(newNode);
+        fireNodeAdded(newNode);
     }
 
     public static void addAll(LinkedList<MapNode> nodes) {
         networkNodesList.addAll(nodes);
-        pcs.firePropertyChange("networkNodesList.addAll", null, nodes);
+        networkGrid.insertAll(nodes);
+        nodes.forEach(RoadMap::markConnectionsChanged);
+        fireNodesAdded(nodes);
     }
 
     public static void removeAll(LinkedList<MapNode> nodes) {
-        networkNodesList.removeAll(nodes);
-        pcs.firePropertyChange("networkNodesList.removeAll", nodes, null);
+        networkNodesList.removeAll(new HashSet<>(nodes));
+        markAllNodesChanged();
+        networkGrid.removeAll(nodes);
+        nodes.forEach(RoadMap::markConnectionsChanged);
+        fireNodesRemoved(nodes);
     }
 
     public void insertMapNode(MapNode toAdd, LinkedList<MapNode> otherNodesInList, LinkedList<MapNode> otherNodesOutList) throws ExceptionUtils.MismatchedIdException {
@@ -109,62 +180,116 @@ public class RoadMap {
         // so when we insert the node, all the id's match their index
 
         int insertIndex = toAdd.id - 1;
-
-        // create an iterator starting at the insertion point
-        ListIterator<MapNode> roadMapIterator = networkNodesList.listIterator(insertIndex);
-
+        if (insertIndex < 0 || insertIndex > networkNodesList.size()) {
+            throw new IndexOutOfBoundsException("Index: " + insertIndex + ", Size: " + networkNodesList.size());
+        }
 
         //LOG.info("insert MapNode.id {} into index {} :- RoadMap size = {}", toAdd.id, insertIndex, networkNodesList.size());
-        if (roadMapIterator.hasPrevious()) {
-            MapNode leftNode = roadMapIterator.previous();
+        if (insertIndex > 0) {
+            MapNode leftNode = networkNodesList.get(insertIndex - 1);
             //LOG.info("leftNode Id {} (index {})", leftNode.id, getIndexPositionOfNode(leftNode));
             if (leftNode.id != toAdd.id - 1 || getIndexPositionOfNode(leftNode) + 1 != toAdd.id -1) {
                 // throw an exception to halt the insertion before anything is actually committed and causing corruption
                 throw new ExceptionUtils.MismatchedIdException("insertMapNode() Exception", toAdd.id, insertIndex - 1, toAdd.id - 1);
             }
-            // Move the iterator back to the original position
-            roadMapIterator.next();
         }
 
-        while (roadMapIterator.hasNext()) {
-            MapNode node = roadMapIterator.next();
-            node.id++;
+        for (int i = insertIndex; i < networkNodesList.size(); i++) {
+            networkNodesList.get(i).id++;
         }
+        markAllNodesChanged();
 
         // insert the MapNode into the list
 
         if (bDebugLogUndoRedo) LOG.info("## insertMapNode() ## inserting MapNode ID {} into index {}", toAdd.id, toAdd.id -1 );
         networkNodesList.add(insertIndex, toAdd);
-        pcs.firePropertyChange("networkNodesList.add", null,toAdd);
+        networkGrid.insert(toAdd);
+        fireNodeAdded(toAdd);
+        if (insertIndex < networkNodesList.size() - 1) fireListRefreshed();
 
         //now we need to restore all the connections that went from/to it
 
         if (otherNodesInList != null) {
             for (MapNode otherInNode : otherNodesInList) {
                 if (!otherInNode.incoming.contains(toAdd)) otherInNode.incoming.add(toAdd);
+                markConnectionsChanged(toAdd, otherInNode);
             }
         }
 
         if (otherNodesOutList != null) {
             for (MapNode otherOutNode : otherNodesOutList) {
                 if (!otherOutNode.outgoing.contains(toAdd)) otherOutNode.outgoing.add(toAdd);
+                markConnectionsChanged(toAdd, otherOutNode);
             }
         }
+        markConnectionsChanged(toAdd);
     }
 
     public static void removeMapNode(MapNode toDelete) {
-        for (MapNode mapNode : networkNodesList) {
-            mapNode.outgoing.remove(toDelete);
-            mapNode.incoming.remove(toDelete);
-            mapNode.getHiddenConnectionsList().clear();
-            if (mapNode.id > toDelete.id) {
-                mapNode.id--;
-                getMapPanel().getRoadMap().refreshTableNode(mapNode);
+        removeMapNodes(Collections.singletonList(toDelete));
+    }
+
+    //
+    // Remove a group of nodes in one pass over the network, the remaining nodes are moved down to fill
+    // the gaps and renumbered as they go, which gives the same IDs as removing the nodes one at a time
+    // in ID order. The table is sent one remove event and one refresh for the renumbered nodes, instead
+    // of an event for every node after each deleted one.
+    //
+    // Only the nodes connected to a deleted node can have a link to one, so only their lists are fixed,
+    // the rest of the network is just moved down and renumbered. A reverse connection is only kept in the
+    // outgoing list of its start node, so the start nodes of those are found through the connection grid.
+    // Hidden connections are only removed where they point at a deleted node.
+    //
+
+    public static void removeMapNodes(Collection<MapNode> toDelete) {
+        if (toDelete.isEmpty()) return;
+        HashSet<MapNode> deleteSet = new HashSet<>(toDelete);
+        LinkedList<MapNode> removedNodes = new LinkedList<>();
+
+        HashSet<MapNode> connectedNodes = new HashSet<>();
+        ConnectionGrid grid = getConnectionGrid();
+        int firstIndex = networkNodesList.size();
+        for (MapNode mapNode : deleteSet) {
+            int index = getNetworkIndex(mapNode);
+            if (index < 0) continue;
+            firstIndex = Math.min(firstIndex, index);
+            connectedNodes.addAll(mapNode.incoming);
+            connectedNodes.addAll(mapNode.outgoing);
+            for (int connection : grid.queryArea(mapNode.x, mapNode.z, mapNode.x, mapNode.z)) {
+                if (grid.getEndNode(connection) == mapNode) connectedNodes.add(grid.getStartNode(connection));
             }
         }
+        if (firstIndex == networkNodesList.size()) return;
+
+        for (MapNode mapNode : connectedNodes) {
+            if (deleteSet.contains(mapNode)) continue;
+            mapNode.outgoing.removeIf(deleteSet::contains);
+            mapNode.incoming.removeIf(deleteSet::contains);
+            mapNode.removeHiddenConnectionsIf(deleteSet::contains);
+            // only the connections to the deleted nodes have gone, so no other node's types can change
+            mapNode.connectionTypes = null;
+        }
 
-        networkNodesList.remove(toDelete);
-        pcs.firePropertyChange("networkNodesList.remove", toDelete, null);
+        // the nodes before the first deleted one keep their place and ID
+        int writeIndex = firstIndex;
+        for (int i = firstIndex; i < networkNodesList.size(); i++) {
+            MapNode mapNode = networkNodesList.get(i);
+            // the IDs of the nodes being removed are changed as well, the undo system restores them from its backup
+            mapNode.id -= removedNodes.size();
+            if (deleteSet.contains(mapNode)) {
+                removedNodes.add(mapNode);
+                continue;
+            }
+            networkNodesList.set(writeIndex++, mapNode);
+        }
+        boolean renumbered = writeIndex > firstIndex;
+        networkNodesList.subList(writeIndex, networkNodesList.size()).clear();
+
+        networkGrid.removeAll(removedNodes);
+        connectionsVersion++;
+        markAllNodesChanged();
+        fireNodesRemoved(removedNodes);
+        if (renumbered) fireListRefreshed();
     }
 
     public static boolean isDual(MapNode start, MapNode target) {
@@ -180,7 +305,193 @@ public class RoadMap {
         return regular || !isReverse(target, start);
     }
 
-    public int getIndexPositionOfNode(MapNode node) { return networkNodesList.indexOf(node); }
+    //
+    // The type of the connection from start to its outgoing node at outgoingIndex, the same as testing
+    // isDual() and then isReverse(), anything else is regular. The types of all a node's outgoing
+    // connections are worked out together the first time one is asked for and kept on the node until
+    // its connections change ( markConnectionsChanged() ), so copying the network for the render doesn't
+    // repeat the list searches every time.
+    //
+    // The type of a connection only depends on the lists of its two nodes, so a change only drops the
+    // cache of the nodes at either end of it, every other node keeps its cached types.
+    //
+
+    public static byte getConnectionType(MapNode start, int outgoingIndex) {
+        ConnectionTypes connectionTypes = start.connectionTypes;
+        if (connectionTypes == null || connectionTypes.types.length != start.outgoing.size()) {
+            connectionTypes = new ConnectionTypes(start);
+            start.connectionTypes = connectionTypes;
+        }
+        return connectionTypes.types[outgoingIndex];
+    }
+
+    // CONNECTION_TYPE_NONE if target isn't one of start's outgoing nodes
+
+    public static byte getConnectionType(MapNode start, MapNode target) {
+        int index = start.outgoing.indexOf(target);
+        return (index >= 0) ? getConnectionType(start, index) : CONNECTION_TYPE_NONE;
+    }
+
+    // Immutable, so a copy made by one thread is seen complete by any others
+
+    static final class ConnectionTypes {
+        final byte[] types;
+
+        ConnectionTypes(MapNode start) {
+            this.types = new byte[start.outgoing.size()];
+            for (int i = 0; i < types.length; i++) {
+                MapNode target = start.outgoing.get(i);
+                if (isDual(start, target)) {
+                    types[i] = CONNECTION_TYPE_DUAL;
+                } else if (isReverse(start, target)) {
+                    types[i] = CONNECTION_TYPE_REVERSE;
+                } else {
+                    types[i] = CONNECTION_TYPE_REGULAR;
+                }
+            }
+        }
+    }
+
+    public int getIndexPositionOfNode(MapNode node) { return getNetworkIndex(node); }
+
+    private static int getNetworkIndex(MapNode node) {
+        int index = node.id - 1;
+        if (index >= 0 && index < networkNodesList.size() && networkNodesList.get(index) == node) return index;
+        return networkNodesList.indexOf(node);
+    }
+
+    // The network node with the ID, or null. Only searches the list if the IDs are out of step.
+
+    public static MapNode getNodeById(int id) {
+        int index = id - 1;
+        if (index >= 0 && index < networkNodesList.size()) {
+            MapNode mapNode = networkNodesList.get(index);
+            if (mapNode.id == id) return mapNode;
+        }
+        for (MapNode mapNode : networkNodesList) {
+            if (mapNode.id == id) return mapNode;
+        }
+        return null;
+    }
+
+    //
+    // Spatial index
+    //
+
+    // Adds every network node inside the world area to the result list, so the area selections and
+    // overlap checks only visit the nodes in ( or near ) the part of the map they cover.
+
+    public static void getNodesInWorldArea(double minX, double minZ, double maxX, double maxZ, List<MapNode> result) {
+        if (networkGrid != null) networkGrid.queryArea(minX, minZ, maxX, maxZ, result);
+    }
+
+    // Closest network node less than radius away on both axis, or null. Used by the
+    // mouse hit-testing so it doesn't have to scan the whole network.
+
+    public static MapNode getNodeNearestWorldPosition(double worldX, double worldZ, double radius) {
+        return (networkGrid != null) ? networkGrid.findNearest(worldX, worldZ, radius) : null;
+    }
+
+    // Any code that changes a network node's x/z position without going through
+    // refreshTableNode() needs to call this, otherwise the node is drawn from its old cell.
+
+    public static void updateNodeLocation(MapNode node) {
+        if (networkGrid != null) networkGrid.update(node);
+        nodeLocationsVersion++;
+        markNodeChanged(node);
+    }
+
+    public static void rebuildSpatialIndex() {
+        if (networkGrid != null) networkGrid.rebuild(networkNodesList);
+        markAllConnectionsChanged();
+    }
+
+    //
+    // Code that adds or removes connections outside of RoadMap must call one of these ( createConnectionBetween()
+    // does ), so the connection grid is rebuilt and the cached connection types of the changed nodes are dropped.
+    //
+
+    // Only the connection between start and target has changed, so only their lists have changed
+
+    public static void markConnectionsChanged(MapNode start, MapNode target) {
+        start.connectionTypes = null;
+        target.connectionTypes = null;
+        connectionsVersion++;
+        markNodeChanged(start);
+        markNodeChanged(target);
+    }
+
+    // Any of the node's lists, the nodes it is connected to are dropped as well. Call it before a change that
+    // removes connections and after one that adds them, so every node that is losing or gaining one is included.
+
+    public static void markConnectionsChanged(MapNode mapNode) {
+        mapNode.connectionTypes = null;
+        markNodeChanged(mapNode);
+        for (MapNode inNode : mapNode.incoming) {
+            inNode.connectionTypes = null;
+            markNodeChanged(inNode);
+        }
+        for (MapNode outNode : mapNode.outgoing) {
+            outNode.connectionTypes = null;
+            markNodeChanged(outNode);
+        }
+        connectionsVersion++;
+    }
+
+    // Changes all over the network, a new network or merged nodes
+
+    public static void markAllConnectionsChanged() {
+        for (MapNode mapNode : networkNodesList) mapNode.connectionTypes = null;
+        connectionsVersion++;
+        markAllNodesChanged();
+    }
+
+    //
+    // Change feed for the render, it keeps its own copy of the network and only copies the nodes queued here
+    // again. Anything that changes what a network node looks like on screen ( position, flag, state bits,
+    // marker, warning, connections or the connection lists the render reads ) must queue the node, the
+    // MapNode setters and the functions above already do. A change to the list itself, other than adding
+    // nodes at the end, needs markAllNodesChanged(). EDT only, like the rest of the network.
+    //
+
+    public static void markNodeChanged(MapNode mapNode) {
+        if (allNodesChanged || networkNodesList == null) return;
+        // nodes that aren't in the network ( control nodes, curve previews, the undo copies ) are never drawn from it
+        int index = mapNode.id - 1;
+        if (index < 0 || index >= networkNodesList.size() || networkNodesList.get(index) != mapNode) return;
+        if (changedNodes.size() >= Math.max(MIN_CHANGED_NODES_LIMIT, networkNodesList.size() / 4)) {
+            markAllNodesChanged();
+        } else {
+            changedNodes.add(mapNode);
+        }
+    }
+
+    public static void markAllNodesChanged() {
+        allNodesChanged = true;
+        changedNodes.clear();
+    }
+
+    // Adds the nodes queued since the last call to the list and starts a new queue, a node can be in the
+    // list more than once. Returns true if the whole network has to be copied instead.
+
+    public static boolean takeChangedNodes(List<MapNode> result) {
+        boolean allChanged = allNodesChanged;
+        if (!allChanged) result.addAll(changedNodes);
+        changedNodes.clear();
+        allNodesChanged = false;
+        return allChanged;
+    }
+
+    // The connection grid for the current network, rebuilt first if the network has changed since it was last used
+
+    public static ConnectionGrid getConnectionGrid() {
+        if (connectionGridVersion != connectionsVersion || connectionGridLocationsVersion != nodeLocationsVersion) {
+            connectionGrid.rebuild(networkNodesList);
+            connectionGridVersion = connectionsVersion;
+            connectionGridLocationsVersion = nodeLocationsVersion;
+        }
+        return connectionGrid;
+    }
 
     //
     // getters
@@ -194,9 +505,11 @@ public class RoadMap {
     //
 
 
-    public static void setRoadMapNodes(RoadMap roadMap, LinkedList<MapNode> mapNodes) {
-        pcs.firePropertyChange("networkNodesList.replaceList", networkNodesList, mapNodes);
-        roadMap.networkNodesList = mapNodes;
+    public static void setRoadMapNodes(RoadMap roadMap, List<MapNode> mapNodes) {
+        ArrayList<MapNode> newNodesList = new ArrayList<>(mapNodes);
+        pcs.firePropertyChange("networkNodesList.replaceList", networkNodesList, newNodesList);
+        roadMap.networkNodesList = newNodesList;
+        rebuildSpatialIndex();
     }
 
     public void addPropertyChangeListener(PropertyChangeListener listener) {
@@ -204,14 +517,83 @@ public class RoadMap {
     }
 
     public void refreshAllTableNodes() {
-        pcs.firePropertyChange("networkNodesList.refreshList", null, networkNodesList);
+        rebuildSpatialIndex();
+        fireListRefreshed();
     }
     public void refreshTableNode(MapNode node) {
-        pcs.firePropertyChange("networkNodesList.refresh", null, node);
+        updateNodeLocation(node);
+        fireNodeUpdated(node);
     }
 
     public void refreshTableNodeList(LinkedList<MapNode> multiSelectList) {
-        multiSelectList.forEach(this::refreshTableNode);
+        beginChanges();
+        try {
+            multiSelectList.forEach(this::refreshTableNode);
+        } finally {
+            commitChanges();
+        }
+    }
+
+    //
+    // Change transactions, every add, remove and refresh made between beginChanges() and the matching
+    // commitChanges() is merged into one NetworkChangeBatch, which is sent to the listeners as a single
+    // "networkNodesList.batch" event. Transactions can be nested, only the outermost commit sends the
+    // batch. Always commit in a finally block, a transaction left open stops all further events.
+    //
+
+    public static void beginChanges() {
+        if (changeDepth++ == 0) pendingChanges = new NetworkChangeBatch();
+    }
+
+    public static void commitChanges() {
+        if (changeDepth == 0) throw new IllegalStateException("commitChanges() called without a matching beginChanges()");
+        if (--changeDepth == 0) {
+            NetworkChangeBatch batch = pendingChanges;
+            pendingChanges = null;
+            if (!batch.isEmpty()) pcs.firePropertyChange("networkNodesList.batch", null, batch);
+        }
+    }
+
+    private static void fireNodeAdded(MapNode mapNode) {
+        if (pendingChanges != null) {
+            pendingChanges.nodeAdded(mapNode);
+        } else {
+            pcs.firePropertyChange("networkNodesList.add", null, mapNode);
+        }
+    }
+
+    private static void fireNodesAdded(LinkedList<MapNode> nodes) {
+        if (pendingChanges != null) {
+            nodes.forEach(pendingChanges::nodeAdded);
+        } else {
+            pcs.firePropertyChange("networkNodesList.addAll", null, nodes);
+        }
+    }
+
+    private static void fireNodesRemoved(LinkedList<MapNode> nodes) {
+        if (pendingChanges != null) {
+            nodes.forEach(pendingChanges::nodeRemoved);
+        } else if (nodes.size() == 1) {
+            pcs.firePropertyChange("networkNodesList.remove", nodes.getFirst(), null);
+        } else {
+            pcs.firePropertyChange("networkNodesList.removeAll", nodes, null);
+        }
+    }
+
+    private static void fireNodeUpdated(MapNode mapNode) {
+        if (pendingChanges != null) {
+            pendingChanges.nodeUpdated(mapNode);
+        } else {
+            pcs.firePropertyChange("networkNodesList.refresh", null, mapNode);
+        }
+    }
+
+    private static void fireListRefreshed() {
+        if (pendingChanges != null) {
+            pendingChanges.refreshAll();
+        } else {
+            pcs.firePropertyChange("networkNodesList.refreshList", null, networkNodesList);
+        }
     }
 
     public static void showMismatchedIDError(String functionName, ExceptionUtils.MismatchedIdException e) {
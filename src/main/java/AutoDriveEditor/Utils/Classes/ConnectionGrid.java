@@ -0,0 +1,166 @@
+package AutoDriveEditor.Utils.Classes;
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+
+// Uniform grid of connection bounding boxes over the world X/Z plane.
+//
+// Every outgoing connection of the network is given an index ( in network order ) and that index is put
+// into every cell its bounding box touches, so the connections near a point or inside an area can be found
+// without visiting every node and connection. The grid is built in one go by rebuild(), the cells are
+// plain int arrays so there is no per connection object kept.
+//
+// The grid isn't thread safe, it is only used by the EDT.
+
+public class ConnectionGrid {
+
+    private final double cellSize;
+    private final HashMap<Long, int[]> cells = new HashMap<>();
+
+    private int numConnections = 0;
+    private MapNode[] startNodes = new MapNode[0];
+    private MapNode[] endNodes = new MapNode[0];
+
+    // stamp of the last query that found each connection, so a connection in several cells is only returned once
+    private int[] queryStamps = new int[0];
+    private int currentStamp = 0;
+    private int[] results = new int[64];
+
+    public ConnectionGrid(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    public void rebuild(Collection<MapNode> mapNodes) {
+        cells.clear();
+
+        numConnections = 0;
+        for (MapNode mapNode : mapNodes) {
+            numConnections += mapNode.outgoing.size();
+        }
+        if (startNodes.length < numConnections) {
+            startNodes = new MapNode[numConnections];
+            endNodes = new MapNode[numConnections];
+            queryStamps = new int[numConnections];
+        } else {
+            Arrays.fill(startNodes, null);
+            Arrays.fill(endNodes, null);
+        }
+        currentStamp = 0;
+        Arrays.fill(queryStamps, 0);
+
+        int index = 0;
+        for (MapNode mapNode : mapNodes) {
+            for (int i = 0; i < mapNode.outgoing.size(); i++) {
+                startNodes[index] = mapNode;
+                endNodes[index] = mapNode.outgoing.get(i);
+                index++;
+            }
+        }
+
+        // first pass counts the connections in each cell, the second fills in the exact sized cell arrays
+
+        HashMap<Long, int[]> cellCounts = new HashMap<>();
+        for (int i = 0; i < numConnections; i++) {
+            forEachCell(i, cellCounts, null);
+        }
+        for (HashMap.Entry<Long, int[]> entry : cellCounts.entrySet()) {
+            cells.put(entry.getKey(), new int[entry.getValue()[0]]);
+        }
+        HashMap<Long, int[]> fillPositions = new HashMap<>();
+        for (int i = 0; i < numConnections; i++) {
+            forEachCell(i, fillPositions, cells);
+        }
+    }
+
+    public int size() {
+        return numConnections;
+    }
+
+    public MapNode getStartNode(int connection) { return startNodes[connection]; }
+
+    public MapNode getEndNode(int connection) { return endNodes[connection]; }
+
+    //
+    // Returns the indexes of the connections whose bounding box touches the world area, in network order.
+    // These are only candidates, the caller still has to do the exact test against the connection.
+    //
+
+    public int[] queryArea(double minX, double minZ, double maxX, double maxZ) {
+        int startCellX = getCellIndex(Math.min(minX, maxX));
+        int endCellX = getCellIndex(Math.max(minX, maxX));
+        int startCellZ = getCellIndex(Math.min(minZ, maxZ));
+        int endCellZ = getCellIndex(Math.max(minZ, maxZ));
+
+        if (++currentStamp == Integer.MAX_VALUE) {
+            Arrays.fill(queryStamps, 0);
+            currentStamp = 1;
+        }
+
+        int numResults = 0;
+        long numCellsInArea = ((long) endCellX - startCellX + 1) * ((long) endCellZ - startCellZ + 1);
+        if (numCellsInArea > cells.size()) {
+            for (HashMap.Entry<Long, int[]> entry : cells.entrySet()) {
+                int cellX = (int) (entry.getKey() >> 32);
+                int cellZ = (int) (long) entry.getKey();
+                if (cellX >= startCellX && cellX <= endCellX && cellZ >= startCellZ && cellZ <= endCellZ) {
+                    numResults = addCell(entry.getValue(), numResults);
+                }
+            }
+        } else {
+            for (int cellX = startCellX; cellX <= endCellX; cellX++) {
+                for (int cellZ = startCellZ; cellZ <= endCellZ; cellZ++) {
+                    int[] cell = cells.get(makeKey(cellX, cellZ));
+                    if (cell != null) numResults = addCell(cell, numResults);
+                }
+            }
+        }
+
+        int[] found = Arrays.copyOf(results, numResults);
+        Arrays.sort(found);
+        return found;
+    }
+
+    //
+    // Internal functions
+    //
+
+    private int addCell(int[] cell, int numResults) {
+        for (int connection : cell) {
+            if (queryStamps[connection] != currentStamp) {
+                queryStamps[connection] = currentStamp;
+                if (numResults == results.length) results = Arrays.copyOf(results, numResults * 2);
+                results[numResults++] = connection;
+            }
+        }
+        return numResults;
+    }
+
+    // with no target cells it counts the connection in each cell it touches, otherwise it adds it
+
+    private void forEachCell(int connection, HashMap<Long, int[]> positions, HashMap<Long, int[]> targetCells) {
+        MapNode start = startNodes[connection];
+        MapNode end = endNodes[connection];
+        int startCellX = getCellIndex(Math.min(start.x, end.x));
+        int endCellX = getCellIndex(Math.max(start.x, end.x));
+        int startCellZ = getCellIndex(Math.min(start.z, end.z));
+        int endCellZ = getCellIndex(Math.max(start.z, end.z));
+        for (int cellX = startCellX; cellX <= endCellX; cellX++) {
+            for (int cellZ = startCellZ; cellZ <= endCellZ; cellZ++) {
+                int[] position = positions.computeIfAbsent(makeKey(cellX, cellZ), k -> new int[1]);
+                if (targetCells != null) targetCells.get(makeKey(cellX, cellZ))[position[0]] = connection;
+                position[0]++;
+            }
+        }
+    }
+
+    private int getCellIndex(double worldPos) {
+        return (int) Math.floor(worldPos / cellSize);
+    }
+
+    private static long makeKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+}
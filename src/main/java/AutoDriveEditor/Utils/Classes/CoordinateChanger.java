@@ -31,6 +31,12 @@ public class CoordinateChanger  implements ChangeManager.Changeable {
     public void addCoordinateChange(MapNode node, double newX, double newY, double newZ) {
         this.nodeList.add(new Coordinates(node, newX, newY, newZ));
     }
+
+    @Override
+    public long getEstimatedMemoryUse() {
+        return ChangeManager.estimateLinkedListSize(this.nodeList.size(), 40);
+    }
+
     public void undo() {
         for (Coordinates storedNode : nodeList) {
             storedNode.mapNode.x -= storedNode.diffX;
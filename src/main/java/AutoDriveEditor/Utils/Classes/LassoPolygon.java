@@ -0,0 +1,125 @@
+package AutoDriveEditor.Utils.Classes;
+
+import java.util.Arrays;
+
+// The freeform selection as a flat list of vertices, built up one point at a time as the mouse is dragged,
+// so nothing has to be flattened again between drag events.
+//
+// The polygon is always treated as closed ( the last point joins back to the first ), the same as
+// Path2D.contains() does with the open selection path, and uses the same non-zero winding rule.
+// Each edge is checked against the bounding box of the line first, so most are skipped with a few compares.
+
+public class LassoPolygon {
+
+    private int numPoints = 0;
+    private double[] pointX = new double[256];
+    private double[] pointY = new double[256];
+
+    private double minX;
+    private double minY;
+    private double maxX;
+    private double maxY;
+
+    public void reset() {
+        numPoints = 0;
+    }
+
+    public void addPoint(double x, double y) {
+        if (numPoints == pointX.length) {
+            pointX = Arrays.copyOf(pointX, numPoints * 2);
+            pointY = Arrays.copyOf(pointY, numPoints * 2);
+        }
+        pointX[numPoints] = x;
+        pointY[numPoints] = y;
+        if (numPoints == 0) {
+            minX = maxX = x;
+            minY = maxY = y;
+        } else {
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        numPoints++;
+    }
+
+    public int getNumPoints() {
+        return numPoints;
+    }
+
+    public double getPointX(int index) { return pointX[index]; }
+    public double getPointY(int index) { return pointY[index]; }
+
+    public double getMinX() { return minX; }
+    public double getMinY() { return minY; }
+    public double getMaxX() { return maxX; }
+    public double getMaxY() { return maxY; }
+
+    public boolean contains(double x, double y) {
+        if (numPoints < 3 || x < minX || x > maxX || y < minY || y > maxY) return false;
+
+        // non-zero winding number, counts the edges crossing the horizontal line through the point
+        int winding = 0;
+        for (int i = 0, j = numPoints - 1; i < numPoints; j = i++) {
+            double y1 = pointY[j];
+            double y2 = pointY[i];
+            if (y1 <= y) {
+                if (y2 > y && isLeft(pointX[j], y1, pointX[i], y2, x, y) > 0) winding++;
+            } else {
+                if (y2 <= y && isLeft(pointX[j], y1, pointX[i], y2, x, y) < 0) winding--;
+            }
+        }
+        return winding != 0;
+    }
+
+    //
+    // Exact test for a line segment touching the selection area, either one end is inside
+    // the polygon, or the segment crosses one of the polygon's edges.
+    //
+
+    public boolean intersectsLine(double x1, double y1, double x2, double y2) {
+        if (numPoints < 3) return false;
+
+        double segMinX = Math.min(x1, x2);
+        double segMaxX = Math.max(x1, x2);
+        double segMinY = Math.min(y1, y2);
+        double segMaxY = Math.max(y1, y2);
+        if (segMaxX < minX || segMinX > maxX || segMaxY < minY || segMinY > maxY) return false;
+
+        if (contains(x1, y1) || contains(x2, y2)) return true;
+
+        for (int i = 0, j = numPoints - 1; i < numPoints; j = i++) {
+            double ex1 = pointX[j];
+            double ey1 = pointY[j];
+            double ex2 = pointX[i];
+            double ey2 = pointY[i];
+            if (Math.max(ex1, ex2) < segMinX || Math.min(ex1, ex2) > segMaxX || Math.max(ey1, ey2) < segMinY || Math.min(ey1, ey2) > segMaxY) continue;
+            if (segmentsIntersect(x1, y1, x2, y2, ex1, ey1, ex2, ey2)) return true;
+        }
+        return false;
+    }
+
+    //
+    // Internal functions
+    //
+
+    // > 0 if the point is left of the line from 1 to 2, < 0 if right of it, 0 if on it
+    private static double isLeft(double x1, double y1, double x2, double y2, double x, double y) {
+        return ((x2 - x1) * (y - y1)) - ((x - x1) * (y2 - y1));
+    }
+
+    private static boolean segmentsIntersect(double ax1, double ay1, double ax2, double ay2, double bx1, double by1, double bx2, double by2) {
+        double d1 = isLeft(bx1, by1, bx2, by2, ax1, ay1);
+        double d2 = isLeft(bx1, by1, bx2, by2, ax2, ay2);
+        double d3 = isLeft(ax1, ay1, ax2, ay2, bx1, by1);
+        double d4 = isLeft(ax1, ay1, ax2, ay2, bx2, by2);
+        if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0))) return true;
+        // touching or collinear, the bounding box prefilter has already been passed
+        return (d1 == 0 && isOnSegment(bx1, by1, bx2, by2, ax1, ay1)) || (d2 == 0 && isOnSegment(bx1, by1, bx2, by2, ax2, ay2)) ||
+                (d3 == 0 && isOnSegment(ax1, ay1, ax2, ay2, bx1, by1)) || (d4 == 0 && isOnSegment(ax1, ay1, ax2, ay2, bx2, by2));
+    }
+
+    private static boolean isOnSegment(double x1, double y1, double x2, double y2, double x, double y) {
+        return x >= Math.min(x1, x2) && x <= Math.max(x1, x2) && y >= Math.min(y1, y2) && y <= Math.max(y1, y2);
+    }
+}
@@ -0,0 +1,237 @@
+package AutoDriveEditor.Utils.Classes;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import static AutoDriveEditor.Utils.LoggerUtils.LOG;
+
+//
+// Runs the stages of a config load on a small thread pool, so independent work ( e.g. parsing the XML
+// and decoding the map images ) overlaps, and shows the combined progress in a modal dialog with a
+// working cancel button.
+//
+// The load itself runs on its own thread and submits the stages it can start early, then joins them
+// with join(). The result is handed to onLoaded on the EDT, anything that changes the editor has to be
+// done there. A cancelled load hands nothing on, the editor keeps the config it had. The dialog is
+// modal so the config being replaced can't be edited, and another load can't be started, while the
+// load runs.
+//
+// Progress is the weighted progress of the stages, add them all with addStage() before the load
+// starts so the total weight doesn't change and the progress only goes forwards.
+//
+
+public class LoadPipeline {
+
+    private static final int PROGRESS_UPDATE_MS = 100;
+
+    private final String name;
+    private final ExecutorService executor;
+    private final ArrayList<Stage> stages = new ArrayList<>();
+    private final ArrayList<Future<?>> futures = new ArrayList<>();
+    private volatile boolean cancelled = false;
+
+    public LoadPipeline(String name) {
+        this.name = name;
+        int numThreads = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), 6));
+        this.executor = Executors.newFixedThreadPool(numThreads, new NameableThread(Executors.defaultThreadFactory(), name));
+    }
+
+    public interface LoadTask<T> {
+        T load() throws Exception;
+    }
+
+    //
+    // One part of the load, the progress is 0 to 1 and is set to 1 when a submitted stage ends
+    //
+
+    public static class Stage {
+        private final String name;
+        private final double weight;
+        private volatile double progress = 0;
+
+        private Stage(String name, double weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+
+        public void setProgress(double progress) { this.progress = Math.max(0, Math.min(progress, 1)); }
+
+        public String getName() { return name; }
+
+        // An InputStream that sets the progress of this stage from the number of bytes read
+
+        public InputStream trackProgress(InputStream inputStream, long length) {
+            return new FilterInputStream(inputStream) {
+                private long bytesRead = 0;
+
+                @Override
+                public int read() throws IOException {
+                    int value = super.read();
+                    if (value != -1) addBytesRead(1);
+                    return value;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int numRead = super.read(b, off, len);
+                    if (numRead > 0) addBytesRead(numRead);
+                    return numRead;
+                }
+
+                private void addBytesRead(int numRead) {
+                    bytesRead += numRead;
+                    if (length > 0) setProgress((double) bytesRead / length);
+                }
+            };
+        }
+    }
+
+    public synchronized Stage addStage(String stageName, double weight) {
+        Stage stage = new Stage(stageName, weight);
+        stages.add(stage);
+        return stage;
+    }
+
+    // Runs the task on the pool, the stage is complete when the task ends
+
+    public <T> Future<T> submit(Stage stage, LoadTask<T> task) {
+        checkCancelled();
+        Future<T> future = executor.submit(() -> {
+            checkCancelled();
+            long startTime = System.currentTimeMillis();
+            T result = task.load();
+            stage.setProgress(1);
+            LOG.info("{} : stage '{}' finished in {} ms", name, stage.name, System.currentTimeMillis() - startTime);
+            return result;
+        });
+        synchronized (this) {
+            futures.add(future);
+        }
+        return future;
+    }
+
+    // Waits for a submitted stage and returns its result, the exception a stage failed with is rethrown
+    // as it is, a CancellationException is thrown if the load was cancelled
+
+    public <T> T join(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException(name + " interrupted");
+        }
+    }
+
+    public void cancel() {
+        if (cancelled) return;
+        cancelled = true;
+        LOG.info("{} : cancelled", name);
+        synchronized (this) {
+            for (Future<?> future : futures) future.cancel(true);
+        }
+    }
+
+    public boolean isCancelled() { return cancelled; }
+
+    // Call regularly in long-running stages, ends the stage if the load was cancelled
+
+    public void checkCancelled() {
+        if (cancelled) throw new CancellationException(name + " cancelled");
+    }
+
+    // 0 to 100, the weighted progress of all the stages
+
+    public synchronized int getProgress() {
+        double totalWeight = 0;
+        double done = 0;
+        for (Stage stage : stages) {
+            totalWeight += stage.weight;
+            done += stage.weight * stage.progress;
+        }
+        return (totalWeight > 0) ? (int) ((done / totalWeight) * 100) : 0;
+    }
+
+    //
+    // Starts the load on its own thread and shows the progress until it ends, must be called on the EDT.
+    // Exactly one of onLoaded / onFailed is called on the EDT when the load ends, neither is if it was
+    // cancelled. onEnded is always called last, cancelled or not.
+    //
+    // The progress dialog is modal, so start() only returns once the load has ended and the callbacks
+    // have been called.
+    //
+
+    public <T> void start(Component parent, String message, LoadTask<T> load, Consumer<T> onLoaded, Consumer<Exception> onFailed, Runnable onEnded) {
+        JProgressBar progressBar = new JProgressBar(0, 100);
+        String cancelText = UIManager.getString("OptionPane.cancelButtonText");
+        JOptionPane optionPane = new JOptionPane(new Object[] { message, progressBar }, JOptionPane.INFORMATION_MESSAGE,
+                JOptionPane.DEFAULT_OPTION, null, new Object[] { cancelText });
+        // the dialog stays open after a cancel, until the stages have stopped and the load has ended
+        optionPane.addPropertyChangeListener(JOptionPane.VALUE_PROPERTY, e -> {
+            if (cancelText.equals(e.getNewValue())) cancel();
+        });
+        Window owner = (parent instanceof Window) ? (Window) parent : SwingUtilities.getWindowAncestor(parent);
+        JDialog progressDialog = new JDialog(owner, name, Dialog.ModalityType.APPLICATION_MODAL);
+        progressDialog.setContentPane(optionPane);
+        progressDialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        progressDialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                cancel();
+            }
+        });
+        progressDialog.pack();
+        progressDialog.setLocationRelativeTo(parent);
+
+        Timer progressTimer = new Timer(PROGRESS_UPDATE_MS, e -> progressBar.setValue(getProgress()));
+        progressTimer.start();
+
+        Thread loadThread = new Thread(() -> {
+            long startTime = System.currentTimeMillis();
+            T result = null;
+            Exception failure = null;
+            try {
+                result = load.load();
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                executor.shutdownNow();
+            }
+            LOG.info("{} : {} in {} ms", name, (cancelled) ? "cancelled" : (failure != null) ? "failed" : "finished", System.currentTimeMillis() - startTime);
+
+            T loadResult = result;
+            Exception loadFailure = failure;
+            SwingUtilities.invokeLater(() -> {
+                progressTimer.stop();
+                progressDialog.dispose();
+                try {
+                    if (cancelled || loadFailure instanceof CancellationException) return;
+                    if (loadFailure != null) {
+                        onFailed.accept(loadFailure);
+                    } else {
+                        onLoaded.accept(loadResult);
+                    }
+                } finally {
+                    onEnded.run();
+                }
+            });
+        }, name);
+        loadThread.setDaemon(true);
+        loadThread.start();
+
+        // returns when the dialog is disposed above, the EDT keeps handling events until then
+        progressDialog.setVisible(true);
+    }
+}
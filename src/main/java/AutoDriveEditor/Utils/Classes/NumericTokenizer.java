@@ -0,0 +1,198 @@
+package AutoDriveEditor.Utils.Classes;
+
+//
+// Reads the numbers out of the ',' and ';' separated lists used in the config <waypoints> element
+// ( e.g. "1.5,2,-3.25" or "2,3;-1;4" ) straight from the characters, without creating a String
+// for every entry as split() + parseXXX() does.
+//
+// After each nextInt() / nextDouble() call, getLastSeparator() returns the separator that ended
+// the entry, or 0 at the end of the text, so nested lists can be read in one pass.
+//
+// Whitespace around the entries is skipped. Entries the fast paths can't handle ( exponents,
+// NaN, more than 18 digits... ) are passed on to Double.parseDouble() / Integer.parseInt(), which
+// also throw the NumberFormatException for invalid entries.
+//
+
+public class NumericTokenizer {
+
+    // 10^0 to 10^22 are exact as doubles, so dividing an exact mantissa by them is correctly rounded
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_FAST_DIGITS = 18;
+
+    public static final int UNKNOWN_DECIMAL_PLACES = Integer.MAX_VALUE;
+
+    private CharSequence text;
+    private int position;
+    private int end;
+    private char lastSeparator;
+    private int lastDecimalPlaces;
+
+    public NumericTokenizer(CharSequence text) {
+        reset(text);
+    }
+
+    public void reset(CharSequence text) {
+        this.text = text;
+        this.position = 0;
+        this.end = text.length();
+        this.lastSeparator = 0;
+        this.lastDecimalPlaces = 0;
+    }
+
+    // true if there is another entry to read, an empty or whitespace only text has no entries
+
+    public boolean hasNext() {
+        skipWhitespace();
+        return position < end;
+    }
+
+    public int nextInt() {
+        int tokenStart = startToken();
+        int tokenEnd = findTokenEnd();
+
+        int i = tokenStart;
+        boolean negative = false;
+        if (i < tokenEnd && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        int numDigits = tokenEnd - i;
+        long value = 0;
+        if (numDigits > 0 && numDigits <= 10) {
+            for (; i < tokenEnd; i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') break;
+                value = (value * 10) + (c - '0');
+            }
+        }
+        if (numDigits <= 0 || numDigits > 10 || i != tokenEnd) {
+            // not a plain integer, let parseInt() decide
+            value = Integer.parseInt(text.subSequence(tokenStart, tokenEnd).toString());
+            negative = false;
+        } else if (negative) {
+            value = -value;
+        }
+        if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+            throw new NumberFormatException("Value out of range: \"" + text.subSequence(tokenStart, tokenEnd) + "\"");
+        }
+        endToken(tokenEnd);
+        return (int) value;
+    }
+
+    public double nextDouble() {
+        int tokenStart = startToken();
+        int tokenEnd = findTokenEnd();
+
+        int i = tokenStart;
+        boolean negative = false;
+        if (i < tokenEnd && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int numDigits = 0;
+        int decimalPlaces = 0;
+        boolean hasDigits = false;
+        boolean inFraction = false;
+        boolean fastPath = i < tokenEnd;
+        for (; i < tokenEnd && fastPath; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigits = true;
+                if (mantissa != 0 || c != '0') numDigits++;
+                if (numDigits > MAX_FAST_DIGITS) {
+                    fastPath = false;
+                } else {
+                    mantissa = (mantissa * 10) + (c - '0');
+                    if (inFraction) decimalPlaces++;
+                }
+            } else if (c == '.' && !inFraction) {
+                inFraction = true;
+            } else {
+                fastPath = false;
+            }
+        }
+        double value;
+        // a lone "." or "-" is not a number, parseDouble() throws for it
+        if (fastPath && hasDigits && mantissa < MAX_EXACT_MANTISSA && decimalPlaces < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[decimalPlaces];
+            if (negative) value = -value;
+            lastDecimalPlaces = decimalPlaces;
+        } else {
+            value = Double.parseDouble(text.subSequence(tokenStart, tokenEnd).toString());
+            lastDecimalPlaces = UNKNOWN_DECIMAL_PLACES;
+        }
+        endToken(tokenEnd);
+        return value;
+    }
+
+    // The separator ( ',' or ';' ) after the last entry read, or 0 if it was the last entry in the text
+
+    public char getLastSeparator() {
+        return lastSeparator;
+    }
+
+    // The number of decimal places of the last nextDouble() entry, or UNKNOWN_DECIMAL_PLACES if it
+    // was not a plain decimal number ( e.g. it used an exponent )
+
+    public int getLastDecimalPlaces() {
+        return lastDecimalPlaces;
+    }
+
+    // The number of entries in a list, the same as split(separator).length for a list without empty
+    // entries at the end, but without creating the array
+
+    public static int countEntries(CharSequence text, char separator) {
+        int length = text.length();
+        int lastEnd = length;
+        while (lastEnd > 0 && (text.charAt(lastEnd - 1) == separator || Character.isWhitespace(text.charAt(lastEnd - 1)))) lastEnd--;
+        if (lastEnd == 0) return 0;
+        int count = 1;
+        for (int i = 0; i < lastEnd; i++) {
+            if (text.charAt(i) == separator) count++;
+        }
+        return count;
+    }
+
+    //
+    // internal
+    //
+
+    private void skipWhitespace() {
+        while (position < end && Character.isWhitespace(text.charAt(position))) position++;
+    }
+
+    private int startToken() {
+        skipWhitespace();
+        if (position >= end) throw new NumberFormatException("No more entries");
+        return position;
+    }
+
+    private int findTokenEnd() {
+        int i = position;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c == ',' || c == ';' || Character.isWhitespace(c)) break;
+            i++;
+        }
+        return i;
+    }
+
+    private void endToken(int tokenEnd) {
+        position = tokenEnd;
+        skipWhitespace();
+        if (position < end) {
+            char c = text.charAt(position);
+            if (c != ',' && c != ';') {
+                throw new NumberFormatException("Unexpected character '" + c + "' at position " + position);
+            }
+            lastSeparator = c;
+            position++;
+        } else {
+            lastSeparator = 0;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package AutoDriveEditor.Utils.Classes;
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Uniform bucket grid over the world X/Z plane.
+//
+// Each MapNode is stored in the cell that contains its position, so an area query only has to
+// look at the cells overlapping that area instead of the whole network. The grid remembers which
+// cell every node was last put into, a node that has been moved just needs update() to be called
+// so it can be re-bucketed.
+//
+// The grid is guarded by a read/write lock, so it can be queried from other threads while the EDT
+// is the one making the changes ( the render compute uses the RenderGrid of its own copy instead ).
+
+@SuppressWarnings("unused")
+public class SpatialGrid {
+
+    private final double cellSize;
+    private final HashMap<Long, ArrayList<MapNode>> cells;
+    private final HashMap<MapNode, Long> nodeCells;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SpatialGrid(double cellSize) {
+        this.cellSize = cellSize;
+        this.cells = new HashMap<>();
+        this.nodeCells = new HashMap<>();
+    }
+
+    public void insert(MapNode mapNode) {
+        lock.writeLock().lock();
+        try {
+            insertNode(mapNode);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void insertAll(Collection<MapNode> mapNodes) {
+        lock.writeLock().lock();
+        try {
+            for (MapNode mapNode : mapNodes) {
+                insertNode(mapNode);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(MapNode mapNode) {
+        lock.writeLock().lock();
+        try {
+            return removeNode(mapNode);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAll(Collection<MapNode> mapNodes) {
+        lock.writeLock().lock();
+        try {
+            for (MapNode mapNode : mapNodes) {
+                removeNode(mapNode);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Re-bucket a node after its x/z position has been changed, nodes that are not
+    // in the grid are ignored.
+
+    public void update(MapNode mapNode) {
+        lock.writeLock().lock();
+        try {
+            Long oldKey = nodeCells.get(mapNode);
+            if (oldKey == null) return;
+            long newKey = getCellKey(mapNode.x, mapNode.z);
+            if (oldKey != newKey) {
+                removeFromCell(oldKey, mapNode);
+                cells.computeIfAbsent(newKey, k -> new ArrayList<>()).add(mapNode);
+                nodeCells.put(mapNode, newKey);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void rebuild(Collection<MapNode> mapNodes) {
+        lock.writeLock().lock();
+        try {
+            cells.clear();
+            nodeCells.clear();
+            for (MapNode mapNode : mapNodes) {
+                insertNode(mapNode);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            cells.clear();
+            nodeCells.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodeCells.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(MapNode mapNode) {
+        lock.readLock().lock();
+        try {
+            return nodeCells.containsKey(mapNode);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //
+    // Adds all the nodes inside the world area to the result list, the area is inclusive of its edges.
+    // The result list is not cleared, so callers can re-use the same list every frame.
+    //
+
+    public void queryArea(double minX, double minZ, double maxX, double maxZ, List<MapNode> result) {
+        int startCellX = getCellIndex(Math.min(minX, maxX));
+        int endCellX = getCellIndex(Math.max(minX, maxX));
+        int startCellZ = getCellIndex(Math.min(minZ, maxZ));
+        int endCellZ = getCellIndex(Math.max(minZ, maxZ));
+
+        double areaMinX = Math.min(minX, maxX);
+        double areaMaxX = Math.max(minX, maxX);
+        double areaMinZ = Math.min(minZ, maxZ);
+        double areaMaxZ = Math.max(minZ, maxZ);
+
+        long numCellsInArea = ((long) endCellX - startCellX + 1) * ((long) endCellZ - startCellZ + 1);
+
+        lock.readLock().lock();
+        try {
+            if (numCellsInArea > cells.size()) {
+                // The area covers more cells than are populated (zoomed out), so it is quicker
+                // to walk the populated cells and skip the ones outside the area.
+                for (Map.Entry<Long, ArrayList<MapNode>> entry : cells.entrySet()) {
+                    int cellX = (int) (entry.getKey() >> 32);
+                    int cellZ = (int) (long) entry.getKey();
+                    if (cellX >= startCellX && cellX <= endCellX && cellZ >= startCellZ && cellZ <= endCellZ) {
+                        addNodesInArea(entry.getValue(), areaMinX, areaMinZ, areaMaxX, areaMaxZ, result);
+                    }
+                }
+            } else {
+                for (int cellX = startCellX; cellX <= endCellX; cellX++) {
+                    for (int cellZ = startCellZ; cellZ <= endCellZ; cellZ++) {
+                        ArrayList<MapNode> cell = cells.get(makeKey(cellX, cellZ));
+                        if (cell != null) {
+                            addNodesInArea(cell, areaMinX, areaMinZ, areaMaxX, areaMaxZ, result);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<MapNode> queryArea(double minX, double minZ, double maxX, double maxZ) {
+        List<MapNode> result = new ArrayList<>();
+        queryArea(minX, minZ, maxX, maxZ, result);
+        return result;
+    }
+
+    //
+    // Returns the node closest to the world position that is less than radius away on both the X and Z axis
+    // ( the same square test the hit-testing has always used ), or null if there isn't one. Only the cells
+    // the square touches are looked at.
+    //
+
+    public MapNode findNearest(double worldX, double worldZ, double radius) {
+        int startCellX = getCellIndex(worldX - radius);
+        int endCellX = getCellIndex(worldX + radius);
+        int startCellZ = getCellIndex(worldZ - radius);
+        int endCellZ = getCellIndex(worldZ + radius);
+
+        MapNode nearest = null;
+        double nearestDistSq = Double.MAX_VALUE;
+
+        lock.readLock().lock();
+        try {
+            for (int cellX = startCellX; cellX <= endCellX; cellX++) {
+                for (int cellZ = startCellZ; cellZ <= endCellZ; cellZ++) {
+                    ArrayList<MapNode> cell = cells.get(makeKey(cellX, cellZ));
+                    if (cell == null) continue;
+                    for (int i = 0; i < cell.size(); i++) {
+                        MapNode mapNode = cell.get(i);
+                        double diffX = mapNode.x - worldX;
+                        double diffZ = mapNode.z - worldZ;
+                        if (Math.abs(diffX) < radius && Math.abs(diffZ) < radius) {
+                            double distSq = (diffX * diffX) + (diffZ * diffZ);
+                            if (distSq < nearestDistSq) {
+                                nearest = mapNode;
+                                nearestDistSq = distSq;
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return nearest;
+    }
+
+    //
+    // Internal functions, the caller must be holding the write lock
+    //
+
+    private void insertNode(MapNode mapNode) {
+        if (mapNode == null || nodeCells.containsKey(mapNode)) return;
+        long key = getCellKey(mapNode.x, mapNode.z);
+        cells.computeIfAbsent(key, k -> new ArrayList<>()).add(mapNode);
+        nodeCells.put(mapNode, key);
+    }
+
+    private boolean removeNode(MapNode mapNode) {
+        Long key = nodeCells.remove(mapNode);
+        if (key == null) return false;
+        removeFromCell(key, mapNode);
+        return true;
+    }
+
+    private void addNodesInArea(ArrayList<MapNode> cell, double minX, double minZ, double maxX, double maxZ, List<MapNode> result) {
+        for (MapNode mapNode : cell) {
+            if (mapNode.x >= minX && mapNode.x <= maxX && mapNode.z >= minZ && mapNode.z <= maxZ) {
+                result.add(mapNode);
+            }
+        }
+    }
+
+    private void removeFromCell(long key, MapNode mapNode) {
+        ArrayList<MapNode> cell = cells.get(key);
+        if (cell != null) {
+            cell.remove(mapNode);
+            if (cell.isEmpty()) cells.remove(key);
+        }
+    }
+
+    private int getCellIndex(double worldPos) {
+        return (int) Math.floor(worldPos / cellSize);
+    }
+
+    private long getCellKey(double worldX, double worldZ) {
+        return makeKey(getCellIndex(worldX), getCellIndex(worldZ));
+    }
+
+    private static long makeKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+}
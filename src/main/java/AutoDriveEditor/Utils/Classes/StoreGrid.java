@@ -0,0 +1,148 @@
+package AutoDriveEditor.Utils.Classes;
+
+import AutoDriveEditor.RoadNetwork.NetworkStore;
+
+import java.util.Arrays;
+
+// Uniform grid over the world X/Z plane of a NetworkStore.
+//
+// The same idea as SpatialGrid, but for the primitive store, the cells hold node indexes instead of MapNode
+// objects and are kept in compressed sparse row form like the store's connections, the indexes of cell c
+// are cellNodes[cellStart[c]] up to cellNodes[cellStart[c + 1] - 1] in network order. The grid only covers
+// the area the nodes are in and is built in one go, a store never changes so neither does its grid.
+//
+// Nothing is changed by a query, so any number of threads can query the same grid at once.
+
+public class StoreGrid {
+
+    // the cell size is doubled until there are no more than this many cells per node ( or MIN_CELLS )
+    private static final int MAX_CELLS_PER_NODE = 2;
+    private static final int MIN_CELLS = 1024;
+
+    private final double[] nodeX;
+    private final double[] nodeZ;
+    private double cellSize;
+    private double originX;
+    private double originZ;
+    private int cellsX = 0;
+    private int cellsZ = 0;
+    private int[] cellStart = new int[1];
+    private int[] cellNodes = new int[0];
+
+    public StoreGrid(NetworkStore store, double cellSize) {
+        this.nodeX = store.x;
+        this.nodeZ = store.z;
+        this.cellSize = cellSize;
+        if (store.numNodes > 0) build(store.numNodes);
+    }
+
+    //
+    // Adds the indexes of all the nodes inside the world area to the result list, the area is inclusive of its
+    // edges. The result list is not cleared, so callers can re-use the same list every frame.
+    //
+
+    public void queryArea(double minX, double minZ, double maxX, double maxZ, IndexList result) {
+        double areaMinX = Math.min(minX, maxX);
+        double areaMaxX = Math.max(minX, maxX);
+        double areaMinZ = Math.min(minZ, maxZ);
+        double areaMaxZ = Math.max(minZ, maxZ);
+
+        int startCellX = Math.max(getCellIndex(areaMinX, originX), 0);
+        int endCellX = Math.min(getCellIndex(areaMaxX, originX), cellsX - 1);
+        int startCellZ = Math.max(getCellIndex(areaMinZ, originZ), 0);
+        int endCellZ = Math.min(getCellIndex(areaMaxZ, originZ), cellsZ - 1);
+
+        for (int cellZ = startCellZ; cellZ <= endCellZ; cellZ++) {
+            for (int cellX = startCellX; cellX <= endCellX; cellX++) {
+                int cell = (cellZ * cellsX) + cellX;
+                for (int c = cellStart[cell]; c < cellStart[cell + 1]; c++) {
+                    int index = cellNodes[c];
+                    double x = nodeX[index];
+                    double z = nodeZ[index];
+                    if (x >= areaMinX && x <= areaMaxX && z >= areaMinZ && z <= areaMaxZ) result.add(index);
+                }
+            }
+        }
+    }
+
+    public double getCellSize() { return cellSize; }
+
+    //
+    // Growable list of node indexes, the array only ever grows so a list kept between queries stops allocating
+    //
+
+    public static class IndexList {
+        private int size = 0;
+        private int[] indexes = new int[256];
+
+        public void add(int index) {
+            if (size == indexes.length) indexes = Arrays.copyOf(indexes, size * 2);
+            indexes[size++] = index;
+        }
+
+        public int get(int i) { return indexes[i]; }
+
+        public int size() { return size; }
+
+        public void clear() { size = 0; }
+    }
+
+    //
+    // Internal functions
+    //
+
+    private void build(int numNodes) {
+        double minX = Double.MAX_VALUE;
+        double minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxZ = -Double.MAX_VALUE;
+        for (int i = 0; i < numNodes; i++) {
+            if (!Double.isFinite(nodeX[i]) || !Double.isFinite(nodeZ[i])) continue;
+            minX = Math.min(minX, nodeX[i]);
+            maxX = Math.max(maxX, nodeX[i]);
+            minZ = Math.min(minZ, nodeZ[i]);
+            maxZ = Math.max(maxZ, nodeZ[i]);
+        }
+        if (minX > maxX) {
+            minX = maxX = 0;
+            minZ = maxZ = 0;
+        }
+        originX = minX;
+        originZ = minZ;
+
+        long maxCells = Math.max(MIN_CELLS, (long) numNodes * MAX_CELLS_PER_NODE);
+        while (true) {
+            cellsX = getCellIndex(maxX, originX) + 1;
+            cellsZ = getCellIndex(maxZ, originZ) + 1;
+            if ((long) cellsX * cellsZ <= maxCells) break;
+            cellSize *= 2;
+        }
+
+        // counting sort of the node indexes by cell, so each cell keeps its nodes in network order
+        int[] nodeCells = new int[numNodes];
+        cellStart = new int[(cellsX * cellsZ) + 1];
+        for (int i = 0; i < numNodes; i++) {
+            int cellX = Math.max(0, Math.min(getCellIndex(nodeX[i], originX), cellsX - 1));
+            int cellZ = Math.max(0, Math.min(getCellIndex(nodeZ[i], originZ), cellsZ - 1));
+            int cell = (cellZ * cellsX) + cellX;
+            nodeCells[i] = cell;
+            cellStart[cell + 1]++;
+        }
+        for (int cell = 0; cell < cellsX * cellsZ; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        int[] fillPos = Arrays.copyOf(cellStart, cellStart.length - 1);
+        cellNodes = new int[numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            cellNodes[fillPos[nodeCells[i]]++] = i;
+        }
+    }
+
+    private int getCellIndex(double worldPos, double origin) {
+        double cell = Math.floor((worldPos - origin) / cellSize);
+        // clamp before the cast, a query area can be far outside the grid
+        if (cell < -1) return -1;
+        if (cell > Integer.MAX_VALUE - 1) return Integer.MAX_VALUE - 1;
+        return (int) cell;
+    }
+}
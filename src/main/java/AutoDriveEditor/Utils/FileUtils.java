@@ -11,6 +11,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 import static AutoDriveEditor.GUI.Menus.DebugMenu.Logging.LogFileIOMenu.bDebugLogFileIO;
 import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
@@ -103,6 +106,25 @@ public class FileUtils {
         }
     }
 
+    //
+    // Files are saved by writing a temporary file next to the target and then moving it over the target,
+    // so a failed or interrupted save never leaves a half written config behind.
+    //
+
+    public static File createTempFileFor(File target) throws IOException {
+        File directory = target.getAbsoluteFile().getParentFile();
+        return File.createTempFile(target.getName() + ".", ".tmp", directory);
+    }
+
+    public static void replaceFileAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            LOG.info("Atomic move not supported for {}, replacing it instead", target);
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     public static String removeFilenameFromString(String path) {
         return path.substring(0, indexOfLastSeparator(path) + 1);
     }
@@ -1,13 +1,22 @@
 package AutoDriveEditor.Utils;
 
+import AutoDriveEditor.RoadNetwork.NetworkStore;
+import AutoDriveEditor.Utils.Classes.NumericTokenizer;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import java.awt.*;
+import java.math.RoundingMode;
+import java.util.Objects;
 
 import static AutoDriveEditor.Utils.ConversionUtils.ColorToHex;
 import static AutoDriveEditor.Utils.ConversionUtils.HexToColor;
+import static AutoDriveEditor.Utils.MathUtils.limitDoubleToDecimalPlaces;
 
 public class XMLUtils {
 
@@ -48,10 +57,240 @@ public class XMLUtils {
         element.appendChild(newElement);
     }
 
+    //
+    // Network columns, as written into the <waypoints> element of the configs
+    //
+
+    public static String getColumnString(int[] values, char separator) {
+        StringBuilder column = new StringBuilder(values.length * 6);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) column.append(separator);
+            column.append(values[i]);
+        }
+        return column.toString();
+    }
+
+    public static String getColumnString(double[] values, char separator) {
+        StringBuilder column = new StringBuilder(values.length * 10);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) column.append(separator);
+            column.append(values[i]);
+        }
+        return column.toString();
+    }
+
+    // The connection IDs of each node separated by ',' and the nodes by ';', a node without connections is "-1"
+
+    public static String getConnectionsString(int[] start, int[] targets, int[] ids) {
+        int numNodes = start.length - 1;
+        StringBuilder column = new StringBuilder((numNodes * 3) + (targets.length * 6));
+        for (int i = 0; i < numNodes; i++) {
+            if (i > 0) column.append(';');
+            int numWritten = 0;
+            for (int c = start[i]; c < start[i + 1]; c++) {
+                // connections to nodes that are no longer in the network are dropped
+                if (targets[c] < 0) continue;
+                if (numWritten++ > 0) column.append(',');
+                column.append(ids[targets[c]]);
+            }
+            if (numWritten == 0) column.append("-1");
+        }
+        return column.toString();
+    }
+
+    //
+    // The same columns written straight to an XMLStreamWriter in small chunks, so a large network never
+    // needs the whole column as a String
+    //
+
+    public static void writeColumn(XMLStreamWriter writer, int[] values, char separator) throws XMLStreamException {
+        ColumnChunks column = new ColumnChunks(writer);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) column.chunk.append(separator);
+            column.chunk.append(values[i]);
+            column.flushIfFull();
+        }
+        column.flush();
+    }
+
+    public static void writeColumn(XMLStreamWriter writer, double[] values, char separator) throws XMLStreamException {
+        ColumnChunks column = new ColumnChunks(writer);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) column.chunk.append(separator);
+            column.chunk.append(values[i]);
+            column.flushIfFull();
+        }
+        column.flush();
+    }
+
+    public static void writeConnections(XMLStreamWriter writer, int[] start, int[] targets, int[] ids) throws XMLStreamException {
+        ColumnChunks column = new ColumnChunks(writer);
+        int numNodes = start.length - 1;
+        for (int i = 0; i < numNodes; i++) {
+            if (i > 0) column.chunk.append(';');
+            int numWritten = 0;
+            for (int c = start[i]; c < start[i + 1]; c++) {
+                // connections to nodes that are no longer in the network are dropped
+                if (targets[c] < 0) continue;
+                if (numWritten++ > 0) column.chunk.append(',');
+                column.chunk.append(ids[targets[c]]);
+            }
+            if (numWritten == 0) column.chunk.append("-1");
+            column.flushIfFull();
+        }
+        column.flush();
+    }
+
+    //
+    // Helpers for copying one XML file to another with a StAX reader and writer
+    //
+
+    // Writes the start tag the reader is at, with its namespaces and attributes
+
+    public static void copyStartElement(XMLStreamReader reader, XMLStreamWriter writer) throws XMLStreamException {
+        String namespaceURI = reader.getNamespaceURI();
+        if (namespaceURI != null && !namespaceURI.isEmpty()) {
+            writer.writeStartElement(Objects.toString(reader.getPrefix(), ""), reader.getLocalName(), namespaceURI);
+        } else {
+            writer.writeStartElement(reader.getLocalName());
+        }
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String prefix = reader.getNamespacePrefix(i);
+            if (prefix == null || prefix.isEmpty()) {
+                writer.writeDefaultNamespace(reader.getNamespaceURI(i));
+            } else {
+                writer.writeNamespace(prefix, reader.getNamespaceURI(i));
+            }
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String attributeNamespace = reader.getAttributeNamespace(i);
+            if (attributeNamespace != null && !attributeNamespace.isEmpty()) {
+                writer.writeAttribute(Objects.toString(reader.getAttributePrefix(i), ""), attributeNamespace, reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            } else {
+                writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            }
+        }
+    }
+
+    // Skips the contents of the element the reader is at, and leaves the reader on its end tag
+
+    public static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    // A new line indented by 2 spaces for each level, the same indentation the editor has always saved with
+
+    public static void writeIndent(XMLStreamWriter writer, int depth) throws XMLStreamException {
+        StringBuilder indent = new StringBuilder(1 + (depth * 2)).append('\n');
+        for (int i = 0; i < depth; i++) indent.append("  ");
+        writer.writeCharacters(indent.toString());
+    }
+
+    private static class ColumnChunks {
+        private static final int CHUNK_SIZE = 8192;
+
+        private final XMLStreamWriter writer;
+        private final StringBuilder chunk = new StringBuilder(CHUNK_SIZE + 64);
+        private final char[] buffer = new char[CHUNK_SIZE + 64];
+
+        private ColumnChunks(XMLStreamWriter writer) {
+            this.writer = writer;
+        }
+
+        private void flushIfFull() throws XMLStreamException {
+            if (chunk.length() >= CHUNK_SIZE) flush();
+        }
+
+        private void flush() throws XMLStreamException {
+            int length = chunk.length();
+            if (length == 0) return;
+            char[] chars = (length <= buffer.length) ? buffer : new char[length];
+            chunk.getChars(0, length, chars, 0);
+            writer.writeCharacters(chars, 0, length);
+            chunk.setLength(0);
+        }
+    }
+
+    //
+    // Network columns, read back from the <waypoints> element with a NumericTokenizer instead of
+    // splitting them into a String for every entry
+    //
+
+    public static int[] parseIntColumn(CharSequence column, char separator) {
+        NumericTokenizer tokenizer = new NumericTokenizer(column);
+        int[] values = new int[NumericTokenizer.countEntries(column, separator)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = tokenizer.nextInt();
+        }
+        return values;
+    }
+
+    public static double[] parseDoubleColumn(CharSequence column, char separator) {
+        return parseDoubleColumn(column, separator, -1);
+    }
+
+    // Values with more decimal places than decimalPlaces are rounded HALF_UP, -1 keeps them as they are
+
+    public static double[] parseDoubleColumn(CharSequence column, char separator, int decimalPlaces) {
+        NumericTokenizer tokenizer = new NumericTokenizer(column);
+        double[] values = new double[NumericTokenizer.countEntries(column, separator)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = tokenizer.nextDouble();
+            if (decimalPlaces >= 0 && tokenizer.getLastDecimalPlaces() > decimalPlaces) {
+                values[i] = limitDoubleToDecimalPlaces(values[i], decimalPlaces, RoundingMode.HALF_UP);
+            }
+        }
+        return values;
+    }
+
+    // Reads a column written by getConnectionsString(), one node per ';' separated entry, the "-1"
+    // entries of nodes without connections are skipped
+
+    public static NetworkStore.AdjacencyBuilder parseConnectionsColumn(CharSequence column) {
+        NumericTokenizer tokenizer = new NumericTokenizer(column);
+        int numNodes = NumericTokenizer.countEntries(column, ';');
+        NetworkStore.AdjacencyBuilder builder = new NetworkStore.AdjacencyBuilder(numNodes, numNodes * 2);
+        for (int i = 0; i < numNodes; i++) {
+            do {
+                int id = tokenizer.nextInt();
+                if (id != -1) builder.addConnection(id - 1);
+            } while (tokenizer.getLastSeparator() == ',');
+            builder.endNode();
+        }
+        return builder;
+    }
+
     //
     //getters
     //
 
+    // Reads all the text of the element the reader is at into the buffer ( which is cleared first ) and
+    // leaves the reader on its end tag, the text of any child elements is included
+
+    public static StringBuilder readElementText(XMLStreamReader reader, StringBuilder buffer) throws XMLStreamException {
+        buffer.setLength(0);
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+                buffer.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        return buffer;
+    }
+
     public static String getTextValue(String def, Element doc, String tag) {
         String value = def;
         NodeList nl = doc.getElementsByTagName(tag);
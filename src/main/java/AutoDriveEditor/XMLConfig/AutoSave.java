@@ -1,7 +1,11 @@
 package AutoDriveEditor.XMLConfig;
 
+import AutoDriveEditor.RoadNetwork.RoadMap;
 import AutoDriveEditor.Utils.Classes.NameableThread;
 
+import javax.swing.*;
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -14,7 +18,9 @@ import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.XMLConfig.EditorXML.autoSaveInterval;
 import static AutoDriveEditor.XMLConfig.EditorXML.maxAutoSaveSlots;
 import static AutoDriveEditor.XMLConfig.GameXML.autoSaveGameConfigFile;
+import static AutoDriveEditor.XMLConfig.GameXML.xmlConfigFile;
 import static AutoDriveEditor.XMLConfig.RoutesXML.autoSaveRouteManagerXML;
+import static AutoDriveEditor.XMLConfig.RoutesXML.markerGroup;
 
 public class AutoSave {
 
@@ -25,6 +31,26 @@ public class AutoSave {
 
     public static boolean bSuspendAutoSave;
 
+    // the MapPanel edit count the last autosave was taken at
+    private static volatile int autoSavedEditCount = -1;
+
+    //
+    // What an autosave writes, copied from the network on the EDT, so the file is written on the AutoSave
+    // thread without touching the live network while the editing carries on.
+    //
+
+    public static class AutoSaveSnapshot {
+        public final File configFile;
+        public final ConfigSnapshot network;
+        private final int editCount;
+
+        private AutoSaveSnapshot(File configFile, ConfigSnapshot network, int editCount) {
+            this.configFile = configFile;
+            this.network = network;
+            this.editCount = editCount;
+        }
+    }
+
     public static void startAutoSaveThread() {
         LOG.info("Starting AutoSave Thread");
 
@@ -73,6 +99,37 @@ public class AutoSave {
         }
     }
 
+    //
+    // Called on the AutoSave thread, takes the snapshot on the EDT and waits for it. Returns null if there
+    // is nothing to save, i.e. no edits since the last save or autosave.
+    //
+
+    public static AutoSaveSnapshot takeAutoSaveSnapshot() {
+        AutoSaveSnapshot[] snapshot = new AutoSaveSnapshot[1];
+        try {
+            SwingUtilities.invokeAndWait(() -> {
+                if (getRoadMap() == null || xmlConfigFile == null || !isStale() || getEditCount() == autoSavedEditCount) return;
+                long startTime = System.currentTimeMillis();
+                ConfigSnapshot network = ConfigSnapshot.fromNetwork(RoadMap.networkNodesList, RoadMap.mapName, GameXML.configVersion, markerGroup);
+                snapshot[0] = new AutoSaveSnapshot(xmlConfigFile, network, getEditCount());
+                LOG.info("AutoSave snapshot of {} nodes taken in {} ms", network.store.numNodes, System.currentTimeMillis() - startTime);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (InvocationTargetException e) {
+            LOG.error("AutoSave snapshot failed", e.getCause());
+            return null;
+        }
+        return snapshot[0];
+    }
+
+    // Call when the snapshot has been written, the next autosave is skipped unless there are new edits
+
+    public static void autoSaveFinished(AutoSaveSnapshot snapshot) {
+        autoSavedEditCount = snapshot.editCount;
+    }
+
     public static void suspendAutoSaving() { bSuspendAutoSave = true; }
 
     public static void resumeAutoSaving() { bSuspendAutoSave = false; }
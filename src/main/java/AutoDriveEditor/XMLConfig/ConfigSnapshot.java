@@ -0,0 +1,299 @@
+package AutoDriveEditor.XMLConfig;
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.MarkerGroup;
+import AutoDriveEditor.RoadNetwork.NetworkStore;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static AutoDriveEditor.Utils.FileUtils.createTempFileFor;
+import static AutoDriveEditor.Utils.FileUtils.replaceFileAtomically;
+import static AutoDriveEditor.Utils.LoggerUtils.LOG;
+import static AutoDriveEditor.XMLConfig.EditorXML.bUseConfigSnapshots;
+
+//
+// A copy of a config's network in primitive columns. It is used to write a config from another thread
+// ( see fromNetwork() ), and as a compact binary cache of a loaded config, kept next to it as
+// "<config>.snapshot" so reopening a large config doesn't have to parse the XML again.
+//
+// The header stores the size, modified time and a CRC32C of the XML it was made from, a snapshot is only
+// used when all three still match. The XML stays the source of truth, it is what gets saved, a snapshot
+// that no longer matches is just ignored and replaced the next time the XML is loaded.
+//
+// Layout ( big endian ) :-
+//
+//   header   : magic, format version, config type, XML size, XML modified time, XML CRC32C
+//   config   : map name, config version, has <flags> tag
+//   nodes    : count, ids, x, y, z, flags
+//   outgoing : CSR start offsets, target count, target indexes
+//   incoming : CSR start offsets, target count, target indexes
+//   markers  : count, then node id, name, group for each
+//   groups   : count, then index, name for each ( route configs only )
+//
+// Strings are stored as a UTF-8 byte count ( -1 for null ) followed by the bytes.
+//
+
+public class ConfigSnapshot {
+
+    public static final byte GAME_CONFIG = 1;
+    public static final byte ROUTES_CONFIG = 2;
+
+    private static final int MAGIC = 0x41445353; // "ADSS"
+    private static final int FORMAT_VERSION = 1;
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 8 + 8 + 8;
+    private static final int HASH_BUFFER_SIZE = 1024 * 1024;
+
+    public final NetworkStore store;
+    public final String mapName;
+    public final int configVersion;
+    public final boolean hasFlagTag;
+    public final List<Marker> markers;
+    public final List<MarkerGroup> markerGroups;
+
+    public static class Marker {
+        public final int nodeId;
+        public final String name;
+        public final String group;
+
+        public Marker(int nodeId, String name, String group) {
+            this.nodeId = nodeId;
+            this.name = name;
+            this.group = group;
+        }
+    }
+
+    public ConfigSnapshot(NetworkStore store, String mapName, int configVersion, boolean hasFlagTag, List<Marker> markers, List<MarkerGroup> markerGroups) {
+        this.store = store;
+        this.mapName = mapName;
+        this.configVersion = configVersion;
+        this.hasFlagTag = hasFlagTag;
+        this.markers = markers;
+        this.markerGroups = (markerGroups != null) ? markerGroups : Collections.emptyList();
+    }
+
+    //
+    // Copies the live network and its markers into a snapshot, so it can be written out on another thread
+    // while the editing carries on. Must be called on the EDT, the only thread that changes the network.
+    //
+
+    public static ConfigSnapshot fromNetwork(List<MapNode> nodes, String mapName, int configVersion, List<MarkerGroup> markerGroups) {
+        NetworkStore store = NetworkStore.fromNetwork(nodes);
+        ArrayList<Marker> markers = new ArrayList<>();
+        for (int i = 0; i < store.numNodes; i++) {
+            MapNode mapNode = store.getNode(i);
+            if (mapNode.hasMapMarker()) markers.add(new Marker(mapNode.id, mapNode.getMarkerName(), mapNode.getMarkerGroup()));
+        }
+        return new ConfigSnapshot(store, mapName, configVersion, true, markers, new ArrayList<>(markerGroups));
+    }
+
+    public static File getSnapshotFile(File configFile) {
+        return new File(configFile.getAbsolutePath() + SNAPSHOT_EXTENSION);
+    }
+
+    //
+    // Returns the snapshot for the config, or null if snapshots are disabled, there isn't one, or it
+    // doesn't match the config any more. Any problem reading it is logged and treated as no snapshot.
+    //
+
+    public static ConfigSnapshot load(File configFile, byte configType) {
+        if (!bUseConfigSnapshots) return null;
+        File snapshotFile = getSnapshotFile(configFile);
+        if (!snapshotFile.isFile()) return null;
+
+        long startTime = System.currentTimeMillis();
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+            // the header is read without mapping the file, so a stale snapshot isn't left mapped and can
+            // be replaced straight away ( mapped files can't be replaced on Windows )
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0);
+            header.flip();
+            if (header.remaining() != HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION || header.get() != configType) {
+                LOG.info("Snapshot {} is not a snapshot of this type, ignoring it", snapshotFile.getName());
+                return null;
+            }
+            long configLength = header.getLong();
+            long configModified = header.getLong();
+            long configHash = header.getLong();
+            if (configLength != configFile.length() || configModified != configFile.lastModified() || configHash != hashFile(configFile)) {
+                LOG.info("Snapshot {} does not match {}, loading the XML", snapshotFile.getName(), configFile.getName());
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, channel.size() - HEADER_SIZE);
+            String mapName = getString(buffer);
+            int configVersion = buffer.getInt();
+            boolean hasFlagTag = buffer.get() != 0;
+
+            int numNodes = buffer.getInt();
+            int[] ids = getInts(buffer, numNodes);
+            double[] x = getDoubles(buffer, numNodes);
+            double[] y = getDoubles(buffer, numNodes);
+            double[] z = getDoubles(buffer, numNodes);
+            int[] flags = getInts(buffer, numNodes);
+            NetworkStore.AdjacencyBuilder outgoing = getAdjacency(buffer, numNodes);
+            NetworkStore.AdjacencyBuilder incoming = getAdjacency(buffer, numNodes);
+            NetworkStore store = new NetworkStore(ids, x, y, z, flags, outgoing, incoming);
+
+            int numMarkers = buffer.getInt();
+            ArrayList<Marker> markers = new ArrayList<>(numMarkers);
+            for (int i = 0; i < numMarkers; i++) {
+                int nodeId = buffer.getInt();
+                if (nodeId < 1 || nodeId > numNodes) throw new IOException("marker node " + nodeId + " is not in the network");
+                markers.add(new Marker(nodeId, getString(buffer), getString(buffer)));
+            }
+            int numGroups = buffer.getInt();
+            ArrayList<MarkerGroup> markerGroups = new ArrayList<>(numGroups);
+            for (int i = 0; i < numGroups; i++) {
+                markerGroups.add(new MarkerGroup(buffer.getInt(), getString(buffer)));
+            }
+
+            LOG.info("Loaded snapshot {} ( {} nodes ) in {} ms", snapshotFile.getName(), numNodes, System.currentTimeMillis() - startTime);
+            return new ConfigSnapshot(store, mapName, configVersion, hasFlagTag, markers, markerGroups);
+        } catch (IOException | RuntimeException e) {
+            LOG.info("Unable to use snapshot {} ( {} ), loading the XML", snapshotFile.getName(), e.toString());
+            return null;
+        }
+    }
+
+    //
+    // Writes the snapshot for a config that was just loaded from XML, failures are only logged as the
+    // snapshot is just a cache.
+    //
+
+    public static void save(File configFile, byte configType, ConfigSnapshot snapshot) {
+        if (!bUseConfigSnapshots) return;
+        File snapshotFile = getSnapshotFile(configFile);
+        long startTime = System.currentTimeMillis();
+        try {
+            File tempFile = createTempFileFor(snapshotFile);
+            try {
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 65536))) {
+                    output.writeInt(MAGIC);
+                    output.writeInt(FORMAT_VERSION);
+                    output.writeByte(configType);
+                    output.writeLong(configFile.length());
+                    output.writeLong(configFile.lastModified());
+                    output.writeLong(hashFile(configFile));
+
+                    putString(output, snapshot.mapName);
+                    output.writeInt(snapshot.configVersion);
+                    output.writeByte(snapshot.hasFlagTag ? 1 : 0);
+
+                    NetworkStore store = snapshot.store;
+                    output.writeInt(store.numNodes);
+                    for (int id : store.ids) output.writeInt(id);
+                    for (double value : store.x) output.writeDouble(value);
+                    for (double value : store.y) output.writeDouble(value);
+                    for (double value : store.z) output.writeDouble(value);
+                    for (int flag : store.flags) output.writeInt(flag);
+                    putAdjacency(output, store.outStart, store.outTargets);
+                    putAdjacency(output, store.inStart, store.inTargets);
+
+                    output.writeInt(snapshot.markers.size());
+                    for (Marker marker : snapshot.markers) {
+                        output.writeInt(marker.nodeId);
+                        putString(output, marker.name);
+                        putString(output, marker.group);
+                    }
+                    output.writeInt(snapshot.markerGroups.size());
+                    for (MarkerGroup group : snapshot.markerGroups) {
+                        output.writeInt(group.groupIndex);
+                        putString(output, group.groupName);
+                    }
+                }
+                replaceFileAtomically(tempFile, snapshotFile);
+            } finally {
+                if (tempFile.exists() && !tempFile.delete()) LOG.info("Failed to delete temporary file {}", tempFile);
+            }
+            LOG.info("Saved snapshot {} in {} ms", snapshotFile.getName(), System.currentTimeMillis() - startTime);
+        } catch (IOException e) {
+            LOG.info("Unable to save snapshot {} ( {} )", snapshotFile.getName(), e.toString());
+        }
+    }
+
+    // CRC32C of the whole file, it is read rather than mapped so the config can still be replaced when
+    // it is saved
+
+    static long hashFile(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            CRC32C crc = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+            return crc.getValue();
+        }
+    }
+
+    //
+    // internal
+    //
+
+    private static int[] getInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + (count * Integer.BYTES));
+        return values;
+    }
+
+    private static double[] getDoubles(ByteBuffer buffer, int count) {
+        double[] values = new double[count];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + (count * Double.BYTES));
+        return values;
+    }
+
+    // the offsets and targets are checked, so a damaged snapshot can't create a broken network
+
+    private static NetworkStore.AdjacencyBuilder getAdjacency(ByteBuffer buffer, int numNodes) throws IOException {
+        int[] start = getInts(buffer, numNodes + 1);
+        int[] targets = getInts(buffer, buffer.getInt());
+        NetworkStore.AdjacencyBuilder builder = new NetworkStore.AdjacencyBuilder(numNodes, targets.length);
+        if (start[0] != 0 || start[numNodes] != targets.length) throw new IOException("connection offsets are damaged");
+        for (int i = 0; i < numNodes; i++) {
+            if (start[i + 1] < start[i]) throw new IOException("connection offsets are damaged");
+            for (int c = start[i]; c < start[i + 1]; c++) {
+                if (targets[c] < 0 || targets[c] >= numNodes) throw new IOException("connection target " + targets[c] + " is not in the network");
+                builder.addConnection(targets[c]);
+            }
+            builder.endNode();
+        }
+        return builder;
+    }
+
+    private static void putAdjacency(DataOutputStream output, int[] start, int[] targets) throws IOException {
+        for (int offset : start) output.writeInt(offset);
+        output.writeInt(targets.length);
+        for (int target : targets) output.writeInt(target);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+}
@@ -54,6 +54,7 @@ public class EditorXML {
     //
 
     public static boolean bUseOnlineMapImages = true;
+    public static boolean bUseConfigSnapshots = true;
     public static boolean bMiddleMouseMove = false;
     public static boolean bLockToolbarPosition = false;
     public static boolean bInterpolateZoom = true;
@@ -67,6 +68,13 @@ public class EditorXML {
     public static int autoSaveInterval = 10;
     public static int maxAutoSaveSlots = 10;
 
+    //
+    // Undo history default options
+    //
+
+    // the estimated memory ( in MB ) the undo history can use before the oldest entries are dropped
+    public static int maxUndoHistoryMemory = 256;
+
     //
     // Curves tab default values
     //
@@ -143,6 +151,7 @@ public class EditorXML {
             autoSaveInterval = getIntegerValue(autoSaveInterval, rootElement, "AutoSave_Interval");
             maxAutoSaveSlots = getIntegerValue(maxAutoSaveSlots, rootElement, "AutoSave_Slots");
             autoSaveLastUsedSlot = getIntegerValue(autoSaveLastUsedSlot, rootElement, "AutoSave_Last_Used_Slot");
+            maxUndoHistoryMemory = getIntegerValue(maxUndoHistoryMemory, rootElement, "UndoHistory_Max_Memory");
             lastUsedLocation = getTextValue(lastUsedLocation, rootElement, "LastUsedLocation");
             if (autoSaveLastUsedSlot > maxAutoSaveSlots)  autoSaveLastUsedSlot = maxAutoSaveSlots;
             x = getIntegerValue(x, rootElement, "WindowX");
@@ -156,6 +165,7 @@ public class EditorXML {
 
 
             bUseOnlineMapImages = getBooleanValue(bUseOnlineMapImages, rootElement, "Check_Online_MapImages");
+            bUseConfigSnapshots = getBooleanValue(bUseConfigSnapshots, rootElement, "Config_Snapshot_Cache");
             bContinuousConnections = getBooleanValue(bContinuousConnections, rootElement, "Continuous_Connection");
             bMiddleMouseMove = getBooleanValue(bMiddleMouseMove, rootElement, "MiddleMouseMove");
             bLockToolbarPosition = getBooleanValue(bLockToolbarPosition, rootElement, "LockToolbar");
@@ -413,6 +423,7 @@ public class EditorXML {
             setIntegerValue("AutoSave_Interval", doc, autoSaveInterval, rootElement);
             setIntegerValue("AutoSave_Slots", doc, maxAutoSaveSlots, rootElement);
             setIntegerValue("AutoSave_Last_Used_Slot", doc, autoSaveLastUsedSlot, rootElement);
+            setIntegerValue("UndoHistory_Max_Memory", doc, maxUndoHistoryMemory, rootElement);
             setTextValue("LastUsedLocation", doc, lastUsedLocation, rootElement);
             setIntegerValue("WindowX", doc, editor.getBounds().x, rootElement);
             setIntegerValue("WindowY", doc, editor.getBounds().y, rootElement);
@@ -422,6 +433,7 @@ public class EditorXML {
             setIntegerValue( "MaxZoomLevel", doc, maxZoomLevel, rootElement);
             setFloatValue("NodeSizeScale", doc, nodeSize, rootElement);
             setBooleanValue("Check_Online_MapImages", doc, bUseOnlineMapImages, rootElement);
+            setBooleanValue("Config_Snapshot_Cache", doc, bUseConfigSnapshots, rootElement);
             setBooleanValue("Continuous_Connection", doc, bContinuousConnections, rootElement);
             setBooleanValue("MiddleMouseMove", doc, bMiddleMouseMove, rootElement);
             setBooleanValue("LockToolbar", doc, bLockToolbarPosition, rootElement);
@@ -2,7 +2,9 @@ package AutoDriveEditor.XMLConfig;
 
 import AutoDriveEditor.Managers.ChangeManager;
 import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.NetworkStore;
 import AutoDriveEditor.RoadNetwork.RoadMap;
+import AutoDriveEditor.Utils.Classes.LoadPipeline;
 import com.vdurmont.semver4j.Semver;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -14,6 +16,12 @@ import javax.swing.*;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
@@ -24,13 +32,18 @@ import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
-import java.io.File;
-import java.io.IOException;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
 
 import static AutoDriveEditor.AutoDriveEditor.*;
-import static AutoDriveEditor.Classes.MapImage.loadHeightMap;
-import static AutoDriveEditor.Classes.MapImage.loadMapImage;
+import static AutoDriveEditor.Classes.MapImage.applyHeightMap;
+import static AutoDriveEditor.Classes.MapImage.applyMapImage;
+import static AutoDriveEditor.Classes.MapImage.decodeHeightMap;
+import static AutoDriveEditor.Classes.MapImage.decodeMapImage;
 import static AutoDriveEditor.GUI.MapPanel.*;
 import static AutoDriveEditor.GUI.Menus.DebugMenu.Logging.LogConfigMenu.bDebugLogXMLInfo;
 import static AutoDriveEditor.GUI.Menus.EditorMenu.*;
@@ -41,14 +54,28 @@ import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
 import static AutoDriveEditor.Managers.ImportManager.setEditorUsingImportedImage;
 import static AutoDriveEditor.Managers.MultiSelectManager.clearMultiSelection;
 import static AutoDriveEditor.Managers.ScanManager.scanNetworkForOverlapNodes;
-import static AutoDriveEditor.RoadNetwork.RoadMap.createMapNode;
 import static AutoDriveEditor.RoadNetwork.RoadMap.setRoadMapNodes;
+import static AutoDriveEditor.Utils.FileUtils.createTempFileFor;
 import static AutoDriveEditor.Utils.FileUtils.removeExtension;
 import static AutoDriveEditor.Utils.FileUtils.removeFilenameFromString;
+import static AutoDriveEditor.Utils.FileUtils.replaceFileAtomically;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.Utils.XMLUtils.EntryTotalException;
-import static AutoDriveEditor.Utils.XMLUtils.getTextValue;
+import static AutoDriveEditor.Utils.XMLUtils.copyStartElement;
+import static AutoDriveEditor.Utils.XMLUtils.parseConnectionsColumn;
+import static AutoDriveEditor.Utils.XMLUtils.parseDoubleColumn;
+import static AutoDriveEditor.Utils.XMLUtils.parseIntColumn;
+import static AutoDriveEditor.Utils.XMLUtils.readElementText;
+import static AutoDriveEditor.Utils.XMLUtils.skipElement;
+import static AutoDriveEditor.Utils.XMLUtils.writeColumn;
+import static AutoDriveEditor.Utils.XMLUtils.writeConnections;
+import static AutoDriveEditor.Utils.XMLUtils.writeIndent;
+import static AutoDriveEditor.XMLConfig.AutoSave.AutoSaveSnapshot;
+import static AutoDriveEditor.XMLConfig.AutoSave.autoSaveFinished;
 import static AutoDriveEditor.XMLConfig.AutoSave.canAutoSave;
+import static AutoDriveEditor.XMLConfig.AutoSave.resumeAutoSaving;
+import static AutoDriveEditor.XMLConfig.AutoSave.suspendAutoSaving;
+import static AutoDriveEditor.XMLConfig.AutoSave.takeAutoSaveSnapshot;
 import static AutoDriveEditor.XMLConfig.EditorXML.checkStoredMapInfoFor;
 import static AutoDriveEditor.XMLConfig.EditorXML.maxAutoSaveSlots;
 import static java.lang.Thread.sleep;
@@ -63,19 +90,56 @@ public class GameXML {
     public static boolean canEditConfig = false;
     public static int configVersion = 0;
     public static int autoSaveLastUsedSlot = 1;
-    //private static ModifiedProgressMonitor progressMonitor;
+    private static boolean bLoadingConfig = false;
 
     public static void loadGameConfig(File fXmlFile) {
+        if (bLoadingConfig) {
+            LOG.info("config loadFile: {} ignored, a config is already loading", fXmlFile.getAbsolutePath());
+            return;
+        }
         LOG.info("config loadFile: {}", fXmlFile.getAbsolutePath());
 
+        // the config is loaded in the background, nothing in the editor changes until it is applied. The
+        // old config isn't auto saved while the load runs, it's resumed when the load has ended either way
+        bLoadingConfig = true;
+        suspendAutoSaving();
+        LoadPipeline pipeline = new LoadPipeline("Config Load");
+        pipeline.start(editor, getLocaleString("dialog_config_loading") + " " + fXmlFile.getName(),
+                () -> new GameXMLLoader(fXmlFile, pipeline).load(),
+                loader -> applyLoadedGameConfig(fXmlFile, loader),
+                GameXML::showLoadFailed,
+                () -> {
+                    bLoadingConfig = false;
+                    resumeAutoSaving();
+                });
+    }
+
+    private static void applyLoadedGameConfig(File fXmlFile, GameXMLLoader loader) {
         try {
-            RoadMap roadMap = loadGameXMLFile(fXmlFile);
-            if (roadMap != null) {
+            if (loader != null) {
+                if (!loader.isSupported) {
+                    JOptionPane.showConfirmDialog(editor, "" + getLocaleString("console_config_unsupported1") + "\n\n" + getLocaleString("console_config_unsupported2"), "AutoDrive", JOptionPane.DEFAULT_OPTION, JOptionPane.WARNING_MESSAGE);
+                    LOG.info("## {}",getLocaleString("console_config_unsupported1"));
+                    LOG.info("## {}",getLocaleString("console_config_unsupported2"));
+                } else {
+                    configVersion = loader.configVersion;
+                }
+                canEditConfig = loader.isSupported;
+                hasFlagTag = loader.hasFlagTag;
+
+                RoadMap roadMap = new RoadMap();
+                roadMap.addPropertyChangeListener(getRouteNodesTable());
+                setRoadMapNodes(roadMap, loader.nodes);
+                if (loader.mapName != null) {
+                    LOG.info(getLocaleString("console_config_load_end"));
+                    RoadMap.mapName = loader.mapName;
+                }
+
                 configType = CONFIG_SAVEGAME;
                 getMapPanel().setRoadMap(roadMap);
                 xmlConfigFile = fXmlFile;
-                loadMapImage(RoadMap.mapName);
-                loadHeightMap(RoadMap.mapName);
+                applyMapImage(RoadMap.mapName, loader.mapImage);
+                applyHeightMap(RoadMap.mapName, loader.heightMap);
                 checkStoredMapInfoFor(RoadMap.mapName);
                 LOG.info("Session UUID = {}", RoadMap.uuid);
                 updateWindowTitle();
@@ -100,6 +164,16 @@ public class GameXML {
                 JOptionPane.showMessageDialog(editor, getLocaleString("dialog_config_unknown"), "AutoDrive", JOptionPane.ERROR_MESSAGE);
             }
         } catch (Exception e) {
+            showLoadFailed(e);
+        }
+    }
+
+    private static void showLoadFailed(Exception e) {
+        if (e instanceof EntryTotalException) {
+            EntryTotalException entryException = (EntryTotalException) e;
+            LOG.info("## Exception during config load ## " + entryException.getErrorValue() + " total entries does not match the <id> total entries");
+            JOptionPane.showMessageDialog(editor,getLocaleString("dialog_config_load_failed") + "\n\n" + entryException.getErrorValue() + " " + getLocaleString(entryException.getErrorMessage()), "AutoDrive Editor", JOptionPane.ERROR_MESSAGE);
+        } else {
             LOG.error(e.getMessage(), e);
             JOptionPane.showMessageDialog(editor, getLocaleString("dialog_config_load_failed"), "AutoDrive", JOptionPane.ERROR_MESSAGE);
         }
@@ -139,7 +213,14 @@ public class GameXML {
             }
         }
 
-        String filename = removeExtension(xmlConfigFile.getAbsolutePath()) + "_autosave_" + autoSaveLastUsedSlot + ".xml";
+        // only the snapshot is taken on the EDT, the file is written here on the AutoSave thread
+        AutoSaveSnapshot snapshot = takeAutoSaveSnapshot();
+        if (snapshot == null) {
+            LOG.info("AutoSave skipped, no changes since the last save");
+            return;
+        }
+
+        String filename = removeExtension(snapshot.configFile.getAbsolutePath()) + "_autosave_" + autoSaveLastUsedSlot + ".xml";
         File file = new File(filename);
         try {
             if (file.exists()) {
@@ -149,506 +230,464 @@ public class GameXML {
                 if (!file.canWrite())
                     throw new IOException("File '" + file + "' cannot be written");
             }
-            saveGameConfig(filename, true, false);
+            LOG.info(getLocaleString("console_config_autosave_start"));
+            LOG.info("Saving config as {}", filename);
+            writeGameXMLFile(snapshot.configFile, file, snapshot.network);
+            LOG.info(getLocaleString("console_config_autosave_end"));
+            autoSaveFinished(snapshot);
             autoSaveLastUsedSlot++;
             if (autoSaveLastUsedSlot == maxAutoSaveSlots + 1 ) autoSaveLastUsedSlot = 1;
         }
-        catch(IOException ioEx) {
-            ioEx.printStackTrace();
+        catch(IOException | XMLStreamException ex) {
+            LOG.error("AutoSave failed", ex);
         }
     }
 
-    private static RoadMap loadGameXMLFile(File fXmlFile) throws ParserConfigurationException, IOException, SAXException, XPathExpressionException {
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-        Document doc = dBuilder.parse(fXmlFile);
-        doc.getDocumentElement().normalize();
+    //
+    // Loads a config on the threads of a LoadPipeline, without touching the editor, the result is
+    // applied by applyLoadedGameConfig() on the EDT.
+    //
+    // v1.05 Loading speed increase for large nodes networks ( 40,000+ nodes)
+    // original line was
+    //
+    // LinkedList<MapNode> nodes = new LinkedList<>();
+    //
+    // NOTE: search the web to learn about the difference between O(n) + O(1) access
+    //       and why the change has such a large effect
+    //
+    // Brief explanation..
+    //
+    // As LinkedList access is O(n), when adding large amounts of nodes and
+    // incoming/outgoing connections, the access speed decreases the more
+    // we add.
+    //
+    // An Arraylist does not suffer from this issue due to the pointers to the list
+    // being in memory and fast to access, we add everything to a ArrayList and
+    // when we add the list to the RoadMap network we cast it back to a LinkedList
+    //
+    // e.g. I have a test config with 75797 nodes and roughly 170,0000 incoming/outgoing connections
+    //
+    //      v1.04 takes 89.2 seconds to convert the XML into a usable network.
+    //
+    //      Changing two lines of code to initially create an ArrayList and then cast
+    //      it to a LinkedList has a massive effect
+    //
+    //      v1.05 takes 1.6 seconds to covert the same config to a usable network!!
+    //
+    // The config is read with a streaming (StAX) parser, each <waypoints> column is handed to a
+    // pipeline thread to be tokenized straight into the primitive arrays of a NetworkStore while the
+    // next one is read, so the file is never held in memory as a DOM or as String[] arrays.
+    //
+    // The map image and heightmap are decoded as soon as the <MapName> is read, vehicles.xml while the
+    // map nodes are created, so the load takes about as long as the slowest of them.
+    //
+    // If the config has an up to date ConfigSnapshot the XML isn't read at all, the network comes from
+    // the snapshot. After an XML load a new snapshot is written for the next time.
+    //
+
+    private static class GameXMLLoader {
+
+        private static final String[] WAYPOINT_COLUMNS = { "id", "x", "y", "z", "out", "incoming", "flags" };
+
+        private final File fXmlFile;
+        private final LoadPipeline pipeline;
+        private final LoadPipeline.Stage xmlStage;
+        private final HashMap<String, LoadPipeline.Stage> columnStages = new HashMap<>();
+        private final LoadPipeline.Stage mapImageStage;
+        private final LoadPipeline.Stage heightMapStage;
+        private final LoadPipeline.Stage vehiclesStage;
+        private final LoadPipeline.Stage nodesStage;
+
+        private Future<BufferedImage> mapImageFuture;
+        private Future<BufferedImage> heightMapFuture;
+
+        // the loaded config
+        private final ArrayList<NetworkStore> stores = new ArrayList<>();
+        private final ArrayList<ConfigSnapshot.Marker> markers = new ArrayList<>();
+        private final ArrayList<MapNode> nodes = new ArrayList<>();
+        private String mapName = null;
+        private boolean isSupported = true;
+        private int configVersion = GameXML.configVersion;
+        private boolean hasFlagTag = false;
+        private BufferedImage mapImage;
+        private BufferedImage heightMap;
+
+        private GameXMLLoader(File fXmlFile, LoadPipeline pipeline) {
+            this.fXmlFile = fXmlFile;
+            this.pipeline = pipeline;
+            xmlStage = pipeline.addStage("read XML", 4);
+            for (String column : WAYPOINT_COLUMNS) {
+                columnStages.put(column, pipeline.addStage("parse <" + column + ">", 0.5));
+            }
+            mapImageStage = pipeline.addStage("decode map image", 2);
+            heightMapStage = pipeline.addStage("decode heightmap", 2);
+            vehiclesStage = pipeline.addStage("read vehicles.xml", 0.5);
+            nodesStage = pipeline.addStage("create map nodes", 1);
+        }
 
-        LOG.info("----------------------------");
-        LOG.info("loadGameXMLFile Parsing {}", fXmlFile.getAbsolutePath());
+        // returns null if the file is not an AutoDrive config
 
-        if (!doc.getDocumentElement().getNodeName().equals("AutoDrive")) {
-            LOG.info("Not an AutoDrive Config");
-            return null;
-        }
+        private GameXMLLoader load() throws Exception {
+            LOG.info("----------------------------");
+            LOG.info("loadGameXMLFile Parsing {}", fXmlFile.getAbsolutePath());
 
-        if (getTextValue(null, doc.getDocumentElement(), "markerID") != null) {
-            JOptionPane.showConfirmDialog(editor, "" + getLocaleString("console_config_unsupported1") + "\n\n" + getLocaleString("console_config_unsupported2"), "AutoDrive", JOptionPane.DEFAULT_OPTION, JOptionPane.WARNING_MESSAGE);
-            LOG.info("## {}",getLocaleString("console_config_unsupported1"));
-            LOG.info("## {}",getLocaleString("console_config_unsupported2"));
-            canEditConfig = false;
-        } else {
-            String version = getTextValue(null, doc.getDocumentElement(), "version");
-            Semver configSemver = new Semver(version);
-
-            if (configSemver.getMajor() == 1 ) {
-                LOG.info("FS19 Config detected");
-                configVersion = FS19_CONFIG;
-            } else if (configSemver.getMajor() == 2) {
-                LOG.info("FS22 Config detected");
-                configVersion = FS22_CONFIG;
+            ConfigSnapshot snapshot = ConfigSnapshot.load(fXmlFile, ConfigSnapshot.GAME_CONFIG);
+            if (snapshot != null) {
+                readSnapshot(snapshot);
+                return this;
             }
-            LOG.info("{} '{}'", getLocaleString("console_config_version"), version);
-            canEditConfig = true;
-        }
-
-        // v1.05 Loading speed increase for large nodes networks ( 40,000+ nodes)
-        // original line was
-        //
-        // LinkedList<MapNode> nodes = new LinkedList<>();
-        //
-        // NOTE: search the web to learn about the difference between O(n) + O(1) access
-        //       and why the change has such a large effect
-        //
-        // Brief explanation..
-        //
-        // As LinkedList access is O(n), when adding large amounts of nodes and
-        // incoming/outgoing connections, the access speed decreases the more
-        // we add.
-        //
-        // An Arraylist does not suffer from this issue due to the pointers to the list
-        // being in memory and fast to access, we add everything to a ArrayList and
-        // when we add the list to the RoadMap network we cast it back to a LinkedList
-        //
-        // e.g. I have a test config with 75797 nodes and roughly 170,0000 incoming/outgoing connections
-        //
-        //      v1.04 takes 89.2 seconds to convert the XML into a usable network.
-        //
-        //      Changing two lines of code to initially create an ArrayList and then cast
-        //      it to a LinkedList has a massive effect
-        //
-        //      v1.05 takes 1.6 seconds to covert the same config to a usable network!!
-        //
 
-        try {
-            // get the XML <waypoint> element
-            NodeList nList = doc.getElementsByTagName("waypoints");
-            // create an arrayList to store all the map nodes
-            ArrayList<MapNode> nodes = new ArrayList<>();
-            //
-            for (int temp = 0; temp < nList.getLength(); temp++) {
-                LOG.info("----------------------------");
-                LOG.info("{} : {}", getLocaleString("console_root_node"), doc.getDocumentElement().getNodeName());
-                Node nNode = nList.item(temp);
-                LOG.info("Current Element <{}>", nNode.getNodeName());
-
-                if (nNode.getNodeType() == Node.ELEMENT_NODE) {
-                    Element eElement = (Element) nNode;
-
-                    NodeList nodeList = eElement.getElementsByTagName("id").item(0).getChildNodes();
-                    Node node = nodeList.item(0);
-                    if ( node !=null ) {
-                        String idString = node.getNodeValue();
-                        String[] ids = idString.split(",");
-                        LOG.info("----------------------------");
-                        LOG.info("Parsed {} <id> Entries", ids.length);
-                        LOG.info("## Checking all <id> entries for the correct numeric sequence");
-                        for (int i = 0; i <= ids.length - 1; i++) {
-                            if (Integer.parseInt(ids[i]) != i+1) LOG.info("## sequence error, <id> entry {} does not match the expected id of {}", i+1, ids[i] );
-                        }
-                        LOG.info("## Finished checking all ID's for the correct sequence");
-
-                        nodeList = eElement.getElementsByTagName("x").item(0).getChildNodes();
-                        node = nodeList.item(0);
-                        String xString = node.getNodeValue();
-                        String[] xValues = xString.split(",");
-                        LOG.info("Parsed {} <x> Entries", xValues.length);
-                        if (xValues.length != ids.length) throw new EntryTotalException("<x>", "dialog_config_load_failed_id_length");
-
-                        nodeList = eElement.getElementsByTagName("y").item(0).getChildNodes();
-                        node = nodeList.item(0);
-                        String yString = node.getNodeValue();
-                        String[] yValues = yString.split(",");
-                        LOG.info("Parsed {} <y> Entries", yValues.length);
-                        if (yValues.length != ids.length) throw new EntryTotalException("<y>", "dialog_config_load_failed_id_length");
-
-
-                        nodeList = eElement.getElementsByTagName("z").item(0).getChildNodes();
-                        node = nodeList.item(0);
-                        String zString = node.getNodeValue();
-                        String[] zValues = zString.split(",");
-                        LOG.info("Parsed {} <z> Entries", zValues.length);
-                        if (zValues.length != ids.length) throw new EntryTotalException("<z>", "dialog_config_load_failed_id_length");
-
-
-                        nodeList = eElement.getElementsByTagName("out").item(0).getChildNodes();
-                        node = nodeList.item(0);
-                        String outString = node.getNodeValue();
-                        String[] outValueArrays = outString.split(";");
-                        LOG.info("Parsed {} <out> Entries", outValueArrays.length);
-                        if (outValueArrays.length != ids.length) throw new EntryTotalException("<out>", "dialog_config_load_failed_id_length");
-
-
-
-                        nodeList = eElement.getElementsByTagName("incoming").item(0).getChildNodes();
-                        node = nodeList.item(0);
-                        String incomingString = node.getNodeValue();
-                        String[] incomingValueArrays = incomingString.split(";");
-                        LOG.info("Parsed {} <in> Entries", incomingValueArrays.length);
-                        if (incomingValueArrays.length != ids.length) throw new EntryTotalException("<in>", "dialog_config_load_failed_id_length");
-
-
-                        String[] flagsValue;
-                        if (eElement.getElementsByTagName("flags").item(0) != null ) {
-                            nodeList = eElement.getElementsByTagName("flags").item(0).getChildNodes();
-                            node = nodeList.item(0);
-                            String flagsString = node.getNodeValue();
-                            flagsValue = flagsString.split(",");
-                            LOG.info("Parsed {} <flags> Entries", flagsValue.length);
-                            hasFlagTag = true;
-                        } else {
-                            LOG.info("No <flags> Entries found, setting all to regular connections");
-                            flagsValue = new String[ids.length];
-                            Arrays.fill(flagsValue, "0");
-                            hasFlagTag = false;
-                        }
-                        LOG.info("----------------------------");
-
-                        LOG.info("Creating {} MapNodes", ids.length);
-                        for (int i=0; i<ids.length; i++) {
-                            int id = Integer.parseInt(ids[i]);
-                            double x = Double.parseDouble(xValues[i]);
-                            double y = Double.parseDouble(yValues[i]);
-                            double z = Double.parseDouble(zValues[i]);
-                            int flag = Integer.parseInt(flagsValue[i]);
-
-                            // is this a FS22 AutoDrive config
-                            if (configVersion == FS22_CONFIG) {
-                                // check if a nodes flag values is equal 2 or 4, this means it was autogenerated by AutoDrive from the map splines
-                                if (flag == 2 || flag == 4) {
-                                    // reset the flag to 0, the editor will just see it as a CONNECTION_REGULAR in checks
-                                    flag = 0;
-                                }
-                            }
+            XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+            try (InputStream inputStream = new BufferedInputStream(xmlStage.trackProgress(new FileInputStream(fXmlFile), fXmlFile.length()), 65536)) {
+                XMLStreamReader reader = inputFactory.createXMLStreamReader(inputStream);
+                try {
+                    if (!readGameXML(reader)) return null;
+                } finally {
+                    reader.close();
+                }
+            }
+            createNetwork();
 
-                            MapNode mapNode = createMapNode(id, x, y, z, flag, false, false);
-                            nodes.add(mapNode);
-                        }
-                        LOG.info("Finished creating all map nodes");
-
-                        LOG.info("Creating all incoming/outgoing connections");
-                        int conCount = 0;
-                        for (int i=0; i<ids.length; i++) {
-                            MapNode mapNode = nodes.get(i);
-                            String[] outNodes = outValueArrays[i].split(",");
-                            for (String outNode : outNodes) {
-                                if (Integer.parseInt(outNode) != -1) {
-                                    mapNode.outgoing.add(nodes.get(Integer.parseInt(outNode) - 1));
-                                    conCount++;
-                                }
-                            }
+            // unsupported configs are never snapshotted, they have to show the warning every time
+            if (isSupported && stores.size() == 1) {
+                pipeline.checkCancelled();
+                ConfigSnapshot.save(fXmlFile, ConfigSnapshot.GAME_CONFIG, new ConfigSnapshot(stores.get(0), mapName, configVersion, hasFlagTag, markers, null));
+            }
+            return this;
+        }
+
+        // the snapshot holds the network as it was after the last XML load, so only the map images and
+        // vehicles.xml are left to read
+
+        private void readSnapshot(ConfigSnapshot snapshot) throws Exception {
+            mapName = snapshot.mapName;
+            if (mapName != null) startImageDecoding();
+            configVersion = snapshot.configVersion;
+            hasFlagTag = snapshot.hasFlagTag;
+            LOG.info("{} {} ( from snapshot )", getLocaleString("console_config_version"), (configVersion == FS22_CONFIG) ? "FS22" : "FS19");
+            xmlStage.setProgress(1);
+            for (LoadPipeline.Stage stage : columnStages.values()) stage.setProgress(1);
+
+            stores.add(snapshot.store);
+            markers.addAll(snapshot.markers);
+            createNetwork();
+        }
+
+        private boolean readGameXML(XMLStreamReader reader) throws Exception {
+            // skip the prolog to the root element
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) break;
+            }
+            if (!reader.isStartElement() || !reader.getLocalName().equals("AutoDrive")) {
+                LOG.info("Not an AutoDrive Config");
+                return false;
+            }
+
+            StringBuilder text = new StringBuilder();
+            ArrayList<WaypointColumns> waypointsList = new ArrayList<>();
+            WaypointColumns waypoints = null;
+            boolean inMapMarker = false;
+            ArrayList<String> markerIds = new ArrayList<>();
+            ArrayList<String> markerNames = new ArrayList<>();
+            ArrayList<String> markerGroups = new ArrayList<>();
+            String version = null;
+            boolean hasMarkerID = false;
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    pipeline.checkCancelled();
+                    String elementName = reader.getLocalName();
+                    if (waypoints != null) {
+                        readWaypointsColumn(reader, elementName, waypoints);
+                    } else if (inMapMarker) {
+                        switch (elementName) {
+                            case "id":
+                                markerIds.add(readElementText(reader, text).toString());
+                                break;
+                            case "name":
+                                markerNames.add(readElementText(reader, text).toString());
+                                break;
+                            case "group":
+                                markerGroups.add(readElementText(reader, text).toString());
+                                break;
                         }
-                        LOG.info("Created {} outgoing connections", conCount);
-                        conCount = 0;
-                        for (int i=0; i<ids.length; i++) {
-                            MapNode mapNode = nodes.get(i);
-                            String[] incomingNodes = incomingValueArrays[i].split(",");
-                            for (String incomingNode : incomingNodes) {
-                                if (Integer.parseInt(incomingNode) != -1) {
-                                    mapNode.incoming.add(nodes.get(Integer.parseInt(incomingNode)-1));
-                                    conCount++;
+                    } else {
+                        switch (elementName) {
+                            case "waypoints":
+                                LOG.info("----------------------------");
+                                LOG.info("{} : {}", getLocaleString("console_root_node"), "AutoDrive");
+                                LOG.info("Current Element <{}>", elementName);
+                                waypoints = new WaypointColumns();
+                                break;
+                            case "mapmarker":
+                                inMapMarker = true;
+                                break;
+                            case "markerID":
+                                if (readElementText(reader, text).length() > 0) hasMarkerID = true;
+                                break;
+                            case "version":
+                                if (version == null) version = readElementText(reader, text).toString();
+                                break;
+                            case "MapName":
+                                if (mapName == null) {
+                                    mapName = readElementText(reader, text).toString();
+                                    startImageDecoding();
                                 }
-                            }
+                                break;
                         }
-                        LOG.info("Created {} incoming connections", conCount);
-                        LOG.info("----------------------------");
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String elementName = reader.getLocalName();
+                    if (waypoints != null && elementName.equals("waypoints")) {
+                        waypointsList.add(waypoints);
+                        waypoints = null;
+                    } else if (inMapMarker && elementName.equals("mapmarker")) {
+                        inMapMarker = false;
                     }
                 }
             }
+            xmlStage.setProgress(1);
 
-            // EXPERIMENTAL CODE
-            HashMap<Integer, List<Integer>> vehicleParkingMap = loadVehiclesXMLParking(fXmlFile);
-            LOG.info("---------------------------------");
-            // END EXPERIMENTAL CODE
+            if (hasMarkerID) {
+                isSupported = false;
+            } else {
+                Semver configSemver = new Semver(version);
+
+                if (configSemver.getMajor() == 1 ) {
+                    LOG.info("FS19 Config detected");
+                    configVersion = FS19_CONFIG;
+                } else if (configSemver.getMajor() == 2) {
+                    LOG.info("FS22 Config detected");
+                    configVersion = FS22_CONFIG;
+                }
+                LOG.info("{} '{}'", getLocaleString("console_config_version"), version);
+            }
 
-            NodeList markerList = doc.getElementsByTagName("mapmarker");
+            for (WaypointColumns columns : waypointsList) {
+                NetworkStore store = createWaypointStore(columns);
+                if (store != null) stores.add(store);
+            }
 
-            for (int temp = 0; temp < markerList.getLength(); temp++) {
-                Node markerNode = markerList.item(temp);
-                if (markerNode.getNodeType() == Node.ELEMENT_NODE) {
-                    Element eElement = (Element) markerNode;
+            for (int markerIndex = 0; markerIndex < markerIds.size(); markerIndex++ ) {
+                // AD 6.0.0.4 config fix for Node ID's being Long Format
+                float num = Float.parseFloat(markerIds.get(markerIndex));
+                markers.add(new ConfigSnapshot.Marker((int) num, markerNames.get(markerIndex), markerGroups.get(markerIndex)));
+            }
+            return true;
+        }
 
-                    NodeList idNodeList = eElement.getElementsByTagName("id");
-                    NodeList nameNodeList = eElement.getElementsByTagName("name");
-                    NodeList groupNodeList = eElement.getElementsByTagName("group");
+        // creates the MapNodes and markers from the stores, the same for a config read from the XML
+        // or from a snapshot
 
-                    LOG.info("Starting Creation of {} Markers", idNodeList.getLength());
+        private void createNetwork() throws Exception {
+            // EXPERIMENTAL CODE
+            Future<HashMap<Integer, List<Integer>>> vehicleParkingFuture = pipeline.submit(vehiclesStage, () -> loadVehiclesXMLParking(fXmlFile, configVersion));
+            // END EXPERIMENTAL CODE
 
-                    for (int markerIndex = 0; markerIndex<idNodeList.getLength(); markerIndex++ ) {
-                        Node node = idNodeList.item(markerIndex).getChildNodes().item(0);
-                        String markerNodeId = node.getNodeValue();
+            for (NetworkStore store : stores) {
+                pipeline.checkCancelled();
+                LOG.info("Creating {} MapNodes", store.numNodes);
+                nodes.addAll(Arrays.asList(store.createMapNodes()));
+                LOG.info("Finished creating all map nodes");
+                LOG.info("Created {} outgoing connections", store.getNumOutgoing());
+                LOG.info("Created {} incoming connections", store.getNumIncoming());
+                LOG.info("----------------------------");
+            }
+            nodesStage.setProgress(1);
 
-                        node = nameNodeList.item(markerIndex).getChildNodes().item(0);
-                        String markerName = node.getNodeValue();
+            // EXPERIMENTAL CODE
+            HashMap<Integer, List<Integer>> vehicleParkingMap = pipeline.join(vehicleParkingFuture);
+            LOG.info("---------------------------------");
+            // END EXPERIMENTAL CODE
 
-                        node = groupNodeList.item(markerIndex).getChildNodes().item(0);
-                        String markerGroup = node.getNodeValue();
+            LOG.info("Starting Creation of {} Markers", markers.size());
 
-                        // AD 6.0.0.4 config fix for Node ID's being Long Format
-                        float num = Float.parseFloat(markerNodeId);
-                        int id = (int) num;
+            for (int markerIndex = 0; markerIndex < markers.size(); markerIndex++ ) {
+                ConfigSnapshot.Marker marker = markers.get(markerIndex);
+                int id = marker.nodeId;
 
-                        // EXPERIMENTAL CODE
-                        // Add any vehicles using marker as parking destination
-                        Integer markerId = markerIndex + 1;
-                        List<Integer> markerVehiclesParked = vehicleParkingMap.get(markerId);
-                        // END EXPERIMENTAL CODE
+                // EXPERIMENTAL CODE
+                // Add any vehicles using marker as parking destination
+                Integer markerId = markerIndex + 1;
+                List<Integer> markerVehiclesParked = vehicleParkingMap.get(markerId);
+                // END EXPERIMENTAL CODE
 
-                        // add the marker info to the node
-                        MapNode mapNode = nodes.get(id - 1);
-                        mapNode.createMapMarker(markerName, markerGroup, markerId, markerVehiclesParked);
+                // add the marker info to the node
+                MapNode mapNode = nodes.get(id - 1);
+                mapNode.createMapMarker(marker.name, marker.group, markerId, markerVehiclesParked);
 
-                        if (bDebugLogXMLInfo) LOG.info("created marker - index {} ( ID {} ) , name '{}' , group '{}' , marker id {} , Parked Vehicles {}", id - 1, id, markerName, markerGroup, markerId, markerVehiclesParked);
-                        //if (bDebugLogConfigInfo) LOG.info("created marker - index {} ( ID {} ) , name {} , group {}", id-1, id, markerName, markerGroup);
-                    }
-                }
+                if (bDebugLogXMLInfo) LOG.info("created marker - index {} ( ID {} ) , name '{}' , group '{}' , marker id {} , Parked Vehicles {}", id - 1, id, marker.name, marker.group, markerId, markerVehiclesParked);
             }
 
             LOG.info("Finished creating all map markers");
             LOG.info("---------------------------------");
 
-            RoadMap roadMap = new RoadMap();
-            roadMap.addPropertyChangeListener(getRouteNodesTable());
-            setRoadMapNodes(roadMap, new LinkedList<>(nodes));
-
-            // check for MapName element
-
-            NodeList mapNameNode = doc.getElementsByTagName("MapName");
-            Element mapNameElement = (Element) mapNameNode.item(0);
-            if ( mapNameElement != null) {
-                NodeList fstNm = mapNameElement.getChildNodes();
-                String mapName = (fstNm.item(0)).getNodeValue();
-                LOG.info(getLocaleString("console_config_load_end"));
-                RoadMap.mapName = mapName;
-            }
-            return roadMap;
-        } catch (EntryTotalException e) {
-            LOG.info("## Exception during config load ## " + e.getErrorValue() + " total entries does not match the <id> total entries");
-            JOptionPane.showMessageDialog(editor,getLocaleString("dialog_config_load_failed") + "\n\n" + e.getErrorValue() + " " + getLocaleString(e.getErrorMessage()), "AutoDrive Editor", JOptionPane.ERROR_MESSAGE);
-            return null;
+            mapImage = joinImage(mapImageFuture);
+            heightMap = joinImage(heightMapFuture);
         }
-    }
-
-    private static void saveGameXMLFile(File file, String newName, boolean isAutoSave, boolean isBackup) throws ParserConfigurationException, IOException, SAXException, TransformerException, XPathExpressionException {
-
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-        Document doc = docBuilder.parse(file);
-        Node AutoDrive = doc.getFirstChild();
-        Node waypoints = doc.getElementsByTagName("waypoints").item(0);
-        int totalMarkers = 0;
-
-        // If no <flags> tag was detected on config load, create it
 
-        if (!hasFlagTag) {
-            Element flagTag = doc.createElement("flags");
-            waypoints.appendChild(flagTag);
+        private void startImageDecoding() {
+            String imageMapName = mapName;
+            mapImageFuture = pipeline.submit(mapImageStage, () -> decodeMapImage(imageMapName));
+            heightMapFuture = pipeline.submit(heightMapStage, () -> decodeHeightMap(imageMapName, fXmlFile));
         }
 
-        // loop the staff child node
+        // a missing or broken image doesn't stop the config loading, it is reported when it is applied
 
-        NodeList list = waypoints.getChildNodes();
+        private BufferedImage joinImage(Future<BufferedImage> imageFuture) {
+            if (imageFuture == null) return null;
+            try {
+                return pipeline.join(imageFuture);
+            } catch (CancellationException e) {
+                throw e;
+            } catch (Exception e) {
+                LOG.error("Failed to decode image", e);
+                return null;
+            }
+        }
 
-        for (int i = 0; i < list.getLength(); i++) {
-            Node waypointNode = list.item(i);
+        // The columns are handed to the pipeline as soon as they are read, each with its own buffer
 
-            if ("id".equals(waypointNode.getNodeName())) {
-                StringBuilder ids = new StringBuilder();
-                for (Iterator<MapNode> idIterator = RoadMap.networkNodesList.iterator(); idIterator.hasNext();) {
-                    MapNode node = idIterator.next();
-                    String ID = String.valueOf(node.id);
-                    if (idIterator.hasNext()) ID += ",";
-                    ids.append(ID);
-                    // check if each mapNode has a mapMarker and increment totalMarkers if it has one
-                    // NOTE: TotalMarkers is used later on in creating the map markers entries.
-                    if (node.hasMapMarker()) totalMarkers++;
-                }
-                waypointNode.setTextContent(ids.toString());
+        private void readWaypointsColumn(XMLStreamReader reader, String elementName, WaypointColumns columns) throws XMLStreamException {
+            LoadPipeline.Stage stage = columnStages.get(elementName);
+            if (stage == null) {
+                readElementText(reader, new StringBuilder());
+                return;
             }
-
-            if ("x".equals(waypointNode.getNodeName())) {
-                StringBuilder xPositions = new StringBuilder();
-                for (Iterator<MapNode> xIterator = RoadMap.networkNodesList.iterator(); xIterator.hasNext();) {
-                    MapNode node = xIterator.next();
-                    String ID = String.valueOf(node.x);
-                    if (xIterator.hasNext()) ID += ",";
-                    xPositions.append(ID);
-                }
-                waypointNode.setTextContent(xPositions.toString());
+            StringBuilder text = readElementText(reader, new StringBuilder());
+            switch (elementName) {
+                case "id":
+                    columns.ids = pipeline.submit(stage, () -> parseIntColumn(text, ','));
+                    break;
+                case "x":
+                    columns.x = pipeline.submit(stage, () -> parseDoubleColumn(text, ',', 3));
+                    break;
+                case "y":
+                    columns.y = pipeline.submit(stage, () -> parseDoubleColumn(text, ',', 3));
+                    break;
+                case "z":
+                    columns.z = pipeline.submit(stage, () -> parseDoubleColumn(text, ',', 3));
+                    break;
+                case "out":
+                    columns.outgoing = pipeline.submit(stage, () -> parseConnectionsColumn(text));
+                    break;
+                case "incoming":
+                    columns.incoming = pipeline.submit(stage, () -> parseConnectionsColumn(text));
+                    break;
+                case "flags":
+                    columns.flags = pipeline.submit(stage, () -> parseIntColumn(text, ','));
+                    break;
             }
+        }
 
-            if ("y".equals(waypointNode.getNodeName())) {
-                StringBuilder yPositions = new StringBuilder();
-                for (Iterator<MapNode> yIterator = RoadMap.networkNodesList.iterator(); yIterator.hasNext();) {
-                    MapNode node = yIterator.next();
-                    String ID = String.valueOf(node.y);
-                    if (yIterator.hasNext()) ID += ",";
-                    yPositions.append(ID);
-                }
-                waypointNode.setTextContent(yPositions.toString());
-            }
+        private NetworkStore createWaypointStore(WaypointColumns columns) throws Exception {
+            int[] ids = join(columns.ids);
+            if (ids == null || ids.length == 0) return null;
 
-            if ("z".equals(waypointNode.getNodeName())) {
-                StringBuilder zPositions = new StringBuilder();
-                for (Iterator<MapNode> zIterator = RoadMap.networkNodesList.iterator(); zIterator.hasNext();) {
-                    MapNode node = zIterator.next();
-                    String ID = String.valueOf(node.z);
-                    if (zIterator.hasNext()) ID += ",";
-                    zPositions.append(ID);
-                }
-                waypointNode.setTextContent(zPositions.toString());
+            LOG.info("----------------------------");
+            LOG.info("Parsed {} <id> Entries", ids.length);
+            LOG.info("## Checking all <id> entries for the correct numeric sequence");
+            for (int i = 0; i <= ids.length - 1; i++) {
+                if (ids[i] != i+1) LOG.info("## sequence error, <id> entry {} does not match the expected id of {}", i+1, ids[i] );
             }
-
-            if ("incoming".equals(waypointNode.getNodeName())) {
-                StringBuilder incomingString = new StringBuilder();
-                for (Iterator<MapNode> inIterator = RoadMap.networkNodesList.iterator(); inIterator.hasNext();) {
-                    MapNode node = inIterator.next();
-                    StringBuilder nodeIncomingString = new StringBuilder();
-                    for (Iterator<MapNode> iter = node.incoming.iterator(); iter.hasNext();) {
-                        MapNode n = iter.next();
-                        String ID = String.valueOf(n.id);
-                        if (iter.hasNext()) ID += ",";
-                        nodeIncomingString.append(ID);
-                    }
-                    if (nodeIncomingString.toString().isEmpty()) {
-                        nodeIncomingString = new StringBuilder("-1");
-                    }
-                    incomingString.append(nodeIncomingString);
-                    if (inIterator.hasNext()) incomingString.append(";");
-                }
-                waypointNode.setTextContent(incomingString.toString());
+            LOG.info("## Finished checking all ID's for the correct sequence");
+
+            double[] x = join(columns.x);
+            checkColumnLength("<x>", (x != null) ? x.length : 0, ids.length);
+            double[] y = join(columns.y);
+            checkColumnLength("<y>", (y != null) ? y.length : 0, ids.length);
+            double[] z = join(columns.z);
+            checkColumnLength("<z>", (z != null) ? z.length : 0, ids.length);
+            NetworkStore.AdjacencyBuilder outgoing = join(columns.outgoing);
+            checkColumnLength("<out>", (outgoing != null) ? outgoing.getNumNodes() : 0, ids.length);
+            NetworkStore.AdjacencyBuilder incoming = join(columns.incoming);
+            checkColumnLength("<in>", (incoming != null) ? incoming.getNumNodes() : 0, ids.length);
+
+            int[] flags = join(columns.flags);
+            if (flags != null) {
+                checkColumnLength("<flags>", flags.length, ids.length);
+                hasFlagTag = true;
+            } else {
+                LOG.info("No <flags> Entries found, setting all to regular connections");
+                flags = new int[ids.length];
+                hasFlagTag = false;
             }
-
-            if ("out".equals(waypointNode.getNodeName())) {
-                StringBuilder outgoingString = new StringBuilder();
-                for (Iterator<MapNode> outIterator = RoadMap.networkNodesList.iterator(); outIterator.hasNext();) {
-                    MapNode node = outIterator.next();
-                    StringBuilder nodeOutgoingString = new StringBuilder();
-                    for (Iterator<MapNode> outgoingIterator = node.outgoing.iterator(); outgoingIterator.hasNext();) {
-                        MapNode n = outgoingIterator.next();
-                        String ID = String.valueOf(n.id);
-                        if (outgoingIterator.hasNext()) ID += ",";
-                        nodeOutgoingString.append(ID);
-                    }
-                    if (nodeOutgoingString.toString().isEmpty()) {
-                        nodeOutgoingString = new StringBuilder("-1");
+            LOG.info("----------------------------");
+
+            // is this a FS22 AutoDrive config
+            if (configVersion == FS22_CONFIG) {
+                for (int i = 0; i < flags.length; i++) {
+                    // check if a nodes flag values is equal 2 or 4, this means it was autogenerated by AutoDrive from the map splines
+                    if (flags[i] == 2 || flags[i] == 4) {
+                        // reset the flag to 0, the editor will just see it as a CONNECTION_REGULAR in checks
+                        flags[i] = 0;
                     }
-                    outgoingString.append(nodeOutgoingString);
-                    if (outIterator.hasNext()) outgoingString.append(";");
                 }
-                waypointNode.setTextContent(outgoingString.toString());
             }
 
-            if ("flags".equals(waypointNode.getNodeName())) {
-                StringBuilder flags = new StringBuilder();
-                for (Iterator<MapNode> flagIterator = RoadMap.networkNodesList.iterator(); flagIterator.hasNext();) {
-                    MapNode node = flagIterator.next();
-                    String ID = String.valueOf(node.flag);
-                    if (flagIterator.hasNext()) ID += ",";
-                    flags.append(ID);
-                }
-                waypointNode.setTextContent(flags.toString());
-            }
+            return new NetworkStore(ids, x, y, z, flags, outgoing, incoming);
         }
 
-        // remove all the existing map markers, so we can save an upto date list
-
-        for (int markerIndex = 1; markerIndex < totalMarkers + 100; markerIndex++) {
-            Element element = (Element) doc.getElementsByTagName("mm" + (markerIndex)).item(0);
-            if (element != null) {
-                Element parent = (Element) element.getParentNode();
-                while (parent.hasChildNodes())
-                    parent.removeChild(parent.getFirstChild());
-            }
+        private <T> T join(Future<T> future) throws Exception {
+            return (future != null) ? pipeline.join(future) : null;
         }
+    }
 
-        // Check if the mapmarker key exists in the XML, if it doesn't exist and totalMarkers > 1
-        // we need to create the <mapmarker> key or else we will get an exception thrown..
-
-        NodeList testWaypoints = doc.getElementsByTagName("mapmarker");
-
-        if (totalMarkers > 0 && testWaypoints.getLength() == 0 ) {
-            LOG.info("{}", getLocaleString("console_markers_new"));
-            Element test = doc.createElement("mapmarker");
-            AutoDrive.appendChild(test);
-        }
-
-        NodeList markerList = doc.getElementsByTagName("mapmarker");
-        Node markerNode = markerList.item(0);
-
-        // EXPERIMENTAL CODE
-        HashMap<Integer, Integer> parkDestinations = new HashMap<>();
-        // END EXPERIMENTAL CODE
+    //
+    // The columns of one <waypoints> element, each one is parsed on the pipeline as soon as it is read
+    //
+
+    private static class WaypointColumns {
+        Future<int[]> ids;
+        Future<double[]> x;
+        Future<double[]> y;
+        Future<double[]> z;
+        Future<int[]> flags;
+        Future<NetworkStore.AdjacencyBuilder> outgoing;
+        Future<NetworkStore.AdjacencyBuilder> incoming;
+    }
 
-        int mapMarkerCount = 1;
-        for (MapNode mapNode : RoadMap.networkNodesList) {
-            if (mapNode.hasMapMarker()) {
-                Element newMarkerElement = doc.createElement("mm" + mapMarkerCount);
+    private static void checkColumnLength(String column, int numEntries, int numIds) throws EntryTotalException {
+        LOG.info("Parsed {} {} Entries", numEntries, column);
+        if (numEntries != numIds) throw new EntryTotalException(column, "dialog_config_load_failed_id_length");
+    }
 
-                Element markerID = doc.createElement("id");
-                markerID.appendChild(doc.createTextNode("" + mapNode.id));
-                newMarkerElement.appendChild(markerID);
+    //
+    // The config is saved by streaming the original file through to a temporary file, everything the
+    // editor does not own is copied as it is, the <waypoints> columns and the <mapmarker> entries are
+    // written straight from a copy of the network. The temporary file then replaces the target, so a
+    // failed save leaves the old file untouched.
+    //
 
-                Element markerName = doc.createElement("name");
-                markerName.appendChild(doc.createTextNode(mapNode.getMarkerName()));
-                newMarkerElement.appendChild(markerName);
+    private static final String[] SAVED_WAYPOINT_COLUMNS = { "id", "x", "y", "z", "out", "incoming", "flags" };
 
-                Element markerGroup = doc.createElement("group");
-                markerGroup.appendChild(doc.createTextNode(mapNode.getMarkerGroup()));
-                newMarkerElement.appendChild(markerGroup);
+    private static void saveGameXMLFile(File file, String newName, boolean isAutoSave, boolean isBackup) throws ParserConfigurationException, IOException, SAXException, TransformerException, XPathExpressionException, XMLStreamException {
 
-                // EXPERIMENTAL CODE
-                // store maker id & vehicle ID for parkDestination in vehicles.xml
-                if (mapNode.isParkDestination()) {
-                    List<Integer> parkedVehiclesList = mapNode.getParkedVehiclesList();
-                    // create entry for each vehicle
-                    for (Integer vehicleId : parkedVehiclesList) {
-                        parkDestinations.put(vehicleId, mapMarkerCount);
-                    }
-                }
-                // END EXPERIMENTAL CODE
+        // take a copy of the network into primitive columns, all the <waypoints> entries and map markers
+        // are written from it
 
-                markerNode.appendChild(newMarkerElement);
-                mapMarkerCount += 1;
-            }
+        ConfigSnapshot snapshot = ConfigSnapshot.fromNetwork(RoadMap.networkNodesList, RoadMap.mapName, configVersion, Collections.emptyList());
 
+        File saveFile;
+        if (newName == null) {
+            saveFile = xmlConfigFile;
+        } else {
+            saveFile = new File(newName);
+            LOG.info("Saving config as {}",newName);
         }
 
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        Transformer transformer = transformerFactory.newTransformer();
-        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-
-        DOMSource source = new DOMSource(doc);
-
-        // Clean all the empty whitespaces from XML before save
+        // EXPERIMENTAL CODE
+        HashMap<Integer, Integer> parkDestinations = getParkDestinations(snapshot.store);
+        // END EXPERIMENTAL CODE
 
-        XPath xp = XPathFactory.newInstance().newXPath();
-        NodeList nl = (NodeList) xp.evaluate("//text()[normalize-space(.)='']", doc, XPathConstants.NODESET);
+        writeGameXMLFile(file, saveFile, snapshot);
 
-        for (int i=0; i < nl.getLength(); ++i) {
-            Node node = nl.item(i);
-            node.getParentNode().removeChild(node);
+        if (newName != null && !isAutoSave && !isBackup) {
+            xmlConfigFile = saveFile;
+            editor.setTitle(createWindowTitleString());
         }
 
-        // write the content into xml file
-
-        StreamResult result;
-
-        if (newName == null) {
-            result = new StreamResult(xmlConfigFile);
-        } else {
-            File newFile = new File(newName);
-            LOG.info("Saving config as {}",newName);
-            result = new StreamResult(newFile);
-            if (!isAutoSave && !isBackup) {
-                xmlConfigFile = newFile;
-                editor.setTitle(createWindowTitleString());
-            }
-        }
-        transformer.transform(source, result);
-
         if (isAutoSave) {
             LOG.info(getLocaleString("console_config_autosave_end"));
         } else if (isBackup) {
@@ -667,6 +706,210 @@ public class GameXML {
         // END EXPERIMENTAL CODE
     }
 
+    //
+    // Writes the snapshot to saveFile through a temporary file, everything the editor doesn't own is copied
+    // from the config file. Only the snapshot is used, so it can run on any thread.
+    //
+
+    private static void writeGameXMLFile(File file, File saveFile, ConfigSnapshot snapshot) throws IOException, XMLStreamException {
+        File tempFile = createTempFileFor(saveFile);
+        try {
+            try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file), 65536);
+                 Writer outputWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8), 65536)) {
+                XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(inputStream);
+                outputWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+                XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputWriter);
+                try {
+                    copyGameXML(reader, writer, snapshot.store, snapshot.markers);
+                    writer.flush();
+                } finally {
+                    writer.close();
+                    reader.close();
+                }
+            }
+            replaceFileAtomically(tempFile, saveFile);
+        } finally {
+            if (tempFile.exists() && !tempFile.delete()) LOG.info("Failed to delete temporary file {}", tempFile);
+        }
+    }
+
+    // EXPERIMENTAL CODE
+    // The vehicles parked at each marker, keyed by vehicle ID, with the number the marker gets in the saved
+    // config ( markers are written in node order, numbered from 1 )
+
+    private static HashMap<Integer, Integer> getParkDestinations(NetworkStore store) {
+        HashMap<Integer, Integer> parkDestinations = new HashMap<>();
+        int mapMarkerCount = 1;
+        for (int i = 0; i < store.numNodes; i++) {
+            MapNode mapNode = store.getNode(i);
+            if (!mapNode.hasMapMarker()) continue;
+            if (mapNode.isParkDestination()) {
+                // create entry for each vehicle
+                for (Integer vehicleId : mapNode.getParkedVehiclesList()) {
+                    parkDestinations.put(vehicleId, mapMarkerCount);
+                }
+            }
+            mapMarkerCount += 1;
+        }
+        return parkDestinations;
+    }
+    // END EXPERIMENTAL CODE
+
+    // Copies every event from the reader to the writer, except the parts of the config the editor owns.
+    // Whitespace is held back until the next event, so elements the original file didn't have ( <flags>
+    // or <mapmarker> ) can be added before a closing tag with the same indentation as their siblings.
+
+    private static void copyGameXML(XMLStreamReader reader, XMLStreamWriter writer, NetworkStore store, List<ConfigSnapshot.Marker> markers) throws XMLStreamException {
+        StringBuilder pendingWhitespace = new StringBuilder();
+        HashSet<String> writtenColumns = new HashSet<>();
+        int depth = 0;
+        int waypointsDepth = -1;
+        boolean waypointsDone = false;
+        boolean markersWritten = false;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    String elementName = reader.getLocalName();
+                    if (waypointsDepth != -1 && depth == waypointsDepth + 1 && Arrays.asList(SAVED_WAYPOINT_COLUMNS).contains(elementName)) {
+                        // replace the column contents
+                        writePending(writer, pendingWhitespace);
+                        copyStartElement(reader, writer);
+                        skipElement(reader);
+                        writeWaypointColumn(writer, elementName, store);
+                        writer.writeEndElement();
+                        writtenColumns.add(elementName);
+                    } else if (!markersWritten && elementName.equals("mapmarker")) {
+                        // replace all the existing map markers with an upto date list
+                        writePending(writer, pendingWhitespace);
+                        skipElement(reader);
+                        writeMapMarkers(writer, depth, markers);
+                        markersWritten = true;
+                    } else {
+                        writePending(writer, pendingWhitespace);
+                        copyStartElement(reader, writer);
+                        if (!waypointsDone && waypointsDepth == -1 && elementName.equals("waypoints")) waypointsDepth = depth;
+                        depth++;
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    if (depth == waypointsDepth) {
+                        // If no <flags> tag was detected on config load, create it
+                        for (String column : SAVED_WAYPOINT_COLUMNS) {
+                            if (!writtenColumns.contains(column)) {
+                                writeIndent(writer, depth + 1);
+                                writer.writeStartElement(column);
+                                writeWaypointColumn(writer, column, store);
+                                writer.writeEndElement();
+                            }
+                        }
+                        waypointsDepth = -1;
+                        waypointsDone = true;
+                    } else if (depth == 0 && !markersWritten && !markers.isEmpty()) {
+                        // the mapmarker key doesn't exist in the XML yet, create it
+                        LOG.info("{}", getLocaleString("console_markers_new"));
+                        writeIndent(writer, 1);
+                        writeMapMarkers(writer, 1, markers);
+                        markersWritten = true;
+                    }
+                    writePending(writer, pendingWhitespace);
+                    writer.writeEndElement();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                    if (reader.isWhiteSpace()) {
+                        pendingWhitespace.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    } else {
+                        writePending(writer, pendingWhitespace);
+                        writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+                case XMLStreamConstants.CDATA:
+                    writePending(writer, pendingWhitespace);
+                    writer.writeCData(reader.getText());
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    writePending(writer, pendingWhitespace);
+                    writer.writeComment(reader.getText());
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    writePending(writer, pendingWhitespace);
+                    writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+                    break;
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    writePending(writer, pendingWhitespace);
+                    writer.writeEntityRef(reader.getLocalName());
+                    break;
+                case XMLStreamConstants.DTD:
+                    writer.writeDTD(reader.getText());
+                    break;
+            }
+        }
+        writePending(writer, pendingWhitespace);
+        writer.writeEndDocument();
+    }
+
+    private static void writePending(XMLStreamWriter writer, StringBuilder pendingWhitespace) throws XMLStreamException {
+        if (pendingWhitespace.length() > 0) {
+            writer.writeCharacters(pendingWhitespace.toString());
+            pendingWhitespace.setLength(0);
+        }
+    }
+
+    private static void writeWaypointColumn(XMLStreamWriter writer, String column, NetworkStore store) throws XMLStreamException {
+        switch (column) {
+            case "id":
+                writeColumn(writer, store.ids, ',');
+                break;
+            case "x":
+                writeColumn(writer, store.x, ',');
+                break;
+            case "y":
+                writeColumn(writer, store.y, ',');
+                break;
+            case "z":
+                writeColumn(writer, store.z, ',');
+                break;
+            case "out":
+                writeConnections(writer, store.outStart, store.outTargets, store.ids);
+                break;
+            case "incoming":
+                writeConnections(writer, store.inStart, store.inTargets, store.ids);
+                break;
+            case "flags":
+                writeColumn(writer, store.flags, ',');
+                break;
+        }
+    }
+
+    private static void writeMapMarkers(XMLStreamWriter writer, int depth, List<ConfigSnapshot.Marker> markers) throws XMLStreamException {
+        writer.writeStartElement("mapmarker");
+        int mapMarkerCount = 1;
+        for (ConfigSnapshot.Marker marker : markers) {
+            writeIndent(writer, depth + 1);
+            writer.writeStartElement("mm" + mapMarkerCount);
+            writeIndent(writer, depth + 2);
+            writer.writeStartElement("id");
+            writer.writeCharacters(String.valueOf(marker.nodeId));
+            writer.writeEndElement();
+            writeIndent(writer, depth + 2);
+            writer.writeStartElement("name");
+            writer.writeCharacters(Objects.toString(marker.name, ""));
+            writer.writeEndElement();
+            writeIndent(writer, depth + 2);
+            writer.writeStartElement("group");
+            writer.writeCharacters(Objects.toString(marker.group, ""));
+            writer.writeEndElement();
+            writeIndent(writer, depth + 1);
+            writer.writeEndElement();
+            mapMarkerCount += 1;
+        }
+        if (!markers.isEmpty()) writeIndent(writer, depth);
+        writer.writeEndElement();
+    }
+
     // EXPERIMENTAL CODE
     /**
      * Reads the vehicles.xml file from the same location as the configuration XML and returns a HashMap with the
@@ -674,13 +917,14 @@ public class GameXML {
      * the vehicle ID configured to use this parking destination.
      *
      * @param gameXmlFile AutoDrive configuration XML file
+     * @param configVersion FS19_CONFIG or FS22_CONFIG, the version of the config being loaded
      * @return HashMap with parkDestination as key and a list Vehicle IDs as value
      * @throws ParserConfigurationException XML Parser Exceptions
      * @throws IOException                  (XML) File I/O exception
      * @throws SAXException                 SAX error or warning
      * @throws XPathExpressionException     Error in XPath expression
      */
-    private static HashMap<Integer, List<Integer>> loadVehiclesXMLParking(File gameXmlFile) throws ParserConfigurationException, IOException, SAXException, XPathExpressionException {
+    private static HashMap<Integer, List<Integer>> loadVehiclesXMLParking(File gameXmlFile, int configVersion) throws ParserConfigurationException, IOException, SAXException, XPathExpressionException {
         String methodLogPrefix = "Load Parking Destinations - ";
 
         File vehicleXMLPath = new File(removeFilenameFromString(gameXmlFile.toString()) + "vehicles.xml");
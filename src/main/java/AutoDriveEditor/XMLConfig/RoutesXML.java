@@ -3,6 +3,7 @@ package AutoDriveEditor.XMLConfig;
 import AutoDriveEditor.Managers.ChangeManager;
 import AutoDriveEditor.RoadNetwork.MapNode;
 import AutoDriveEditor.RoadNetwork.MarkerGroup;
+import AutoDriveEditor.RoadNetwork.NetworkStore;
 import AutoDriveEditor.RoadNetwork.RoadMap;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -23,7 +24,7 @@ import javax.xml.transform.stream.StreamResult;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Objects;
 
@@ -42,7 +43,15 @@ import static AutoDriveEditor.Managers.ScanManager.scanNetworkForOverlapNodes;
 import static AutoDriveEditor.RoadNetwork.RoadMap.setRoadMapNodes;
 import static AutoDriveEditor.Utils.FileUtils.removeExtension;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
+import static AutoDriveEditor.Utils.XMLUtils.getColumnString;
+import static AutoDriveEditor.Utils.XMLUtils.getConnectionsString;
+import static AutoDriveEditor.Utils.XMLUtils.parseConnectionsColumn;
+import static AutoDriveEditor.Utils.XMLUtils.parseDoubleColumn;
+import static AutoDriveEditor.Utils.XMLUtils.parseIntColumn;
+import static AutoDriveEditor.XMLConfig.AutoSave.AutoSaveSnapshot;
+import static AutoDriveEditor.XMLConfig.AutoSave.autoSaveFinished;
 import static AutoDriveEditor.XMLConfig.AutoSave.canAutoSave;
+import static AutoDriveEditor.XMLConfig.AutoSave.takeAutoSaveSnapshot;
 import static AutoDriveEditor.XMLConfig.AutoSave.resumeAutoSaving;
 import static AutoDriveEditor.XMLConfig.EditorXML.checkStoredMapInfoFor;
 import static AutoDriveEditor.XMLConfig.EditorXML.maxAutoSaveSlots;
@@ -141,7 +150,23 @@ public class RoutesXML {
         try
         {
             if (xmlConfigFile == null) return;
-            saveRouteXML(xmlConfigFile, newName, isAutoSave, isBackup);
+            // take a copy of the network into primitive columns, everything is written from it
+            ConfigSnapshot snapshot = ConfigSnapshot.fromNetwork(RoadMap.networkNodesList, RoadMap.mapName, 0, markerGroup);
+            File saveFile = (newName == null) ? xmlConfigFile : new File(newName);
+            if (newName != null) LOG.info("Saving config as {}",newName);
+            saveRouteXML(saveFile, snapshot);
+            if (newName != null && !isAutoSave) {
+                xmlConfigFile = saveFile;
+                editor.setTitle(createWindowTitleString());
+            }
+
+            if (isAutoSave) {
+                LOG.info(getLocaleString("console_config_autosave_end"));
+            } else if (isBackup) {
+                LOG.info(getLocaleString("console_config_backup_end"));
+            } else {
+                LOG.info(getLocaleString("console_config_save_end"));
+            }
             if (!isAutoSave || !isBackup) {
                 JOptionPane.showMessageDialog(editor, xmlConfigFile.getName() + " " + getLocaleString("dialog_save_success"), "AutoDrive", JOptionPane.INFORMATION_MESSAGE);
                 setStale(false);
@@ -163,7 +188,14 @@ public class RoutesXML {
             }
         }
 
-        String filename = removeExtension(xmlConfigFile.getAbsolutePath()) + "_autosave_" + autoSaveLastUsedSlot + ".xml";
+        // only the snapshot is taken on the EDT, the file is written here on the AutoSave thread
+        AutoSaveSnapshot snapshot = takeAutoSaveSnapshot();
+        if (snapshot == null) {
+            LOG.info("AutoSave skipped, no changes since the last save");
+            return;
+        }
+
+        String filename = removeExtension(snapshot.configFile.getAbsolutePath()) + "_autosave_" + autoSaveLastUsedSlot + ".xml";
         File file = new File(filename);
         try {
             if (file.exists()) {
@@ -173,16 +205,66 @@ public class RoutesXML {
                 if (!file.canWrite())
                     throw new IOException("File '" + file + "' cannot be written");
             }
-            saveRouteManagerXML(filename, true, false);
+            LOG.info(getLocaleString("console_config_autosave_start"));
+            LOG.info("Saving config as {}", filename);
+            saveRouteXML(file, snapshot.network);
+            LOG.info(getLocaleString("console_config_autosave_end"));
+            autoSaveFinished(snapshot);
             autoSaveLastUsedSlot++;
             if (autoSaveLastUsedSlot >= maxAutoSaveSlots + 1 ) autoSaveLastUsedSlot = 1;
         }
-        catch(IOException ioEx) {
-            ioEx.printStackTrace();
+        catch(IOException | ParserConfigurationException | TransformerException ex) {
+            LOG.error("AutoSave failed", ex);
         }
     }
 
+    //
+    // The network comes from the config's ConfigSnapshot when it has an up to date one, otherwise the
+    // XML is read and a snapshot is written for the next time.
+    //
+
     private static RoadMap loadRouteXML(File fXmlFile)  throws ParserConfigurationException, IOException, SAXException {
+        ArrayList<NetworkStore> stores = new ArrayList<>();
+        ArrayList<ConfigSnapshot.Marker> markers = new ArrayList<>();
+        ArrayList<MarkerGroup> groups = new ArrayList<>();
+
+        ConfigSnapshot snapshot = ConfigSnapshot.load(fXmlFile, ConfigSnapshot.ROUTES_CONFIG);
+        if (snapshot != null) {
+            stores.add(snapshot.store);
+            markers.addAll(snapshot.markers);
+            groups.addAll(snapshot.markerGroups);
+        } else {
+            if (!readRouteXML(fXmlFile, stores, markers, groups)) return null;
+            if (stores.size() == 1) {
+                ConfigSnapshot.save(fXmlFile, ConfigSnapshot.ROUTES_CONFIG, new ConfigSnapshot(stores.get(0), null, 0, true, markers, groups));
+            }
+        }
+
+        ArrayList<MapNode> nodes = new ArrayList<>();
+        for (NetworkStore store : stores) {
+            LOG.info("starting creation of {} map nodes", store.numNodes);
+            nodes.addAll(Arrays.asList(store.createMapNodes()));
+            LOG.info("Finished creating all map nodes");
+            LOG.info("----------------------------");
+        }
+
+        markerGroup.clear();
+        markerGroup.addAll(groups);
+        if (bDebugLogRouteManager) LOG.info("markerGroup size {}", markerGroup.size());
+
+        for (ConfigSnapshot.Marker marker : markers) {
+            MapNode node = nodes.get(marker.nodeId - 1);
+            node.createMapMarker(marker.name, marker.group);
+        }
+        RoadMap roadMap = new RoadMap();
+        roadMap.addPropertyChangeListener(getRouteNodesTable());
+        setRoadMapNodes(roadMap, nodes);
+        return roadMap;
+    }
+
+    // returns false if the file is not a RouteManager config
+
+    private static boolean readRouteXML(File fXmlFile, ArrayList<NetworkStore> stores, ArrayList<ConfigSnapshot.Marker> markers, ArrayList<MarkerGroup> groups) throws ParserConfigurationException, IOException, SAXException {
         DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
         DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
         Document doc = dBuilder.parse(fXmlFile);
@@ -193,14 +275,12 @@ public class RoutesXML {
 
         if (!doc.getDocumentElement().getNodeName().equals("routeExport")) {
             LOG.info("Not an AutoDrive RoutesManager config");
-            return null;
+            return false;
         }
 
         NodeList waypointsList = doc.getElementsByTagName("waypoints");
 
 
-        ArrayList<MapNode> nodes = new ArrayList<>();
-
         for (int temp = 0; temp < waypointsList.getLength(); temp++) {
             LOG.info("----------------------------");
             LOG.info("{} : {}", getLocaleString("console_root_node"), doc.getDocumentElement().getNodeName());
@@ -213,82 +293,43 @@ public class RoutesXML {
                 LOG.info("----------------------------");
 
                 if (wayPointIDs > 0 ) {
-                    NodeList nodeList = eElement.getElementsByTagName("x").item(0).getChildNodes();
-                    Node node = nodeList.item(0);
-                    String xString = node.getNodeValue();
-                    String[] xValues = xString.split(";");
+                    double[] xValues = parseDoubleColumn(getColumnText(eElement, "x"), ';');
                     LOG.info("{} <x> Entries", xValues.length);
 
-                    nodeList = eElement.getElementsByTagName("y").item(0).getChildNodes();
-                    node = nodeList.item(0);
-                    String yString = node.getNodeValue();
-                    String[] yValues = yString.split(";");
+                    double[] yValues = parseDoubleColumn(getColumnText(eElement, "y"), ';');
                     LOG.info("{} <y> Entries", yValues.length);
 
-                    nodeList = eElement.getElementsByTagName("z").item(0).getChildNodes();
-                    node = nodeList.item(0);
-                    String zString = node.getNodeValue();
-                    String[] zValues = zString.split(";");
+                    double[] zValues = parseDoubleColumn(getColumnText(eElement, "z"), ';');
                     LOG.info("{} <z> Entries", zValues.length);
 
-                    nodeList = eElement.getElementsByTagName("out").item(0).getChildNodes();
-                    node = nodeList.item(0);
-                    String outString = node.getNodeValue();
-                    String[] outValueArrays = outString.split(";");
-                    LOG.info("{} <out> Entries", outValueArrays.length);
-
-                    nodeList = eElement.getElementsByTagName("in").item(0).getChildNodes();
-                    node = nodeList.item(0);
-                    String incomingString = node.getNodeValue();
-                    String[] inValueArrays = incomingString.split(";");
-                    LOG.info("{} <in> Entries", inValueArrays.length);
-
-                    nodeList = eElement.getElementsByTagName("flags").item(0).getChildNodes();
-                    node = nodeList.item(0);
-                    String flagsString = node.getNodeValue();
-                    String[] flagsValue = flagsString.split(";");
+                    NetworkStore.AdjacencyBuilder outgoing = parseConnectionsColumn(getColumnText(eElement, "out"));
+                    LOG.info("{} <out> Entries", outgoing.getNumNodes());
+
+                    NetworkStore.AdjacencyBuilder incoming = parseConnectionsColumn(getColumnText(eElement, "in"));
+                    LOG.info("{} <in> Entries", incoming.getNumNodes());
+
+                    int[] flagsValue = parseIntColumn(getColumnText(eElement, "flags"), ';');
                     LOG.info("{} <flags> Entries", flagsValue.length);
                     LOG.info("----------------------------");
 
-                    LOG.info("starting creation of {} map nodes", wayPointIDs);
-
+                    // the routes store their coordinates at float precision
+                    int[] nodeIds = new int[wayPointIDs];
+                    double[] nodeX = new double[wayPointIDs];
+                    double[] nodeY = new double[wayPointIDs];
+                    double[] nodeZ = new double[wayPointIDs];
                     for (int i=0; i<wayPointIDs; i++) {
-                        int id = i+1;
-                        float x = Float.parseFloat(xValues[i]);
-                        float y = Float.parseFloat(yValues[i]);
-                        float z = Float.parseFloat(zValues[i]);
-                        int flag = Integer.parseInt(flagsValue[i]);
-                        MapNode mapNode = new MapNode(id, x, y, z, flag, false, false);
-                        nodes.add(mapNode);
+                        nodeIds[i] = i+1;
+                        nodeX[i] = (float) xValues[i];
+                        nodeY[i] = (float) yValues[i];
+                        nodeZ[i] = (float) zValues[i];
                     }
 
-                    for (int i=0; i<wayPointIDs; i++) {
-                        MapNode mapNode = nodes.get(i);
-                        String[] outNodes = outValueArrays[i].split(",");
-                        for (String outNode : outNodes) {
-                            if (Integer.parseInt(outNode) != -1) {
-                                mapNode.outgoing.add(nodes.get(Integer.parseInt(outNode) - 1));
-                            }
-                        }
-                    }
-
-                    for (int i=0; i<wayPointIDs; i++) {
-                        MapNode mapNode = nodes.get(i);
-                        String[] incomingNodes = inValueArrays[i].split(",");
-                        for (String incomingNode : incomingNodes) {
-                            if (Integer.parseInt(incomingNode) != -1) {
-                                mapNode.incoming.add(nodes.get(Integer.parseInt(incomingNode)-1));
-                            }
-                        }
-                    }
-                    LOG.info("Finished creating all map nodes");
-                    LOG.info("----------------------------");
+                    stores.add(new NetworkStore(nodeIds, nodeX, nodeY, nodeZ, flagsValue, outgoing, incoming));
                 }
             }
         }
 
         NodeList groupList = doc.getElementsByTagName("g");
-        markerGroup.clear();
         if (bDebugLogRouteManager) {
             LOG.info("----------------------------");
             LOG.info("Group Index length = {}", groupList.getLength());
@@ -301,11 +342,9 @@ public class RoutesXML {
                 String groupId = eElement.getAttribute("i");
                 String groupName = eElement.getAttribute("n");
                 if (bDebugLogRouteManager) LOG.info("Group {} : index {} , name {}", temp+1, groupId, groupName);
-                MarkerGroup group = new MarkerGroup(Integer.parseInt(groupId), groupName);
-                markerGroup.add(group);
+                groups.add(new MarkerGroup(Integer.parseInt(groupId), groupName));
             }
         }
-        if (bDebugLogRouteManager) LOG.info("markerGroup size {}", markerGroup.size());
 
         NodeList markerList = doc.getElementsByTagName("m");
         if (bDebugLogRouteManager) {
@@ -321,17 +360,24 @@ public class RoutesXML {
                 String markerName = eElement.getAttribute("n");
                 String markerGroup = eElement.getAttribute("g");
                 if (bDebugLogRouteManager) LOG.info("Marker {} : ID {} , name '{}' , group '{}'", temp+1, markerNodeId, markerName, markerGroup);
-                MapNode node = nodes.get(Integer.parseInt(markerNodeId) -1);
-                node.createMapMarker(markerName, markerGroup);
+                markers.add(new ConfigSnapshot.Marker(Integer.parseInt(markerNodeId), markerName, markerGroup));
             }
         }
-        RoadMap roadMap = new RoadMap();
-        roadMap.addPropertyChangeListener(getRouteNodesTable());
-        setRoadMapNodes(roadMap, new LinkedList<>(nodes));
-        return roadMap;
+        return true;
     }
 
-    private static void saveRouteXML(File file, String newName, boolean isAutoSave, boolean isBackup) throws ParserConfigurationException, TransformerException {
+    // The text of a <waypoints> column, the DOM keeps it as a single text node
+
+    private static CharSequence getColumnText(Element element, String tag) {
+        Node node = element.getElementsByTagName(tag).item(0).getFirstChild();
+        return (node != null) ? node.getNodeValue() : "";
+    }
+
+    //
+    // Writes the snapshot as a RouteManager config, only the snapshot is used so it can run on any thread
+    //
+
+    private static void saveRouteXML(File saveFile, ConfigSnapshot snapshot) throws ParserConfigurationException, TransformerException {
 
         DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
         DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
@@ -346,103 +392,44 @@ public class RoutesXML {
 
         Element waypoints = doc.createElement("waypoints");
         root.appendChild(waypoints);
-        waypoints.setAttribute("c", String.valueOf(RoadMap.networkNodesList.size()));
+        NetworkStore store = snapshot.store;
+        waypoints.setAttribute("c", String.valueOf(store.numNodes));
 
         // create a child node for all x co-ordinates
 
         Element xElement = doc.createElement("x");
         waypoints.appendChild(xElement);
-        StringBuilder xPositions = new StringBuilder();
-        for (Iterator<MapNode> xIterator = RoadMap.networkNodesList.iterator(); xIterator.hasNext();) {
-            MapNode node = xIterator.next();
-            String ID = String.valueOf(node.x);
-            if (xIterator.hasNext()) ID += ";";
-            xPositions.append(ID);
-        }
-        xElement.setTextContent(xPositions.toString());
+        xElement.setTextContent(getColumnString(store.x, ';'));
 
         // create a child node for all y co-ordinates
 
         Element yElement = doc.createElement("y");
         waypoints.appendChild(yElement);
-        StringBuilder yPositions = new StringBuilder();
-        for (Iterator<MapNode> yIterator = RoadMap.networkNodesList.iterator(); yIterator.hasNext();) {
-            MapNode node = yIterator.next();
-            String ID = String.valueOf(node.y);
-            if (yIterator.hasNext()) ID += ";";
-            yPositions.append(ID);
-        }
-        yElement.setTextContent(yPositions.toString());
+        yElement.setTextContent(getColumnString(store.y, ';'));
 
         // create a child node for all z co-ordinates
 
         Element zElement = doc.createElement("z");
         waypoints.appendChild(zElement);
-        StringBuilder zPositions = new StringBuilder();
-        for (Iterator<MapNode> zIterator = RoadMap.networkNodesList.iterator(); zIterator.hasNext();) {
-            MapNode node = zIterator.next();
-            String ID = String.valueOf(node.z);
-            if (zIterator.hasNext()) ID += ";";
-            zPositions.append(ID);
-        }
-        zElement.setTextContent(zPositions.toString());
+        zElement.setTextContent(getColumnString(store.z, ';'));
 
         // create a child node for all outgoing connections
 
         Element outElement = doc.createElement("out");
         waypoints.appendChild(outElement);
-        StringBuilder outElementString = new StringBuilder();
-        for (Iterator<MapNode> roadmapIterator = RoadMap.networkNodesList.iterator(); roadmapIterator.hasNext();) {
-            MapNode node = roadmapIterator.next();
-            StringBuilder outString = new StringBuilder();
-            for (Iterator<MapNode> outgoingIterator = node.outgoing.iterator(); outgoingIterator.hasNext();) {
-                MapNode n = outgoingIterator.next();
-                String ID = String.valueOf(n.id);
-                if (outgoingIterator.hasNext()) ID += ",";
-                outString.append(ID);
-            }
-            if (outString.toString().isEmpty()) {
-                outString = new StringBuilder("-1");
-            }
-            outElementString.append(outString);
-            if (roadmapIterator.hasNext()) outElementString.append(";");
-        }
-        outElement.setTextContent(outElementString.toString());
+        outElement.setTextContent(getConnectionsString(store.outStart, store.outTargets, store.ids));
 
         // create a child node for all incoming connections
 
         Element inElement = doc.createElement("in");
         waypoints.appendChild(inElement);
-        StringBuilder inElementString = new StringBuilder();
-        for (Iterator<MapNode> roadmapIterator = RoadMap.networkNodesList.iterator(); roadmapIterator.hasNext();) {
-            MapNode node = roadmapIterator.next();
-            StringBuilder inString = new StringBuilder();
-            for (Iterator<MapNode> incomingIterator = node.incoming.iterator(); incomingIterator.hasNext();) {
-                MapNode n = incomingIterator.next();
-                String ID = String.valueOf(n.id);
-                if (incomingIterator.hasNext()) ID += ",";
-                inString.append(ID);
-            }
-            if (inString.toString().isEmpty()) {
-                inString = new StringBuilder("-1");
-            }
-            inElementString.append(inString);
-            if (roadmapIterator.hasNext()) inElementString.append(";");
-        }
-        inElement.setTextContent(inElementString.toString());
+        inElement.setTextContent(getConnectionsString(store.inStart, store.inTargets, store.ids));
 
         // create a child node for all flags
 
         Element flagsElement = doc.createElement("flags");
         waypoints.appendChild(flagsElement);
-        StringBuilder flagElementString = new StringBuilder();
-        for (Iterator<MapNode> flagIterator = RoadMap.networkNodesList.iterator(); flagIterator.hasNext();) {
-            MapNode node = flagIterator.next();
-            String ID = String.valueOf(node.flag);
-            if (flagIterator.hasNext()) ID += ";";
-            flagElementString.append(ID);
-        }
-        flagsElement.setTextContent(flagElementString.toString());
+        flagsElement.setTextContent(getColumnString(store.flags, ';'));
 
         // create a parent node for map markers
 
@@ -450,15 +437,12 @@ public class RoutesXML {
         root.appendChild(markers);
 
         // add all map markers to the marker element
-        for (MapNode mapNode : RoadMap.networkNodesList) {
-            if (mapNode.hasMapMarker()) {
-                Element newMapMarker = doc.createElement("m");
-                markers.appendChild(newMapMarker);
-                newMapMarker.setAttribute("i", String.valueOf(mapNode.id));
-                newMapMarker.setAttribute("n", mapNode.getMarkerName());
-                newMapMarker.setAttribute("g", mapNode.getMarkerGroup());
-            }
-
+        for (ConfigSnapshot.Marker marker : snapshot.markers) {
+            Element newMapMarker = doc.createElement("m");
+            markers.appendChild(newMapMarker);
+            newMapMarker.setAttribute("i", String.valueOf(marker.nodeId));
+            newMapMarker.setAttribute("n", marker.name);
+            newMapMarker.setAttribute("g", marker.group);
         }
 
         // create a parent node for marker groups
@@ -466,9 +450,9 @@ public class RoutesXML {
         Element groups = doc.createElement("groups");
         root.appendChild(groups);
 
-        LOG.info("marker groups size = {}", markerGroup.size());
+        LOG.info("marker groups size = {}", snapshot.markerGroups.size());
 
-        for (MarkerGroup group : markerGroup) {
+        for (MarkerGroup group : snapshot.markerGroups) {
             Element newMapMarker = doc.createElement("g");
             groups.appendChild(newMapMarker);
             newMapMarker.setAttribute("i", String.valueOf(group.groupIndex));
@@ -482,28 +466,7 @@ public class RoutesXML {
         transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
 
         DOMSource source = new DOMSource(doc);
-        StreamResult result;
-
-        if (newName == null) {
-            result = new StreamResult(file);
-        } else {
-            File newFile = new File(newName);
-            LOG.info("Saving config as {}",newName);
-            result = new StreamResult(newFile);
-            if (!isAutoSave) {
-                xmlConfigFile = newFile;
-                editor.setTitle(createWindowTitleString());
-            }
-        }
-        transformer.transform(source, result);
-
-        if (isAutoSave) {
-            LOG.info(getLocaleString("console_config_autosave_end"));
-        } else if (isBackup) {
-            LOG.info(getLocaleString("console_config_backup_end"));
-        } else {
-            LOG.info(getLocaleString("console_config_save_end"));
-        }
+        transformer.transform(source, new StreamResult(saveFile));
     }
 
     public static LinkedList<Route> getRoutesConfigContents(File routesFile) {
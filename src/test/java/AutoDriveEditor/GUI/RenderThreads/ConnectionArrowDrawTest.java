@@ -0,0 +1,192 @@
+package AutoDriveEditor.GUI.RenderThreads;
+
+import AutoDriveEditor.XMLConfig.EditorXML;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static AutoDriveEditor.Utils.MathUtils.normalizeAngle;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compares drawArrowList() pixel for pixel with drawing every arrow on its own, the way the connections
+// were drawn before the colour/composite changes were shared between runs of arrows.
+
+class ConnectionArrowDrawTest {
+
+    private static final Color TRANSLUCENT_RED = new Color(255, 0, 0, 128);
+    private static final Color TRANSLUCENT_BLUE = new Color(0, 0, 255, 160);
+    private static final Color OPAQUE_GREEN = new Color(0, 200, 0);
+
+    private boolean savedFilledArrows;
+    private float savedNodeSize;
+    private float savedTransparency;
+
+    @BeforeEach
+    void setUp() {
+        savedFilledArrows = EditorXML.bFilledArrows;
+        savedNodeSize = EditorXML.nodeSize;
+        savedTransparency = EditorXML.hiddenNodesTransparencyLevel;
+        EditorXML.hiddenNodesTransparencyLevel = 0.3f;
+    }
+
+    @AfterEach
+    void tearDown() {
+        EditorXML.bFilledArrows = savedFilledArrows;
+        EditorXML.nodeSize = savedNodeSize;
+        EditorXML.hiddenNodesTransparencyLevel = savedTransparency;
+    }
+
+    @Test
+    void overlappingLineArrows() {
+        EditorXML.bFilledArrows = false;
+        EditorXML.nodeSize = 2;
+        assertSamePixels(createOverlappingList(), 2.0, 8.0);
+    }
+
+    @Test
+    void overlappingShortFilledArrows() {
+        // short connections have shortened heads, which are always filled as polygons
+        EditorXML.bFilledArrows = true;
+        EditorXML.nodeSize = 2;
+        ConnectionDrawThread.ConnectionDrawList drawList = new ConnectionDrawThread.ConnectionDrawList();
+        drawList.add(20, 20, 30, 24, TRANSLUCENT_RED, false, false);
+        drawList.add(22, 21, 31, 26, TRANSLUCENT_BLUE, false, false);
+        drawList.add(21, 19, 30, 23, TRANSLUCENT_RED, true, false);
+        drawList.add(24, 20, 33, 25, TRANSLUCENT_RED, false, true);
+        drawList.add(20, 22, 29, 25, OPAQUE_GREEN, true, true);
+        assertSamePixels(drawList, 2.0, 8.0);
+    }
+
+    @Test
+    void zoomedOutLines() {
+        EditorXML.bFilledArrows = true;
+        EditorXML.nodeSize = 2;
+        assertSamePixels(createOverlappingList(), 0.5, 1.0);
+    }
+
+    //
+    // Internal functions
+    //
+
+    // the same colours interleaved, with arrows crossing and lying on top of each other
+    private static ConnectionDrawThread.ConnectionDrawList createOverlappingList() {
+        ConnectionDrawThread.ConnectionDrawList drawList = new ConnectionDrawThread.ConnectionDrawList();
+        drawList.add(10, 10, 110, 60, TRANSLUCENT_RED, false, false);
+        drawList.add(10, 60, 110, 10, TRANSLUCENT_BLUE, false, false);
+        drawList.add(12, 11, 112, 61, TRANSLUCENT_RED, false, false);
+        drawList.add(110, 60, 10, 10, TRANSLUCENT_RED, true, false);
+        drawList.add(20, 30, 100, 30, OPAQUE_GREEN, false, true);
+        drawList.add(20, 31, 100, 31, OPAQUE_GREEN, false, true);
+        drawList.add(60, 5, 60, 70, TRANSLUCENT_BLUE, true, true);
+        drawList.add(20, 30, 100, 30, TRANSLUCENT_RED, false, false);
+        return drawList;
+    }
+
+    private static void assertSamePixels(ConnectionDrawThread.ConnectionDrawList drawList, double zoomLevel, double nodeSize) {
+        ConnectionDrawThread drawThread = new ConnectionDrawThread();
+        drawThread.setArrowSize(zoomLevel, nodeSize, nodeSize * 0.5);
+
+        BufferedImage drawn = createImage();
+        Graphics2D g = drawn.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        drawThread.drawArrowList(g, drawList);
+        g.dispose();
+
+        BufferedImage expected = createImage();
+        g = expected.createGraphics();
+        drawEachArrow(g, drawList, zoomLevel, nodeSize, nodeSize * 0.5);
+        g.dispose();
+
+        for (int y = 0; y < drawn.getHeight(); y++) {
+            for (int x = 0; x < drawn.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), drawn.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    private static BufferedImage createImage() {
+        BufferedImage image = new BufferedImage(128, 80, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.dispose();
+        return image;
+    }
+
+    // Every arrow drawn on its own, setting the composite and colour each time
+    private static void drawEachArrow(Graphics2D g, ConnectionDrawThread.ConnectionDrawList drawList, double zoomLevel, double frameNodeSize, double frameNodeSizeHalf) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        Polygon p = new Polygon();
+        Graphics2D gTrans = (Graphics2D) g.create();
+        Composite visible = AlphaComposite.SrcOver;
+        Composite hidden = AlphaComposite.SrcOver.derive(EditorXML.hiddenNodesTransparencyLevel);
+
+        for (int i = 0; i < drawList.size; i++) {
+            double startX = drawList.startX[i];
+            double startY = drawList.startY[i];
+            double targetX = drawList.endX[i];
+            double targetY = drawList.endY[i];
+            boolean isDual = drawList.isDual(i);
+
+            double angleRad = Math.atan2(startY - targetY, startX - targetX);
+            double distCos = frameNodeSizeHalf * Math.cos(angleRad);
+            double distSin = frameNodeSizeHalf * Math.sin(angleRad);
+            double lineStartX = startX - distCos;
+            double lineStartY = startY - distSin;
+            double lineEndX = targetX + distCos;
+            double lineEndY = targetY + distSin;
+            double maxDistance = Math.sqrt(Math.pow((targetX - startX), 2) + Math.pow((targetY - startY), 2));
+
+            gTrans.setComposite(drawList.isHidden(i) ? hidden : visible);
+            gTrans.setColor(drawList.getColour(i));
+
+            if (frameNodeSize >= 2.0) {
+                double lineLength = maxDistance - frameNodeSize;
+                int diff = 0;
+                if (isDual) {
+                    if (lineLength <= (frameNodeSize * 2)) diff = (int) ((frameNodeSize * 2) - lineLength) / 2;
+                } else {
+                    if (lineLength <= frameNodeSize) diff = (int) (frameNodeSize - lineLength);
+                }
+                double adjustedArrowLength = ((EditorXML.nodeSize * zoomLevel) * 0.7) - (diff / 1.15);
+                double targetPolygonCenterX = targetX + (Math.cos(angleRad) * adjustedArrowLength);
+                double targetPolygonCenterY = targetY + (Math.sin(angleRad) * adjustedArrowLength);
+
+                double arrowLeft = normalizeAngle(angleRad + Math.toRadians(-20));
+                double arrowLeftX = targetX + (Math.cos(arrowLeft) * adjustedArrowLength);
+                double arrowLeftY = targetY + (Math.sin(arrowLeft) * adjustedArrowLength);
+                double arrowRight = normalizeAngle(angleRad + Math.toRadians(20));
+                double arrowRightX = targetX + (Math.cos(arrowRight) * adjustedArrowLength);
+                double arrowRightY = targetY + (Math.sin(arrowRight) * adjustedArrowLength);
+
+                if (maxDistance >= frameNodeSize) {
+                    if (EditorXML.bFilledArrows) {
+                        p.addPoint((int) lineEndX, (int) lineEndY);
+                        p.addPoint((int) arrowLeftX, (int) arrowLeftY);
+                        p.addPoint((int) arrowRightX, (int) arrowRightY);
+                        gTrans.fillPolygon(p);
+                        p.reset();
+                    } else {
+                        gTrans.drawLine((int) lineStartX, (int) lineStartY, (int) lineEndX, (int) lineEndY);
+                        gTrans.drawLine((int) lineEndX, (int) lineEndY, (int) arrowLeftX, (int) arrowLeftY);
+                        gTrans.drawLine((int) lineEndX, (int) lineEndY, (int) arrowRightX, (int) arrowRightY);
+                    }
+                }
+                if (isDual) {
+                    angleRad = normalizeAngle(angleRad + Math.PI);
+                    double startPolygonCenterX = startX + (Math.cos(angleRad) * adjustedArrowLength);
+                    double startPolygonCenterY = startY + (Math.sin(angleRad) * adjustedArrowLength);
+                    gTrans.drawLine((int) startPolygonCenterX, (int) startPolygonCenterY, (int) targetPolygonCenterX, (int) targetPolygonCenterY);
+                } else {
+                    gTrans.drawLine((int) lineStartX, (int) lineStartY, (int) targetPolygonCenterX, (int) targetPolygonCenterY);
+                }
+            } else {
+                gTrans.drawLine((int) lineStartX, (int) lineStartY, (int) lineEndX, (int) lineEndY);
+            }
+        }
+        gTrans.dispose();
+    }
+}
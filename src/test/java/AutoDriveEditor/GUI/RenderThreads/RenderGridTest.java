@@ -0,0 +1,106 @@
+package AutoDriveEditor.GUI.RenderThreads;
+
+import AutoDriveEditor.Utils.Classes.StoreGrid;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderGridTest {
+
+    private final double[] nodeX = { 10, -31.5, 500, 12 };
+    private final double[] nodeZ = { 10, 63.9, -500, 11 };
+    private RenderGrid grid;
+
+    @BeforeEach
+    void setUp() {
+        grid = new RenderGrid(32);
+        grid.rebuildNodes(nodeX, nodeZ, 3);
+    }
+
+    @Test
+    void queryArea() {
+        StoreGrid.IndexList result = new StoreGrid.IndexList();
+        grid.queryArea(-40, 0, 40, 64, nodeX, nodeZ, result);
+        assertEquals(Arrays.asList(0, 1), toList(result));
+
+        // the result list isn't cleared by a query
+        grid.queryArea(499, -501, 501, -499, nodeX, nodeZ, result);
+        assertEquals(Arrays.asList(0, 1, 2), toList(result));
+    }
+
+    @Test
+    void moveAndAddNodes() {
+        // a node moved outside the grid is still found, from the border cell
+        nodeX[2] = 5000;
+        nodeZ[2] = 5000;
+        grid.updateNode(2, nodeX[2], nodeZ[2]);
+        StoreGrid.IndexList result = new StoreGrid.IndexList();
+        grid.queryArea(4990, 4990, 6000, 6000, nodeX, nodeZ, result);
+        assertEquals(Arrays.asList(2), toList(result));
+
+        // a new node goes in after the others, and a moved node keeps its place in the cell
+        grid.updateNode(3, nodeX[3], nodeZ[3]);
+        nodeX[0] = 11;
+        grid.updateNode(0, nodeX[0], nodeZ[0]);
+        result.clear();
+        grid.queryArea(0, 0, 20, 20, nodeX, nodeZ, result);
+        assertEquals(Arrays.asList(0, 3), toList(result));
+
+        nodeX[0] = -1e12;
+        grid.updateNode(0, nodeX[0], nodeZ[0]);
+        result.clear();
+        grid.queryArea(0, 0, 20, 20, nodeX, nodeZ, result);
+        assertEquals(Arrays.asList(3), toList(result));
+        grid.queryArea(-2e12, 0, -1e11, 20, nodeX, nodeZ, result);
+        assertEquals(Arrays.asList(3, 0), toList(result));
+    }
+
+    @Test
+    void queryConnections() {
+        // the grid is 1024 cells of 32, so a connection across the whole grid is a long one
+        StoreGrid.IndexList result = new StoreGrid.IndexList();
+        grid.updateConnection(0, nodeX[0], nodeZ[0], nodeX[1], nodeZ[1]);
+        grid.updateConnection(1, nodeX[1], nodeZ[1], nodeX[0], nodeZ[0]);
+        grid.updateConnection(2, nodeX[0], nodeZ[0], nodeX[2], nodeZ[2]);
+
+        // a connection over several cells is only returned once, the long one is always returned
+        grid.queryConnections(-40, 0, 40, 64, result);
+        assertEquals(Arrays.asList(0, 1, 2), toList(result));
+        result.clear();
+        grid.queryConnections(400, 400, 500, 500, result);
+        assertEquals(Arrays.asList(2), toList(result));
+
+        // moving a connection takes it out of its old cells
+        grid.updateConnection(1, nodeX[0], nodeZ[0], nodeX[3], nodeZ[3]);
+        grid.removeConnection(2);
+        result.clear();
+        grid.queryConnections(-40, 32, -20, 64, result);
+        assertEquals(Arrays.asList(0), toList(result));
+        result.clear();
+        grid.queryConnections(0, 0, 20, 20, result);
+        assertEquals(Arrays.asList(0, 1), toList(result));
+    }
+
+    @Test
+    void emptyGrid() {
+        RenderGrid emptyGrid = new RenderGrid(32);
+        emptyGrid.rebuildNodes(new double[0], new double[0], 0);
+        StoreGrid.IndexList result = new StoreGrid.IndexList();
+        emptyGrid.queryArea(-100, -100, 100, 100, nodeX, nodeZ, result);
+        assertEquals(0, result.size());
+    }
+
+    //
+    // Internal functions
+    //
+
+    private static List<Integer> toList(StoreGrid.IndexList list) {
+        Integer[] indexes = new Integer[list.size()];
+        for (int i = 0; i < list.size(); i++) indexes[i] = list.get(i);
+        return Arrays.asList(indexes);
+    }
+}
@@ -0,0 +1,49 @@
+package AutoDriveEditor.Managers;
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CopyPasteManagerTest {
+
+    @Test
+    void createNewMapNodesFromList() {
+        // 1 -> 2 <-> 3 , 3 -> 4 where 4 is not copied
+        MapNode node1 = new MapNode(1, 0, 0, 0, 0, false, false);
+        MapNode node2 = new MapNode(2, 10, 0, 0, 1, false, false);
+        MapNode node3 = new MapNode(3, 20, 0, 0, 0, false, false);
+        MapNode node4 = new MapNode(4, 30, 0, 0, 0, false, false);
+        node1.outgoing.add(node2);
+        node2.incoming.add(node1);
+        node2.outgoing.add(node3);
+        node3.incoming.add(node2);
+        node3.outgoing.add(node2);
+        node2.incoming.add(node3);
+        node3.outgoing.add(node4);
+        node4.incoming.add(node3);
+        node2.createMapMarker("Marker", "All");
+
+        LinkedList<MapNode> copies = new CopyPasteManager().createNewMapNodesFromList(new LinkedList<>(Arrays.asList(node1, node2, node3)));
+
+        assertEquals(3, copies.size());
+        MapNode copy1 = copies.get(0);
+        MapNode copy2 = copies.get(1);
+        MapNode copy3 = copies.get(2);
+        assertNotSame(node2, copy2);
+        assertEquals(2, copy2.id);
+        assertEquals(10, copy2.x);
+        assertEquals(1, copy2.flag);
+        assertEquals("Marker", copy2.getMarkerName());
+
+        assertEquals(Collections.singletonList(copy2), copy1.outgoing);
+        assertEquals(Arrays.asList(copy1, copy3), copy2.incoming);
+        assertEquals(Collections.singletonList(copy3), copy2.outgoing);
+        // the connection to the node outside the copied list is dropped
+        assertEquals(Collections.singletonList(copy2), copy3.outgoing);
+    }
+}
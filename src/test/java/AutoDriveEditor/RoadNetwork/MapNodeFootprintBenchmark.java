@@ -0,0 +1,88 @@
+package AutoDriveEditor.RoadNetwork;
+
+//
+// Rough heap footprint of a MapNode, including its connection lists, measured as the change in used
+// heap after creating a large chained network, once node by node as the editor does and once from a
+// NetworkStore as the loaders do. It is not part of the test run, to use it:
+//
+//   mvn test-compile
+//   java -cp target/classes:target/test-classes AutoDriveEditor.RoadNetwork.MapNodeFootprintBenchmark [numNodes]
+//
+// The numbers are only comparable between runs on the same JVM with the same settings
+// ( e.g. compressed oops on/off changes every reference size ).
+//
+
+public class MapNodeFootprintBenchmark {
+
+    public static void main(String[] args) {
+        int numNodes = (args.length > 0) ? Integer.parseInt(args[0]) : 500000;
+
+        // warm up, so the class loading and JIT allocations are not counted
+        createNetwork(10000);
+
+        for (int run = 1; run <= 3; run++) {
+            // nodes created in the editor
+            long before = usedHeap();
+            MapNode[] network = createNetwork(numNodes);
+            long after = usedHeap();
+            report("Run " + run + " created", numNodes, after - before);
+
+            // the same network as the loaders build it, from a column store
+            network = null;
+            NetworkStore store = createStore(numNodes);
+            before = usedHeap();
+            MapNode[] loadedNetwork = store.createMapNodes();
+            after = usedHeap();
+            report("Run " + run + " loaded ", loadedNetwork.length, after - before);
+        }
+    }
+
+    private static void report(String name, int numNodes, long bytes) {
+        System.out.printf("%s: %d nodes, %.1f bytes per node ( %.1f MB total )%n", name, numNodes, (double) bytes / numNodes, bytes / (1024.0 * 1024.0));
+    }
+
+    // every node is connected to the next one, like a typical route with one incoming and one outgoing connection
+
+    private static MapNode[] createNetwork(int numNodes) {
+        MapNode[] network = new MapNode[numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            network[i] = new MapNode(i + 1, i, 0, i, MapNode.NODE_FLAG_REGULAR, false, false);
+            if (i > 0) {
+                network[i - 1].outgoing.add(network[i]);
+                network[i].incoming.add(network[i - 1]);
+            }
+        }
+        return network;
+    }
+
+    private static NetworkStore createStore(int numNodes) {
+        int[] ids = new int[numNodes];
+        double[] x = new double[numNodes];
+        double[] z = new double[numNodes];
+        NetworkStore.AdjacencyBuilder outgoing = new NetworkStore.AdjacencyBuilder(numNodes, numNodes - 1);
+        NetworkStore.AdjacencyBuilder incoming = new NetworkStore.AdjacencyBuilder(numNodes, numNodes - 1);
+        for (int i = 0; i < numNodes; i++) {
+            ids[i] = i + 1;
+            x[i] = i;
+            z[i] = i;
+            if (i < numNodes - 1) outgoing.addConnection(i + 1);
+            outgoing.endNode();
+            if (i > 0) incoming.addConnection(i - 1);
+            incoming.endNode();
+        }
+        return new NetworkStore(ids, x, new double[numNodes], z, new int[numNodes], outgoing, incoming);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
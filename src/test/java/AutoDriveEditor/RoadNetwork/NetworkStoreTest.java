@@ -0,0 +1,82 @@
+package AutoDriveEditor.RoadNetwork;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NetworkStoreTest {
+
+    // 1 -> 2 -> 3 , 3 <-> 1
+    private static List<MapNode> createNetwork() {
+        MapNode node1 = new MapNode(1, 0, 0, 0, 0, false, false);
+        MapNode node2 = new MapNode(2, 10.5, 1, -4, 1, false, false);
+        MapNode node3 = new MapNode(3, 20, 2, 8.125, 0, false, false);
+        node1.outgoing.add(node2);
+        node2.incoming.add(node1);
+        node2.outgoing.add(node3);
+        node3.incoming.add(node2);
+        node3.outgoing.add(node1);
+        node1.incoming.add(node3);
+        node1.outgoing.add(node3);
+        node3.incoming.add(node1);
+        return Arrays.asList(node1, node2, node3);
+    }
+
+    @Test
+    void fromNetwork() {
+        List<MapNode> network = createNetwork();
+        NetworkStore store = NetworkStore.fromNetwork(network);
+
+        assertEquals(3, store.numNodes);
+        assertArrayEquals(new int[] {1, 2, 3}, store.ids);
+        assertArrayEquals(new double[] {0, 10.5, 20}, store.x);
+        assertArrayEquals(new double[] {0, -4, 8.125}, store.z);
+        assertArrayEquals(new int[] {0, 1, 0}, store.flags);
+
+        assertArrayEquals(new int[] {0, 2, 3, 4}, store.outStart);
+        assertArrayEquals(new int[] {1, 2, 2, 0}, store.outTargets);
+        assertEquals(2, store.getInDegree(2));
+        assertEquals(4, store.getNumIncoming());
+        assertSame(network.get(1), store.getNode(1));
+    }
+
+    @Test
+    void createMapNodes() {
+        NetworkStore store = NetworkStore.fromNetwork(createNetwork());
+        MapNode[] nodes = store.createMapNodes();
+
+        assertEquals(3, nodes.length);
+        assertEquals(2, nodes[1].id);
+        assertEquals(10.5, nodes[1].x);
+        assertEquals(1, nodes[1].flag);
+        assertEquals(Arrays.asList(nodes[1], nodes[2]), nodes[0].outgoing);
+        assertEquals(Arrays.asList(nodes[2]), nodes[0].incoming);
+        assertEquals(Arrays.asList(nodes[1], nodes[0]), nodes[2].incoming);
+        assertEquals(Arrays.asList(nodes[0]), nodes[2].outgoing);
+    }
+
+    @Test
+    void connectionToNodeOutsideNetwork() {
+        List<MapNode> network = createNetwork();
+        MapNode outsideNode = new MapNode(2, 50, 0, 50, 0, false, false);
+        network.get(0).outgoing.add(outsideNode);
+
+        NetworkStore store = NetworkStore.fromNetwork(network);
+        assertEquals(3, store.getOutDegree(0));
+        assertEquals(-1, store.outTargets[2]);
+    }
+
+    @Test
+    void adjacencyBuilderGrows() {
+        NetworkStore.AdjacencyBuilder builder = new NetworkStore.AdjacencyBuilder(1, 0);
+        for (int i = 0; i < 5; i++) {
+            builder.addConnection(i);
+            builder.endNode();
+        }
+        assertEquals(5, builder.getNumNodes());
+        assertEquals(5, builder.getNumConnections());
+    }
+}
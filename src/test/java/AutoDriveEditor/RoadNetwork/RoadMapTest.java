@@ -0,0 +1,142 @@
+package AutoDriveEditor.RoadNetwork;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.beans.PropertyChangeEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoadMapTest {
+
+    private final MapNode[] nodes = new MapNode[5];
+    private final List<PropertyChangeEvent> events = new ArrayList<>();
+
+    // 1 -> 2 -> 3 -> 4 -> 5 , with a reverse connection 5 -> 2
+    @BeforeEach
+    void setUp() {
+        new RoadMap().addPropertyChangeListener(events::add);
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new MapNode(i + 1, i * 10, 0, 0, 0, false, false);
+        }
+        for (int i = 0; i < nodes.length - 1; i++) {
+            nodes[i].outgoing.add(nodes[i + 1]);
+            nodes[i + 1].incoming.add(nodes[i]);
+        }
+        nodes[4].outgoing.add(nodes[1]);
+        RoadMap.setRoadMapNodes(null, Arrays.asList(nodes));
+        events.clear();
+    }
+
+    @Test
+    void getNodeById() {
+        assertSame(nodes[2], RoadMap.getNodeById(3));
+        assertNull(RoadMap.getNodeById(0));
+        assertNull(RoadMap.getNodeById(6));
+    }
+
+    @Test
+    void removeMapNodes() {
+        RoadMap.removeMapNodes(Arrays.asList(nodes[3], nodes[1]));
+
+        assertEquals(Arrays.asList(nodes[0], nodes[2], nodes[4]), RoadMap.networkNodesList);
+        assertEquals(1, nodes[0].id);
+        assertEquals(2, nodes[2].id);
+        assertEquals(3, nodes[4].id);
+        assertSame(nodes[4], RoadMap.getNodeById(3));
+
+        // connections to the removed nodes are gone, including the reverse one
+        assertTrue(nodes[0].outgoing.isEmpty());
+        assertTrue(nodes[2].incoming.isEmpty());
+        assertTrue(nodes[2].outgoing.isEmpty());
+        assertTrue(nodes[4].outgoing.isEmpty());
+        assertTrue(nodes[4].incoming.isEmpty());
+    }
+
+    @Test
+    void removeMapNodesKeepsOtherHiddenConnections() {
+        nodes[0].addHiddenConnection(nodes[1]);
+        nodes[2].addHiddenConnection(nodes[3]);
+        nodes[4].addHiddenConnection(nodes[1]);
+        RoadMap.removeMapNodes(Collections.singletonList(nodes[3]));
+
+        assertTrue(nodes[0].isConnectionHidden(nodes[1]));
+        assertTrue(nodes[4].isConnectionHidden(nodes[1]));
+        assertFalse(nodes[2].isConnectionHidden(nodes[3]));
+        assertTrue(nodes[2].outgoing.isEmpty());
+    }
+
+    @Test
+    void removeMapNodeNotInNetwork() {
+        MapNode outsideNode = new MapNode(2, 0, 0, 0, 0, false, false);
+        RoadMap.removeMapNodes(Collections.singletonList(outsideNode));
+
+        assertEquals(5, RoadMap.networkNodesList.size());
+        assertEquals(5, nodes[4].id);
+    }
+
+    @Test
+    void getConnectionType() {
+        assertEquals(RoadMap.CONNECTION_TYPE_REGULAR, RoadMap.getConnectionType(nodes[0], nodes[1]));
+        assertEquals(RoadMap.CONNECTION_TYPE_REVERSE, RoadMap.getConnectionType(nodes[4], nodes[1]));
+        assertEquals(RoadMap.CONNECTION_TYPE_NONE, RoadMap.getConnectionType(nodes[1], nodes[0]));
+
+        assertEquals(RoadMap.CONNECTION_TYPE_REGULAR, RoadMap.getConnectionType(nodes[2], nodes[3]));
+        RoadMap.ConnectionTypes otherTypes = nodes[2].connectionTypes;
+
+        // the cached types of the two nodes are rebuilt once the connection between them changes,
+        // the other nodes keep theirs
+        nodes[1].outgoing.add(nodes[0]);
+        nodes[0].incoming.add(nodes[1]);
+        RoadMap.markConnectionsChanged(nodes[1], nodes[0]);
+        assertEquals(RoadMap.CONNECTION_TYPE_DUAL, RoadMap.getConnectionType(nodes[0], nodes[1]));
+        assertSame(otherTypes, nodes[2].connectionTypes);
+    }
+
+    @Test
+    void changesAreSentAsOneBatch() {
+        MapNode newNode = new MapNode(6, 50, 0, 0, 0, false, false);
+        RoadMap.beginChanges();
+        RoadMap.beginChanges();
+        RoadMap.removeMapNode(nodes[4]);
+        RoadMap.addMapNode(newNode);
+        RoadMap.removeMapNodes(Collections.singletonList(newNode));
+        RoadMap.commitChanges();
+        assertTrue(events.isEmpty());
+        RoadMap.commitChanges();
+
+        assertEquals(1, events.size());
+        assertEquals("networkNodesList.batch", events.get(0).getPropertyName());
+        NetworkChangeBatch batch = (NetworkChangeBatch) events.get(0).getNewValue();
+        assertEquals(Collections.singletonList(nodes[4]), new ArrayList<>(batch.getRemovedNodes()));
+        assertTrue(batch.getAddedNodes().isEmpty());
+        assertThrows(IllegalStateException.class, RoadMap::commitChanges);
+    }
+
+    @Test
+    void changedNodes() {
+        List<MapNode> changed = new ArrayList<>();
+        // a new network has to be copied in full, after that only the nodes that are changed are queued
+        assertTrue(RoadMap.takeChangedNodes(changed));
+        assertFalse(RoadMap.takeChangedNodes(changed));
+        assertTrue(changed.isEmpty());
+
+        nodes[1].setSelected(true);
+        nodes[2].setSelected(false);
+        nodes[3].x = 35;
+        RoadMap.updateNodeLocation(nodes[3]);
+        new MapNode(6, 0, 0, 0, 0, false, false).setSelected(true);
+        assertFalse(RoadMap.takeChangedNodes(changed));
+        assertEquals(Arrays.asList(nodes[1], nodes[3]), changed);
+
+        // anything that renumbers the network needs a full copy
+        changed.clear();
+        RoadMap.removeMapNode(nodes[0]);
+        assertTrue(RoadMap.takeChangedNodes(changed));
+        assertTrue(changed.isEmpty());
+    }
+}
@@ -0,0 +1,53 @@
+package AutoDriveEditor.Utils.Classes;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LassoPolygonTest {
+
+    private LassoPolygon polygon;
+
+    @BeforeEach
+    void setUp() {
+        // a U shape, the gap between the arms is outside the polygon
+        polygon = new LassoPolygon();
+        polygon.addPoint(0, 0);
+        polygon.addPoint(30, 0);
+        polygon.addPoint(30, 30);
+        polygon.addPoint(20, 30);
+        polygon.addPoint(20, 10);
+        polygon.addPoint(10, 10);
+        polygon.addPoint(10, 30);
+        polygon.addPoint(0, 30);
+    }
+
+    @Test
+    void contains() {
+        assertTrue(polygon.contains(5, 20));
+        assertTrue(polygon.contains(15, 5));
+        assertFalse(polygon.contains(15, 20));
+        assertFalse(polygon.contains(40, 5));
+    }
+
+    @Test
+    void intersectsLine() {
+        // both ends outside, crossing an arm
+        assertTrue(polygon.intersectsLine(-5, 20, 15, 20));
+        // a thin crossing of the corner, a sampled test with a 10 pixel step would miss it
+        assertTrue(polygon.intersectsLine(-1, 1, 1, -1));
+        // inside the gap between the arms
+        assertFalse(polygon.intersectsLine(12, 15, 18, 25));
+        assertFalse(polygon.intersectsLine(35, -5, 35, 40));
+    }
+
+    @Test
+    void tooFewPoints() {
+        polygon.reset();
+        polygon.addPoint(0, 0);
+        polygon.addPoint(10, 10);
+        assertFalse(polygon.contains(5, 5));
+        assertFalse(polygon.intersectsLine(0, 10, 10, 0));
+    }
+}
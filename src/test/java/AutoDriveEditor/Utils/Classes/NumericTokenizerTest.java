@@ -0,0 +1,69 @@
+package AutoDriveEditor.Utils.Classes;
+
+import AutoDriveEditor.RoadNetwork.NetworkStore;
+import AutoDriveEditor.Utils.XMLUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumericTokenizerTest {
+
+    @Test
+    void nextInt() {
+        NumericTokenizer tokenizer = new NumericTokenizer(" 1,-1;+25 , 2147483647");
+        assertEquals(1, tokenizer.nextInt());
+        assertEquals(',', tokenizer.getLastSeparator());
+        assertEquals(-1, tokenizer.nextInt());
+        assertEquals(';', tokenizer.getLastSeparator());
+        assertEquals(25, tokenizer.nextInt());
+        assertEquals(Integer.MAX_VALUE, tokenizer.nextInt());
+        assertEquals(0, tokenizer.getLastSeparator());
+        assertFalse(tokenizer.hasNext());
+
+        assertThrows(NumberFormatException.class, () -> new NumericTokenizer("2147483648").nextInt());
+        assertThrows(NumberFormatException.class, () -> new NumericTokenizer("1.5").nextInt());
+        assertThrows(NumberFormatException.class, () -> new NumericTokenizer("1 2").nextInt());
+    }
+
+    @Test
+    void nextDoubleMatchesParseDouble() {
+        String[] values = { "0", "-0.0", "12.5", "-301.125", "0.1", "1234.5678", ".5", "7.", "1e3", "-2.5E-3",
+                "123456789012345678901234", "0.30000000000000004", "NaN", "-Infinity" };
+        NumericTokenizer tokenizer = new NumericTokenizer(String.join(",", values));
+        for (String value : values) {
+            assertEquals(Double.parseDouble(value), tokenizer.nextDouble(), value);
+        }
+        assertThrows(NumberFormatException.class, () -> new NumericTokenizer("-").nextDouble());
+        assertThrows(NumberFormatException.class, () -> new NumericTokenizer("1.2.3").nextDouble());
+    }
+
+    @Test
+    void decimalPlaces() {
+        NumericTokenizer tokenizer = new NumericTokenizer("1.250,3,1e2");
+        tokenizer.nextDouble();
+        assertEquals(3, tokenizer.getLastDecimalPlaces());
+        tokenizer.nextDouble();
+        assertEquals(0, tokenizer.getLastDecimalPlaces());
+        tokenizer.nextDouble();
+        assertEquals(NumericTokenizer.UNKNOWN_DECIMAL_PLACES, tokenizer.getLastDecimalPlaces());
+    }
+
+    @Test
+    void countEntries() {
+        assertEquals(3, NumericTokenizer.countEntries("1,2,3", ','));
+        assertEquals("1,2,3,,".split(",").length, NumericTokenizer.countEntries("1,2,3,,", ','));
+        assertEquals(2, NumericTokenizer.countEntries("2,3;-1", ';'));
+        assertEquals(0, NumericTokenizer.countEntries(" ", ','));
+    }
+
+    @Test
+    void parseColumns() {
+        assertArrayEquals(new double[] { 1.235, -2.0, 3.5 }, XMLUtils.parseDoubleColumn("1.2346,-2,3.5", ',', 3));
+
+        NetworkStore.AdjacencyBuilder builder = XMLUtils.parseConnectionsColumn("2,3;-1;1");
+        assertEquals(3, builder.getNumNodes());
+        NetworkStore store = new NetworkStore(new int[] { 1, 2, 3 }, new double[3], new double[3], new double[3], new int[3], builder, builder);
+        assertArrayEquals(new int[] { 0, 2, 2, 3 }, store.outStart);
+        assertArrayEquals(new int[] { 1, 2, 0 }, store.outTargets);
+    }
+}
@@ -0,0 +1,82 @@
+package AutoDriveEditor.Utils.Classes;
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialGridTest {
+
+    private SpatialGrid grid;
+    private final MapNode insideNode = new MapNode(1, 10, 0, 10, 0, false, false);
+    private final MapNode edgeNode = new MapNode(2, -31.5, 0, 63.9, 0, false, false);
+    private final MapNode outsideNode = new MapNode(3, 500, 0, -500, 0, false, false);
+
+    @BeforeEach
+    void setUp() {
+        grid = new SpatialGrid(32);
+        grid.insert(insideNode);
+        grid.insert(edgeNode);
+        grid.insert(outsideNode);
+    }
+
+    @Test
+    void insert() {
+        assertEquals(3, grid.size());
+        // inserting the same node twice must not duplicate it
+        grid.insert(insideNode);
+        assertEquals(3, grid.size());
+    }
+
+    @Test
+    void queryArea() {
+        List<MapNode> result = grid.queryArea(-40, 0, 40, 64);
+        assertEquals(2, result.size());
+        assertTrue(result.contains(insideNode));
+        assertTrue(result.contains(edgeNode));
+        assertFalse(result.contains(outsideNode));
+
+        // reversed corners should give the same result
+        assertEquals(2, grid.queryArea(40, 64, -40, 0).size());
+    }
+
+    @Test
+    void queryAreaLargerThanPopulatedCells() {
+        List<MapNode> result = grid.queryArea(-100000, -100000, 100000, 100000);
+        assertEquals(3, result.size());
+    }
+
+    @Test
+    void update() {
+        insideNode.x = 520;
+        insideNode.z = -480;
+        grid.update(insideNode);
+
+        assertFalse(grid.queryArea(0, 0, 20, 20).contains(insideNode));
+        assertTrue(grid.queryArea(480, -520, 540, -460).contains(insideNode));
+    }
+
+    @Test
+    void findNearest() {
+        MapNode closerNode = new MapNode(4, 12, 0, 11, 0, false, false);
+        grid.insert(closerNode);
+
+        assertSame(closerNode, grid.findNearest(13, 12, 4));
+        assertSame(insideNode, grid.findNearest(9, 9, 4));
+        // the square test is exclusive of its edges, like the hit-testing it replaces
+        assertNull(grid.findNearest(16, 10, 4));
+        // a node in a neighbouring cell is still found
+        assertSame(edgeNode, grid.findNearest(-32.5, 64.5, 2));
+    }
+
+    @Test
+    void remove() {
+        assertTrue(grid.remove(outsideNode));
+        assertFalse(grid.remove(outsideNode));
+        assertEquals(2, grid.size());
+        assertTrue(grid.queryArea(480, -520, 520, -480).isEmpty());
+    }
+}
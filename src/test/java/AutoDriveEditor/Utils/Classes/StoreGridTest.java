@@ -0,0 +1,57 @@
+package AutoDriveEditor.Utils.Classes;
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.NetworkStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoreGridTest {
+
+    private StoreGrid grid;
+
+    @BeforeEach
+    void setUp() {
+        MapNode insideNode = new MapNode(1, 10, 0, 10, 0, false, false);
+        MapNode edgeNode = new MapNode(2, -31.5, 0, 63.9, 0, false, false);
+        MapNode outsideNode = new MapNode(3, 500, 0, -500, 0, false, false);
+        grid = new StoreGrid(NetworkStore.fromNetwork(Arrays.asList(insideNode, edgeNode, outsideNode)), 32);
+    }
+
+    @Test
+    void queryArea() {
+        StoreGrid.IndexList result = new StoreGrid.IndexList();
+        grid.queryArea(-40, 0, 40, 64, result);
+        assertEquals(2, result.size());
+        assertEquals(0, result.get(0));
+        assertEquals(1, result.get(1));
+
+        // the result list isn't cleared by a query
+        grid.queryArea(499, -501, 501, -499, result);
+        assertEquals(3, result.size());
+        assertEquals(2, result.get(2));
+    }
+
+    @Test
+    void queryOutsideGrid() {
+        StoreGrid.IndexList result = new StoreGrid.IndexList();
+        grid.queryArea(1e12, 1e12, 2e12, 2e12, result);
+        grid.queryArea(-2e12, -2e12, -1e12, -1e12, result);
+        assertEquals(0, result.size());
+
+        // an area bigger than the whole grid finds every node
+        grid.queryArea(-1e12, -1e12, 1e12, 1e12, result);
+        assertEquals(3, result.size());
+    }
+
+    @Test
+    void emptyStore() {
+        StoreGrid emptyGrid = new StoreGrid(NetworkStore.fromNetwork(Arrays.asList()), 32);
+        StoreGrid.IndexList result = new StoreGrid.IndexList();
+        emptyGrid.queryArea(-100, -100, 100, 100, result);
+        assertEquals(0, result.size());
+    }
+}
@@ -0,0 +1,184 @@
+package AutoDriveEditor.Utils.Classes;
+
+import AutoDriveEditor.RoadNetwork.NetworkStore;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static AutoDriveEditor.Utils.MathUtils.limitDoubleToDecimalPlaces;
+import static AutoDriveEditor.Utils.XMLUtils.*;
+
+//
+// Compares reading the <waypoints> element of a synthetic AutoDrive config, once the old way ( DOM +
+// split() + Double.parseDouble() / Integer.parseInt() ) and once as GameXML now does it ( StAX +
+// NumericTokenizer ). It is not part of the test run, to use it:
+//
+//   mvn test-compile
+//   java -cp target/classes:target/test-classes AutoDriveEditor.Utils.Classes.WaypointParseBenchmark [numWaypoints]
+//
+// Add -Xmx to compare the peak memory each path needs, e.g. the DOM path fails much earlier.
+//
+
+public class WaypointParseBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int numWaypoints = (args.length > 0) ? Integer.parseInt(args[0]) : 500000;
+        File file = File.createTempFile("waypointBenchmark", ".xml");
+        file.deleteOnExit();
+        writeSyntheticConfig(file, numWaypoints);
+        System.out.printf("%d waypoints, %.1f MB file%n", numWaypoints, file.length() / (1024.0 * 1024.0));
+
+        for (int run = 1; run <= 5; run++) {
+            long start = System.nanoTime();
+            long checksum = readWithSplit(file);
+            long splitTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long tokenizerChecksum = readWithTokenizer(file);
+            long tokenizerTime = System.nanoTime() - start;
+
+            if (checksum != tokenizerChecksum) throw new IllegalStateException("the two paths read different networks");
+            System.out.printf("Run %d: DOM + split %d ms, StAX + tokenizer %d ms%n", run, splitTime / 1000000, tokenizerTime / 1000000);
+        }
+    }
+
+    // a chain of waypoints, every 10th one a junction with a second outgoing connection
+
+    private static void writeSyntheticConfig(File file, int numWaypoints) throws IOException {
+        Random random = new Random(1);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write("<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"no\"?>\n<AutoDrive>\n<version>2.0.0.8</version>\n<MapName>Benchmark</MapName>\n<waypoints>\n");
+            String[] columns = { "id", "x", "y", "z", "out", "incoming", "flags" };
+            for (String column : columns) {
+                writer.write("<" + column + ">");
+                for (int i = 1; i <= numWaypoints; i++) {
+                    switch (column) {
+                        case "id":
+                            if (i > 1) writer.write(',');
+                            writer.write(Integer.toString(i));
+                            break;
+                        case "x":
+                        case "y":
+                        case "z":
+                            if (i > 1) writer.write(',');
+                            writer.write(String.format(Locale.ROOT, "%.3f", (random.nextDouble() * 4096) - 2048));
+                            break;
+                        case "out":
+                            if (i > 1) writer.write(';');
+                            writer.write((i < numWaypoints) ? Integer.toString(i + 1) : "-1");
+                            if (i % 10 == 0 && i + 2 <= numWaypoints) writer.write("," + (i + 2));
+                            break;
+                        case "incoming":
+                            if (i > 1) writer.write(';');
+                            writer.write((i > 1) ? Integer.toString(i - 1) : "-1");
+                            if (i % 10 == 2 && i > 10) writer.write("," + (i - 2));
+                            break;
+                        case "flags":
+                            if (i > 1) writer.write(',');
+                            writer.write((i % 7 == 0) ? "1" : "0");
+                            break;
+                    }
+                }
+                writer.write("</" + column + ">\n");
+            }
+            writer.write("</waypoints>\n</AutoDrive>\n");
+        }
+    }
+
+    // the loader code before the tokenizer
+
+    private static long readWithSplit(File file) throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+        doc.getDocumentElement().normalize();
+        Element waypoints = (Element) doc.getElementsByTagName("waypoints").item(0);
+
+        String[] ids = getText(waypoints, "id").split(",");
+        String[] xValues = getText(waypoints, "x").split(",");
+        String[] yValues = getText(waypoints, "y").split(",");
+        String[] zValues = getText(waypoints, "z").split(",");
+        String[] outValueArrays = getText(waypoints, "out").split(";");
+        String[] incomingValueArrays = getText(waypoints, "incoming").split(";");
+        String[] flagsValue = getText(waypoints, "flags").split(",");
+
+        int[] nodeIds = new int[ids.length];
+        double[] nodeX = new double[ids.length];
+        double[] nodeY = new double[ids.length];
+        double[] nodeZ = new double[ids.length];
+        int[] nodeFlags = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            nodeIds[i] = Integer.parseInt(ids[i]);
+            nodeX[i] = limitDoubleToDecimalPlaces(Double.parseDouble(xValues[i]), 3, RoundingMode.HALF_UP);
+            nodeY[i] = limitDoubleToDecimalPlaces(Double.parseDouble(yValues[i]), 3, RoundingMode.HALF_UP);
+            nodeZ[i] = limitDoubleToDecimalPlaces(Double.parseDouble(zValues[i]), 3, RoundingMode.HALF_UP);
+            nodeFlags[i] = Integer.parseInt(flagsValue[i]);
+        }
+        NetworkStore.AdjacencyBuilder outgoing = new NetworkStore.AdjacencyBuilder(ids.length, ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            for (String outNode : outValueArrays[i].split(",")) {
+                int outId = Integer.parseInt(outNode);
+                if (outId != -1) outgoing.addConnection(outId - 1);
+            }
+            outgoing.endNode();
+        }
+        NetworkStore.AdjacencyBuilder incoming = new NetworkStore.AdjacencyBuilder(ids.length, ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            for (String incomingNode : incomingValueArrays[i].split(",")) {
+                int inId = Integer.parseInt(incomingNode);
+                if (inId != -1) incoming.addConnection(inId - 1);
+            }
+            incoming.endNode();
+        }
+        return checksum(new NetworkStore(nodeIds, nodeX, nodeY, nodeZ, nodeFlags, outgoing, incoming));
+    }
+
+    private static String getText(Element element, String tag) {
+        return element.getElementsByTagName(tag).item(0).getFirstChild().getNodeValue();
+    }
+
+    // the loader code with the tokenizer, the same column handling as GameXML.readWaypointsColumn()
+
+    private static long readWithTokenizer(File file) throws Exception {
+        int[] ids = null, flags = null;
+        double[] x = null, y = null, z = null;
+        NetworkStore.AdjacencyBuilder outgoing = null, incoming = null;
+
+        StringBuilder text = new StringBuilder();
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file), 65536)) {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(inputStream);
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) continue;
+                switch (reader.getLocalName()) {
+                    case "id": ids = parseIntColumn(readElementText(reader, text), ','); break;
+                    case "x": x = parseDoubleColumn(readElementText(reader, text), ',', 3); break;
+                    case "y": y = parseDoubleColumn(readElementText(reader, text), ',', 3); break;
+                    case "z": z = parseDoubleColumn(readElementText(reader, text), ',', 3); break;
+                    case "out": outgoing = parseConnectionsColumn(readElementText(reader, text)); break;
+                    case "incoming": incoming = parseConnectionsColumn(readElementText(reader, text)); break;
+                    case "flags": flags = parseIntColumn(readElementText(reader, text), ','); break;
+                }
+            }
+            reader.close();
+        }
+        //noinspection ConstantConditions
+        return checksum(new NetworkStore(ids, x, y, z, flags, outgoing, incoming));
+    }
+
+    private static long checksum(NetworkStore store) {
+        long checksum = 0;
+        for (int i = 0; i < store.numNodes; i++) {
+            checksum = (checksum * 31) + store.ids[i] + Double.doubleToLongBits(store.x[i]) + Double.doubleToLongBits(store.y[i]) + Double.doubleToLongBits(store.z[i]) + store.flags[i];
+        }
+        for (int target : store.outTargets) checksum = (checksum * 31) + target;
+        for (int target : store.inTargets) checksum = (checksum * 31) + target;
+        return checksum;
+    }
+}
@@ -0,0 +1,124 @@
+package AutoDriveEditor.XMLConfig;
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.MarkerGroup;
+import AutoDriveEditor.RoadNetwork.NetworkStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    // 1 -> 2 -> 3 -> 1 , marker on 3
+    private static ConfigSnapshot createSnapshot() {
+        MapNode node1 = new MapNode(1, 0, 0, 0, 0, false, false);
+        MapNode node2 = new MapNode(2, 10.5, 1, -4, 1, false, false);
+        MapNode node3 = new MapNode(3, 20, 2, 8.125, 0, false, false);
+        node1.outgoing.add(node2);
+        node2.incoming.add(node1);
+        node2.outgoing.add(node3);
+        node3.incoming.add(node2);
+        node3.outgoing.add(node1);
+        node1.incoming.add(node3);
+        NetworkStore store = NetworkStore.fromNetwork(Arrays.asList(node1, node2, node3));
+        List<ConfigSnapshot.Marker> markers = Collections.singletonList(new ConfigSnapshot.Marker(3, "Farm ü", "All"));
+        return new ConfigSnapshot(store, "Map 1", GameXML.FS22_CONFIG, true, markers, Collections.singletonList(new MarkerGroup(1, "All")));
+    }
+
+    private File createConfig() throws IOException {
+        File configFile = tempDir.resolve("AutoDrive_config.xml").toFile();
+        Files.write(configFile.toPath(), "<AutoDrive><waypoints/></AutoDrive>".getBytes(StandardCharsets.UTF_8));
+        return configFile;
+    }
+
+    @Test
+    void roundTrip() throws IOException {
+        File configFile = createConfig();
+        ConfigSnapshot saved = createSnapshot();
+        ConfigSnapshot.save(configFile, ConfigSnapshot.GAME_CONFIG, saved);
+
+        ConfigSnapshot loaded = ConfigSnapshot.load(configFile, ConfigSnapshot.GAME_CONFIG);
+        assertNotNull(loaded);
+        assertEquals("Map 1", loaded.mapName);
+        assertEquals(GameXML.FS22_CONFIG, loaded.configVersion);
+        assertTrue(loaded.hasFlagTag);
+        assertArrayEquals(saved.store.ids, loaded.store.ids);
+        assertArrayEquals(saved.store.x, loaded.store.x);
+        assertArrayEquals(saved.store.z, loaded.store.z);
+        assertArrayEquals(saved.store.flags, loaded.store.flags);
+        assertArrayEquals(saved.store.outStart, loaded.store.outStart);
+        assertArrayEquals(saved.store.outTargets, loaded.store.outTargets);
+        assertArrayEquals(saved.store.inTargets, loaded.store.inTargets);
+        assertEquals(1, loaded.markers.size());
+        assertEquals(3, loaded.markers.get(0).nodeId);
+        assertEquals("Farm ü", loaded.markers.get(0).name);
+        assertEquals("All", loaded.markerGroups.get(0).groupName);
+
+        assertNull(ConfigSnapshot.load(configFile, ConfigSnapshot.ROUTES_CONFIG));
+    }
+
+    @Test
+    void fromNetworkIsACopy() {
+        MapNode node1 = new MapNode(1, 0, 0, 0, 0, false, false);
+        MapNode node2 = new MapNode(2, 5, 0, 5, 0, false, false);
+        node1.outgoing.add(node2);
+        node2.incoming.add(node1);
+        node2.createMapMarker("Silo", "All");
+        List<MarkerGroup> groups = new ArrayList<>(Collections.singletonList(new MarkerGroup(1, "All")));
+        ConfigSnapshot snapshot = ConfigSnapshot.fromNetwork(Arrays.asList(node1, node2), "Map 1", GameXML.FS22_CONFIG, groups);
+
+        // edits after the snapshot was taken don't show in it
+        node2.x = 50;
+        node2.setMarkerName("Farm");
+        groups.clear();
+
+        assertEquals(5, snapshot.store.x[1]);
+        assertArrayEquals(new int[] { 1 }, snapshot.store.outTargets);
+        assertEquals(1, snapshot.markers.size());
+        assertEquals(2, snapshot.markers.get(0).nodeId);
+        assertEquals("Silo", snapshot.markers.get(0).name);
+        assertEquals("All", snapshot.markerGroups.get(0).groupName);
+    }
+
+    @Test
+    void changedConfigIsNotUsed() throws IOException {
+        File configFile = createConfig();
+        ConfigSnapshot.save(configFile, ConfigSnapshot.GAME_CONFIG, createSnapshot());
+        long lastModified = configFile.lastModified();
+
+        // same size and modified time, only the content hash can tell
+        try (RandomAccessFile file = new RandomAccessFile(configFile, "rw")) {
+            file.seek(1);
+            file.write('a');
+        }
+        assertTrue(configFile.setLastModified(lastModified));
+        assertNull(ConfigSnapshot.load(configFile, ConfigSnapshot.GAME_CONFIG));
+    }
+
+    @Test
+    void damagedSnapshotIsNotUsed() throws IOException {
+        File configFile = createConfig();
+        ConfigSnapshot.save(configFile, ConfigSnapshot.GAME_CONFIG, createSnapshot());
+        File snapshotFile = ConfigSnapshot.getSnapshotFile(configFile);
+
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+            file.setLength(file.length() - 20);
+        }
+        assertNull(ConfigSnapshot.load(configFile, ConfigSnapshot.GAME_CONFIG));
+    }
+}